@@ -0,0 +1,71 @@
+package cn.langchat.learning.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试数据
+ *
+ * 使用固定种子生成，保证每次运行的输入完全相同
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 42L;
+
+    private BenchmarkData() {
+        // 工具类，不允许实例化
+    }
+
+    /**
+     * 生成 count 个 dimension 维的随机单位向量
+     */
+    static List<float[]> vectors(int count, int dimension) {
+        Random random = new Random(SEED);
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(randomUnitVector(random, dimension));
+        }
+        return vectors;
+    }
+
+    /**
+     * 生成一个与语料不同的查询向量
+     */
+    static float[] query(int dimension) {
+        return randomUnitVector(new Random(SEED + 1), dimension);
+    }
+
+    /**
+     * 生成包含 paragraphs 个段落的中文文本
+     */
+    static String text(int paragraphs) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            if (i > 0) {
+                text.append("\n\n");
+            }
+            text.append("第 ").append(i + 1).append(" 段：")
+                    .append("LangChain4j 是一个用于构建大语言模型应用的 Java 库，")
+                    .append("RAG（检索增强生成）结合了信息检索和文本生成，可以提高答案的准确性。");
+        }
+        return text.toString();
+    }
+
+    private static float[] randomUnitVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,29 @@
+package cn.langchat.learning.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 在 IDE 中运行基准测试
+ *
+ * 默认启用 GC profiler，输出中的 gc.alloc.rate.norm 是每次调用分配的字节数，
+ * 比耗时更稳定，适合用来发现内存分配上的回退
+ *
+ * 第一个参数可以传入正则表达式，只运行匹配的基准，例如 "VectorUtilsBenchmark.cosine"
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "cn.langchat.learning.benchmark.*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
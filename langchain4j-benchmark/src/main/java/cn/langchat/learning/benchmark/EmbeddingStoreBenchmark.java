@@ -0,0 +1,75 @@
+package cn.langchat.learning.benchmark;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryEmbeddingStore 检索基准测试
+ *
+ * 按语料规模和向量维度比较 search 的耗时和内存分配
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddingStoreBenchmark {
+
+    @Param({"384", "1536"})
+    private int dimension;
+
+    @Param({"1000", "10000", "50000"})
+    private int corpusSize;
+
+    @Param({"5"})
+    private int maxResults;
+
+    private InMemoryEmbeddingStore<TextSegment> store;
+    private EmbeddingSearchRequest request;
+
+    @Setup
+    public void setUp() {
+        store = new InMemoryEmbeddingStore<>();
+        List<float[]> vectors = BenchmarkData.vectors(corpusSize, dimension);
+        List<Embedding> embeddings = new ArrayList<>(corpusSize);
+        List<TextSegment> segments = new ArrayList<>(corpusSize);
+        for (int i = 0; i < vectors.size(); i++) {
+            embeddings.add(Embedding.from(vectors.get(i)));
+            segments.add(TextSegment.from("segment-" + i));
+        }
+        store.addAll(embeddings, segments);
+
+        request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(BenchmarkData.query(dimension)))
+                .maxResults(maxResults)
+                .minScore(0.0)
+                .build();
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> search() {
+        return store.search(request);
+    }
+}
@@ -0,0 +1,67 @@
+package cn.langchat.learning.benchmark;
+
+import cn.langchat.learning.tutorial.rag.Document;
+import cn.langchat.learning.tutorial.rag.RagSystem;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RagSystem 文本处理基准测试
+ *
+ * segmentDocument 和 buildContext 不调用模型，构造 RagSystem 时不需要传入模型
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RagSystemBenchmark {
+
+    @Param({"10", "100"})
+    private int paragraphs;
+
+    @Param({"3", "10"})
+    private int documents;
+
+    private RagSystem ragSystem;
+    private Document document;
+    private List<Document> retrieved;
+
+    @Setup
+    public void setUp() {
+        ragSystem = new RagSystem(null, null, null);
+        document = new Document("doc", "基准文档", BenchmarkData.text(paragraphs));
+        retrieved = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            retrieved.add(new Document("doc-" + i, "文档 " + i, BenchmarkData.text(paragraphs)));
+        }
+    }
+
+    @Benchmark
+    public List<TextSegment> segmentDocument() {
+        return ragSystem.segmentDocument(document);
+    }
+
+    @Benchmark
+    public String buildContext() {
+        return ragSystem.buildContext(retrieved);
+    }
+}
@@ -0,0 +1,101 @@
+package cn.langchat.learning.benchmark;
+
+import cn.langchat.learning.tutorial.tools.ToolRegistry;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工具调度基准测试
+ *
+ * 对比同一个工具请求的两种执行方式：
+ * - defaultToolExecutor：LangChain4j 的 DefaultToolExecutor，参数先解析成 Map，再反射调用
+ * - toolRegistry：{@link ToolRegistry}，预编译的参数解码器和 MethodHandle
+ * - toolSpecifications / cachedToolSpecifications：每次反射生成工具规格与按类缓存的对比
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolDispatchBenchmark {
+
+    /**
+     * 与 AiServicesTest 中的 MathTools 相同
+     */
+    public static class MathTools {
+        @Tool("加法运算")
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        @Tool("除法运算")
+        public double divide(int a, int b) {
+            if (b == 0) {
+                throw new IllegalArgumentException("除数不能为零");
+            }
+            return (double) a / b;
+        }
+    }
+
+    private ToolExecutionRequest request;
+    private ToolExecutor defaultExecutor;
+    private ToolRegistry registry;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        MathTools tools = new MathTools();
+        request = ToolExecutionRequest.builder()
+                .id("call-1")
+                .name("divide")
+                .arguments("{\"a\": 10, \"b\": 4}")
+                .build();
+        defaultExecutor = new DefaultToolExecutor(tools, MathTools.class.getMethod("divide", int.class, int.class));
+        registry = ToolRegistry.builder().tools(tools).build();
+        // 两种方式必须得到相同的结果，否则测的是错误处理路径
+        String expected = defaultExecutor.execute(request, "user-1");
+        if (!"2.5".equals(expected) || !expected.equals(registry.execute(request, "user-1"))) {
+            throw new IllegalStateException("工具执行结果不一致: " + expected);
+        }
+    }
+
+    @Benchmark
+    public String defaultToolExecutor() {
+        return defaultExecutor.execute(request, "user-1");
+    }
+
+    @Benchmark
+    public String toolRegistry() {
+        return registry.execute(request, "user-1");
+    }
+
+    @Benchmark
+    public List<ToolSpecification> toolSpecifications() {
+        return ToolSpecifications.toolSpecificationsFrom(MathTools.class);
+    }
+
+    @Benchmark
+    public List<ToolSpecification> cachedToolSpecifications() {
+        return ToolRegistry.toolSpecificationsFrom(MathTools.class);
+    }
+}
@@ -0,0 +1,82 @@
+package cn.langchat.learning.benchmark;
+
+import cn.langchat.learning.tutorial.embedding.utils.VectorUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VectorUtils 基准测试
+ *
+ * - cosineSimilarity / normalize：单个向量的计算，按维度比较
+ * - findTopKSimilar：暴力检索，按语料规模和维度比较
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorUtilsBenchmark {
+
+    @Param({"384", "1024", "1536"})
+    private int dimension;
+
+    private float[] query;
+    private float[] other;
+
+    @Setup
+    public void setUp() {
+        query = BenchmarkData.query(dimension);
+        other = BenchmarkData.vectors(1, dimension).get(0);
+    }
+
+    @Benchmark
+    public double cosineSimilarity() {
+        return VectorUtils.cosineSimilarity(query, other);
+    }
+
+    @Benchmark
+    public float[] normalize() {
+        return VectorUtils.normalize(query);
+    }
+
+    @Benchmark
+    public List<VectorUtils.SimilarityResult> findTopKSimilar(Corpus corpus) {
+        return VectorUtils.findTopKSimilar(query, corpus.vectors, corpus.topK);
+    }
+
+    /**
+     * 检索语料，只有 findTopKSimilar 使用，避免语料规模参数放大其它基准的组合数
+     */
+    @State(Scope.Benchmark)
+    public static class Corpus {
+
+        @Param({"1000", "10000"})
+        private int corpusSize;
+
+        @Param({"10"})
+        private int topK;
+
+        private List<float[]> vectors;
+
+        @Setup
+        public void setUp(VectorUtilsBenchmark benchmark) {
+            vectors = BenchmarkData.vectors(corpusSize, benchmark.dimension);
+        }
+    }
+}
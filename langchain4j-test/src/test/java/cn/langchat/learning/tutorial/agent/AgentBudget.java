@@ -0,0 +1,102 @@
+package cn.langchat.learning.tutorial.agent;
+
+import java.time.Duration;
+
+/**
+ * 单次 Agent 运行的预算
+ *
+ * 任何一项用完，Agent 都会在下一个检查点停止，并在 {@link AgentResult} 中给出停止原因：
+ * - maxSteps：模型调用次数。每次模型回复（请求工具或给出回答）算一步
+ * - maxTokens：所有步骤的 token 用量之和，以模型返回的 TokenUsage 为准
+ * - timeout：从开始执行算起的墙钟时间，到期时中断正在等待的模型请求或工具
+ * - maxRepeatedToolCalls：同一工具、同样参数最多调用的次数，超过说明 Agent 在原地打转
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class AgentBudget {
+
+    private final int maxSteps;
+    private final long maxTokens;
+    private final Duration timeout;
+    private final int maxRepeatedToolCalls;
+
+    private AgentBudget(Builder builder) {
+        this.maxSteps = builder.maxSteps;
+        this.maxTokens = builder.maxTokens;
+        this.timeout = builder.timeout;
+        this.maxRepeatedToolCalls = builder.maxRepeatedToolCalls;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    public long getMaxTokens() {
+        return maxTokens;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public int getMaxRepeatedToolCalls() {
+        return maxRepeatedToolCalls;
+    }
+
+    public static final class Builder {
+        private int maxSteps = 10;
+        private long maxTokens = 50_000;
+        private Duration timeout = Duration.ofMinutes(2);
+        private int maxRepeatedToolCalls = 2;
+
+        private Builder() {
+        }
+
+        /**
+         * 最多调用模型的次数，默认 10
+         */
+        public Builder maxSteps(int maxSteps) {
+            this.maxSteps = maxSteps;
+            return this;
+        }
+
+        /**
+         * 最多使用的 token 数，默认 50000
+         */
+        public Builder maxTokens(long maxTokens) {
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * 墙钟时间上限，默认 2 分钟。不包括在调度器中排队的时间
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * 同一工具、同样参数最多调用的次数，默认 2
+         */
+        public Builder maxRepeatedToolCalls(int maxRepeatedToolCalls) {
+            this.maxRepeatedToolCalls = maxRepeatedToolCalls;
+            return this;
+        }
+
+        public AgentBudget build() {
+            if (maxSteps <= 0 || maxTokens <= 0 || maxRepeatedToolCalls <= 0) {
+                throw new IllegalArgumentException("maxSteps、maxTokens 和 maxRepeatedToolCalls 必须大于 0");
+            }
+            if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+                throw new IllegalArgumentException("timeout 必须大于 0");
+            }
+            return new AgentBudget(this);
+        }
+    }
+}
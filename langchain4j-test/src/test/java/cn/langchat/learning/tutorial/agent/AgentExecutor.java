@@ -0,0 +1,365 @@
+package cn.langchat.learning.tutorial.agent;
+
+import cn.langchat.learning.tutorial.agent.AgentResult.StopReason;
+import cn.langchat.learning.tutorial.tools.ToolRegistry;
+import cn.langchat.learning.util.DaemonThreads;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.tool.ToolExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 有预算约束的 Agent 执行器
+ *
+ * 在 AI Service 的工具循环外面加上约束，防止失控的 Agent 无限调用工具、消耗延迟和 token：
+ * - 每次运行受 {@link AgentBudget} 约束：步数、token 数、墙钟时间，以及同一工具调用的重复次数
+ * - 约束在每次模型调用前后检查。token 用完或检测到重复调用时，不再执行本轮请求的工具，立即停止；
+ *   超时时中断正在等待的模型请求或工具
+ * - 停止时返回 {@link AgentResult}，包含停止原因、已用步数和 token，不抛出异常
+ * - 所有运行提交到 {@link FairTenantScheduler}，多个租户公平地共享有限的并发
+ *
+ * AI Service 只创建一次；每次运行的状态通过 ThreadLocal 传给包装后的 ChatModel，
+ * 工具循环中的模型调用都发生在执行这次运行的工作线程上
+ *
+ * <pre>
+ * AgentExecutor executor = AgentExecutor.builder()
+ *         .chatModel(chatModel)
+ *         .tools(toolRegistry)
+ *         .budget(AgentBudget.builder().maxSteps(8).build())
+ *         .build();
+ * AgentResult result = executor.submit("tenant-a", "帮我查一下订单状态").join();
+ * </pre>
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class AgentExecutor implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ScheduledExecutorService WATCHDOG = DaemonThreads.scheduler("langchat-agent-watchdog");
+
+    private final Agent agent;
+    private final AgentBudget budget;
+    private final FairTenantScheduler scheduler;
+    private final boolean ownsScheduler;
+    private final ThreadLocal<AgentRun> currentRun = new ThreadLocal<>();
+
+    private AgentExecutor(Builder builder) {
+        this.budget = builder.budget;
+        this.ownsScheduler = builder.scheduler == null;
+        this.scheduler = ownsScheduler ? FairTenantScheduler.builder().build() : builder.scheduler;
+        AiServices<Agent> aiServices = AiServices.builder(Agent.class)
+                .chatModel(new BudgetedChatModel(builder.chatModel))
+                // 步数由 AgentBudget 控制，不使用 AI Service 自带的上限
+                .maxSequentialToolsInvocations(Integer.MAX_VALUE);
+        if (builder.systemMessage != null) {
+            aiServices.systemMessageProvider(memoryId -> builder.systemMessage);
+        }
+        if (!builder.tools.isEmpty()) {
+            aiServices.tools(builder.tools);
+        }
+        this.agent = aiServices.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 使用默认预算运行 Agent
+     *
+     * @throws RejectedExecutionException 租户排队的运行数已达上限
+     */
+    public CompletableFuture<AgentResult> submit(String tenant, String message) {
+        return submit(tenant, message, budget);
+    }
+
+    /**
+     * 使用指定预算运行 Agent
+     *
+     * @throws RejectedExecutionException 租户排队的运行数已达上限
+     */
+    public CompletableFuture<AgentResult> submit(String tenant, String message, AgentBudget budget) {
+        CompletableFuture<AgentResult> future = new CompletableFuture<>();
+        long submittedNanos = System.nanoTime();
+        scheduler.submit(tenant, () -> {
+            try {
+                future.complete(run(tenant, message, budget, submittedNanos));
+            } catch (Throwable e) {
+                // run() 只把 RuntimeException 转成 FAILED；Error 会被调度器吞掉，必须在这里结束 future，否则 join() 永远等待
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 关闭执行器创建的调度器，已提交的运行仍会执行完；使用外部传入的调度器时不做任何事
+     */
+    @Override
+    public void close() {
+        if (ownsScheduler) {
+            scheduler.close();
+        }
+    }
+
+    private AgentResult run(String tenant, String message, AgentBudget budget, long submittedNanos) {
+        AgentRun run = new AgentRun(budget, Thread.currentThread());
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(run::timeout, budget.getTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        currentRun.set(run);
+        StopReason stopReason;
+        String answer = null;
+        Throwable error = null;
+        try {
+            answer = agent.chat(message);
+            stopReason = StopReason.COMPLETED;
+        } catch (RuntimeException e) {
+            AgentStopException stop = findStop(e);
+            if (stop != null) {
+                stopReason = stop.reason;
+            } else if (run.isTimedOut()) {
+                stopReason = StopReason.TIMEOUT;
+            } else {
+                stopReason = StopReason.FAILED;
+                error = e;
+            }
+            answer = run.lastText;
+        } finally {
+            currentRun.remove();
+            watchdog.cancel(false);
+            run.finish();
+        }
+        AgentResult result = new AgentResult(tenant, stopReason, answer, run.steps, run.tokens,
+                Duration.ofNanos(run.startNanos - submittedNanos), Duration.ofNanos(System.nanoTime() - run.startNanos),
+                error);
+        if (stopReason != StopReason.COMPLETED) {
+            log.warn("Agent 提前停止: {}", result);
+        }
+        return result;
+    }
+
+    private static AgentStopException findStop(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AgentStopException stop) {
+                return stop;
+            }
+        }
+        return null;
+    }
+
+    interface Agent {
+        String chat(String message);
+    }
+
+    /**
+     * 一次运行的状态，只在执行这次运行的工作线程上修改
+     */
+    private static final class AgentRun {
+
+        private final AgentBudget budget;
+        private final Thread thread;
+        private final long startNanos = System.nanoTime();
+        private final long deadlineNanos;
+        private final Map<Map.Entry<String, JsonNode>, Integer> toolCalls = new HashMap<>();
+        private int steps;
+        private long tokens;
+        private String lastText;
+        private boolean timedOut;
+        private boolean finished;
+
+        private AgentRun(AgentBudget budget, Thread thread) {
+            this.budget = budget;
+            this.thread = thread;
+            this.deadlineNanos = startNanos + budget.getTimeout().toNanos();
+        }
+
+        private void beforeStep() {
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                throw new AgentStopException(StopReason.TIMEOUT);
+            }
+            if (steps >= budget.getMaxSteps()) {
+                throw new AgentStopException(StopReason.MAX_STEPS);
+            }
+            steps++;
+        }
+
+        private void afterStep(ChatResponse response) {
+            TokenUsage usage = response.tokenUsage();
+            if (usage != null && usage.totalTokenCount() != null) {
+                tokens += usage.totalTokenCount();
+            }
+            AiMessage aiMessage = response.aiMessage();
+            if (aiMessage.text() != null) {
+                lastText = aiMessage.text();
+            }
+            if (tokens > budget.getMaxTokens()) {
+                throw new AgentStopException(StopReason.MAX_TOKENS);
+            }
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    int calls = toolCalls.merge(toolCallKey(request), 1, Integer::sum);
+                    if (calls > budget.getMaxRepeatedToolCalls()) {
+                        log.debug("工具 {} 以相同参数调用了 {} 次", request.name(), calls);
+                        throw new AgentStopException(StopReason.REPEATED_TOOL_CALL);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 参数解析成 JsonNode 后比较，字段顺序和空白不同的调用视为同一个调用
+         */
+        private static Map.Entry<String, JsonNode> toolCallKey(ToolExecutionRequest request) {
+            JsonNode arguments;
+            try {
+                arguments = MAPPER.readTree(request.arguments() == null ? "{}" : request.arguments());
+            } catch (JsonProcessingException e) {
+                arguments = MAPPER.getNodeFactory().textNode(request.arguments());
+            }
+            return new SimpleImmutableEntry<>(request.name(), arguments);
+        }
+
+        /**
+         * 看门狗线程调用：运行还没结束时中断工作线程
+         */
+        private synchronized void timeout() {
+            if (!finished) {
+                timedOut = true;
+                thread.interrupt();
+            }
+        }
+
+        private synchronized boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * 标记运行结束，并清除看门狗可能设置的中断标记，避免影响工作线程上的下一次运行
+         */
+        private void finish() {
+            synchronized (this) {
+                finished = true;
+            }
+            Thread.interrupted();
+        }
+    }
+
+    private static final class AgentStopException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final StopReason reason;
+
+        private AgentStopException(StopReason reason) {
+            super("Agent 停止: " + reason, null, false, false);
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * 在每次模型调用前后检查当前运行的预算
+     */
+    private final class BudgetedChatModel implements ChatModel {
+
+        private final ChatModel delegate;
+
+        private BudgetedChatModel(ChatModel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ChatResponse doChat(ChatRequest chatRequest) {
+            AgentRun run = currentRun.get();
+            if (run == null) {
+                return delegate.chat(chatRequest);
+            }
+            run.beforeStep();
+            ChatResponse response = delegate.chat(chatRequest);
+            run.afterStep(response);
+            return response;
+        }
+
+        @Override
+        public ChatRequestParameters defaultRequestParameters() {
+            return delegate.defaultRequestParameters();
+        }
+    }
+
+    public static final class Builder {
+        private ChatModel chatModel;
+        private String systemMessage;
+        private final Map<ToolSpecification, ToolExecutor> tools = new LinkedHashMap<>();
+        private AgentBudget budget = AgentBudget.builder().build();
+        private FairTenantScheduler scheduler;
+
+        private Builder() {
+        }
+
+        public Builder chatModel(ChatModel chatModel) {
+            this.chatModel = chatModel;
+            return this;
+        }
+
+        public Builder systemMessage(String systemMessage) {
+            this.systemMessage = systemMessage;
+            return this;
+        }
+
+        public Builder tools(ToolRegistry registry) {
+            return tools(registry.toolExecutors());
+        }
+
+        public Builder tools(Map<ToolSpecification, ToolExecutor> tools) {
+            this.tools.putAll(tools);
+            return this;
+        }
+
+        /**
+         * 默认预算，submit 时可以为单次运行指定其它预算
+         */
+        public Builder budget(AgentBudget budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * 运行 Agent 的调度器，多个执行器可以共用；默认每个执行器创建一个
+         */
+        public Builder scheduler(FairTenantScheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public AgentExecutor build() {
+            if (chatModel == null) {
+                throw new IllegalArgumentException("chatModel 不能为空");
+            }
+            if (budget == null) {
+                throw new IllegalArgumentException("budget 不能为空");
+            }
+            return new AgentExecutor(this);
+        }
+    }
+}
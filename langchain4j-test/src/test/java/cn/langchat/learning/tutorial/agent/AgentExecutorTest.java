@@ -0,0 +1,343 @@
+package cn.langchat.learning.tutorial.agent;
+
+import cn.langchat.learning.tutorial.agent.AgentResult.StopReason;
+import cn.langchat.learning.tutorial.tools.ToolRegistry;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 有预算约束的 Agent 执行器测试
+ *
+ * 使用按轮次返回固定工具调用的模型模拟 Agent 的工具循环，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("Agent 执行器测试")
+class AgentExecutorTest {
+
+    private static final int TOKENS_PER_STEP = 100;
+
+    private final List<AutoCloseable> closeables = new ArrayList<>();
+
+    static class OrderTools {
+        private final AtomicInteger executions = new AtomicInteger();
+
+        @Tool("查询订单状态")
+        public String orderStatus(String orderId) {
+            executions.incrementAndGet();
+            return "订单 " + orderId + " 已发货";
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable closeable : closeables) {
+            closeable.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Agent 完成时应该返回回答、步数和 token 用量")
+    void shouldCompleteWithinBudget() {
+        OrderTools tools = new OrderTools();
+        // 前两轮查询两个订单，第三轮给出回答
+        AgentExecutor executor = executor(tools, new ScriptedModel(step -> step < 2
+                ? toolCall("orderStatus", "{\"orderId\": \"A" + step + "\"}")
+                : AiMessage.from("两个订单都已发货"), 0), AgentBudget.builder().build());
+
+        AgentResult result = executor.submit("tenant-a", "我的订单到哪了？").join();
+
+        assertEquals(StopReason.COMPLETED, result.getStopReason());
+        assertEquals("两个订单都已发货", result.getAnswer());
+        assertEquals(3, result.getSteps());
+        assertEquals(3 * TOKENS_PER_STEP, result.getTokens());
+        assertEquals(2, tools.executions.get());
+
+        log.info("Agent 结果: {}", result);
+        log.info("\n✅ 测试通过：Agent 在预算内完成\n");
+    }
+
+    @Test
+    @DisplayName("超过步数上限应该停止")
+    void shouldStopAtMaxSteps() {
+        OrderTools tools = new OrderTools();
+        // 每轮都查询一个新订单，永远不给出回答
+        AgentExecutor executor = executor(tools, new ScriptedModel(step ->
+                toolCall("orderStatus", "{\"orderId\": \"A" + step + "\"}"), 0),
+                AgentBudget.builder().maxSteps(5).build());
+
+        AgentResult result = executor.submit("tenant-a", "我的订单到哪了？").join();
+
+        assertEquals(StopReason.MAX_STEPS, result.getStopReason());
+        assertEquals(5, result.getSteps());
+        assertEquals(5, tools.executions.get());
+
+        log.info("Agent 结果: {}", result);
+        log.info("\n✅ 测试通过：超过步数上限时停止\n");
+    }
+
+    @Test
+    @DisplayName("超过 token 上限应该停止，不再执行本轮请求的工具")
+    void shouldStopAtMaxTokens() {
+        OrderTools tools = new OrderTools();
+        AgentExecutor executor = executor(tools, new ScriptedModel(step ->
+                toolCall("orderStatus", "{\"orderId\": \"A" + step + "\"}"), 0),
+                AgentBudget.builder().maxTokens(TOKENS_PER_STEP * 3 - 1).build());
+
+        AgentResult result = executor.submit("tenant-a", "我的订单到哪了？").join();
+
+        assertEquals(StopReason.MAX_TOKENS, result.getStopReason());
+        assertEquals(3, result.getSteps());
+        assertEquals(3 * TOKENS_PER_STEP, result.getTokens());
+        assertEquals(2, tools.executions.get());
+
+        log.info("Agent 结果: {}", result);
+        log.info("\n✅ 测试通过：超过 token 上限时停止\n");
+    }
+
+    @Test
+    @DisplayName("重复以相同参数调用同一个工具应该提前停止")
+    void shouldStopOnRepeatedToolCalls() {
+        OrderTools tools = new OrderTools();
+        // 参数的字段顺序和空白不同，仍然是同一个调用
+        String[] arguments = {"{\"orderId\": \"A1\"}", "{\"orderId\":\"A1\"}", "{ \"orderId\" : \"A1\" }"};
+        AgentExecutor executor = executor(tools, new ScriptedModel(step ->
+                toolCall("orderStatus", arguments[step % arguments.length]), 0),
+                AgentBudget.builder().maxSteps(10).maxRepeatedToolCalls(2).build());
+
+        AgentResult result = executor.submit("tenant-a", "我的订单到哪了？").join();
+
+        assertEquals(StopReason.REPEATED_TOOL_CALL, result.getStopReason());
+        assertEquals(3, result.getSteps());
+        assertEquals(2, tools.executions.get());
+
+        log.info("Agent 结果: {}", result);
+        log.info("\n✅ 测试通过：检测到重复调用时提前停止\n");
+    }
+
+    @Test
+    @DisplayName("超时应该中断正在等待的模型请求")
+    void shouldInterruptOnTimeout() {
+        OrderTools tools = new OrderTools();
+        AgentExecutor executor = executor(tools, new ScriptedModel(step ->
+                toolCall("orderStatus", "{\"orderId\": \"A" + step + "\"}"), 1000),
+                AgentBudget.builder().timeout(Duration.ofMillis(300)).build());
+
+        AgentResult first = executor.submit("tenant-a", "我的订单到哪了？").join();
+        // 中断标记不会影响同一个工作线程上的下一次运行
+        AgentResult second = executor.submit("tenant-a", "我的订单到哪了？").join();
+
+        for (AgentResult result : List.of(first, second)) {
+            assertEquals(StopReason.TIMEOUT, result.getStopReason());
+            assertEquals(1, result.getSteps());
+            assertTrue(result.getElapsed().toMillis() < 1000, "耗时: " + result.getElapsed());
+        }
+        assertEquals(0, tools.executions.get());
+
+        log.info("Agent 结果: {}", first);
+        log.info("\n✅ 测试通过：超时中断模型请求\n");
+    }
+
+    @Test
+    @DisplayName("模型异常应该返回 FAILED")
+    void shouldReportFailures() {
+        AgentExecutor executor = executor(new OrderTools(), new ScriptedModel(step -> {
+            throw new IllegalStateException("模型服务不可用");
+        }, 0), AgentBudget.builder().build());
+
+        AgentResult result = executor.submit("tenant-a", "你好").join();
+
+        assertEquals(StopReason.FAILED, result.getStopReason());
+        assertTrue(result.getError().getMessage().contains("模型服务不可用"));
+
+        log.info("\n✅ 测试通过：模型异常返回 FAILED\n");
+    }
+
+    @Test
+    @DisplayName("运行中抛出 Error 时 future 应该异常结束而不是一直等待")
+    void shouldCompleteExceptionallyOnError() {
+        AgentExecutor executor = executor(new OrderTools(), new ScriptedModel(step -> {
+            throw new AssertionError("模型客户端内部错误");
+        }, 0), AgentBudget.builder().build());
+
+        CompletableFuture<AgentResult> future = executor.submit("tenant-a", "你好");
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AssertionError.class, error.getCause());
+
+        log.info("\n✅ 测试通过：Error 会结束 future\n");
+    }
+
+    @Test
+    @DisplayName("调度器应该在租户之间轮转")
+    void shouldScheduleTenantsFairly() throws Exception {
+        FairTenantScheduler scheduler = FairTenantScheduler.builder().workers(1).build();
+        closeables.add(scheduler);
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(9);
+        // 先用一个任务占住唯一的工作线程，让后面的任务都进入队列
+        scheduler.submit("tenant-x", () -> awaitQuietly(gate));
+        for (int i = 0; i < 6; i++) {
+            scheduler.submit("tenant-a", record(order, "a", done));
+        }
+        for (int i = 0; i < 2; i++) {
+            scheduler.submit("tenant-b", record(order, "b", done));
+        }
+        scheduler.submit("tenant-c", record(order, "c", done));
+        assertEquals(6, scheduler.queuedTasks("tenant-a"));
+        gate.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // 租户 a 先提交了 6 个任务，但租户 b、c 的任务不需要等 a 全部完成
+        assertEquals(List.of("a", "b", "c", "a", "b", "a", "a", "a", "a"), order);
+
+        log.info("执行顺序: {}", order);
+        log.info("\n✅ 测试通过：租户之间轮转\n");
+    }
+
+    @Test
+    @DisplayName("租户排队的任务超过上限时应该拒绝")
+    void shouldRejectWhenTenantQueueIsFull() {
+        FairTenantScheduler scheduler = FairTenantScheduler.builder().workers(1).maxQueuedPerTenant(2).build();
+        closeables.add(scheduler);
+        CountDownLatch gate = new CountDownLatch(1);
+        scheduler.submit("tenant-x", () -> awaitQuietly(gate));
+
+        scheduler.submit("tenant-a", () -> {
+        });
+        scheduler.submit("tenant-a", () -> {
+        });
+        assertThrows(RejectedExecutionException.class, () -> scheduler.submit("tenant-a", () -> {
+        }));
+        // 其它租户不受影响
+        scheduler.submit("tenant-b", () -> {
+        });
+        gate.countDown();
+
+        log.info("\n✅ 测试通过：超过租户队列上限时拒绝\n");
+    }
+
+    @Test
+    @DisplayName("多个租户的大量 Agent 应该共享调度器并全部完成")
+    void shouldRunManyAgentsConcurrently() {
+        OrderTools tools = new OrderTools();
+        FairTenantScheduler scheduler = FairTenantScheduler.builder().workers(8).build();
+        closeables.add(scheduler);
+        AgentExecutor executor = AgentExecutor.builder()
+                .chatModel(new ScriptedModel(step -> step < 2
+                        ? toolCall("orderStatus", "{\"orderId\": \"A" + step + "\"}")
+                        : AiMessage.from("完成"), 20))
+                .tools(ToolRegistry.builder().tools(tools).build())
+                .scheduler(scheduler)
+                .build();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<AgentResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            futures.add(executor.submit("tenant-" + (i % 4), "任务 " + i));
+        }
+        List<AgentResult> results = futures.stream().map(CompletableFuture::join).toList();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(results.stream().allMatch(AgentResult::isCompleted));
+        assertEquals(80, tools.executions.get());
+        // 每个 Agent 串行约 60 ms，8 个工作线程并发
+        assertTrue(elapsedMillis < 40 * 60 / 2, "耗时: " + elapsedMillis + " ms");
+
+        log.info("40 个 Agent 耗时 {} ms，最长排队 {} ms", elapsedMillis, results.stream()
+                .mapToLong(result -> result.getQueueTime().toMillis())
+                .max()
+                .orElse(0));
+        log.info("\n✅ 测试通过：多个 Agent 并发完成\n");
+    }
+
+    private AgentExecutor executor(Object tools, ChatModel model, AgentBudget budget) {
+        AgentExecutor executor = AgentExecutor.builder()
+                .chatModel(model)
+                .tools(ToolRegistry.builder().tools(tools).build())
+                .budget(budget)
+                .scheduler(FairTenantScheduler.builder().workers(1).build())
+                .build();
+        closeables.add(executor);
+        return executor;
+    }
+
+    private static Runnable record(List<String> order, String tenant, CountDownLatch done) {
+        return () -> {
+            order.add(tenant);
+            done.countDown();
+        };
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static AiMessage toolCall(String name, String arguments) {
+        return AiMessage.from(ToolExecutionRequest.builder().id(name).name(name).arguments(arguments).build());
+    }
+
+    /**
+     * 按本次运行中已有的工具结果数（即第几轮）返回回复，每轮消耗固定的 token
+     */
+    private static final class ScriptedModel implements ChatModel {
+
+        private final IntFunction<AiMessage> script;
+        private final long latencyMillis;
+
+        private ScriptedModel(IntFunction<AiMessage> script, long latencyMillis) {
+            this.script = script;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public ChatResponse doChat(ChatRequest chatRequest) {
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("模型请求被中断", e);
+                }
+            }
+            List<ChatMessage> messages = chatRequest.messages();
+            int step = (int) messages.stream().filter(ToolExecutionResultMessage.class::isInstance).count();
+            return ChatResponse.builder()
+                    .aiMessage(script.apply(step))
+                    .tokenUsage(new TokenUsage(TOKENS_PER_STEP - 10, 10))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package cn.langchat.learning.tutorial.agent;
+
+import java.time.Duration;
+
+/**
+ * 单次 Agent 运行的结果
+ *
+ * 预算用完或检测到重复调用时不抛出异常，而是返回对应的 {@link StopReason}，
+ * answer 是模型最后一次回复的文本（可能为空）
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class AgentResult {
+
+    /**
+     * 停止原因
+     */
+    public enum StopReason {
+        /**
+         * 模型给出了最终回答
+         */
+        COMPLETED,
+        MAX_STEPS,
+        MAX_TOKENS,
+        TIMEOUT,
+        /**
+         * 同一工具、同样参数的调用次数超过上限
+         */
+        REPEATED_TOOL_CALL,
+        /**
+         * 模型或工具抛出了异常，见 {@link #getError()}
+         */
+        FAILED
+    }
+
+    private final String tenant;
+    private final StopReason stopReason;
+    private final String answer;
+    private final int steps;
+    private final long tokens;
+    private final Duration queueTime;
+    private final Duration elapsed;
+    private final Throwable error;
+
+    AgentResult(String tenant, StopReason stopReason, String answer, int steps, long tokens,
+                Duration queueTime, Duration elapsed, Throwable error) {
+        this.tenant = tenant;
+        this.stopReason = stopReason;
+        this.answer = answer;
+        this.steps = steps;
+        this.tokens = tokens;
+        this.queueTime = queueTime;
+        this.elapsed = elapsed;
+        this.error = error;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    public boolean isCompleted() {
+        return stopReason == StopReason.COMPLETED;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    /**
+     * 调用模型的次数
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    public long getTokens() {
+        return tokens;
+    }
+
+    /**
+     * 在调度器中排队的时间
+     */
+    public Duration getQueueTime() {
+        return queueTime;
+    }
+
+    /**
+     * 开始执行到停止的时间，不包括排队时间
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "AgentResult{tenant=" + tenant + ", stopReason=" + stopReason + ", steps=" + steps
+                + ", tokens=" + tokens + ", queueTime=" + queueTime.toMillis() + "ms, elapsed="
+                + elapsed.toMillis() + "ms}";
+    }
+}
@@ -0,0 +1,198 @@
+package cn.langchat.learning.tutorial.agent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按租户公平排队的调度器
+ *
+ * 所有租户共用固定数量的工作线程。每个租户有自己的队列，工作线程在有任务的租户之间轮转，
+ * 每次从一个租户取一个任务：一个租户一次提交上百个 Agent，也只会让其它租户多等一轮，而不是排在它的所有任务后面。
+ * 每个租户排队的任务数有上限，超过时 submit 抛出 RejectedExecutionException，由调用方决定重试还是返回错误
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class FairTenantScheduler implements AutoCloseable {
+
+    private final int maxQueuedPerTenant;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<String, ArrayDeque<Runnable>> queues = new HashMap<>();
+    /**
+     * 有任务排队的租户，按轮转顺序排列
+     */
+    private final ArrayDeque<String> readyTenants = new ArrayDeque<>();
+    private final Thread[] workers;
+    private boolean shutdown;
+
+    private FairTenantScheduler(Builder builder) {
+        this.maxQueuedPerTenant = builder.maxQueuedPerTenant;
+        this.workers = new Thread[builder.workers];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::runWorker, builder.threadNamePrefix + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 提交一个任务
+     *
+     * @throws RejectedExecutionException 租户排队的任务数已达上限，或调度器已关闭
+     */
+    public void submit(String tenant, Runnable task) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("调度器已关闭");
+            }
+            ArrayDeque<Runnable> queue = queues.get(tenant);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(tenant, queue);
+                readyTenants.addLast(tenant);
+            } else if (queue.size() >= maxQueuedPerTenant) {
+                throw new RejectedExecutionException("租户 " + tenant + " 排队的任务已达上限（" + maxQueuedPerTenant + "）");
+            }
+            queue.addLast(task);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 租户当前排队（未开始执行）的任务数
+     */
+    public int queuedTasks(String tenant) {
+        lock.lock();
+        try {
+            ArrayDeque<Runnable> queue = queues.get(tenant);
+            return queue == null ? 0 : queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 停止接受新任务，已排队的任务仍会执行完
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待已排队的任务执行完
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void runWorker() {
+        while (true) {
+            Runnable task = take();
+            if (task == null) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("调度的任务执行失败", e);
+            }
+        }
+    }
+
+    /**
+     * 从轮转到的租户取一个任务；该租户还有任务时排到队尾，没有任务时移除队列
+     */
+    private Runnable take() {
+        lock.lock();
+        try {
+            while (readyTenants.isEmpty()) {
+                if (shutdown) {
+                    return null;
+                }
+                notEmpty.awaitUninterruptibly();
+            }
+            String tenant = readyTenants.pollFirst();
+            ArrayDeque<Runnable> queue = queues.get(tenant);
+            Runnable task = queue.pollFirst();
+            if (queue.isEmpty()) {
+                queues.remove(tenant);
+            } else {
+                readyTenants.addLast(tenant);
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static final class Builder {
+        private int workers = 16;
+        private int maxQueuedPerTenant = 1000;
+        private String threadNamePrefix = "langchat-agent-";
+
+        private Builder() {
+        }
+
+        /**
+         * 工作线程数，即同时运行的 Agent 数，默认 16。Agent 大部分时间在等待模型响应，可以远大于 CPU 核数
+         */
+        public Builder workers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * 每个租户最多排队的任务数，默认 1000
+         */
+        public Builder maxQueuedPerTenant(int maxQueuedPerTenant) {
+            this.maxQueuedPerTenant = maxQueuedPerTenant;
+            return this;
+        }
+
+        public Builder threadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+            return this;
+        }
+
+        public FairTenantScheduler build() {
+            if (workers <= 0 || maxQueuedPerTenant <= 0) {
+                throw new IllegalArgumentException("workers 和 maxQueuedPerTenant 必须大于 0");
+            }
+            return new FairTenantScheduler(this);
+        }
+    }
+}
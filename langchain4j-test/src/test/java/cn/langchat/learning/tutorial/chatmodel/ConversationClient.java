@@ -0,0 +1,262 @@
+package cn.langchat.learning.tutorial.chatmodel;
+
+import cn.langchat.learning.util.EnvConfig;
+import cn.langchat.learning.util.HttpStatusException;
+import cn.langchat.learning.util.HttpTransport;
+import cn.langchat.learning.util.ModelRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.AuthenticationException;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.exception.LangChain4jException;
+import dev.langchain4j.exception.ModelNotFoundException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.exception.UnresolvedModelServerException;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.UnresolvedAddressException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 直接发送 {@link ConversationRequestBuilder} 缓存字节的多轮对话客户端
+ *
+ * ChatModel 每一轮都会把整个 ChatRequest 重新序列化一遍；这里把已缓存的前缀片段和新一轮用户消息的片段
+ * 直接交给共享 {@link HttpTransport} 的 JDK HttpClient，每一轮只序列化新增的两条消息（用户消息和模型回复）。
+ * 调用成功后才把这一轮提交到前缀，失败的调用不会在对话中留下没有回复的用户消息。
+ *
+ * 只支持 OpenAI 兼容的 /chat/completions 接口（非流式），错误按状态码映射为与 ChatModel 相同的 LangChain4j 异常。
+ * 被内容过滤或拒绝回答时响应的 content 为 null，这时回复是空文本，原因见 {@link ChatResponse#finishReason()}。
+ * 这里绕过了 ChatModel，因此没有监听器、指标和重试，需要时由调用方处理
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class ConversationClient {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpTransport transport;
+    private final URI endpoint;
+    private final String apiKey;
+    private final Duration timeout;
+    private final ConversationRequestBuilder requests;
+
+    private ConversationClient(Builder builder) {
+        this.transport = builder.transport;
+        String baseUrl = builder.baseUrl.endsWith("/") ? builder.baseUrl : builder.baseUrl + "/";
+        this.endpoint = URI.create(baseUrl + "chat/completions");
+        this.apiKey = builder.apiKey;
+        this.timeout = builder.timeout;
+        this.requests = builder.requests;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 使用 EnvConfig 的 Base URL、API Key 和默认注册表的共享传输层
+     */
+    public static ConversationClient fromEnv(ConversationRequestBuilder requests) {
+        return builder()
+                .transport(ModelRegistry.getDefault().transport())
+                .baseUrl(EnvConfig.getBaseUrl())
+                .apiKey(EnvConfig.getApiKey())
+                .requests(requests)
+                .build();
+    }
+
+    /**
+     * 发送新一轮用户消息，成功后把用户消息和回复一起提交到对话前缀
+     */
+    public ChatResponse chat(Object memoryId, UserMessage userMessage) {
+        ConversationRequestBuilder.Turn turn = requests.nextTurn(memoryId, userMessage);
+        ChatResponse response = send(turn);
+        turn.commit(response.aiMessage());
+        return response;
+    }
+
+    /**
+     * 不追加用户消息，直接发送当前前缀（例如追加工具结果之后让模型继续）
+     */
+    public ChatResponse chat(Object memoryId) {
+        return chat(memoryId, null);
+    }
+
+    public ConversationRequestBuilder requests() {
+        return requests;
+    }
+
+    private ChatResponse send(ConversationRequestBuilder.Turn turn) {
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + apiKey)
+                .timeout(timeout)
+                .POST(turn.bodyPublisher())
+                .build();
+        HttpResponse<String> response;
+        try {
+            response = transport.httpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw translate(e);
+        }
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            throw translate(HttpStatusException.of(response.statusCode(), response.body(), response.headers()));
+        }
+        try {
+            return parse(MAPPER.readTree(response.body()));
+        } catch (IOException e) {
+            throw new IllegalStateException("无法解析响应: " + response.body(), e);
+        }
+    }
+
+    private static ChatResponse parse(JsonNode root) {
+        JsonNode choice = root.path("choices").path(0);
+        JsonNode message = choice.path("message");
+        String text = message.path("content").isTextual() ? message.path("content").asText() : null;
+        List<ToolExecutionRequest> toolRequests = new ArrayList<>();
+        for (JsonNode call : message.path("tool_calls")) {
+            toolRequests.add(ToolExecutionRequest.builder()
+                    .id(call.path("id").asText())
+                    .name(call.path("function").path("name").asText())
+                    .arguments(call.path("function").path("arguments").asText())
+                    .build());
+        }
+        AiMessage aiMessage = toolRequests.isEmpty()
+                // 内容过滤、拒绝回答时 content 为 null，AiMessage 不接受 null 文本
+                ? AiMessage.from(text == null ? "" : text)
+                : text == null ? AiMessage.from(toolRequests) : AiMessage.from(text, toolRequests);
+
+        ChatResponse.Builder builder = ChatResponse.builder()
+                .aiMessage(aiMessage)
+                .finishReason(finishReason(choice.path("finish_reason").asText(null)));
+        if (root.hasNonNull("id")) {
+            builder.id(root.get("id").asText());
+        }
+        if (root.hasNonNull("model")) {
+            builder.modelName(root.get("model").asText());
+        }
+        JsonNode usage = root.path("usage");
+        if (usage.isObject()) {
+            builder.tokenUsage(new TokenUsage(
+                    usage.path("prompt_tokens").asInt(),
+                    usage.path("completion_tokens").asInt(),
+                    usage.path("total_tokens").asInt()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 与 LangChain4j 的 OpenAI 客户端相同的映射，原始异常作为 cause 保留（{@link HttpStatusException} 带有 Retry-After）
+     */
+    private static RuntimeException translate(HttpStatusException e) {
+        int statusCode = e.statusCode();
+        if (statusCode >= 500) {
+            return new InternalServerException(e);
+        }
+        return switch (statusCode) {
+            case 401, 403 -> new AuthenticationException(e);
+            case 404 -> new ModelNotFoundException(e);
+            case 408 -> new TimeoutException(e);
+            case 429 -> new RateLimitException(e);
+            default -> statusCode >= 400 ? new InvalidRequestException(e) : new LangChain4jException(e);
+        };
+    }
+
+    private static RuntimeException translate(IOException e) {
+        if (e instanceof HttpTimeoutException) {
+            return new TimeoutException(e);
+        }
+        if (e.getCause() instanceof UnresolvedAddressException) {
+            return new UnresolvedModelServerException(e);
+        }
+        return new UncheckedIOException(e);
+    }
+
+    private static FinishReason finishReason(String value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (value) {
+            case "stop" -> FinishReason.STOP;
+            case "length" -> FinishReason.LENGTH;
+            case "tool_calls", "function_call" -> FinishReason.TOOL_EXECUTION;
+            case "content_filter" -> FinishReason.CONTENT_FILTER;
+            default -> FinishReason.OTHER;
+        };
+    }
+
+    public static final class Builder {
+        private HttpTransport transport;
+        private String baseUrl;
+        private String apiKey;
+        private Duration timeout = DEFAULT_TIMEOUT;
+        private ConversationRequestBuilder requests;
+
+        private Builder() {
+        }
+
+        /**
+         * 共享的 HTTP 传输层，请求复用它的连接池
+         */
+        public Builder transport(HttpTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * OpenAI 兼容接口的 Base URL，例如 https://api.openai.com/v1
+         */
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        public Builder apiKey(String apiKey) {
+            this.apiKey = apiKey;
+            return this;
+        }
+
+        /**
+         * 单次请求的超时时间，默认 60 秒
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder requests(ConversationRequestBuilder requests) {
+            this.requests = requests;
+            return this;
+        }
+
+        public ConversationClient build() {
+            Objects.requireNonNull(transport, "transport");
+            Objects.requireNonNull(baseUrl, "baseUrl");
+            Objects.requireNonNull(apiKey, "apiKey");
+            Objects.requireNonNull(timeout, "timeout");
+            Objects.requireNonNull(requests, "requests");
+            return new ConversationClient(this);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package cn.langchat.learning.tutorial.chatmodel;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多轮对话请求构建器
+ *
+ * 按 memoryId 缓存对话中不可变前缀的序列化结果，每一轮只序列化新追加的消息：
+ * - 每条消息只在追加时序列化一次，之后以 byte[] 片段的形式复用
+ * - 请求体按「模型参数 → 系统消息 → 历史消息 → 新一轮消息」的顺序排列，
+ *   前缀在多轮之间逐字节保持一致，便于服务端的 Prompt Caching 命中
+ * - 每一轮通过 {@link #nextTurn(Object, UserMessage)} 得到一个 {@link Turn}，其片段直接交给 JDK HttpClient 发送，无需拼接
+ * - 新一轮的用户消息只有在调用成功、{@link Turn#commit(AiMessage)} 之后才进入前缀，失败的调用不会污染对话
+ *
+ * ChatModel 会自己重新序列化整个 ChatRequest，缓存的字节无法经过它发送，
+ * 实际发送由 {@link ConversationClient} 完成
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public class ConversationRequestBuilder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FOOTER = "]}".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] header;
+    private final Map<Object, Conversation> conversations = new ConcurrentHashMap<>();
+
+    /**
+     * @param modelName  模型名称
+     * @param parameters 请求参数（temperature、maxOutputTokens 等），所有轮次共用
+     */
+    public ConversationRequestBuilder(String modelName, ChatRequestParameters parameters) {
+        if (modelName == null || modelName.isEmpty()) {
+            throw new IllegalArgumentException("模型名称不能为空");
+        }
+        this.header = serializeHeader(modelName,
+                parameters != null ? parameters : ChatRequestParameters.builder().build());
+    }
+
+    /**
+     * 设置对话的系统消息
+     *
+     * 系统消息固定在前缀最前面，必须在第一轮对话之前设置
+     */
+    public ConversationRequestBuilder system(Object memoryId, SystemMessage systemMessage) {
+        conversation(memoryId).setSystem(systemMessage);
+        return this;
+    }
+
+    /**
+     * 追加一条消息到对话前缀（通常是模型返回的 AiMessage 或工具执行结果）
+     */
+    public ConversationRequestBuilder append(Object memoryId, ChatMessage message) {
+        if (message instanceof SystemMessage) {
+            return system(memoryId, (SystemMessage) message);
+        }
+        conversation(memoryId).append(message);
+        return this;
+    }
+
+    /**
+     * 开始新一轮对话：序列化用户消息，但在 {@link Turn#commit(AiMessage)} 之前不追加到前缀
+     *
+     * @param userMessage 新一轮的用户消息；为 null 时只发送已有的前缀（例如追加工具结果之后继续对话）
+     */
+    public Turn nextTurn(Object memoryId, UserMessage userMessage) {
+        Conversation conversation = conversation(memoryId);
+        byte[] userFragment = userMessage != null ? serializeMessage(userMessage) : null;
+        return new Turn(conversation, userMessage, userFragment, conversation.body(userFragment));
+    }
+
+    /**
+     * 获取当前对话已提交的消息列表（只读副本，主要用于调试和测试）
+     */
+    public List<ChatMessage> messages(Object memoryId) {
+        return conversation(memoryId).messages();
+    }
+
+    /**
+     * 获取当前对话已提交前缀的请求体片段
+     *
+     * 返回的片段直接引用缓存的字节数组，调用方不得修改
+     */
+    public List<byte[]> requestBody(Object memoryId) {
+        return conversation(memoryId).body(null);
+    }
+
+    /**
+     * 清除对话缓存
+     */
+    public void evict(Object memoryId) {
+        conversations.remove(memoryId);
+    }
+
+    private Conversation conversation(Object memoryId) {
+        if (memoryId == null) {
+            throw new IllegalArgumentException("memoryId 不能为空");
+        }
+        return conversations.computeIfAbsent(memoryId, id -> new Conversation());
+    }
+
+    /**
+     * 单个对话的缓存：消息和对应的序列化片段都只追加、不修改
+     */
+    private class Conversation {
+        private final List<ChatMessage> messages = new ArrayList<>();
+        private final List<byte[]> fragments = new ArrayList<>();
+
+        synchronized void setSystem(SystemMessage systemMessage) {
+            if (!messages.isEmpty()) {
+                throw new IllegalStateException("系统消息必须在对话开始前设置，否则会破坏已缓存的前缀");
+            }
+            messages.add(systemMessage);
+            fragments.add(serializeMessage(systemMessage));
+        }
+
+        synchronized void append(ChatMessage message) {
+            messages.add(message);
+            fragments.add(serializeMessage(message));
+            log.debug("对话追加 {} 消息，当前消息数: {}", message.type(), messages.size());
+        }
+
+        synchronized List<ChatMessage> messages() {
+            return Collections.unmodifiableList(new ArrayList<>(messages));
+        }
+
+        synchronized void commit(ChatMessage userMessage, byte[] userFragment, AiMessage aiMessage) {
+            if (userMessage != null) {
+                messages.add(userMessage);
+                fragments.add(userFragment);
+            }
+            messages.add(aiMessage);
+            fragments.add(serializeMessage(aiMessage));
+            log.debug("对话提交一轮，当前消息数: {}", messages.size());
+        }
+
+        /**
+         * 已提交的前缀加上可选的新消息片段，只复制引用，不复制字节
+         */
+        synchronized List<byte[]> body(byte[] trailing) {
+            List<byte[]> chunks = new ArrayList<>(fragments.size() * 2 + 3);
+            chunks.add(header);
+            for (int i = 0; i < fragments.size(); i++) {
+                if (i > 0) {
+                    chunks.add(SEPARATOR);
+                }
+                chunks.add(fragments.get(i));
+            }
+            if (trailing != null) {
+                if (!fragments.isEmpty()) {
+                    chunks.add(SEPARATOR);
+                }
+                chunks.add(trailing);
+            }
+            chunks.add(FOOTER);
+            return chunks;
+        }
+    }
+
+    /**
+     * 一轮对话的请求：发送成功后调用 {@link #commit(AiMessage)}，失败时直接丢弃
+     */
+    public final class Turn {
+
+        private final Conversation conversation;
+        private final UserMessage userMessage;
+        private final byte[] userFragment;
+        private final List<byte[]> body;
+        private boolean committed;
+
+        private Turn(Conversation conversation, UserMessage userMessage, byte[] userFragment, List<byte[]> body) {
+            this.conversation = conversation;
+            this.userMessage = userMessage;
+            this.userFragment = userFragment;
+            this.body = Collections.unmodifiableList(body);
+        }
+
+        /**
+         * 请求体片段，直接引用缓存的字节数组，调用方不得修改
+         */
+        public List<byte[]> body() {
+            return body;
+        }
+
+        /**
+         * 以零拷贝的方式把请求体交给 JDK HttpClient
+         */
+        public HttpRequest.BodyPublisher bodyPublisher() {
+            return HttpRequest.BodyPublishers.ofByteArrays(body);
+        }
+
+        /**
+         * 完整请求体（会拷贝一次，主要用于调试和测试）
+         */
+        public byte[] bodyBytes() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (byte[] chunk : body) {
+                out.writeBytes(chunk);
+            }
+            return out.toByteArray();
+        }
+
+        /**
+         * 调用成功后提交：用户消息（复用已序列化的片段）和模型回复一起追加到前缀，重复调用无效
+         */
+        public synchronized void commit(AiMessage aiMessage) {
+            if (committed) {
+                return;
+            }
+            committed = true;
+            conversation.commit(userMessage, userFragment, aiMessage);
+        }
+    }
+
+    /**
+     * 序列化请求头部：模型和采样参数放在最前面，messages 数组放在最后，便于逐条追加
+     */
+    private static byte[] serializeHeader(String modelName, ChatRequestParameters parameters) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            // messages 数组和外层对象保持未关闭状态，由 FOOTER 补齐
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartObject();
+            generator.writeStringField("model", modelName);
+            if (parameters.temperature() != null) {
+                generator.writeNumberField("temperature", parameters.temperature());
+            }
+            if (parameters.topP() != null) {
+                generator.writeNumberField("top_p", parameters.topP());
+            }
+            if (parameters.maxOutputTokens() != null) {
+                generator.writeNumberField("max_tokens", parameters.maxOutputTokens());
+            }
+            if (parameters.presencePenalty() != null) {
+                generator.writeNumberField("presence_penalty", parameters.presencePenalty());
+            }
+            if (parameters.frequencyPenalty() != null) {
+                generator.writeNumberField("frequency_penalty", parameters.frequencyPenalty());
+            }
+            if (parameters.stopSequences() != null && !parameters.stopSequences().isEmpty()) {
+                generator.writeArrayFieldStart("stop");
+                for (String stop : parameters.stopSequences()) {
+                    generator.writeString(stop);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeFieldName("messages");
+            generator.writeStartArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 按 OpenAI Chat Completions 格式序列化单条消息
+     */
+    private static byte[] serializeMessage(ChatMessage message) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            if (message instanceof SystemMessage) {
+                generator.writeStringField("role", "system");
+                generator.writeStringField("content", ((SystemMessage) message).text());
+            } else if (message instanceof UserMessage) {
+                writeUserMessage(generator, (UserMessage) message);
+            } else if (message instanceof AiMessage) {
+                writeAiMessage(generator, (AiMessage) message);
+            } else if (message instanceof ToolExecutionResultMessage) {
+                ToolExecutionResultMessage result = (ToolExecutionResultMessage) message;
+                generator.writeStringField("role", "tool");
+                generator.writeStringField("tool_call_id", result.id());
+                generator.writeStringField("content", result.text());
+            } else {
+                throw new IllegalArgumentException("不支持的消息类型: " + message.type());
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeUserMessage(JsonGenerator generator, UserMessage message) throws IOException {
+        generator.writeStringField("role", "user");
+        if (message.name() != null) {
+            generator.writeStringField("name", message.name());
+        }
+        if (message.hasSingleText()) {
+            generator.writeStringField("content", message.singleText());
+            return;
+        }
+        generator.writeArrayFieldStart("content");
+        for (Content content : message.contents()) {
+            if (!(content instanceof TextContent)) {
+                throw new IllegalArgumentException("仅支持文本内容，实际: " + content.type());
+            }
+            generator.writeStartObject();
+            generator.writeStringField("type", "text");
+            generator.writeStringField("text", ((TextContent) content).text());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeAiMessage(JsonGenerator generator, AiMessage message) throws IOException {
+        generator.writeStringField("role", "assistant");
+        if (message.text() != null) {
+            generator.writeStringField("content", message.text());
+        }
+        if (message.hasToolExecutionRequests()) {
+            generator.writeArrayFieldStart("tool_calls");
+            for (ToolExecutionRequest request : message.toolExecutionRequests()) {
+                generator.writeStartObject();
+                generator.writeStringField("id", request.id());
+                generator.writeStringField("type", "function");
+                generator.writeObjectFieldStart("function");
+                generator.writeStringField("name", request.name());
+                generator.writeStringField("arguments", request.arguments());
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package cn.langchat.learning.tutorial.chatmodel;
+
+import cn.langchat.learning.util.HttpTransport;
+import cn.langchat.learning.util.MockOpenAiServer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 03 - 多轮对话请求构建器测试
+ *
+ * 不需要调用真实模型，验证前缀缓存、请求体格式，以及通过模拟服务发送缓存的字节
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("03 - 多轮对话请求构建器测试")
+class ConversationRequestBuilderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ConversationRequestBuilder builder;
+    private MockOpenAiServer server;
+    private HttpTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        builder = new ConversationRequestBuilder("gpt-4o-mini", ChatRequestParameters.builder()
+                .temperature(0.7)
+                .maxOutputTokens(500)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    @DisplayName("应该生成合法的 OpenAI 请求体")
+    void shouldBuildValidRequestBody() throws Exception {
+        builder.system("u1", SystemMessage.from("你是一个故事讲述者"));
+        builder.nextTurn("u1", UserMessage.from("开始讲一个关于编程的故事"))
+                .commit(AiMessage.from("从前有一个程序员……"));
+
+        JsonNode body = objectMapper.readTree(builder.nextTurn("u1", UserMessage.from("继续")).bodyBytes());
+
+        assertEquals("gpt-4o-mini", body.get("model").asText());
+        assertEquals(0.7, body.get("temperature").asDouble());
+        assertEquals(500, body.get("max_tokens").asInt());
+        assertEquals(4, body.get("messages").size());
+        assertEquals("system", body.get("messages").get(0).get("role").asText());
+        assertEquals("assistant", body.get("messages").get(2).get("role").asText());
+        assertEquals("继续", body.get("messages").get(3).get("content").asText());
+
+        log.info("请求体: {}", body);
+        log.info("\n✅ 测试通过：能够生成合法的请求体\n");
+    }
+
+    @Test
+    @DisplayName("应该复用已缓存的前缀片段")
+    void shouldReuseCachedPrefix() {
+        builder.system("u1", SystemMessage.from("你是一个助手"));
+        ConversationRequestBuilder.Turn turn = builder.nextTurn("u1", UserMessage.from("第1句话"));
+        List<byte[]> firstTurn = turn.body();
+
+        turn.commit(AiMessage.from("好的"));
+        List<byte[]> secondTurn = builder.nextTurn("u1", UserMessage.from("第2句话")).body();
+
+        // 第一轮除结尾外的所有片段，在第二轮中必须是同一个数组实例
+        for (int i = 0; i < firstTurn.size() - 1; i++) {
+            assertSame(firstTurn.get(i), secondTurn.get(i), "前缀片段 " + i + " 应该被复用");
+        }
+        assertTrue(secondTurn.size() > firstTurn.size());
+
+        log.info("第一轮片段数: {}, 第二轮片段数: {}", firstTurn.size(), secondTurn.size());
+        log.info("\n✅ 测试通过：前缀片段被复用\n");
+    }
+
+    @Test
+    @DisplayName("应该保证前缀字节稳定以命中服务端缓存")
+    void shouldKeepPrefixBytesStable() {
+        builder.system("u1", SystemMessage.from("你是一个助手"));
+        ConversationRequestBuilder.Turn turn = builder.nextTurn("u1", UserMessage.from("你好"));
+        String first = new String(turn.bodyBytes(), StandardCharsets.UTF_8);
+
+        turn.commit(AiMessage.from("你好！"));
+        String second = new String(builder.nextTurn("u1", UserMessage.from("再见")).bodyBytes(), StandardCharsets.UTF_8);
+
+        String firstWithoutFooter = first.substring(0, first.length() - 2);
+        assertTrue(second.startsWith(firstWithoutFooter), "第二轮请求必须以第一轮请求为前缀");
+
+        log.info("\n✅ 测试通过：前缀字节保持稳定\n");
+    }
+
+    @Test
+    @DisplayName("应该按 memoryId 隔离对话")
+    void shouldIsolateConversationsByMemoryId() throws Exception {
+        builder.nextTurn("u1", UserMessage.from("我是用户1")).commit(AiMessage.from("你好，用户1"));
+        ConversationRequestBuilder.Turn turn = builder.nextTurn("u2", UserMessage.from("我是用户2"));
+        turn.commit(AiMessage.from("你好，用户2"));
+
+        JsonNode messages = objectMapper.readTree(turn.bodyBytes()).get("messages");
+        assertEquals(1, messages.size());
+        assertEquals("我是用户2", messages.get(0).get("content").asText());
+        List<ChatMessage> u2 = builder.messages("u2");
+        assertEquals(2, u2.size());
+        assertEquals("我是用户2", ((UserMessage) u2.get(0)).singleText());
+        assertEquals(2, builder.messages("u1").size());
+
+        log.info("\n✅ 测试通过：不同 memoryId 的对话互不影响\n");
+    }
+
+    @Test
+    @DisplayName("应该拒绝在对话中途设置系统消息")
+    void shouldRejectLateSystemMessage() {
+        builder.nextTurn("u1", UserMessage.from("你好")).commit(AiMessage.from("你好！"));
+
+        assertThrows(IllegalStateException.class,
+                () -> builder.system("u1", SystemMessage.from("你是一个助手")));
+
+        log.info("\n✅ 测试通过：中途设置系统消息被拒绝\n");
+    }
+
+    @Test
+    @DisplayName("应该序列化工具调用和工具结果")
+    void shouldSerializeToolMessages() throws Exception {
+        ToolExecutionRequest toolRequest = ToolExecutionRequest.builder()
+                .id("call_1")
+                .name("add")
+                .arguments("{\"a\":2,\"b\":3}")
+                .build();
+        builder.nextTurn("u1", UserMessage.from("2 加 3 等于几？")).commit(AiMessage.from(List.of(toolRequest)));
+        builder.append("u1", ToolExecutionResultMessage.from(toolRequest, "5"));
+
+        JsonNode messages = objectMapper.readTree(builder.nextTurn("u1", null).bodyBytes()).get("messages");
+
+        assertEquals("add", messages.get(1).get("tool_calls").get(0).get("function").get("name").asText());
+        assertEquals("tool", messages.get(2).get("role").asText());
+        assertEquals("call_1", messages.get(2).get("tool_call_id").asText());
+
+        log.info("消息: {}", messages);
+        log.info("\n✅ 测试通过：能够序列化工具消息\n");
+    }
+
+    @Test
+    @DisplayName("调用成功之前不应该把用户消息追加到前缀")
+    void shouldCommitOnlyAfterSuccess() throws Exception {
+        builder.system("u1", SystemMessage.from("你是一个助手"));
+        ConversationRequestBuilder.Turn failed = builder.nextTurn("u1", UserMessage.from("这一轮会失败"));
+        // 调用失败时不提交，直接丢弃这一轮
+        assertEquals(1, builder.messages("u1").size());
+
+        ConversationRequestBuilder.Turn turn = builder.nextTurn("u1", UserMessage.from("重试"));
+        turn.commit(AiMessage.from("好的"));
+        turn.commit(AiMessage.from("重复提交"));
+
+        JsonNode messages = objectMapper.readTree(builder.nextTurn("u1", null).bodyBytes()).get("messages");
+        assertEquals(3, messages.size());
+        assertEquals("重试", messages.get(1).get("content").asText());
+        assertEquals("好的", messages.get(2).get("content").asText());
+        assertTrue(new String(failed.bodyBytes(), StandardCharsets.UTF_8).contains("这一轮会失败"));
+
+        log.info("\n✅ 测试通过：只有成功的轮次才进入前缀\n");
+    }
+
+    @Test
+    @DisplayName("客户端应该直接发送缓存的请求体并提交回复")
+    void shouldSendCachedBodyThroughClient() throws IOException {
+        ConversationClient client = mockClient();
+        server.responder(message -> "回复：" + message);
+        builder.system("u1", SystemMessage.from("你是一个助手"));
+
+        ChatResponse response1 = client.chat("u1", UserMessage.from("你好"));
+        ChatResponse response2 = client.chat("u1", UserMessage.from("再见"));
+
+        assertEquals("回复：你好", response1.aiMessage().text());
+        assertEquals("回复：再见", response2.aiMessage().text());
+        assertNotNull(response2.tokenUsage());
+        assertNotNull(response2.finishReason());
+        List<ChatMessage> messages = builder.messages("u1");
+        assertEquals(5, messages.size());
+        assertEquals("回复：你好", ((AiMessage) messages.get(2)).text());
+        assertEquals(2, server.requestCount());
+
+        log.info("\n✅ 测试通过：通过客户端发送缓存的请求体\n");
+    }
+
+    @Test
+    @DisplayName("调用失败时客户端不应该修改对话前缀")
+    void shouldKeepPrefixWhenCallFails() throws IOException {
+        ConversationClient client = mockClient();
+        builder.system("u1", SystemMessage.from("你是一个助手"));
+        client.chat("u1", UserMessage.from("你好"));
+        server.failNext(500, 1);
+
+        assertThrows(InternalServerException.class, () -> client.chat("u1", UserMessage.from("这一轮会失败")));
+        assertEquals(3, builder.messages("u1").size());
+
+        client.chat("u1", UserMessage.from("重试"));
+        List<ChatMessage> messages = builder.messages("u1");
+        assertEquals(5, messages.size());
+        assertEquals("重试", ((UserMessage) messages.get(3)).singleText());
+
+        log.info("\n✅ 测试通过：失败的调用不会污染对话\n");
+    }
+
+    @Test
+    @DisplayName("内容被过滤时客户端应该返回空文本和 CONTENT_FILTER")
+    void shouldHandleNullContent() throws IOException {
+        ConversationClient client = mockClient();
+        server.responder(message -> null);
+
+        ChatResponse response = client.chat("u1", UserMessage.from("会被过滤的问题"));
+
+        assertEquals("", response.aiMessage().text());
+        assertEquals(FinishReason.CONTENT_FILTER, response.finishReason());
+        assertEquals(2, builder.messages("u1").size());
+
+        log.info("\n✅ 测试通过：content 为 null 的响应\n");
+    }
+
+    private ConversationClient mockClient() throws IOException {
+        server = MockOpenAiServer.start();
+        transport = new HttpTransport();
+        return ConversationClient.builder()
+                .transport(transport)
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .requests(builder)
+                .build();
+    }
+}
@@ -1,14 +1,15 @@
 package cn.langchat.learning.tutorial.chatmodel;
 
+import cn.langchat.learning.tutorial.streaming.CharBufferPool;
+import cn.langchat.learning.tutorial.streaming.StreamingTextAggregator;
 import cn.langchat.learning.util.TestModelProvider;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.chat.response.ChatResponse;
-import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.CharBuffer;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * 流式响应示例
@@ -38,37 +39,27 @@ public class StreamingChatExample {
         log.info("流式响应:");
         log.info("╠═══════════════════════════════════════════════════════════════════════════════════════════════════╣");
 
-        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
-        StringBuilder fullResponse = new StringBuilder();
+        // 片段写入池化缓冲，攒够 16 个字符再输出，避免逐 token 打印
+        CharBufferPool pool = new CharBufferPool();
+        StreamingTextAggregator aggregator = StreamingTextAggregator.builder()
+                .pool(pool)
+                .sink((buffer, offset, length) -> System.out.append(CharBuffer.wrap(buffer, offset, length)))
+                .flushSize(16)
+                .build();
 
-        StreamingChatResponseHandler handler = new StreamingChatResponseHandler() {
-            @Override
-            public void onPartialResponse(String partialResponse) {
-                System.out.print(partialResponse);
-                fullResponse.append(partialResponse);
-            }
-            
-            @Override
-            public void onCompleteResponse(ChatResponse completeResponse) {
-                System.out.println();
-                log.info("\n生成完成！");
-                log.info("总Token: {}", completeResponse.metadata().tokenUsage().totalTokenCount());
-                future.complete(completeResponse);
-            }
-            
-            @Override
-            public void onError(Throwable error) {
-                System.err.println("\n错误: " + error.getMessage());
-                future.completeExceptionally(error);
-            }
-        };
-
-        model.chat(messages, handler);
+        model.chat(messages, aggregator);
 
         try {
-            future.join();
+            ChatResponse completeResponse = aggregator.completion().join();
+            System.out.println();
+            log.info("\n生成完成！");
+            log.info("总Token: {}", completeResponse.metadata().tokenUsage().totalTokenCount());
+            log.info("片段数: {}，字符数: {}", aggregator.partialCount(), aggregator.length());
         } catch (Exception e) {
+            System.err.println("\n错误: " + e.getMessage());
             log.error("流式响应失败: {}", e.getMessage());
+        } finally {
+            aggregator.close();
         }
     }
 }
@@ -1,5 +1,6 @@
 package cn.langchat.learning.tutorial.classification;
 
+import cn.langchat.learning.util.CompiledPromptTemplate;
 import cn.langchat.learning.util.TestModelProvider;
 import dev.langchain4j.model.chat.ChatModel;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,13 @@ import static org.junit.jupiter.api.Assertions.*;
 @DisplayName("13 - 分类测试")
 class ClassificationTest {
 
+    private static final CompiledPromptTemplate SENTIMENT_PROMPT = CompiledPromptTemplate.compile(
+            "请对以下文本进行情感分类，只返回分类结果（正面/负面/中性）：\n\n文本：{{text}}");
+    private static final CompiledPromptTemplate TOPIC_PROMPT = CompiledPromptTemplate.compile(
+            "请对以下文本进行主题分类，返回以下主题之一：技术、体育、娱乐、政治、经济\n\n文本：{{text}}");
+    private static final CompiledPromptTemplate BATCH_SENTIMENT_PROMPT = CompiledPromptTemplate.compile(
+            "请对以下文本进行情感分类（正面/负面/中性）：\n\n文本：{{text}}");
+
     private ChatModel chatModel;
 
     @BeforeEach
@@ -42,10 +50,7 @@ class ClassificationTest {
 
         String text = "今天天气真好，我很开心！";
         
-        String prompt = String.format(
-            "请对以下文本进行情感分类，只返回分类结果（正面/负面/中性）：\n\n文本：%s",
-            text
-        );
+        String prompt = SENTIMENT_PROMPT.render(text);
         
         String classification = chatModel.chat(prompt);
         
@@ -70,10 +75,7 @@ class ClassificationTest {
 
         String text = "Java 是一种面向对象的编程语言，具有平台无关性。";
         
-        String prompt = String.format(
-            "请对以下文本进行主题分类，返回以下主题之一：技术、体育、娱乐、政治、经济\n\n文本：%s",
-            text
-        );
+        String prompt = TOPIC_PROMPT.render(text);
         
         String classification = chatModel.chat(prompt);
         
@@ -99,10 +101,7 @@ class ClassificationTest {
         
         String[] classifications = new String[texts.length];
         for (int i = 0; i < texts.length; i++) {
-            String prompt = String.format(
-                "请对以下文本进行情感分类（正面/负面/中性）：\n\n文本：%s",
-                texts[i]
-            );
+            String prompt = BATCH_SENTIMENT_PROMPT.render(texts[i]);
             classifications[i] = chatModel.chat(prompt);
         }
         
@@ -0,0 +1,136 @@
+package cn.langchat.learning.tutorial.httpclient;
+
+import cn.langchat.learning.util.HttpTransport;
+import cn.langchat.learning.util.HttpTransportConfig;
+import cn.langchat.learning.util.MockOpenAiServer;
+import cn.langchat.learning.util.ModelConfig;
+import cn.langchat.learning.util.ModelRegistry;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * HTTP 传输层基准测试 - 可运行示例
+ *
+ * 使用本地模拟的 OpenAI 兼容服务（不需要 API Key），同时发出 500 个请求，对比：
+ * - 每次请求新建模型：每个客户端都有自己的连接池，连接无法复用
+ * - 共享传输层：所有模型共用一个连接池，在途请求数受 maxInFlightRequests 限制
+ *
+ * 输出每种方式建立的连接数，以及 HdrHistogram 统计的 p50 / p99 / p99.9 延迟
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public class HttpTransportBenchmark {
+
+    private static final int CONCURRENCY = 500;
+    private static final int ROUNDS = 3;
+    private static final Duration SERVER_LATENCY = Duration.ofMillis(20);
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    public static void main(String[] args) throws Exception {
+        log.info("╔══════════════════════════════════════════════════════════════════╗");
+        log.info("║                  HTTP 传输层基准测试                                  ║");
+        log.info("╚═══════════════════════════════════════════════════════════════════════╣\n");
+
+        try (MockOpenAiServer server = MockOpenAiServer.start().latency(SERVER_LATENCY)) {
+            ModelConfig config = ModelConfig.builder()
+                    .baseUrl(server.baseUrl())
+                    .apiKey("mock-key")
+                    .modelName("mock-model")
+                    .temperature(0.7)
+                    .maxTokens(100)
+                    .build();
+
+            // 方式 1：每次请求新建模型
+            run("每次请求新建模型", server, () -> OpenAiChatModel.builder()
+                    .baseUrl(config.getBaseUrl())
+                    .apiKey(config.getApiKey())
+                    .modelName(config.getModelName())
+                    .timeout(Duration.ofSeconds(60))
+                    .build());
+
+            // 方式 2：共享传输层
+            HttpTransportConfig transportConfig = HttpTransportConfig.builder()
+                    .maxInFlightRequests(64)
+                    .build();
+            try (ModelRegistry registry = new ModelRegistry(new HttpTransport(transportConfig))) {
+                run("共享传输层 (maxInFlightRequests=64)", server, () -> registry.chatModel(config));
+            }
+        }
+
+        log.info("╔══════════════════════════════════════════════════════════════════╗");
+        log.info("║ ✅ 基准测试完成                                              ║");
+        log.info("╚═══════════════════════════════════════════════════════════════════════╝");
+    }
+
+    private static void run(String name, MockOpenAiServer server, Supplier<ChatModel> models) throws Exception {
+        log.info("╔══════════════════════════════════════════════════════════════════╗");
+        log.info("║ {}", name);
+        log.info("╚═══════════════════════════════════════════════════════════════════════╣\n");
+
+        // 预热一轮，不计入统计
+        fire(models, CONCURRENCY, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+        server.resetStats();
+
+        Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            fire(models, CONCURRENCY, latency);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        log.info("请求数:   {}", latency.getTotalCount());
+        log.info("连接数:   {}", server.connectionCount());
+        log.info("吞吐量:   {} 请求/秒", String.format("%.0f", latency.getTotalCount() * 1000.0 / elapsedMillis));
+        log.info("p50:      {} ms", millis(latency, 50));
+        log.info("p99:      {} ms", millis(latency, 99));
+        log.info("p99.9:    {} ms\n", millis(latency, 99.9));
+    }
+
+    /**
+     * 同时发出 count 个请求，把每个请求的耗时（微秒）记录到 latency
+     */
+    private static void fire(Supplier<ChatModel> models, int count, Histogram latency) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(count);
+        try {
+            CountDownLatch startGate = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                futures.add(pool.submit(() -> {
+                    ChatModel model = models.get();
+                    startGate.await();
+                    long begin = System.nanoTime();
+                    model.chat("你好");
+                    latency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin));
+                    return null;
+                }));
+            }
+            startGate.countDown();
+
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String millis(Histogram latency, double percentile) {
+        return String.format("%.1f", latency.getValueAtPercentile(percentile) / 1000.0);
+    }
+}
@@ -1,5 +1,6 @@
 package cn.langchat.learning.tutorial.json;
 
+import cn.langchat.learning.util.CompiledPromptTemplate;
 import cn.langchat.learning.util.TestModelProvider;
 import dev.langchain4j.model.chat.ChatModel;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +25,9 @@ import static org.junit.jupiter.api.Assertions.*;
 @DisplayName("14 - JSON 处理测试")
 class JsonHandlingTest {
 
+    private static final CompiledPromptTemplate EXTRACT_PROMPT = CompiledPromptTemplate.compile(
+            "请从以下文本中提取信息，并以 JSON 格式返回：\n\n文本：{{text}}\n\n提取字段：name、age、email、job");
+
     private ChatModel chatModel;
 
     @BeforeEach
@@ -62,10 +66,7 @@ class JsonHandlingTest {
         log.info("╚═══════════════════════════════════════════════════════════════════════╣\n");
 
         String text = "张三，25岁，zhangsan@example.com，软件工程师";
-        String prompt = String.format(
-            "请从以下文本中提取信息，并以 JSON 格式返回：\n\n文本：%s\n\n提取字段：name、age、email、job",
-            text
-        );
+        String prompt = EXTRACT_PROMPT.render(text);
         
         String response = chatModel.chat(prompt);
         
@@ -0,0 +1,210 @@
+package cn.langchat.learning.tutorial.performance;
+
+import cn.langchat.learning.util.DaemonThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentDoubleHistogram;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.DoubleHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开环（open-loop）压测生成器
+ *
+ * 按固定速率排定每个请求的开始时间，不等待上一个请求完成。
+ * 延迟从计划开始时间算起，而不是从实际发出请求的时间算起：
+ * 当服务变慢、请求在客户端排队时，排队时间同样计入延迟，
+ * 从而避免 coordinated omission（闭环压测在服务卡顿时会少发请求，低估尾延迟）
+ *
+ * 报告中同时给出两种延迟：
+ * - 响应时间：计划开始 → 完成，用户实际感受到的延迟
+ * - 服务时间：实际开始 → 完成，与闭环压测的结果相当
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class LoadGenerator {
+
+    /**
+     * 直方图的最大可记录值：1 小时（微秒）
+     */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+    private final double ratePerSecond;
+    private final Duration duration;
+    private final Duration warmup;
+    private final int maxConcurrency;
+
+    private LoadGenerator(Builder builder) {
+        if (builder.ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond 必须大于 0");
+        }
+        if (builder.maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency 必须大于 0");
+        }
+        this.name = builder.name;
+        this.ratePerSecond = builder.ratePerSecond;
+        this.duration = builder.duration;
+        this.warmup = builder.warmup;
+        this.maxConcurrency = builder.maxConcurrency;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 按目标速率执行压测，阻塞直到所有请求完成
+     */
+    public LoadTestReport run(LoadTarget target) throws InterruptedException {
+        Histogram responseTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        Histogram timeToFirstToken = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        DoubleHistogram tokensPerSecond = new ConcurrentDoubleHistogram(SIGNIFICANT_DIGITS);
+        AtomicLong errors = new AtomicLong();
+
+        ExecutorService workers = Executors.newCachedThreadPool(DaemonThreads.factory("load-" + name));
+        // 并发上限只限制工作线程数，请求在这里排队的时间会计入响应时间
+        Semaphore permits = new Semaphore(maxConcurrency);
+
+        long intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        log.debug("开始压测 {}: {} 请求/秒, 预热 {}, 持续 {}", name, ratePerSecond, warmup, duration);
+
+        try {
+            for (long i = 0; ; i++) {
+                long intendedStart = start + i * intervalNanos;
+                if (intendedStart >= end) {
+                    break;
+                }
+                parkUntil(intendedStart);
+                permits.acquire();
+                workers.execute(() -> {
+                    LoadSample sample = new LoadSample(intendedStart, System.nanoTime());
+                    try {
+                        target.execute(sample);
+                        if (intendedStart >= measureFrom) {
+                            record(sample, System.nanoTime(), responseTime, serviceTime,
+                                    timeToFirstToken, tokensPerSecond);
+                        }
+                    } catch (Exception e) {
+                        if (intendedStart >= measureFrom) {
+                            errors.incrementAndGet();
+                        }
+                        log.debug("请求失败: {}", e.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            if (!workers.awaitTermination(5, TimeUnit.MINUTES)) {
+                workers.shutdownNow();
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - measureFrom;
+        return new LoadTestReport(name, ratePerSecond, elapsedNanos, errors.get(),
+                responseTime, serviceTime, timeToFirstToken, tokensPerSecond);
+    }
+
+    private static void record(LoadSample sample, long completedNanos,
+                               Histogram responseTime, Histogram serviceTime,
+                               Histogram timeToFirstToken, DoubleHistogram tokensPerSecond) {
+        responseTime.recordValue(toMicros(completedNanos - sample.intendedStartNanos()));
+        serviceTime.recordValue(toMicros(completedNanos - sample.actualStartNanos()));
+
+        long firstToken = sample.firstTokenNanos();
+        if (firstToken == 0) {
+            return;
+        }
+        timeToFirstToken.recordValue(toMicros(firstToken - sample.intendedStartNanos()));
+        // 生成速度只统计流式窗口（首个片段 → 最后一个片段），不包含排队、首 token 延迟和流结束后的收尾；
+        // 首个片段携带的 token 按片段的平均 token 数扣除，只计窗口内到达的 token
+        long generationNanos = sample.lastTokenNanos() - firstToken;
+        int fragments = sample.fragments();
+        if (fragments > 1 && generationNanos > 0) {
+            double streamedTokens = sample.tokens() * (fragments - 1) / (double) fragments;
+            tokensPerSecond.recordValue(streamedTokens * 1_000_000_000.0 / generationNanos);
+        }
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(Math.max(0, nanos / 1000), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private static void parkUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    public static final class Builder {
+        private String name = "load";
+        private double ratePerSecond = 10;
+        private Duration duration = Duration.ofSeconds(10);
+        private Duration warmup = Duration.ZERO;
+        private int maxConcurrency = 1024;
+
+        private Builder() {
+        }
+
+        /**
+         * 压测名称，用于报告和线程名
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * 目标速率（请求/秒）
+         */
+        public Builder ratePerSecond(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+            return this;
+        }
+
+        /**
+         * 统计阶段的持续时间
+         */
+        public Builder duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * 预热时间，预热阶段的请求不计入统计
+         */
+        public Builder warmup(Duration warmup) {
+            this.warmup = warmup;
+            return this;
+        }
+
+        /**
+         * 同时执行的最大请求数
+         */
+        public Builder maxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public LoadGenerator build() {
+            return new LoadGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package cn.langchat.learning.tutorial.performance;
+
+import cn.langchat.learning.tutorial.rag.Document;
+import cn.langchat.learning.tutorial.rag.RagSystem;
+import cn.langchat.learning.util.HttpTransport;
+import cn.langchat.learning.util.MockOpenAiServer;
+import cn.langchat.learning.util.ModelConfig;
+import cn.langchat.learning.util.ModelRegistry;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 开环压测生成器测试
+ *
+ * 使用本地模拟服务，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("25 - 开环压测生成器测试")
+class LoadGeneratorTest {
+
+    private MockOpenAiServer server;
+    private ModelRegistry registry;
+    private ModelConfig config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start();
+        registry = new ModelRegistry(new HttpTransport());
+        config = ModelConfig.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("应该按目标速率发出请求")
+    void shouldDriveTargetRate() throws Exception {
+        server.latency(Duration.ofMillis(10));
+
+        LoadTestReport report = LoadGenerator.builder()
+                .name("chat")
+                .ratePerSecond(100)
+                .duration(Duration.ofSeconds(1))
+                .build()
+                .run(LoadTargets.chat(registry.chatModel(config), "你好"));
+
+        assertEquals(0, report.getErrors());
+        assertEquals(100, report.getCompleted(), 5);
+        assertTrue(report.responseTimeMillis(50) >= 10);
+
+        log.info("\n{}", report.format());
+        log.info("\n✅ 测试通过：按目标速率发出请求\n");
+    }
+
+    @Test
+    @DisplayName("服务过载时响应时间应该包含排队时间")
+    void shouldCorrectForCoordinatedOmission() throws Exception {
+        // 每个请求 50ms，只允许 1 个并发：服务能力 20 请求/秒，目标速率 50 请求/秒
+        server.latency(Duration.ofMillis(50));
+
+        LoadTestReport report = LoadGenerator.builder()
+                .name("overload")
+                .ratePerSecond(50)
+                .duration(Duration.ofSeconds(1))
+                .maxConcurrency(1)
+                .build()
+                .run(LoadTargets.chat(registry.chatModel(config), "你好"));
+
+        // 服务时间接近 50ms，但排队中的请求会越等越久
+        assertTrue(report.serviceTimeMillis(99) < 200, "服务时间: " + report.serviceTimeMillis(99));
+        assertTrue(report.responseTimeMillis(99) > 3 * report.serviceTimeMillis(99),
+                "响应时间应该远大于服务时间: " + report.responseTimeMillis(99));
+
+        log.info("\n{}", report.format());
+        log.info("\n✅ 测试通过：响应时间校正了 coordinated omission\n");
+    }
+
+    @Test
+    @DisplayName("流式请求应该记录首 token 延迟和生成速度")
+    void shouldRecordStreamingMetrics() throws Exception {
+        server.latency(Duration.ofMillis(30))
+                .tokensPerSecond(200)
+                .reply("RAG 是一种结合了信息检索和文本生成的技术");
+
+        LoadTestReport report = LoadGenerator.builder()
+                .name("streaming")
+                .ratePerSecond(20)
+                .duration(Duration.ofSeconds(1))
+                .build()
+                .run(LoadTargets.streaming(registry.streamingChatModel(config), "什么是 RAG？"));
+
+        assertEquals(0, report.getErrors());
+        assertEquals(report.getCompleted(), report.getTimeToFirstToken().getTotalCount());
+        assertTrue(report.timeToFirstTokenMillis(50) >= 30);
+        assertTrue(report.timeToFirstTokenMillis(50) < report.responseTimeMillis(50));
+        // 模拟服务按 200 token/秒 发送，生成速度只统计流式窗口
+        double tokensPerSecond = report.getTokensPerSecond().getValueAtPercentile(50);
+        assertTrue(tokensPerSecond > 100 && tokensPerSecond < 250, "生成速度: " + tokensPerSecond);
+
+        log.info("\n{}", report.format());
+        log.info("\n✅ 测试通过：记录首 token 延迟和生成速度\n");
+    }
+
+    @Test
+    @DisplayName("应该能压测 RAG 流程")
+    void shouldDriveRagPipeline() throws Exception {
+        RagSystem ragSystem = new RagSystem(registry.embeddingModel(config),
+                new InMemoryEmbeddingStore<>(), registry.chatModel(config));
+        ragSystem.indexDocument(new Document("doc1", "RAG 系统说明",
+                "RAG（检索增强生成）是一种结合了信息检索和文本生成的技术。"));
+
+        LoadTestReport report = LoadGenerator.builder()
+                .name("rag")
+                .ratePerSecond(20)
+                .duration(Duration.ofSeconds(1))
+                .build()
+                .run(LoadTargets.rag(ragSystem, "什么是 RAG？", 1));
+
+        assertEquals(0, report.getErrors());
+        assertEquals(20, report.getCompleted(), 2);
+
+        log.info("\n{}", report.format());
+        log.info("\n✅ 测试通过：能够压测 RAG 流程\n");
+    }
+}
@@ -0,0 +1,69 @@
+package cn.langchat.learning.tutorial.performance;
+
+/**
+ * 单个请求的采样
+ *
+ * 记录请求的计划开始时间（按目标速率排定的时间）和实际开始时间，
+ * 流式请求可以额外记录首个和最后一个片段的时间、片段数以及输出的 token 数
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class LoadSample {
+
+    private final long intendedStartNanos;
+    private final long actualStartNanos;
+    private volatile long firstTokenNanos;
+    private volatile long lastTokenNanos;
+    private volatile int fragments;
+    private volatile int tokens;
+
+    LoadSample(long intendedStartNanos, long actualStartNanos) {
+        this.intendedStartNanos = intendedStartNanos;
+        this.actualStartNanos = actualStartNanos;
+    }
+
+    /**
+     * 收到一个 token（或一个流式片段），第一次调用时记录首 token 时间
+     */
+    public void onToken() {
+        long now = System.nanoTime();
+        if (firstTokenNanos == 0) {
+            firstTokenNanos = now;
+        }
+        lastTokenNanos = now;
+        fragments++;
+        tokens++;
+    }
+
+    /**
+     * 使用模型返回的 token 用量覆盖按片段计数的结果
+     */
+    public void tokens(int tokens) {
+        this.tokens = tokens;
+    }
+
+    long intendedStartNanos() {
+        return intendedStartNanos;
+    }
+
+    long actualStartNanos() {
+        return actualStartNanos;
+    }
+
+    long firstTokenNanos() {
+        return firstTokenNanos;
+    }
+
+    long lastTokenNanos() {
+        return lastTokenNanos;
+    }
+
+    int fragments() {
+        return fragments;
+    }
+
+    int tokens() {
+        return tokens;
+    }
+}
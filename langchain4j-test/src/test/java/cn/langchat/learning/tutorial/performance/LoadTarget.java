@@ -0,0 +1,16 @@
+package cn.langchat.learning.tutorial.performance;
+
+/**
+ * 压测目标
+ *
+ * 每次调用代表一个请求，在工作线程中同步执行，方法返回即视为请求完成。
+ * 流式请求需要阻塞到响应结束，并通过 {@link LoadSample} 报告首个 token 和 token 数
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@FunctionalInterface
+public interface LoadTarget {
+
+    void execute(LoadSample sample) throws Exception;
+}
@@ -0,0 +1,71 @@
+package cn.langchat.learning.tutorial.performance;
+
+import cn.langchat.learning.tutorial.rag.RagSystem;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 常用的压测目标
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class LoadTargets {
+
+    private LoadTargets() {
+        // 工具类，不允许实例化
+    }
+
+    /**
+     * 同步对话
+     */
+    public static LoadTarget chat(ChatModel chatModel, String message) {
+        return sample -> chatModel.chat(message);
+    }
+
+    /**
+     * 流式对话：记录首 token 延迟和生成速度，阻塞到响应结束
+     */
+    public static LoadTarget streaming(StreamingChatModel streamingModel, String message) {
+        return sample -> {
+            CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+            streamingModel.chat(message, new StreamingChatResponseHandler() {
+                @Override
+                public void onPartialResponse(String partialResponse) {
+                    sample.onToken();
+                }
+
+                @Override
+                public void onCompleteResponse(ChatResponse completeResponse) {
+                    if (completeResponse.tokenUsage() != null
+                            && completeResponse.tokenUsage().outputTokenCount() != null) {
+                        sample.tokens(completeResponse.tokenUsage().outputTokenCount());
+                    }
+                    future.complete(completeResponse);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    future.completeExceptionally(error);
+                }
+            });
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        };
+    }
+
+    /**
+     * RAG 问答：检索 + 构建上下文 + 生成
+     */
+    public static LoadTarget rag(RagSystem ragSystem, String query, int topK) {
+        return sample -> ragSystem.query(query, topK);
+    }
+}
@@ -0,0 +1,100 @@
+package cn.langchat.learning.tutorial.performance;
+
+import cn.langchat.learning.tutorial.rag.Document;
+import cn.langchat.learning.tutorial.rag.RagSystem;
+import cn.langchat.learning.util.HttpTransport;
+import cn.langchat.learning.util.MockOpenAiServer;
+import cn.langchat.learning.util.ModelConfig;
+import cn.langchat.learning.util.ModelRegistry;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * 端到端压测示例 - 可运行示例
+ *
+ * 使用本地模拟的 OpenAI 兼容服务（不需要 API Key），按固定速率压测：
+ * - ChatModel 同步对话
+ * - StreamingChatModel 流式对话（首 token 延迟、生成速度）
+ * - RAG 问答（向量检索 + 生成）
+ *
+ * 模拟服务的首 token 延迟服从对数正态分布（中位数 200ms），生成速度 50 token/秒
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public class LoadTestExample {
+
+    private static final String REPLY = "RAG（检索增强生成）是一种结合了信息检索和文本生成的技术，"
+            + "它先从知识库中检索相关文档，再把文档作为上下文交给模型生成答案，可以提高答案的准确性。";
+
+    public static void main(String[] args) throws Exception {
+        // 在创建模拟服务之前设置，流式响应逐个 token 发送（见 MockOpenAiServer 的说明）
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        log.info("╔══════════════════════════════════════════════════════════════════╗");
+        log.info("║                     端到端压测示例                                    ║");
+        log.info("╚═══════════════════════════════════════════════════════════════════════╣\n");
+
+        try (MockOpenAiServer server = MockOpenAiServer.start()
+                .latency(MockOpenAiServer.LatencyModel.logNormal(Duration.ofMillis(200), 0.5))
+                .tokensPerSecond(50)
+                .reply(REPLY);
+             ModelRegistry registry = new ModelRegistry(new HttpTransport())) {
+
+            ModelConfig config = ModelConfig.builder()
+                    .baseUrl(server.baseUrl())
+                    .apiKey(MockOpenAiServer.API_KEY)
+                    .modelName("mock-model")
+                    .build();
+
+            // 示例 1：同步对话
+            LoadTestReport chat = LoadGenerator.builder()
+                    .name("chat")
+                    .ratePerSecond(20)
+                    .warmup(Duration.ofSeconds(2))
+                    .duration(Duration.ofSeconds(10))
+                    .build()
+                    .run(LoadTargets.chat(registry.chatModel(config), "什么是 RAG？"));
+            print("示例 1: ChatModel 同步对话", chat);
+
+            // 示例 2：流式对话
+            LoadTestReport streaming = LoadGenerator.builder()
+                    .name("streaming")
+                    .ratePerSecond(20)
+                    .warmup(Duration.ofSeconds(2))
+                    .duration(Duration.ofSeconds(10))
+                    .build()
+                    .run(LoadTargets.streaming(registry.streamingChatModel(config), "什么是 RAG？"));
+            print("示例 2: StreamingChatModel 流式对话", streaming);
+
+            // 示例 3：RAG 问答
+            RagSystem ragSystem = new RagSystem(registry.embeddingModel(config),
+                    new InMemoryEmbeddingStore<>(), registry.chatModel(config));
+            ragSystem.indexDocument(new Document("doc1", "LangChain4j 简介",
+                    "LangChain4j 是一个用于构建大语言模型（LLM）应用的 Java 库，提供了完整的工具链。"));
+            ragSystem.indexDocument(new Document("doc2", "RAG 系统说明",
+                    "RAG（检索增强生成）是一种结合了信息检索和文本生成的技术，可以提高答案的准确性。"));
+            LoadTestReport rag = LoadGenerator.builder()
+                    .name("rag")
+                    .ratePerSecond(10)
+                    .warmup(Duration.ofSeconds(2))
+                    .duration(Duration.ofSeconds(10))
+                    .build()
+                    .run(LoadTargets.rag(ragSystem, "什么是 RAG？", 2));
+            print("示例 3: RAG 问答", rag);
+        }
+
+        log.info("╔══════════════════════════════════════════════════════════════════╗");
+        log.info("║ ✅ 示例执行完成                                              ║");
+        log.info("╚═══════════════════════════════════════════════════════════════════════╝");
+    }
+
+    private static void print(String title, LoadTestReport report) {
+        log.info("╔══════════════════════════════════════════════════════════════════╗");
+        log.info("║ {}", title);
+        log.info("╚═══════════════════════════════════════════════════════════════════════╣\n");
+        log.info("\n{}", report.format());
+    }
+}
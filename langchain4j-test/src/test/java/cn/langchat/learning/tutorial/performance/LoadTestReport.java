@@ -0,0 +1,153 @@
+package cn.langchat.learning.tutorial.performance;
+
+import org.HdrHistogram.DoubleHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * 压测报告
+ *
+ * 延迟直方图以微秒记录，输出时转换为毫秒
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class LoadTestReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final String name;
+    private final double targetRate;
+    private final long elapsedNanos;
+    private final long errors;
+    private final Histogram responseTime;
+    private final Histogram serviceTime;
+    private final Histogram timeToFirstToken;
+    private final DoubleHistogram tokensPerSecond;
+
+    LoadTestReport(String name, double targetRate, long elapsedNanos, long errors,
+                   Histogram responseTime, Histogram serviceTime,
+                   Histogram timeToFirstToken, DoubleHistogram tokensPerSecond) {
+        this.name = name;
+        this.targetRate = targetRate;
+        this.elapsedNanos = elapsedNanos;
+        this.errors = errors;
+        this.responseTime = responseTime;
+        this.serviceTime = serviceTime;
+        this.timeToFirstToken = timeToFirstToken;
+        this.tokensPerSecond = tokensPerSecond;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 成功完成的请求数
+     */
+    public long getCompleted() {
+        return responseTime.getTotalCount();
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * 实际达到的吞吐量（成功请求/秒）
+     */
+    public double getAchievedRate() {
+        return getCompleted() * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * 响应时间：从计划开始时间算起（已校正 coordinated omission）
+     */
+    public Histogram getResponseTime() {
+        return responseTime;
+    }
+
+    /**
+     * 服务时间：从实际发出请求的时间算起
+     */
+    public Histogram getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * 首 token 延迟，只有流式请求才有数据
+     */
+    public Histogram getTimeToFirstToken() {
+        return timeToFirstToken;
+    }
+
+    /**
+     * 每个流式请求在流式窗口（首个片段 → 最后一个片段）内的生成速度（token/秒）
+     */
+    public DoubleHistogram getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    /**
+     * 响应时间的百分位（毫秒）
+     */
+    public double responseTimeMillis(double percentile) {
+        return responseTime.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * 服务时间的百分位（毫秒）
+     */
+    public double serviceTimeMillis(double percentile) {
+        return serviceTime.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * 首 token 延迟的百分位（毫秒）
+     */
+    public double timeToFirstTokenMillis(double percentile) {
+        return timeToFirstToken.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * 格式化为可读的文本报告
+     */
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("压测: %s%n", name));
+        report.append(String.format("目标速率: %.1f 请求/秒, 实际吞吐: %.1f 请求/秒%n", targetRate, getAchievedRate()));
+        report.append(String.format("成功: %d, 失败: %d%n", getCompleted(), errors));
+        appendLatency(report, "响应时间 (ms)", responseTime);
+        appendLatency(report, "服务时间 (ms)", serviceTime);
+        if (timeToFirstToken.getTotalCount() > 0) {
+            appendLatency(report, "首 token (ms)", timeToFirstToken);
+        }
+        if (tokensPerSecond.getTotalCount() > 0) {
+            report.append(String.format("  %-14s p50=%.1f  p10=%.1f  mean=%.1f%n", "token/秒",
+                    tokensPerSecond.getValueAtPercentile(50),
+                    tokensPerSecond.getValueAtPercentile(10),
+                    tokensPerSecond.getMean()));
+        }
+        return report.toString();
+    }
+
+    private static void appendLatency(StringBuilder report, String label, Histogram histogram) {
+        report.append(String.format("  %-14s", label));
+        if (histogram.getTotalCount() == 0) {
+            report.append(String.format(" 无数据%n"));
+            return;
+        }
+        for (double percentile : PERCENTILES) {
+            report.append(String.format(" p%s=%.1f ", trim(percentile), histogram.getValueAtPercentile(percentile) / 1000.0));
+        }
+        report.append(String.format(" max=%.1f%n", histogram.getMaxValue() / 1000.0));
+    }
+
+    private static String trim(double percentile) {
+        return percentile == Math.floor(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
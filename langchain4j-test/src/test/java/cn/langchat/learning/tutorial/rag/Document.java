@@ -0,0 +1,40 @@
+package cn.langchat.learning.tutorial.rag;
+
+import dev.langchain4j.data.document.Metadata;
+
+/**
+ * 文档类
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public class Document {
+    private final String id;
+    private final String title;
+    private final String content;
+    private final Metadata metadata;
+
+    public Document(String id, String title, String content) {
+        this.id = id;
+        this.title = title;
+        this.content = content;
+        // 使用 Metadata.from(String, String) 创建元数据
+        this.metadata = Metadata.from("document_id", id);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Metadata getMetadata() {
+        return metadata;
+    }
+}
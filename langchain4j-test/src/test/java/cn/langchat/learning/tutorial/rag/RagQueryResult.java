@@ -0,0 +1,40 @@
+package cn.langchat.learning.tutorial.rag;
+
+import java.util.List;
+
+/**
+ * RAG 查询结果
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public class RagQueryResult {
+    private final String query;
+    private final List<Document> retrievedDocuments;
+    private final String answer;
+    private final String context;
+
+    public RagQueryResult(String query, List<Document> retrievedDocuments,
+                          String answer, String context) {
+        this.query = query;
+        this.retrievedDocuments = retrievedDocuments;
+        this.answer = answer;
+        this.context = context;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public List<Document> getRetrievedDocuments() {
+        return retrievedDocuments;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public String getContext() {
+        return context;
+    }
+}
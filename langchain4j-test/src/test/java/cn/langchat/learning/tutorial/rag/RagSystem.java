@@ -0,0 +1,269 @@
+package cn.langchat.learning.tutorial.rag;
+
+import cn.langchat.learning.util.CompiledPromptTemplate;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * RAG 系统类
+ *
+ * 索引、检索、上下文构建和问答的最小实现，供 RagTest 和性能基准使用
+ *
+ * 每个阶段都会创建 OpenTelemetry span，用于定位慢查询耗在哪一步：
+ * <pre>
+ * rag.query
+ * ├── retrieve
+ * │   ├── embeddingModel.embed
+ * │   └── embeddingStore.search   (rag.segments.count, rag.score.max, rag.score.min)
+ * ├── buildContext                (rag.documents.count, rag.context.chars, rag.context.tokens)
+ * └── chatModel.chat              (gen_ai.usage.input_tokens, gen_ai.usage.output_tokens)
+ * </pre>
+ * 属性只在 span 被采样时计算，未采样时只有创建空 span 的开销
+ *
+ * 上下文和提示词使用预编译的模板（见 {@link CompiledPromptTemplate}）拼接，每次查询不再解析格式串
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public class RagSystem {
+
+    public static final String TRACER_NAME = "cn.langchat.learning.rag";
+
+    private static final CompiledPromptTemplate DOCUMENT_TEMPLATE = CompiledPromptTemplate.compile(
+            "[文档 {{index}}: {{title}}]\n{{content}}\n\n");
+    private static final CompiledPromptTemplate PROMPT_TEMPLATE = CompiledPromptTemplate.compile(
+            "基于以下文档回答问题。如果文档中没有答案，请说不知道。\n\n{{context}}\n\n问题: {{question}}");
+
+    private final EmbeddingModel embeddingModel;
+    private final InMemoryEmbeddingStore<TextSegment> embeddingStore;
+    private final ChatModel chatModel;
+    private final List<Document> documentRegistry;
+    private final Tracer tracer;
+
+    /**
+     * 使用全局 OpenTelemetry，未注册时 span 都是空操作
+     */
+    public RagSystem(EmbeddingModel embeddingModel,
+                     InMemoryEmbeddingStore<TextSegment> embeddingStore,
+                     ChatModel chatModel) {
+        this(embeddingModel, embeddingStore, chatModel, GlobalOpenTelemetry.get());
+    }
+
+    public RagSystem(EmbeddingModel embeddingModel,
+                     InMemoryEmbeddingStore<TextSegment> embeddingStore,
+                     ChatModel chatModel,
+                     OpenTelemetry openTelemetry) {
+        this.embeddingModel = embeddingModel;
+        this.embeddingStore = embeddingStore;
+        this.chatModel = chatModel;
+        this.documentRegistry = new ArrayList<>();
+        this.tracer = openTelemetry.getTracer(TRACER_NAME);
+    }
+
+    /**
+     * 索引文档
+     */
+    public void indexDocument(Document document) {
+        documentRegistry.add(document);
+
+        // 分段并嵌入
+        List<TextSegment> segments = segmentDocument(document);
+        for (TextSegment segment : segments) {
+            float[] vector = embeddingModel.embed(segment.text()).content().vector();
+            embeddingStore.add(Embedding.from(vector), segment);
+        }
+    }
+
+    /**
+     * 检索相关文档
+     */
+    public List<Document> retrieve(String query, int topK) {
+        return inSpan("retrieve", span -> {
+            float[] queryVector = inSpan("embeddingModel.embed",
+                    embedSpan -> embeddingModel.embed(query).content().vector());
+
+            EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(Embedding.from(queryVector))
+                    .maxResults(topK)
+                    .minScore(0.0)
+                    .build();
+
+            List<EmbeddingMatch<TextSegment>> relevantEmbeddings = inSpan("embeddingStore.search", searchSpan -> {
+                EmbeddingSearchResult<TextSegment> result = embeddingStore.search(searchRequest);
+                if (searchSpan.isRecording()) {
+                    recordScores(searchSpan, result.matches());
+                }
+                return result.matches();
+            });
+
+            // 提取文档（去重）
+            List<Document> documents = relevantEmbeddings.stream()
+                    .map(embedding -> {
+                        String id = embedding.embedded().metadata().getString("document_id");
+                        return id != null ? getDocumentById(id) : null;
+                    })
+                    .distinct()
+                    .filter(doc -> doc != null)
+                    .collect(Collectors.toList());
+            span.setAttribute("rag.top_k", topK);
+            span.setAttribute("rag.documents.count", documents.size());
+            return documents;
+        });
+    }
+
+    /**
+     * 构建上下文
+     */
+    public String buildContext(List<Document> documents) {
+        return inSpan("buildContext", span -> {
+            // 先估算总长度，拼接过程中不再扩容
+            int capacity = 0;
+            for (int i = 0; i < documents.size(); i++) {
+                Document doc = documents.get(i);
+                capacity += DOCUMENT_TEMPLATE.estimateLength(i + 1, title(doc), content(doc));
+            }
+            StringBuilder context = new StringBuilder(capacity);
+            for (int i = 0; i < documents.size(); i++) {
+                Document doc = documents.get(i);
+                DOCUMENT_TEMPLATE.renderTo(context, i + 1, title(doc), content(doc));
+            }
+            String result = context.toString();
+            if (span.isRecording()) {
+                span.setAttribute("rag.documents.count", documents.size());
+                span.setAttribute("rag.context.chars", result.length());
+                span.setAttribute("rag.context.tokens", contextTokens(documents));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 执行 RAG 查询
+     */
+    public RagQueryResult query(String userQuery, int topK) {
+        return inSpan("rag.query", span -> {
+            span.setAttribute("rag.top_k", topK);
+
+            // 1. 检索相关文档
+            List<Document> relevantDocs = retrieve(userQuery, topK);
+
+            // 2. 构建上下文
+            String context = buildContext(relevantDocs);
+
+            // 3. 构建提示词
+            String prompt = PROMPT_TEMPLATE.render(context, userQuery);
+
+            // 4. 生成答案
+            AiMessage aiMessage = inSpan("chatModel.chat", chatSpan -> {
+                ChatResponse response = chatModel.chat(UserMessage.from(prompt));
+                TokenUsage usage = response.tokenUsage();
+                if (usage != null && chatSpan.isRecording()) {
+                    if (usage.inputTokenCount() != null) {
+                        chatSpan.setAttribute("gen_ai.usage.input_tokens", usage.inputTokenCount());
+                    }
+                    if (usage.outputTokenCount() != null) {
+                        chatSpan.setAttribute("gen_ai.usage.output_tokens", usage.outputTokenCount());
+                    }
+                }
+                return response.aiMessage();
+            });
+            String answer = aiMessage.text();
+
+            return new RagQueryResult(userQuery, relevantDocs, answer, context);
+        });
+    }
+
+    /**
+     * 文档分段
+     */
+    public List<TextSegment> segmentDocument(Document document) {
+        List<TextSegment> segments = new ArrayList<>();
+        String content = document.getContent();
+
+        // 简化：按段落分段
+        String[] paragraphs = content.split("\\n\\n+");
+        for (String paragraph : paragraphs) {
+            segments.add(TextSegment.from(paragraph, document.getMetadata()));
+        }
+
+        return segments;
+    }
+
+    /**
+     * 模板不接受 null，标题或内容缺失时与原来的 String.format 一样输出 "null"
+     */
+    private static String title(Document doc) {
+        return String.valueOf(doc.getTitle());
+    }
+
+    private static String content(Document doc) {
+        return String.valueOf(doc.getContent());
+    }
+
+    /**
+     * 上下文的 token 数：模板的静态部分只计算一次，每篇文档只计算标题和内容
+     */
+    private static int contextTokens(List<Document> documents) {
+        int tokens = 0;
+        for (int i = 0; i < documents.size(); i++) {
+            Document doc = documents.get(i);
+            tokens += DOCUMENT_TEMPLATE.estimateTokenCount(i + 1, title(doc), content(doc));
+        }
+        return tokens;
+    }
+
+    /**
+     * 在新的 span 中执行，当前线程上已有的 span 作为父 span；异常会记录到 span 后原样抛出
+     */
+    private <T> T inSpan(String name, Function<Span, T> body) {
+        Span span = tracer.spanBuilder(name).startSpan();
+        Scope scope = span.makeCurrent();
+        try {
+            return body.apply(span);
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            scope.close();
+            span.end();
+        }
+    }
+
+    private static void recordScores(Span span, List<EmbeddingMatch<TextSegment>> matches) {
+        span.setAttribute("rag.segments.count", matches.size());
+        if (!matches.isEmpty()) {
+            // 结果按分数降序排列
+            span.setAttribute("rag.score.max", matches.get(0).score());
+            span.setAttribute("rag.score.min", matches.get(matches.size() - 1).score());
+        }
+    }
+
+    private Document getDocumentById(String id) {
+        return documentRegistry.stream()
+                .filter(doc -> doc.getId().equals(id))
+                .findFirst()
+                .orElse(null);
+    }
+}
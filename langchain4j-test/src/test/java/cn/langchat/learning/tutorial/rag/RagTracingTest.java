@@ -0,0 +1,163 @@
+package cn.langchat.learning.tutorial.rag;
+
+import cn.langchat.learning.util.HttpTransport;
+import cn.langchat.learning.util.MockOpenAiServer;
+import cn.langchat.learning.util.ModelConfig;
+import cn.langchat.learning.util.ModelRegistry;
+import cn.langchat.learning.util.Tracing;
+import dev.langchain4j.exception.AuthenticationException;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RAG 链路追踪测试
+ *
+ * 使用 {@link MockOpenAiServer} 和 InMemorySpanExporter，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("RAG 链路追踪测试")
+class RagTracingTest {
+
+    private MockOpenAiServer server;
+    private ModelRegistry registry;
+    private ModelConfig config;
+    private InMemorySpanExporter exporter;
+    private final List<OpenTelemetrySdk> openTelemetries = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start().reply("RAG 是检索增强生成");
+        registry = new ModelRegistry(new HttpTransport());
+        config = ModelConfig.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .build();
+        exporter = InMemorySpanExporter.create();
+    }
+
+    @AfterEach
+    void tearDown() {
+        openTelemetries.forEach(OpenTelemetrySdk::close);
+        registry.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("每个阶段都应该生成 span")
+    void shouldTraceEveryStage() {
+        RagSystem ragSystem = newRagSystem(1.0);
+        ragSystem.query("什么是 RAG？", 2);
+
+        Map<String, SpanData> spans = exporter.getFinishedSpanItems().stream()
+                .collect(Collectors.toMap(SpanData::getName, Function.identity()));
+        assertEquals(6, spans.size());
+        SpanData root = spans.get("rag.query");
+        SpanData retrieve = spans.get("retrieve");
+        SpanData search = spans.get("embeddingStore.search");
+        SpanData buildContext = spans.get("buildContext");
+        SpanData chat = spans.get("chatModel.chat");
+
+        // 父子关系
+        assertFalse(root.getParentSpanContext().isValid());
+        assertEquals(root.getSpanId(), retrieve.getParentSpanId());
+        assertEquals(retrieve.getSpanId(), spans.get("embeddingModel.embed").getParentSpanId());
+        assertEquals(retrieve.getSpanId(), search.getParentSpanId());
+        assertEquals(root.getSpanId(), buildContext.getParentSpanId());
+        assertEquals(root.getSpanId(), chat.getParentSpanId());
+        assertTrue(spans.values().stream().allMatch(span -> span.getTraceId().equals(root.getTraceId())));
+
+        // 属性
+        assertEquals(2L, root.getAttributes().get(AttributeKey.longKey("rag.top_k")));
+        assertEquals(2L, search.getAttributes().get(AttributeKey.longKey("rag.segments.count")));
+        assertTrue(search.getAttributes().get(AttributeKey.doubleKey("rag.score.max"))
+                >= search.getAttributes().get(AttributeKey.doubleKey("rag.score.min")));
+        assertEquals(2L, buildContext.getAttributes().get(AttributeKey.longKey("rag.documents.count")));
+        assertTrue(buildContext.getAttributes().get(AttributeKey.longKey("rag.context.tokens")) > 0);
+        assertEquals((long) MockOpenAiServer.tokenize("RAG 是检索增强生成").size(),
+                chat.getAttributes().get(AttributeKey.longKey("gen_ai.usage.output_tokens")));
+
+        exporter.getFinishedSpanItems().forEach(span -> log.info("{} {} µs {}", span.getName(),
+                (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1000, span.getAttributes()));
+        log.info("\n✅ 测试通过：每个阶段都生成了 span\n");
+    }
+
+    @Test
+    @DisplayName("失败的阶段应该记录异常")
+    void shouldRecordErrors() {
+        RagSystem ragSystem = newRagSystem(1.0);
+        server.failNext(401, 1);
+
+        assertThrows(AuthenticationException.class, () -> ragSystem.query("什么是 RAG？", 2));
+
+        List<SpanData> failed = exporter.getFinishedSpanItems().stream()
+                .filter(span -> span.getStatus().getStatusCode() == StatusCode.ERROR)
+                .toList();
+        assertEquals(List.of("embeddingModel.embed", "retrieve", "rag.query"),
+                failed.stream().map(SpanData::getName).toList());
+        assertEquals("exception", failed.get(0).getEvents().get(0).getName());
+
+        log.info("\n✅ 测试通过：失败的阶段记录了异常\n");
+    }
+
+    @Test
+    @DisplayName("采样率应该限制导出的链路数")
+    void shouldSampleTraces() {
+        RagSystem ragSystem = newRagSystem(0.25);
+        List<Document> documents = List.of(new Document("doc1", "RAG 系统说明", "RAG 是检索增强生成"));
+
+        for (int i = 0; i < 2000; i++) {
+            ragSystem.buildContext(documents);
+        }
+
+        int sampled = exporter.getFinishedSpanItems().size();
+        assertTrue(sampled > 350 && sampled < 650, "采样数: " + sampled);
+
+        // 采样率为 0 时一个 span 都不导出
+        RagSystem unsampled = newRagSystem(0.0);
+        exporter.reset();
+        unsampled.query("什么是 RAG？", 2);
+        assertTrue(exporter.getFinishedSpanItems().isEmpty());
+
+        log.info("2000 条链路中采样了 {} 条", sampled);
+        log.info("\n✅ 测试通过：按采样率导出链路\n");
+    }
+
+    /**
+     * 创建使用内存导出器的 RagSystem，并索引两篇文档
+     */
+    private RagSystem newRagSystem(double sampleRatio) {
+        OpenTelemetrySdk openTelemetry = Tracing.create(SimpleSpanProcessor.create(exporter),
+                Tracing.sampler(sampleRatio));
+        openTelemetries.add(openTelemetry);
+        RagSystem ragSystem = new RagSystem(registry.embeddingModel(config), new InMemoryEmbeddingStore<>(),
+                registry.chatModel(config), openTelemetry);
+        ragSystem.indexDocument(new Document("doc1", "RAG 系统说明",
+                "RAG（检索增强生成）是一种结合了信息检索和文本生成的技术。"));
+        ragSystem.indexDocument(new Document("doc2", "向量数据库",
+                "向量数据库用于存储和检索文本的向量表示。"));
+        return ragSystem;
+    }
+}
@@ -0,0 +1,90 @@
+package cn.langchat.learning.tutorial.streaming;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 可复用 char[] 缓冲池
+ *
+ * 流式响应结束后把缓冲归还到池中，下一条流直接复用，避免每条流都从小数组开始反复扩容。
+ * - 池中最多保留 maxPooled 个缓冲，超出的直接丢弃交给 GC
+ * - 扩容到超过 maxRetainedCapacity 的缓冲不回收，防止偶发的超长响应长期占用内存
+ *
+ * 线程安全，可以被所有流共享
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class CharBufferPool {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 4096;
+    private static final int DEFAULT_MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final int DEFAULT_MAX_POOLED = 256;
+
+    private final int initialCapacity;
+    private final int maxRetainedCapacity;
+    private final ArrayBlockingQueue<char[]> buffers;
+    private final AtomicLong allocations = new AtomicLong();
+
+    public CharBufferPool() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_RETAINED_CAPACITY, DEFAULT_MAX_POOLED);
+    }
+
+    public CharBufferPool(int initialCapacity, int maxRetainedCapacity, int maxPooled) {
+        if (initialCapacity <= 0 || maxRetainedCapacity < initialCapacity || maxPooled <= 0) {
+            throw new IllegalArgumentException("缓冲池参数无效");
+        }
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedCapacity = maxRetainedCapacity;
+        this.buffers = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    /**
+     * 取出一个缓冲，池为空时新建
+     */
+    public char[] acquire() {
+        char[] buffer = buffers.poll();
+        if (buffer == null) {
+            allocations.incrementAndGet();
+            buffer = new char[initialCapacity];
+        }
+        return buffer;
+    }
+
+    /**
+     * 扩容：把已写入的 length 个字符复制到至少 minCapacity 大小的新缓冲
+     *
+     * 旧缓冲不归还，否则池里会堆满小缓冲，后续的流又要从头扩容；
+     * 扩容后的大缓冲在 release 时回到池中，之后的流直接使用
+     */
+    public char[] grow(char[] buffer, int length, int minCapacity) {
+        int newCapacity = Math.max(minCapacity, buffer.length * 2);
+        char[] grown = new char[newCapacity];
+        System.arraycopy(buffer, 0, grown, 0, length);
+        allocations.incrementAndGet();
+        return grown;
+    }
+
+    /**
+     * 归还缓冲，不清空内容，使用方只读取自己写入的部分
+     */
+    public void release(char[] buffer) {
+        if (buffer.length <= maxRetainedCapacity) {
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * 当前池中空闲的缓冲数
+     */
+    public int available() {
+        return buffers.size();
+    }
+
+    /**
+     * 累计新建的缓冲数（包括扩容），池命中良好时应该远小于流的数量
+     */
+    public long allocations() {
+        return allocations.get();
+    }
+}
@@ -0,0 +1,51 @@
+package cn.langchat.learning.tutorial.streaming;
+
+import cn.langchat.learning.util.TestModelProvider;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.time.Duration;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+/**
+ * Server-Sent Events 流式对话端点配置
+ *
+ * 与 WebSocket 网关一样只存在于测试 classpath：运行测试或执行 mvn spring-boot:test-run 启动
+ * {@link cn.langchat.learning.LearningTestsApplication} 时通过组件扫描加载，端点为 GET /sse/chat?message=...。浏览器可以直接用 EventSource 连接
+ *
+ * 可调参数：
+ * - langchat.sse.max-streams：同时进行的流数上限，默认 10000
+ * - langchat.sse.heartbeat-interval：心跳间隔，默认 15s
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Configuration(proxyBeanMethods = false)
+public class ChatSseConfiguration {
+
+    public static final String PATH = "/sse/chat";
+
+    @Bean
+    public ChatSseHandler chatSseHandler(
+            ObjectProvider<StreamingChatModel> streamingChatModel,
+            @Value("${langchat.sse.max-streams:10000}") int maxStreams,
+            @Value("${langchat.sse.heartbeat-interval:15s}") Duration heartbeatInterval) {
+        return ChatSseHandler.builder()
+                .model(streamingChatModel.getIfAvailable(TestModelProvider::getStreamingChatModel))
+                .maxStreams(maxStreams)
+                .heartbeatInterval(heartbeatInterval)
+                .build();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> chatSseRoute(ChatSseHandler chatSseHandler) {
+        return RouterFunctions.route(GET(PATH), chatSseHandler);
+    }
+}
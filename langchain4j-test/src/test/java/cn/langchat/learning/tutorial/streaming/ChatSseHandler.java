@@ -0,0 +1,252 @@
+package cn.langchat.learning.tutorial.streaming;
+
+import cn.langchat.learning.tutorial.streaming.StreamingChatPublisher.OverflowStrategy;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events 流式对话端点
+ *
+ * GET /sse/chat?message=你好，响应是 text/event-stream：
+ * - event: token，data 为片段文本（多行文本拆成多个 data 行）
+ * - event: done / event: error 结束流
+ * - 每隔 heartbeatInterval 发送一行注释（": ping"），防止代理因为长时间没有数据而断开连接
+ *
+ * 实现要点：
+ * - 事件直接编码进响应的 DataBufferFactory 分配的缓冲区。在 Reactor Netty 上这是池化的直接内存，
+ *   片段文本按 UTF-8 写入缓冲区，不经过中间的 String 和 byte[]；固定内容（事件名、心跳）只包装不复制
+ * - 片段按 maxTokensPerFrame 和 frameInterval 合并成一个事件，每个事件写完立即 flush
+ * - 客户端断开时写入被取消，{@link StreamingChatPublisher} 通过 StreamingHandle 关闭上游 HTTP 流
+ * - 同时进行的流超过 maxStreams 时返回 503，避免内存被无限增长的连接耗尽。名额在响应体被订阅时占用、
+ *   流结束或取消时归还，响应体没有写出（例如客户端在此之前断开）时不会占用名额；
+ *   检查和占用之间被其它请求抢先时，流只包含一个 error 事件
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class ChatSseHandler implements HandlerFunction<ServerResponse> {
+
+    private static final byte[] TOKEN_EVENT = "event: token\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DONE_EVENT = "event: done\ndata: [DONE]\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ERROR_EVENT = "event: error\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DATA = "data: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte NEWLINE = '\n';
+
+    private final StreamingChatModel model;
+    private final int maxStreams;
+    private final Duration heartbeatInterval;
+    private final int maxTokensPerFrame;
+    private final Duration frameInterval;
+    private final int bufferSize;
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    private ChatSseHandler(Builder builder) {
+        this.model = builder.model;
+        this.maxStreams = builder.maxStreams;
+        this.heartbeatInterval = builder.heartbeatInterval;
+        this.maxTokensPerFrame = builder.maxTokensPerFrame;
+        this.frameInterval = builder.frameInterval;
+        this.bufferSize = builder.bufferSize;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 当前进行中的流数
+     */
+    public int activeStreams() {
+        return activeStreams.get();
+    }
+
+    @Override
+    public Mono<ServerResponse> handle(ServerRequest request) {
+        String message = request.queryParam("message").orElse("");
+        if (message.isBlank()) {
+            return ServerResponse.badRequest().bodyValue("缺少 message 参数");
+        }
+        if (activeStreams.get() >= maxStreams) {
+            return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .bodyValue("同时进行的流已达上限（" + maxStreams + "）");
+        }
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                // 关闭 Nginx 的响应缓冲，否则事件会被攒到一起才发给浏览器
+                .header("X-Accel-Buffering", "no")
+                .body((output, context) -> output.writeAndFlushWith(
+                        events(message, output.bufferFactory()).map(Mono::just)));
+    }
+
+    private boolean tryAcquire() {
+        // 只在响应体被订阅时调用（见 events），占用和归还在同一个 Flux.using 中
+        int current;
+        do {
+            current = activeStreams.get();
+            if (current >= maxStreams) {
+                return false;
+            }
+        } while (!activeStreams.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private Flux<DataBuffer> events(String message, DataBufferFactory factory) {
+        return Flux.using(this::tryAcquire,
+                acquired -> acquired
+                        ? stream(message, factory)
+                        : Flux.from(Mono.fromSupplier(() -> event(factory, ERROR_EVENT,
+                                List.of("同时进行的流已达上限（" + maxStreams + "）")))),
+                acquired -> {
+                    if (acquired) {
+                        activeStreams.decrementAndGet();
+                    }
+                });
+    }
+
+    private Flux<DataBuffer> stream(String message, DataBufferFactory factory) {
+        StreamingChatPublisher publisher = StreamingChatPublisher.builder()
+                .model(model)
+                .userMessage(message)
+                .bufferSize(bufferSize)
+                .overflowStrategy(OverflowStrategy.COALESCE)
+                .build();
+        Sinks.One<Boolean> finished = Sinks.one();
+        Flux<DataBuffer> tokens = JdkFlowAdapter.flowPublisherToFlux(publisher)
+                .bufferTimeout(maxTokensPerFrame, frameInterval, true)
+                .map(partials -> event(factory, TOKEN_EVENT, partials))
+                .concatWith(Mono.fromSupplier(() -> factory.wrap(DONE_EVENT)))
+                .onErrorResume(e -> Mono.fromSupplier(() ->
+                        event(factory, ERROR_EVENT, List.of(String.valueOf(e.getMessage())))))
+                .doFinally(signal -> finished.tryEmitValue(Boolean.TRUE));
+        Flux<DataBuffer> heartbeats = Flux.interval(heartbeatInterval)
+                .map(tick -> factory.wrap(HEARTBEAT))
+                .takeUntilOther(finished.asMono());
+        return Flux.merge(tokens, heartbeats)
+                // 取消时可能还有已编码但未写出的缓冲区，归还给池
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .doFinally(signal -> log.debug("SSE 流结束: {}", signal));
+    }
+
+    /**
+     * 把一组片段编码成一个事件，换行符拆分成多个 data 行
+     */
+    private static DataBuffer event(DataBufferFactory factory, byte[] header, List<String> partials) {
+        int length = 0;
+        for (String partial : partials) {
+            length += partial.length();
+        }
+        // UTF-8 中文占 3 字节，按上限分配，避免写入时扩容
+        DataBuffer buffer = factory.allocateBuffer(header.length + DATA.length + length * 3 + 16);
+        buffer.write(header).write(DATA);
+        for (String partial : partials) {
+            int start = 0;
+            for (int i = 0; i < partial.length(); i++) {
+                char c = partial.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    buffer.write(CharBuffer.wrap(partial, start, i), StandardCharsets.UTF_8);
+                    buffer.write(NEWLINE).write(DATA);
+                    if (c == '\r' && i + 1 < partial.length() && partial.charAt(i + 1) == '\n') {
+                        i++;
+                    }
+                    start = i + 1;
+                }
+            }
+            buffer.write(CharBuffer.wrap(partial, start, partial.length()), StandardCharsets.UTF_8);
+        }
+        return buffer.write(NEWLINE).write(NEWLINE);
+    }
+
+    public static final class Builder {
+        private StreamingChatModel model;
+        private int maxStreams = 10_000;
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+        private int maxTokensPerFrame = 32;
+        private Duration frameInterval = Duration.ofMillis(50);
+        private int bufferSize = 256;
+
+        private Builder() {
+        }
+
+        public Builder model(StreamingChatModel model) {
+            this.model = model;
+            return this;
+        }
+
+        /**
+         * 同时进行的流数上限，超过时返回 503
+         */
+        public Builder maxStreams(int maxStreams) {
+            this.maxStreams = maxStreams;
+            return this;
+        }
+
+        /**
+         * 心跳间隔，应该小于代理的空闲超时（Nginx proxy_read_timeout 默认 60s）
+         */
+        public Builder heartbeatInterval(Duration heartbeatInterval) {
+            this.heartbeatInterval = heartbeatInterval;
+            return this;
+        }
+
+        /**
+         * 一个事件最多合并的片段数，达到后立即发送
+         */
+        public Builder maxTokensPerFrame(int maxTokensPerFrame) {
+            this.maxTokensPerFrame = maxTokensPerFrame;
+            return this;
+        }
+
+        /**
+         * 一个事件最多等待的时间，从该事件的第一个片段到达时开始计算
+         */
+        public Builder frameInterval(Duration frameInterval) {
+            this.frameInterval = frameInterval;
+            return this;
+        }
+
+        /**
+         * 每个流的片段缓冲大小，见 {@link StreamingChatPublisher.Builder#bufferSize(int)}
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public ChatSseHandler build() {
+            if (model == null) {
+                throw new IllegalArgumentException("model 不能为空");
+            }
+            if (maxStreams <= 0 || maxTokensPerFrame <= 0 || bufferSize <= 0) {
+                throw new IllegalArgumentException("maxStreams、maxTokensPerFrame 和 bufferSize 必须大于 0");
+            }
+            if (heartbeatInterval == null || heartbeatInterval.isNegative() || heartbeatInterval.isZero()
+                    || frameInterval == null || frameInterval.isNegative() || frameInterval.isZero()) {
+                throw new IllegalArgumentException("heartbeatInterval 和 frameInterval 必须大于 0");
+            }
+            return new ChatSseHandler(this);
+        }
+    }
+}
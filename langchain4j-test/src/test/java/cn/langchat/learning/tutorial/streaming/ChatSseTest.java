@@ -0,0 +1,286 @@
+package cn.langchat.learning.tutorial.streaming;
+
+import cn.langchat.learning.LearningTestsApplication;
+import cn.langchat.learning.util.HttpTransport;
+import cn.langchat.learning.util.MockOpenAiServer;
+import cn.langchat.learning.util.ModelConfig;
+import cn.langchat.learning.util.ModelRegistry;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import io.netty.buffer.PooledByteBufAllocator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.view.ViewResolver;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Server-Sent Events 流式对话端点测试
+ *
+ * 启动 {@link LearningTestsApplication}（随机端口），上游使用 {@link MockOpenAiServer}，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("SSE 流式对话端点测试")
+class ChatSseTest {
+
+    private static final int LOAD_STREAMS = 100;
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> EVENT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private MockOpenAiServer server;
+    private ModelRegistry registry;
+    private ConfigurableApplicationContext context;
+    private ChatSseHandler handler;
+    private WebClient webClient;
+    private final List<Disposable> streams = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start().responder(message -> "收到：" + message).tokensPerSecond(500);
+        registry = new ModelRegistry(new HttpTransport());
+        StreamingChatModel streamingModel = registry.streamingChatModel(ModelConfig.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .build());
+        context = new SpringApplicationBuilder(LearningTestsApplication.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .registerSingleton("streamingChatModel", streamingModel))
+                .properties("server.port=0", "spring.main.banner-mode=off",
+                        "langchat.sse.max-streams=" + (LOAD_STREAMS + 1), "langchat.sse.heartbeat-interval=200ms")
+                .run();
+        handler = context.getBean(ChatSseHandler.class);
+        // 流式响应期间连接不会归还连接池，负载测试需要不受连接池上限约束的客户端
+        webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.newConnection()))
+                .baseUrl("http://localhost:" + context.getEnvironment().getProperty("local.server.port"))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        streams.forEach(Disposable::dispose);
+        context.close();
+        registry.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("应该以 SSE 事件输出片段，多行文本不丢失换行")
+    void shouldStreamTokens() throws Exception {
+        String reply = "第一行\n第二行\r\n第三行";
+        server.reply(reply);
+
+        List<ServerSentEvent<String>> events = open("你好").collectList().block(Duration.ofSeconds(10));
+
+        assertNotNull(events);
+        assertEquals(reply.replace("\r\n", "\n"), text(events));
+        ServerSentEvent<String> last = events.get(events.size() - 1);
+        assertEquals("done", last.event());
+        assertTrue(awaitCondition(() -> handler.activeStreams() == 0));
+
+        log.info("收到 {} 个事件: {}", events.size(), events);
+        log.info("\n✅ 测试通过：SSE 事件输出片段\n");
+    }
+
+    @Test
+    @DisplayName("生成较慢时应该发送心跳")
+    void shouldSendHeartbeats() {
+        server.latency(Duration.ofMillis(700));
+
+        List<ServerSentEvent<String>> events = open("你好").collectList().block(Duration.ofSeconds(10));
+
+        assertNotNull(events);
+        List<ServerSentEvent<String>> heartbeats = events.stream()
+                .filter(event -> "ping".equals(event.comment()))
+                .collect(Collectors.toList());
+        assertTrue(heartbeats.size() >= 2, "心跳数: " + heartbeats.size());
+        assertEquals("收到：你好", text(events));
+
+        log.info("首个片段前收到 {} 次心跳", heartbeats.size());
+        log.info("\n✅ 测试通过：生成较慢时发送心跳\n");
+    }
+
+    @Test
+    @DisplayName("客户端断开应该中止上游生成")
+    void shouldCancelUpstreamOnDisconnect() throws Exception {
+        server.responder(message -> message.repeat(100)).tokensPerSecond(50);
+
+        List<ServerSentEvent<String>> events = open("很长的回答")
+                .filter(event -> "token".equals(event.event()))
+                .take(2)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertNotNull(events);
+        assertEquals(2, events.size());
+        assertTrue(awaitCondition(() -> server.abortedStreamCount() == 1));
+        assertTrue(awaitCondition(() -> handler.activeStreams() == 0));
+
+        log.info("\n✅ 测试通过：客户端断开后中止了上游生成\n");
+    }
+
+    @Test
+    @DisplayName("响应体写出前客户端断开，不应该占用流名额")
+    void shouldNotLeakSlotWhenCancelledBeforeBody() throws Exception {
+        server.latency(Duration.ofSeconds(30));
+        ServerResponse response = handler.handle(MockServerRequest.builder()
+                .queryParam("message", "你好")
+                .build()).block(Duration.ofSeconds(5));
+        assertNotNull(response);
+        // 响应已经生成但响应体还没有被订阅
+        assertEquals(0, handler.activeStreams());
+
+        // 开始写出后立即取消
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(ChatSseConfiguration.PATH));
+        Disposable write = response.writeTo(exchange, new ServerResponse.Context() {
+            @Override
+            public List<HttpMessageWriter<?>> messageWriters() {
+                return HandlerStrategies.withDefaults().messageWriters();
+            }
+
+            @Override
+            public List<ViewResolver> viewResolvers() {
+                return List.of();
+            }
+        }).subscribe();
+        assertTrue(awaitCondition(() -> handler.activeStreams() == 1));
+        write.dispose();
+        assertTrue(awaitCondition(() -> handler.activeStreams() == 0));
+
+        log.info("\n✅ 测试通过：取消的响应没有占用流名额\n");
+    }
+
+    @Test
+    @DisplayName("超过流数上限时应该返回 503")
+    void shouldRejectWhenFull() throws Exception {
+        // 上游迟迟不返回，已打开的流在测试期间不会结束
+        server.latency(Duration.ofSeconds(30));
+        for (int i = 0; i < LOAD_STREAMS + 1; i++) {
+            subscribe(open("会话 " + i), event -> {
+            });
+        }
+        assertEquals(LOAD_STREAMS + 1, handler.activeStreams());
+
+        WebClientResponseException rejected = assertThrows(WebClientResponseException.class,
+                () -> open("再来一个").blockLast(Duration.ofSeconds(10)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+        assertEquals("1", rejected.getHeaders().getFirst("Retry-After"));
+
+        log.info("\n✅ 测试通过：超过上限的流被拒绝\n");
+    }
+
+    @Test
+    @DisplayName("负载测试：统计每个流的内存占用和最大并发流数")
+    void shouldReportPerStreamMemory() throws Exception {
+        // 回复足够长，所有流在测量期间都不会结束
+        server.responder(message -> message.repeat(100)).tokensPerSecond(2);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        // 先建立一个流，排除类加载和线程池初始化的一次性开销
+        List<String> warmUp = new CopyOnWriteArrayList<>();
+        subscribe(tokens("预热"), warmUp::add);
+        assertTrue(awaitCondition(() -> !warmUp.isEmpty()));
+        long baselineHeap = usedHeap(memory);
+        long baselineDirect = PooledByteBufAllocator.DEFAULT.metric().usedDirectMemory();
+
+        List<List<String>> received = new ArrayList<>();
+        for (int i = 0; i < LOAD_STREAMS; i++) {
+            List<String> tokens = new CopyOnWriteArrayList<>();
+            subscribe(tokens("会话 " + i), tokens::add);
+            received.add(tokens);
+        }
+        assertTrue(awaitCondition(() -> received.stream().noneMatch(List::isEmpty)));
+        assertEquals(LOAD_STREAMS + 1, handler.activeStreams());
+        long heapPerStream = Math.max(1, (usedHeap(memory) - baselineHeap) / LOAD_STREAMS);
+        long directPerStream = Math.max(0,
+                PooledByteBufAllocator.DEFAULT.metric().usedDirectMemory() - baselineDirect) / LOAD_STREAMS;
+
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        long maxStreams = maxHeap / heapPerStream;
+        log.info("{} 个并发流，每个流堆内存约 {} KB、池化直接内存约 {} KB；按最大堆 {} MB 估算最多约 {} 个并发流",
+                LOAD_STREAMS, heapPerStream / 1024, directPerStream / 1024, maxHeap / 1024 / 1024, maxStreams);
+        // 模拟服务和客户端在同一个 JVM 中，每个流包括服务端、客户端和上游 HTTP 连接的状态
+        assertTrue(heapPerStream < 1024 * 1024, "每个流的堆内存: " + heapPerStream);
+
+        log.info("\n✅ 测试通过：负载测试完成\n");
+    }
+
+    /**
+     * 订阅一个流，等服务端接受后再返回；一次性发起大量连接会让单核机器上的事件循环排队，测不出稳态内存
+     */
+    private <T> void subscribe(Flux<T> stream, Consumer<T> consumer) throws InterruptedException {
+        int expected = handler.activeStreams() + 1;
+        streams.add(stream.subscribe(consumer));
+        assertTrue(awaitCondition(() -> handler.activeStreams() >= expected));
+    }
+
+    private Flux<ServerSentEvent<String>> open(String message) {
+        return webClient.get()
+                .uri(builder -> builder.path(ChatSseConfiguration.PATH).queryParam("message", message).build())
+                .retrieve()
+                .bodyToFlux(EVENT_TYPE);
+    }
+
+    private Flux<String> tokens(String message) {
+        return open(message)
+                .filter(event -> "token".equals(event.event()))
+                .map(ServerSentEvent::data);
+    }
+
+    private static String text(List<ServerSentEvent<String>> events) {
+        return events.stream()
+                .filter(event -> "token".equals(event.event()))
+                .map(ServerSentEvent::data)
+                .collect(Collectors.joining());
+    }
+
+    private static long usedHeap(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static boolean awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return condition.getAsBoolean();
+    }
+}
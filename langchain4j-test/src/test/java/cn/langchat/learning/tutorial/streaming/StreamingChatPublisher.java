@@ -0,0 +1,338 @@
+package cn.langchat.learning.tutorial.streaming;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 支持背压的 Flow.Publisher 适配器
+ *
+ * StreamingChatResponseHandler 只能被动接收片段，慢消费者（例如网络较差的 WebSocket 客户端）无法反压。
+ * 这里把一次流式调用包装成 Flow.Publisher&lt;String&gt;：
+ * - 冷发布：每个订阅者在第一次 request 时才发起一次模型调用，没有需求时不消耗 token
+ * - 片段由 HTTP 线程写入容量为 bufferSize 的缓冲，再由 executor 投递给订阅者，慢订阅者不会阻塞读取
+ * - 缓冲满时按 {@link OverflowStrategy} 处理
+ * - 取消订阅时通过 StreamingHandle 关闭 HTTP 流，服务端随之停止生成
+ *
+ * 上游的 HTTP 流无法暂停，所以背压只能作用在缓冲上：缓冲满之后要么丢弃、要么合并、要么取消
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class StreamingChatPublisher implements Flow.Publisher<String> {
+
+    /**
+     * 缓冲满时的处理方式
+     */
+    public enum OverflowStrategy {
+        /**
+         * 丢弃新到达的片段，适合只关心"仍在生成"的场景
+         */
+        DROP_LATEST,
+        /**
+         * 把新片段合并到缓冲中最后一个元素，不丢失内容，只减少下游收到的元素个数
+         */
+        COALESCE,
+        /**
+         * 取消上游生成，并向下游发送 onError
+         */
+        CANCEL
+    }
+
+    private final StreamingChatModel model;
+    private final ChatRequest chatRequest;
+    private final int bufferSize;
+    private final OverflowStrategy overflowStrategy;
+    private final Executor executor;
+
+    private StreamingChatPublisher(Builder builder) {
+        this.model = builder.model;
+        this.chatRequest = builder.chatRequest;
+        this.bufferSize = builder.bufferSize;
+        this.overflowStrategy = builder.overflowStrategy;
+        this.executor = builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        StreamSubscription subscription = new StreamSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * 一个订阅对应一次流式调用
+     *
+     * 片段由 HTTP 线程写入缓冲，request 可能来自任意线程；
+     * 通过 wip 计数保证同一时刻最多只有一个 drain 任务在 executor 上向下游发送信号
+     */
+    private final class StreamSubscription implements Flow.Subscription, StreamingChatResponseHandler {
+
+        private final Flow.Subscriber<? super String> subscriber;
+        private final ArrayDeque<String> queue = new ArrayDeque<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private volatile StreamingHandle streamingHandle;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        private volatile Throwable error;
+        private boolean terminated;
+        private int dropped;
+
+        private StreamSubscription(Flow.Subscriber<? super String> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelUpstream();
+                error = new IllegalArgumentException("request 数量必须大于 0: " + n);
+                done = true;
+                schedule();
+                return;
+            }
+            requested.getAndAccumulate(n, (current, add) -> {
+                long sum = current + add;
+                return sum < 0 ? Long.MAX_VALUE : sum;
+            });
+            if (started.compareAndSet(false, true)) {
+                model.chat(chatRequest, this);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            cancelUpstream();
+            if (wip.getAndIncrement() == 0) {
+                clearQueue();
+            }
+        }
+
+        @Override
+        public void onPartialResponse(PartialResponse partialResponse, PartialResponseContext context) {
+            streamingHandle = context.streamingHandle();
+            if (cancelled) {
+                // 在收到第一个片段之前就取消了，这时才拿到 StreamingHandle
+                streamingHandle.cancel();
+                return;
+            }
+            onPartialResponse(partialResponse.text());
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (cancelled || done) {
+                return;
+            }
+            boolean overflow = false;
+            synchronized (queue) {
+                if (queue.size() < bufferSize) {
+                    queue.addLast(partialResponse);
+                } else if (overflowStrategy == OverflowStrategy.COALESCE) {
+                    queue.addLast(queue.pollLast() + partialResponse);
+                } else if (overflowStrategy == OverflowStrategy.DROP_LATEST) {
+                    dropped++;
+                } else {
+                    overflow = true;
+                }
+            }
+            if (overflow) {
+                cancelUpstream();
+                error = new IllegalStateException("下游消费过慢，缓冲区已满（" + bufferSize + "），已取消生成");
+                done = true;
+            }
+            schedule();
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            if (dropped > 0) {
+                log.debug("缓冲区已满，丢弃了 {} 个片段", dropped);
+            }
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (cancelled || done) {
+                // 主动取消后关闭 HTTP 流可能触发读取异常，不再传给下游
+                return;
+            }
+            error = throwable;
+            done = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand) {
+                    if (cancelled) {
+                        clearQueue();
+                        return;
+                    }
+                    boolean finished = done;
+                    String item;
+                    synchronized (queue) {
+                        item = queue.pollFirst();
+                    }
+                    if (item == null) {
+                        if (finished) {
+                            terminate();
+                            return;
+                        }
+                        break;
+                    }
+                    try {
+                        subscriber.onNext(item);
+                    } catch (Throwable t) {
+                        // 订阅者抛出异常视为取消
+                        cancelled = true;
+                        cancelUpstream();
+                        clearQueue();
+                        log.warn("订阅者处理片段时抛出异常，已取消生成", t);
+                        return;
+                    }
+                    emitted++;
+                }
+                if (cancelled) {
+                    clearQueue();
+                    return;
+                }
+                // 没有需求时，错误也要立即通知，不必等下游 request
+                if (done && (error != null || isQueueEmpty())) {
+                    clearQueue();
+                    terminate();
+                    return;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void terminate() {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            if (error != null) {
+                subscriber.onError(error);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+
+        private void cancelUpstream() {
+            StreamingHandle handle = streamingHandle;
+            if (handle != null && !handle.isCancelled()) {
+                handle.cancel();
+            }
+        }
+
+        private boolean isQueueEmpty() {
+            synchronized (queue) {
+                return queue.isEmpty();
+            }
+        }
+
+        private void clearQueue() {
+            synchronized (queue) {
+                queue.clear();
+            }
+        }
+    }
+
+    public static final class Builder {
+        private StreamingChatModel model;
+        private ChatRequest chatRequest;
+        private int bufferSize = 64;
+        private OverflowStrategy overflowStrategy = OverflowStrategy.COALESCE;
+        private Executor executor = ForkJoinPool.commonPool();
+
+        private Builder() {
+        }
+
+        public Builder model(StreamingChatModel model) {
+            this.model = model;
+            return this;
+        }
+
+        public Builder chatRequest(ChatRequest chatRequest) {
+            this.chatRequest = chatRequest;
+            return this;
+        }
+
+        /**
+         * 单条用户消息
+         */
+        public Builder userMessage(String userMessage) {
+            this.chatRequest = ChatRequest.builder()
+                    .messages(UserMessage.from(userMessage))
+                    .build();
+            return this;
+        }
+
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public Builder overflowStrategy(OverflowStrategy overflowStrategy) {
+            this.overflowStrategy = overflowStrategy;
+            return this;
+        }
+
+        /**
+         * 向订阅者投递信号的线程池，默认与 SubmissionPublisher 一样使用 ForkJoinPool.commonPool()；
+         * 订阅者会阻塞时应该传入独立的线程池
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public StreamingChatPublisher build() {
+            if (model == null || chatRequest == null) {
+                throw new IllegalArgumentException("model 和 chatRequest 不能为空");
+            }
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("bufferSize 必须大于 0");
+            }
+            return new StreamingChatPublisher(this);
+        }
+    }
+}
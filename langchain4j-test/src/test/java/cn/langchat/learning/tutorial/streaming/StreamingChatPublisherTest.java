@@ -0,0 +1,269 @@
+package cn.langchat.learning.tutorial.streaming;
+
+import cn.langchat.learning.tutorial.streaming.StreamingChatPublisher.OverflowStrategy;
+import cn.langchat.learning.util.HttpTransport;
+import cn.langchat.learning.util.MockOpenAiServer;
+import cn.langchat.learning.util.ModelConfig;
+import cn.langchat.learning.util.ModelRegistry;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 支持背压的 Flow.Publisher 适配器测试
+ *
+ * 使用 {@link MockOpenAiServer}，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("流式 Flow.Publisher 适配器测试")
+class StreamingChatPublisherTest {
+
+    private static final String REPLY = "RAG 是一种结合了信息检索和文本生成的技术，可以让模型基于外部知识回答问题。";
+
+    private MockOpenAiServer server;
+    private ModelRegistry registry;
+    private StreamingChatModel streamingModel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start().reply(REPLY).tokensPerSecond(500);
+        registry = new ModelRegistry(new HttpTransport());
+        streamingModel = registry.streamingChatModel(ModelConfig.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("没有需求时不应该发起请求")
+    void shouldNotStartWithoutDemand() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber(0, 0);
+        publisher(16, OverflowStrategy.COALESCE).subscribe(subscriber);
+
+        Thread.sleep(100);
+        assertEquals(0, server.requestCount());
+
+        subscriber.request(Long.MAX_VALUE);
+        assertTrue(subscriber.await());
+        assertEquals(REPLY, subscriber.text());
+        assertEquals(1, server.requestCount());
+
+        log.info("\n✅ 测试通过：没有需求时不发起请求\n");
+    }
+
+    @Test
+    @DisplayName("慢消费者使用 COALESCE 时应该合并片段且不丢失内容")
+    void shouldCoalesceForSlowConsumer() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber(1, 20);
+        publisher(4, OverflowStrategy.COALESCE).subscribe(subscriber);
+
+        assertTrue(subscriber.await());
+        assertNull(subscriber.error);
+        assertEquals(REPLY, subscriber.text());
+        assertTrue(subscriber.items.size() < MockOpenAiServer.tokenize(REPLY).size(),
+                "合并后元素个数应该少于片段数: " + subscriber.items.size());
+
+        log.info("{} 个片段合并为 {} 个元素: {}", MockOpenAiServer.tokenize(REPLY).size(),
+                subscriber.items.size(), subscriber.items);
+        log.info("\n✅ 测试通过：慢消费者合并片段\n");
+    }
+
+    @Test
+    @DisplayName("慢消费者使用 DROP_LATEST 时应该丢弃片段")
+    void shouldDropForSlowConsumer() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber(1, 20);
+        publisher(4, OverflowStrategy.DROP_LATEST).subscribe(subscriber);
+
+        assertTrue(subscriber.await());
+        assertNull(subscriber.error);
+        assertTrue(subscriber.text().length() < REPLY.length());
+        // 收到的是原始片段按顺序的子序列，缓冲腾出空间后会继续接收新片段
+        List<String> tokens = MockOpenAiServer.tokenize(REPLY);
+        int position = 0;
+        for (String item : subscriber.items) {
+            position = tokens.subList(position, tokens.size()).indexOf(item) + position + 1;
+            assertTrue(position > 0, "不应该收到原文以外的片段: " + item);
+        }
+
+        log.info("收到: {}", subscriber.text());
+        log.info("\n✅ 测试通过：慢消费者丢弃片段\n");
+    }
+
+    @Test
+    @DisplayName("缓冲溢出使用 CANCEL 时应该中止生成并报错")
+    void shouldCancelOnOverflow() throws Exception {
+        server.reply(REPLY.repeat(10)).tokensPerSecond(200);
+        TestSubscriber subscriber = new TestSubscriber(1, 1000);
+        publisher(4, OverflowStrategy.CANCEL).subscribe(subscriber);
+
+        assertTrue(subscriber.await());
+        assertInstanceOf(IllegalStateException.class, subscriber.error);
+        assertAborted();
+
+        log.info("错误: {}", subscriber.error.getMessage());
+        log.info("\n✅ 测试通过：缓冲溢出时中止生成\n");
+    }
+
+    @Test
+    @DisplayName("取消订阅应该中止 HTTP 流")
+    void shouldAbortHttpStreamOnCancel() throws Exception {
+        server.reply(REPLY.repeat(10)).tokensPerSecond(200);
+        CountDownLatch received = new CountDownLatch(3);
+        List<String> items = new CopyOnWriteArrayList<>();
+
+        publisher(16, OverflowStrategy.COALESCE).subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(String item) {
+                items.add(item);
+                received.countDown();
+                if (received.getCount() == 0) {
+                    subscription.cancel();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                fail("取消后不应该完成");
+            }
+        });
+
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertAborted();
+        Thread.sleep(100);
+        assertEquals(3, items.size());
+
+        log.info("取消前收到 {} 个片段", items.size());
+        log.info("\n✅ 测试通过：取消订阅中止了 HTTP 流\n");
+    }
+
+    @Test
+    @DisplayName("非法的 request 数量应该报错")
+    void shouldRejectNonPositiveRequest() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber(0, 0);
+        publisher(16, OverflowStrategy.COALESCE).subscribe(subscriber);
+
+        subscriber.request(0);
+
+        assertTrue(subscriber.await());
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+
+        log.info("\n✅ 测试通过：非法的 request 数量报错\n");
+    }
+
+    private StreamingChatPublisher publisher(int bufferSize, OverflowStrategy strategy) {
+        return StreamingChatPublisher.builder()
+                .model(streamingModel)
+                .userMessage("什么是 RAG？")
+                .bufferSize(bufferSize)
+                .overflowStrategy(strategy)
+                .build();
+    }
+
+    /**
+     * 服务端发现客户端断开后停止生成
+     */
+    private void assertAborted() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.abortedStreamCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, server.abortedStreamCount());
+    }
+
+    /**
+     * 每次请求 batch 个元素，处理每个元素耗时 delayMillis 的订阅者；batch 为 0 时由测试手动 request
+     */
+    private static final class TestSubscriber implements Flow.Subscriber<String> {
+
+        private final long batch;
+        private final long delayMillis;
+        private final List<String> items = new CopyOnWriteArrayList<>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        private TestSubscriber(long batch, long delayMillis) {
+            this.batch = batch;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onNext(String item) {
+            items.add(item);
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (batch > 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            terminated.countDown();
+        }
+
+        void request(long n) {
+            subscription.request(n);
+        }
+
+        boolean await() throws InterruptedException {
+            return terminated.await(10, TimeUnit.SECONDS);
+        }
+
+        String text() {
+            return String.join("", items);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package cn.langchat.learning.tutorial.streaming;
+
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 低分配的流式文本聚合 handler
+ *
+ * 常见写法把每个片段放进 ArrayList&lt;String&gt; 再 join，或者追加到新建的 StringBuilder，
+ * 每条流都要经历多次数组扩容，最后再整体复制一次。这里的做法是：
+ * - 片段通过 String.getChars 直接写入从 {@link CharBufferPool} 取出的 char[]，不产生中间对象
+ * - 下游按批次接收（累计 flushSize 个字符或距上次输出超过 flushInterval），减少逐 token 的调用和写出
+ * - 完成后通过 {@link #text()} 以 CharSequence 视图读取全文，需要 String 时再调用 {@link #toString()}
+ * - 使用完调用 {@link #close()} 把缓冲归还到池中
+ *
+ * 按时间输出只在下一个片段到达时检查，不启动额外的定时线程。
+ * 如果只需要最终全文，ChatResponse.aiMessage().text() 已经包含完整内容，不需要再聚合一次。
+ *
+ * 同一条流的回调按顺序在同一线程执行，每条流使用一个新的实例
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class StreamingTextAggregator implements StreamingChatResponseHandler, AutoCloseable {
+
+    /**
+     * 下游接收器，buffer 只在调用期间有效，需要保留时自行复制
+     */
+    @FunctionalInterface
+    public interface ChunkSink {
+        void onChunk(char[] buffer, int offset, int length);
+    }
+
+    private final CharBufferPool pool;
+    private final ChunkSink sink;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final CompletableFuture<ChatResponse> completion = new CompletableFuture<>();
+
+    private char[] buffer;
+    private int length;
+    private int flushed;
+    private int partials;
+    private long lastFlushNanos;
+
+    private StreamingTextAggregator(Builder builder) {
+        this.pool = builder.pool;
+        this.sink = builder.sink;
+        this.flushSize = builder.flushSize;
+        this.flushIntervalNanos = builder.flushInterval.toNanos();
+        this.buffer = pool.acquire();
+        this.lastFlushNanos = System.nanoTime();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public void onPartialResponse(String partialResponse) {
+        int partialLength = partialResponse.length();
+        if (length + partialLength > buffer.length) {
+            buffer = pool.grow(buffer, length, length + partialLength);
+        }
+        partialResponse.getChars(0, partialLength, buffer, length);
+        length += partialLength;
+        partials++;
+
+        if (sink != null) {
+            long now = System.nanoTime();
+            if (length - flushed >= flushSize || now - lastFlushNanos >= flushIntervalNanos) {
+                flush(now);
+            }
+        }
+    }
+
+    @Override
+    public void onCompleteResponse(ChatResponse completeResponse) {
+        if (sink != null && length > flushed) {
+            flush(System.nanoTime());
+        }
+        completion.complete(completeResponse);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        completion.completeExceptionally(error);
+    }
+
+    /**
+     * 流结束时完成
+     */
+    public CompletableFuture<ChatResponse> completion() {
+        return completion;
+    }
+
+    /**
+     * 已聚合文本的只读视图，不复制缓冲；close 之后不可再使用
+     */
+    public CharSequence text() {
+        checkOpen();
+        return CharBuffer.wrap(buffer, 0, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * 已聚合的字符数
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 已收到的片段数
+     */
+    public int partialCount() {
+        return partials;
+    }
+
+    /**
+     * 复制出完整文本
+     */
+    @Override
+    public String toString() {
+        checkOpen();
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * 把缓冲归还到池中
+     */
+    @Override
+    public void close() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private void flush(long now) {
+        sink.onChunk(buffer, flushed, length - flushed);
+        flushed = length;
+        lastFlushNanos = now;
+    }
+
+    private void checkOpen() {
+        if (buffer == null) {
+            throw new IllegalStateException("缓冲已归还到池中");
+        }
+    }
+
+    public static final class Builder {
+        private CharBufferPool pool;
+        private ChunkSink sink;
+        private int flushSize = 64;
+        private Duration flushInterval = Duration.ofMillis(50);
+
+        private Builder() {
+        }
+
+        /**
+         * 共享的缓冲池（必填）
+         */
+        public Builder pool(CharBufferPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * 下游接收器，不设置时只聚合不输出
+         */
+        public Builder sink(ChunkSink sink) {
+            this.sink = sink;
+            return this;
+        }
+
+        /**
+         * 累计多少个字符后输出一次，1 表示每个片段都立即输出
+         */
+        public Builder flushSize(int flushSize) {
+            this.flushSize = flushSize;
+            return this;
+        }
+
+        /**
+         * 距上次输出超过该时间时，即使未达到 flushSize 也输出
+         */
+        public Builder flushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        public StreamingTextAggregator build() {
+            if (pool == null) {
+                throw new IllegalArgumentException("pool 不能为空");
+            }
+            if (flushSize <= 0) {
+                throw new IllegalArgumentException("flushSize 必须大于 0");
+            }
+            return new StreamingTextAggregator(this);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package cn.langchat.learning.tutorial.streaming;
+
+import cn.langchat.learning.util.HttpTransport;
+import cn.langchat.learning.util.MockOpenAiServer;
+import cn.langchat.learning.util.ModelConfig;
+import cn.langchat.learning.util.ModelRegistry;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式文本聚合测试
+ *
+ * 使用 {@link MockOpenAiServer}，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("流式文本聚合测试")
+class StreamingTextAggregatorTest {
+
+    private static final String REPLY = "RAG 是一种结合了信息检索和文本生成的技术，可以让模型基于外部知识回答问题。";
+
+    @Test
+    @DisplayName("应该按字符数批量输出，完成时输出剩余部分")
+    void shouldFlushInBatches() {
+        List<String> chunks = new ArrayList<>();
+        StreamingTextAggregator aggregator = StreamingTextAggregator.builder()
+                .pool(new CharBufferPool())
+                .sink((buffer, offset, length) -> chunks.add(new String(buffer, offset, length)))
+                .flushSize(10)
+                .flushInterval(Duration.ofHours(1))
+                .build();
+
+        List<String> tokens = MockOpenAiServer.tokenize(REPLY);
+        tokens.forEach(aggregator::onPartialResponse);
+        aggregator.onCompleteResponse(null);
+
+        assertEquals(REPLY, String.join("", chunks));
+        assertTrue(chunks.size() < tokens.size(), "输出次数应该少于片段数");
+        assertTrue(chunks.subList(0, chunks.size() - 1).stream().allMatch(chunk -> chunk.length() >= 10));
+        assertEquals(REPLY, aggregator.text().toString());
+        assertEquals(tokens.size(), aggregator.partialCount());
+
+        log.info("{} 个片段合并为 {} 次输出: {}", tokens.size(), chunks.size(), chunks);
+        log.info("\n✅ 测试通过：按字符数批量输出\n");
+    }
+
+    @Test
+    @DisplayName("超过输出间隔时应该立即输出")
+    void shouldFlushOnInterval() throws InterruptedException {
+        List<String> chunks = new ArrayList<>();
+        StreamingTextAggregator aggregator = StreamingTextAggregator.builder()
+                .pool(new CharBufferPool())
+                .sink((buffer, offset, length) -> chunks.add(new String(buffer, offset, length)))
+                .flushSize(1000)
+                .flushInterval(Duration.ofMillis(20))
+                .build();
+
+        aggregator.onPartialResponse("你好");
+        assertTrue(chunks.isEmpty());
+        Thread.sleep(30);
+        aggregator.onPartialResponse("，世界");
+
+        assertEquals(List.of("你好，世界"), chunks);
+
+        log.info("\n✅ 测试通过：超过输出间隔时立即输出\n");
+    }
+
+    @Test
+    @DisplayName("缓冲应该扩容并在关闭后复用")
+    void shouldGrowAndReuseBuffers() {
+        CharBufferPool pool = new CharBufferPool(8, 1024, 4);
+        String longText = "LangChain4j ".repeat(20);
+
+        for (int i = 0; i < 100; i++) {
+            try (StreamingTextAggregator aggregator = StreamingTextAggregator.builder().pool(pool).build()) {
+                MockOpenAiServer.tokenize(longText).forEach(aggregator::onPartialResponse);
+                assertEquals(longText, aggregator.toString());
+            }
+        }
+
+        // 第一条流从 8 扩容到 256（240 个字符）共新建 6 个缓冲，之后的流都复用池中已扩容的缓冲
+        assertEquals(6, pool.allocations());
+        assertTrue(pool.available() > 0);
+
+        StreamingTextAggregator closed = StreamingTextAggregator.builder().pool(pool).build();
+        closed.close();
+        assertThrows(IllegalStateException.class, closed::text);
+
+        log.info("100 条流共新建 {} 个缓冲", pool.allocations());
+        log.info("\n✅ 测试通过：缓冲扩容并复用\n");
+    }
+
+    @Test
+    @DisplayName("应该聚合真实的流式响应")
+    void shouldAggregateStreamingResponse() throws Exception {
+        try (MockOpenAiServer server = MockOpenAiServer.start().reply(REPLY).tokensPerSecond(500);
+             ModelRegistry registry = new ModelRegistry(new HttpTransport())) {
+            ModelConfig config = ModelConfig.builder()
+                    .baseUrl(server.baseUrl())
+                    .apiKey(MockOpenAiServer.API_KEY)
+                    .modelName("mock-model")
+                    .build();
+
+            StringBuilder downstream = new StringBuilder();
+            try (StreamingTextAggregator aggregator = StreamingTextAggregator.builder()
+                    .pool(new CharBufferPool())
+                    .sink((buffer, offset, length) -> downstream.append(buffer, offset, length))
+                    .flushSize(16)
+                    .build()) {
+                registry.streamingChatModel(config).chat("什么是 RAG？", aggregator);
+                ChatResponse response = aggregator.completion().get(10, TimeUnit.SECONDS);
+
+                assertEquals(response.aiMessage().text(), aggregator.toString());
+                assertEquals(REPLY, downstream.toString());
+            }
+        }
+
+        log.info("\n✅ 测试通过：聚合真实的流式响应\n");
+    }
+}
@@ -0,0 +1,32 @@
+package cn.langchat.learning.tutorial.tools;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 标记一个 @Tool 方法的结果可以缓存
+ *
+ * 只适用于幂等、无副作用的工具（计算、查询静态数据）：相同参数在 ttl 内直接返回上次的结果，不再执行方法。
+ * 缓存键是工具名加规范化后的参数，"5" 和 5、字段顺序不同的 JSON 视为相同参数。
+ * 带 {@link dev.langchain4j.agent.tool.ToolMemoryId} 的参数也是缓存键的一部分，结果只在同一个会话内复用。
+ * 执行失败的结果不缓存
+ *
+ * 通过 {@link ToolRegistry} 注册的工具才会使用缓存，见 {@link ToolResultCache}
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheableTool {
+
+    /**
+     * 结果的有效期
+     */
+    long ttl() default 5;
+
+    TimeUnit unit() default TimeUnit.MINUTES;
+}
@@ -0,0 +1,231 @@
+package cn.langchat.learning.tutorial.tools;
+
+import cn.langchat.learning.util.DaemonThreads;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.tool.ToolExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 并行工具执行器
+ *
+ * 模型在一轮回复中请求多个工具时，逐个执行的耗时是所有工具耗时之和。
+ * 这里把同一轮的 ToolExecutionRequest 同时提交到 executor：
+ * - 总耗时约等于最慢的工具，而不是所有工具之和
+ * - 每个工具有自己的超时时间（未单独设置时使用 defaultTimeout），从提交时开始计算；
+ *   超时的工具会被中断，并返回一条错误结果，不影响其它工具
+ * - 结果按请求顺序返回，与工具完成的先后无关，对话历史（以及 Prompt Caching 前缀）保持确定
+ * - 工具抛出的异常转换成错误结果返回给模型，由模型决定下一步
+ *
+ * 自己编写工具循环时使用 {@link #execute(AiMessage, Object)}；
+ * 使用 AI Service 时通过 {@link #configure(AiServices)} 注册带超时的工具，并开启并发执行
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class ParallelToolExecutor {
+
+    /**
+     * 默认线程池：工具大多是阻塞 I/O，不能使用 ForkJoinPool.commonPool()；
+     * 线程和队列都有上限，排满后的工具调用返回"线程池已满"
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = DaemonThreads.boundedPool("langchat-tool", 64, 1024);
+
+    private final Map<String, ToolSpecification> specifications;
+    private final Map<String, ToolExecutor> executors;
+    private final Map<String, Duration> timeouts;
+    private final Duration defaultTimeout;
+    private final Executor executor;
+
+    private ParallelToolExecutor(Builder builder) {
+        this.specifications = builder.specifications;
+        this.executors = builder.executors;
+        this.timeouts = builder.timeouts;
+        this.defaultTimeout = builder.defaultTimeout;
+        this.executor = builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 所有工具的规格，按注册顺序排列
+     */
+    public List<ToolSpecification> toolSpecifications() {
+        return new ArrayList<>(specifications.values());
+    }
+
+    /**
+     * 执行 AiMessage 中的所有工具请求
+     */
+    public List<ToolExecutionResultMessage> execute(AiMessage aiMessage, Object memoryId) {
+        if (!aiMessage.hasToolExecutionRequests()) {
+            return List.of();
+        }
+        return execute(aiMessage.toolExecutionRequests(), memoryId);
+    }
+
+    /**
+     * 并行执行一组工具请求，结果与 requests 一一对应
+     */
+    public List<ToolExecutionResultMessage> execute(List<ToolExecutionRequest> requests, Object memoryId) {
+        long startNanos = System.nanoTime();
+        List<FutureTask<String>> tasks = new ArrayList<>(requests.size());
+        for (ToolExecutionRequest request : requests) {
+            tasks.add(submit(request, memoryId));
+        }
+        List<ToolExecutionResultMessage> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ToolExecutionRequest request = requests.get(i);
+            results.add(ToolExecutionResultMessage.from(request, await(request, tasks.get(i), startNanos)));
+        }
+        log.debug("并行执行 {} 个工具，耗时 {} ms", requests.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return results;
+    }
+
+    /**
+     * 带超时的 ToolExecutor，每次调用都在 executor 中执行
+     */
+    public Map<ToolSpecification, ToolExecutor> toolExecutors() {
+        Map<ToolSpecification, ToolExecutor> result = new LinkedHashMap<>();
+        specifications.forEach((name, specification) -> result.put(specification, (request, memoryId) ->
+                await(request, submit(request, memoryId), System.nanoTime())));
+        return result;
+    }
+
+    /**
+     * 把工具注册到 AI Service，并让同一轮的多个工具并发执行
+     *
+     * AI Service 的并发线程只负责等待，工具本身在本执行器的 executor 中运行并受超时约束
+     */
+    public <T> AiServices<T> configure(AiServices<T> aiServices) {
+        return aiServices.tools(toolExecutors()).executeToolsConcurrently();
+    }
+
+    private FutureTask<String> submit(ToolExecutionRequest request, Object memoryId) {
+        ToolExecutor toolExecutor = executors.get(request.name());
+        FutureTask<String> task = new FutureTask<>(() -> {
+            if (toolExecutor == null) {
+                return "错误：不存在名为 " + request.name() + " 的工具";
+            }
+            return toolExecutor.execute(request, memoryId);
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+        }
+        return task;
+    }
+
+    private String await(ToolExecutionRequest request, FutureTask<String> task, long startNanos) {
+        Duration timeout = timeouts.getOrDefault(request.name(), defaultTimeout);
+        long remainingNanos = startNanos + timeout.toNanos() - System.nanoTime();
+        try {
+            return task.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            log.warn("工具 {} 执行超时（{} ms）", request.name(), timeout.toMillis());
+            return "错误：工具 " + request.name() + " 执行超时（" + timeout.toMillis() + " ms）";
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // @Tool 方法的异常已由 ToolRegistry 转换成结果文本，这里是手动注册的 ToolExecutor 抛出的异常
+            log.debug("工具 {} 执行失败: {}", request.name(), cause.getMessage());
+            return "错误：" + cause.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(true);
+            return "错误：工具 " + request.name() + " 执行被中断";
+        } catch (CancellationException e) {
+            return "错误：工具 " + request.name() + " 无法执行，线程池已满";
+        }
+    }
+
+    public static final class Builder {
+        private final Map<String, ToolSpecification> specifications = new LinkedHashMap<>();
+        private final Map<String, ToolExecutor> executors = new HashMap<>();
+        private final Map<String, Duration> timeouts = new HashMap<>();
+        private Duration defaultTimeout = Duration.ofSeconds(30);
+        private Executor executor = DEFAULT_EXECUTOR;
+
+        private Builder() {
+        }
+
+        /**
+         * 注册对象上所有带 {@link Tool} 注解的方法
+         */
+        public Builder tools(Object... objects) {
+            ToolRegistry.builder().tools(objects).build().toolExecutors().forEach(this::tool);
+            return this;
+        }
+
+        /**
+         * 注册一个手动定义的工具
+         */
+        public Builder tool(ToolSpecification specification, ToolExecutor toolExecutor) {
+            if (specifications.putIfAbsent(specification.name(), specification) != null) {
+                throw new IllegalArgumentException("工具名称重复: " + specification.name());
+            }
+            executors.put(specification.name(), toolExecutor);
+            return this;
+        }
+
+        /**
+         * 单个工具的超时时间
+         */
+        public Builder timeout(String toolName, Duration timeout) {
+            this.timeouts.put(toolName, timeout);
+            return this;
+        }
+
+        /**
+         * 未单独设置超时的工具使用的超时时间，默认 30 秒
+         */
+        public Builder defaultTimeout(Duration defaultTimeout) {
+            this.defaultTimeout = defaultTimeout;
+            return this;
+        }
+
+        /**
+         * 执行工具的线程池，默认使用共享的有界守护线程池（64 个线程，排队 1024 个调用）
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public ParallelToolExecutor build() {
+            if (specifications.isEmpty()) {
+                throw new IllegalArgumentException("至少需要注册一个工具");
+            }
+            for (String toolName : timeouts.keySet()) {
+                if (!specifications.containsKey(toolName)) {
+                    throw new IllegalArgumentException("为不存在的工具设置了超时: " + toolName);
+                }
+            }
+            return new ParallelToolExecutor(this);
+        }
+    }
+}
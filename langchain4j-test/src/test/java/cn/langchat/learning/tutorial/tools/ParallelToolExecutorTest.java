@@ -0,0 +1,234 @@
+package cn.langchat.learning.tutorial.tools;
+
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.service.AiServices;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并行工具执行器测试
+ *
+ * 工具通过 sleep 模拟慢 I/O，AI Service 测试使用固定返回工具调用的模型，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("并行工具执行器测试")
+class ParallelToolExecutorTest {
+
+    private static final long LATENCY_MILLIS = 300;
+
+    /**
+     * 与 ToolsTest.shouldHandleMultipleTools 中相同的工具，每次调用模拟一次慢 I/O
+     */
+    static class DateTimeTool {
+        @Tool("获取日期")
+        public String getDate() throws InterruptedException {
+            Thread.sleep(LATENCY_MILLIS);
+            return LocalDate.of(2025, 1, 1).toString();
+        }
+
+        @Tool("获取时间")
+        public String getTime() throws InterruptedException {
+            Thread.sleep(LATENCY_MILLIS / 3);
+            return "12:00";
+        }
+    }
+
+    static class MathTool {
+        @Tool("计算平方")
+        public int square(int x) throws InterruptedException {
+            Thread.sleep(LATENCY_MILLIS);
+            return x * x;
+        }
+
+        @Tool("除法运算")
+        public double divide(double a, double b) {
+            if (b == 0) {
+                throw new IllegalArgumentException("除数不能为零");
+            }
+            return a / b;
+        }
+    }
+
+    static class SlowTool {
+        @Tool("查询外部系统")
+        public String query() throws InterruptedException {
+            Thread.sleep(10_000);
+            return "不应该返回";
+        }
+    }
+
+    @Test
+    @DisplayName("同一轮的多个工具应该并行执行，耗时接近最慢的工具")
+    void shouldRunToolsConcurrently() {
+        ParallelToolExecutor executor = ParallelToolExecutor.builder()
+                .tools(new DateTimeTool(), new MathTool())
+                .build();
+        List<ToolExecutionRequest> requests = List.of(
+                request("1", "getDate", "{}"),
+                request("2", "getTime", "{}"),
+                request("3", "square", "{\"x\": 5}"));
+
+        long start = System.nanoTime();
+        List<ToolExecutionResultMessage> results = executor.execute(requests, "user-1");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(List.of("2025-01-01", "12:00", "25"), texts(results));
+        assertTrue(elapsedMillis >= LATENCY_MILLIS);
+        assertTrue(elapsedMillis < 2 * LATENCY_MILLIS, "耗时: " + elapsedMillis + " ms");
+
+        log.info("3 个工具串行约 {} ms，并行耗时 {} ms", LATENCY_MILLIS * 7 / 3, elapsedMillis);
+        log.info("\n✅ 测试通过：多个工具并行执行\n");
+    }
+
+    @Test
+    @DisplayName("结果应该按请求顺序返回")
+    void shouldKeepRequestOrder() {
+        ParallelToolExecutor executor = ParallelToolExecutor.builder()
+                .tools(new DateTimeTool(), new MathTool())
+                .build();
+        // getTime 最先完成，但结果仍然排在第二位
+        List<ToolExecutionRequest> requests = List.of(
+                request("a", "square", "{\"x\": 3}"),
+                request("b", "getTime", "{}"),
+                request("c", "getDate", "{}"));
+
+        List<ToolExecutionResultMessage> results = executor.execute(requests, "user-1");
+
+        assertEquals(List.of("a", "b", "c"), results.stream()
+                .map(ToolExecutionResultMessage::id)
+                .collect(Collectors.toList()));
+        assertEquals(List.of("9", "12:00", "2025-01-01"), texts(results));
+
+        log.info("\n✅ 测试通过：结果按请求顺序返回\n");
+    }
+
+    @Test
+    @DisplayName("超时的工具应该返回错误结果，不影响其它工具")
+    void shouldTimeOutSlowTool() {
+        ParallelToolExecutor executor = ParallelToolExecutor.builder()
+                .tools(new SlowTool(), new MathTool())
+                .timeout("query", Duration.ofMillis(200))
+                .build();
+        List<ToolExecutionRequest> requests = List.of(
+                request("1", "query", "{}"),
+                request("2", "square", "{\"x\": 4}"));
+
+        long start = System.nanoTime();
+        List<ToolExecutionResultMessage> results = executor.execute(requests, "user-1");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(results.get(0).text().contains("超时"), results.get(0).text());
+        assertEquals("16", results.get(1).text());
+        assertTrue(elapsedMillis < 2 * LATENCY_MILLIS, "耗时: " + elapsedMillis + " ms");
+
+        log.info("超时结果: {}", results.get(0).text());
+        log.info("\n✅ 测试通过：超时的工具返回错误结果\n");
+    }
+
+    @Test
+    @DisplayName("工具异常和未知工具应该转换成错误结果")
+    void shouldReturnErrorsAsResults() {
+        ParallelToolExecutor executor = ParallelToolExecutor.builder()
+                .tools(new MathTool())
+                .tool(ToolSpecification.builder().name("weather").description("查询天气").build(),
+                        (request, memoryId) -> {
+                            throw new IllegalStateException("天气服务不可用");
+                        })
+                .build();
+        List<ToolExecutionRequest> requests = List.of(
+                request("1", "divide", "{\"a\": 10, \"b\": 0}"),
+                request("2", "weather", "{}"),
+                request("3", "unknown", "{}"),
+                request("4", "divide", "{\"a\": 10, \"b\": 2}"));
+
+        List<ToolExecutionResultMessage> results = executor.execute(requests, "user-1");
+
+        // @Tool 方法的异常由 ToolRegistry 转换成异常信息
+        assertEquals("除数不能为零", results.get(0).text());
+        assertEquals("错误：天气服务不可用", results.get(1).text());
+        assertTrue(results.get(2).text().contains("unknown"));
+        assertEquals("5.0", results.get(3).text());
+
+        log.info("错误结果: {}", texts(results));
+        log.info("\n✅ 测试通过：异常转换成错误结果\n");
+    }
+
+    @Test
+    @DisplayName("AI Service 的工具循环应该并行执行工具")
+    void shouldRunToolsConcurrentlyInAiService() {
+        ParallelToolExecutor executor = ParallelToolExecutor.builder()
+                .tools(new DateTimeTool(), new MathTool())
+                .build();
+        ToolCallingModel model = new ToolCallingModel(List.of(
+                request("1", "getDate", "{}"),
+                request("2", "square", "{\"x\": 6}")));
+        Assistant assistant = executor.configure(AiServices.builder(Assistant.class).chatModel(model)).build();
+
+        long start = System.nanoTime();
+        String answer = assistant.chat("今天是几号？6 的平方是多少？");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("2025-01-01, 36", answer);
+        assertTrue(elapsedMillis < 2 * LATENCY_MILLIS, "耗时: " + elapsedMillis + " ms");
+
+        log.info("AI Service 回答: {}，耗时 {} ms", answer, elapsedMillis);
+        log.info("\n✅ 测试通过：AI Service 中的工具并行执行\n");
+    }
+
+    interface Assistant {
+        String chat(String message);
+    }
+
+    /**
+     * 第一轮返回固定的工具调用，第二轮把工具结果拼接成回答
+     */
+    private static final class ToolCallingModel implements ChatModel {
+
+        private final List<ToolExecutionRequest> requests;
+
+        private ToolCallingModel(List<ToolExecutionRequest> requests) {
+            this.requests = requests;
+        }
+
+        @Override
+        public ChatResponse doChat(ChatRequest chatRequest) {
+            List<ChatMessage> messages = chatRequest.messages();
+            if (!(messages.get(messages.size() - 1) instanceof ToolExecutionResultMessage)) {
+                return ChatResponse.builder().aiMessage(AiMessage.from(requests)).build();
+            }
+            String answer = messages.stream()
+                    .filter(ToolExecutionResultMessage.class::isInstance)
+                    .map(message -> ((ToolExecutionResultMessage) message).text())
+                    .collect(Collectors.joining(", "));
+            return ChatResponse.builder().aiMessage(AiMessage.from(answer)).build();
+        }
+    }
+
+    private static ToolExecutionRequest request(String id, String name, String arguments) {
+        return ToolExecutionRequest.builder().id(id).name(name).arguments(arguments).build();
+    }
+
+    private static List<String> texts(List<ToolExecutionResultMessage> results) {
+        return results.stream().map(ToolExecutionResultMessage::text).collect(Collectors.toList());
+    }
+}
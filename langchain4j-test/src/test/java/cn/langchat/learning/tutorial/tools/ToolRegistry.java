@@ -0,0 +1,465 @@
+package cn.langchat.learning.tutorial.tools;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.tool.ToolExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译的工具注册表
+ *
+ * DefaultToolExecutor 每次调用都要把 JSON 参数解析成 Map、逐个参数做类型转换，再通过反射调用方法。
+ * 这里把这些工作移到注册时，每个类只做一次：
+ * - ToolSpecification 按类缓存，同一个类的多个实例共享
+ * - 工具方法编译成 MethodHandle，注册时绑定实例，调用时没有反射
+ * - 每个参数按类型预先选好解码器，直接从 JSON 流中读取，不生成中间的 Map
+ * - 返回值按类型预先选好编码方式
+ *
+ * 行为与 DefaultToolExecutor 保持一致：参数名取自方法参数名，
+ * 带 {@link ToolMemoryId} 的参数传入 memoryId，工具抛出的异常转换成异常信息返回给模型
+ *
+ * 带 {@link CacheableTool} 的工具，结果缓存在 {@link ToolResultCache} 中，缓存键使用解码后的参数，
+ * 与模型输出的 JSON 格式（数字写法、字段顺序、空白）无关
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class ToolRegistry {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = MAPPER.getFactory();
+    /**
+     * 生成缓存键：对象字段和 Map 的键按字母排序，相同参数总是得到相同的键
+     */
+    private static final ObjectWriter CANONICAL_WRITER = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build()
+            .writer();
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final Map<Class<?>, List<CompiledTool>> COMPILED = new ConcurrentHashMap<>();
+
+    private final Map<String, ToolSpecification> specifications;
+    private final Map<String, BoundTool> tools;
+    /**
+     * 没有 {@link CacheableTool} 工具时延迟创建：不需要缓存的注册表不加载缓存和 Micrometer
+     */
+    private volatile ToolResultCache cache;
+
+    private ToolRegistry(Builder builder) {
+        this.specifications = builder.specifications;
+        this.tools = builder.tools;
+        boolean cacheable = builder.tools.values().stream().anyMatch(tool -> tool.compiled.cacheTtlNanos > 0);
+        this.cache = builder.cache != null || !cacheable ? builder.cache : ToolResultCache.builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 类中所有工具的规格，每个类只生成一次
+     */
+    public static List<ToolSpecification> toolSpecificationsFrom(Class<?> type) {
+        List<ToolSpecification> result = new ArrayList<>();
+        for (CompiledTool tool : compile(type)) {
+            result.add(tool.specification);
+        }
+        return result;
+    }
+
+    /**
+     * 所有工具的规格，按注册顺序排列
+     */
+    public List<ToolSpecification> toolSpecifications() {
+        return new ArrayList<>(specifications.values());
+    }
+
+    /**
+     * {@link CacheableTool} 工具使用的结果缓存，可以读取命中率
+     */
+    public ToolResultCache cache() {
+        ToolResultCache result = cache;
+        if (result == null) {
+            synchronized (this) {
+                result = cache;
+                if (result == null) {
+                    result = ToolResultCache.builder().build();
+                    cache = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 执行一个工具请求，返回给模型的结果文本
+     */
+    public String execute(ToolExecutionRequest request, Object memoryId) {
+        BoundTool tool = tools.get(request.name());
+        if (tool == null) {
+            return "错误：不存在名为 " + request.name() + " 的工具";
+        }
+        return tool.execute(request, memoryId, cache);
+    }
+
+    /**
+     * 每个工具对应的 ToolExecutor，可以注册到 AI Service 或 {@link ParallelToolExecutor}
+     */
+    public Map<ToolSpecification, ToolExecutor> toolExecutors() {
+        Map<ToolSpecification, ToolExecutor> result = new LinkedHashMap<>();
+        specifications.forEach((name, specification) -> {
+            BoundTool tool = tools.get(name);
+            result.put(specification, (request, memoryId) -> tool.execute(request, memoryId, cache));
+        });
+        return result;
+    }
+
+    /**
+     * 把工具注册到 AI Service，代替 tools(Object...) 的反射调用
+     */
+    public <T> AiServices<T> configure(AiServices<T> aiServices) {
+        return aiServices.tools(toolExecutors());
+    }
+
+    private static List<CompiledTool> compile(Class<?> type) {
+        return COMPILED.computeIfAbsent(type, key -> {
+            List<CompiledTool> compiled = new ArrayList<>();
+            for (Method method : key.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Tool.class)) {
+                    compiled.add(new CompiledTool(method));
+                }
+            }
+            log.debug("编译 {} 的 {} 个工具", key.getName(), compiled.size());
+            return List.copyOf(compiled);
+        });
+    }
+
+    /**
+     * 按类缓存的工具：规格、未绑定实例的 MethodHandle、参数解码器和返回值编码器
+     */
+    private static final class CompiledTool {
+
+        private final ToolSpecification specification;
+        private final boolean isStatic;
+        private final MethodHandle handle;
+        private final int parameterCount;
+        private final Map<String, Integer> parameterIndexes = new HashMap<>();
+        private final ArgumentDecoder[] decoders;
+        private final int memoryIdIndex;
+        private final Class<?>[] parameterTypes;
+        private final ResultEncoder encoder;
+        private final long cacheTtlNanos;
+
+        private CompiledTool(Method method) {
+            this.specification = ToolSpecifications.toolSpecificationFrom(method);
+            this.isStatic = Modifier.isStatic(method.getModifiers());
+            Parameter[] parameters = method.getParameters();
+            this.parameterCount = parameters.length;
+            this.decoders = new ArgumentDecoder[parameters.length];
+            this.parameterTypes = method.getParameterTypes();
+            int memoryId = -1;
+            for (int i = 0; i < parameters.length; i++) {
+                if (parameters[i].isAnnotationPresent(ToolMemoryId.class)) {
+                    memoryId = i;
+                } else {
+                    parameterIndexes.put(parameters[i].getName(), i);
+                    decoders[i] = ArgumentDecoder.forParameter(parameters[i]);
+                }
+            }
+            this.memoryIdIndex = memoryId;
+            this.encoder = ResultEncoder.forType(method.getReturnType());
+            CacheableTool cacheable = method.getAnnotation(CacheableTool.class);
+            this.cacheTtlNanos = cacheable != null ? cacheable.unit().toNanos(cacheable.ttl()) : 0;
+            try {
+                // 工具类常常是包内可见或局部类，需要先打开访问权限
+                method.setAccessible(true);
+                this.handle = MethodHandles.lookup().unreflect(method);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("无法访问工具方法: " + method, e);
+            }
+        }
+
+        private MethodHandle bind(Object object) {
+            MethodHandle bound = isStatic ? handle : handle.bindTo(object);
+            return bound.asSpreader(Object[].class, parameterCount).asType(INVOKER_TYPE);
+        }
+
+        private Object[] decode(String arguments, Object memoryId) throws IOException {
+            Object[] values = new Object[parameterCount];
+            boolean[] present = new boolean[parameterCount];
+            if (memoryIdIndex >= 0) {
+                values[memoryIdIndex] = memoryId;
+                present[memoryIdIndex] = true;
+            }
+            if (arguments != null && !arguments.isBlank()) {
+                try (JsonParser parser = JSON_FACTORY.createParser(arguments)) {
+                    if (parser.nextToken() != JsonToken.START_OBJECT) {
+                        throw new IllegalArgumentException("工具参数必须是 JSON 对象: " + arguments);
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        Integer index = parameterIndexes.get(parser.currentName());
+                        JsonToken token = parser.nextToken();
+                        if (index == null) {
+                            parser.skipChildren();
+                        } else if (token != JsonToken.VALUE_NULL) {
+                            values[index] = decoders[index].decode(parser);
+                            present[index] = true;
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < parameterCount; i++) {
+                if (!present[i] && parameterTypes[i].isPrimitive()) {
+                    throw new IllegalArgumentException("缺少参数: " + nameOf(i));
+                }
+            }
+            return values;
+        }
+
+        private String cacheKey(Object[] arguments) throws IOException {
+            if (memoryIdIndex < 0) {
+                return CANONICAL_WRITER.writeValueAsString(arguments);
+            }
+            Object[] copy = arguments.clone();
+            copy[memoryIdIndex] = String.valueOf(copy[memoryIdIndex]);
+            return CANONICAL_WRITER.writeValueAsString(copy);
+        }
+
+        private String nameOf(int index) {
+            for (Map.Entry<String, Integer> entry : parameterIndexes.entrySet()) {
+                if (entry.getValue() == index) {
+                    return entry.getKey();
+                }
+            }
+            return "arg" + index;
+        }
+    }
+
+    /**
+     * 绑定了实例的工具，注册时创建
+     */
+    private static final class BoundTool {
+
+        private final CompiledTool compiled;
+        private final MethodHandle invoker;
+
+        private BoundTool(CompiledTool compiled, Object object) {
+            this.compiled = compiled;
+            this.invoker = compiled.bind(object);
+        }
+
+        private String execute(ToolExecutionRequest request, Object memoryId, ToolResultCache cache) {
+            try {
+                Object[] arguments = compiled.decode(request.arguments(), memoryId);
+                if (compiled.cacheTtlNanos <= 0) {
+                    return invoke(arguments);
+                }
+                return cache.get(request.name(), compiled.cacheKey(arguments), compiled.cacheTtlNanos,
+                        () -> invokeForCache(arguments));
+            } catch (Throwable e) {
+                Throwable cause = e instanceof ToolFailure ? e.getCause() : e;
+                log.debug("工具 {} 执行失败: {}", request.name(), cause.getMessage());
+                return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+            }
+        }
+
+        private String invoke(Object[] arguments) throws Throwable {
+            Object result = invoker.invokeExact(arguments);
+            return compiled.encoder.encode(result);
+        }
+
+        /**
+         * 失败时抛出异常，ToolResultCache 不会缓存失败的结果
+         */
+        private String invokeForCache(Object[] arguments) {
+            try {
+                return invoke(arguments);
+            } catch (Throwable e) {
+                throw new ToolFailure(e);
+            }
+        }
+    }
+
+    private static final class ToolFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private ToolFailure(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * 从 JSON 流中读取一个参数值，解析器已经位于值所在的 token
+     */
+    @FunctionalInterface
+    private interface ArgumentDecoder {
+
+        Object decode(JsonParser parser) throws IOException;
+
+        static ArgumentDecoder forParameter(Parameter parameter) {
+            Class<?> type = parameter.getType();
+            if (type == String.class) {
+                return parser -> parser.currentToken().isScalarValue()
+                        ? parser.getValueAsString()
+                        : MAPPER.readTree(parser).toString();
+            }
+            if (type == int.class || type == Integer.class) {
+                return parser -> number(parser).intValueExact();
+            }
+            if (type == long.class || type == Long.class) {
+                return parser -> number(parser).longValueExact();
+            }
+            if (type == short.class || type == Short.class) {
+                return parser -> number(parser).shortValueExact();
+            }
+            if (type == byte.class || type == Byte.class) {
+                return parser -> number(parser).byteValueExact();
+            }
+            if (type == double.class || type == Double.class) {
+                return parser -> number(parser).doubleValue();
+            }
+            if (type == float.class || type == Float.class) {
+                return parser -> number(parser).floatValue();
+            }
+            if (type == BigDecimal.class) {
+                return ArgumentDecoder::number;
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                return parser -> parser.currentToken().isBoolean()
+                        ? parser.getBooleanValue()
+                        : Boolean.parseBoolean(parser.getText().trim());
+            }
+            if (type.isEnum()) {
+                Map<String, Object> constants = new HashMap<>();
+                for (Object constant : type.getEnumConstants()) {
+                    constants.put(((Enum<?>) constant).name(), constant);
+                }
+                return parser -> {
+                    Object constant = constants.get(parser.getText());
+                    if (constant == null) {
+                        throw new IllegalArgumentException(parser.getText() + " 不是 " + type.getSimpleName() + " 的取值");
+                    }
+                    return constant;
+                };
+            }
+            ObjectReader reader = MAPPER.readerFor(MAPPER.constructType(parameter.getParameterizedType()));
+            return reader::readValue;
+        }
+
+        /**
+         * 模型有时会把数字写成字符串（"5"）或小数（5.0），统一按 BigDecimal 解析后再精确转换
+         */
+        private static BigDecimal number(JsonParser parser) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return parser.getDecimalValue();
+            }
+            try {
+                return new BigDecimal(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(parser.getText() + " 不是数字");
+            }
+        }
+    }
+
+    /**
+     * 把工具的返回值转换成结果文本
+     */
+    @FunctionalInterface
+    private interface ResultEncoder {
+
+        String encode(Object result);
+
+        static ResultEncoder forType(Class<?> type) {
+            if (type == void.class) {
+                return result -> "Success";
+            }
+            if (type == String.class) {
+                return result -> (String) result;
+            }
+            if (type.isPrimitive() || Number.class.isAssignableFrom(type) || type == Boolean.class
+                    || type == Character.class || type.isEnum()) {
+                return String::valueOf;
+            }
+            ObjectWriter writer = MAPPER.writer();
+            return result -> {
+                try {
+                    return writer.writeValueAsString(result);
+                } catch (IOException e) {
+                    throw new IllegalStateException("无法序列化工具返回值", e);
+                }
+            };
+        }
+    }
+
+    public static final class Builder {
+        private final Map<String, ToolSpecification> specifications = new LinkedHashMap<>();
+        private final Map<String, BoundTool> tools = new HashMap<>();
+        private ToolResultCache cache;
+
+        private Builder() {
+        }
+
+        /**
+         * 注册对象上所有带 {@link Tool} 注解的方法
+         */
+        public Builder tools(Object... objects) {
+            for (Object object : objects) {
+                for (CompiledTool compiled : compile(object.getClass())) {
+                    String name = compiled.specification.name();
+                    if (specifications.putIfAbsent(name, compiled.specification) != null) {
+                        throw new IllegalArgumentException("工具名称重复: " + name);
+                    }
+                    tools.put(name, new BoundTool(compiled, object));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * {@link CacheableTool} 工具使用的结果缓存，默认每个注册表一个；多个注册表可以共用同一个缓存
+         */
+        public Builder cache(ToolResultCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        public ToolRegistry build() {
+            if (specifications.isEmpty()) {
+                throw new IllegalArgumentException("至少需要注册一个工具");
+            }
+            return new ToolRegistry(this);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package cn.langchat.learning.tutorial.tools;
+
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预编译工具注册表测试
+ *
+ * 工具类与 AiServicesTest 中的 Calculator、MathTools 相同（加法改名为 plus，避免与 Calculator.add 重名），
+ * 以 DefaultToolExecutor 的结果作为对照
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("预编译工具注册表测试")
+class ToolRegistryTest {
+
+    static class Calculator {
+        @Tool("计算两个数的和")
+        public String add(int a, int b) {
+            return String.format("%d + %d = %d", a, b, a + b);
+        }
+    }
+
+    static class MathTools {
+        @Tool("加法运算")
+        public int plus(int a, int b) {
+            return a + b;
+        }
+
+        @Tool("减法运算")
+        public int subtract(int a, int b) {
+            return a - b;
+        }
+
+        @Tool("乘法运算")
+        public int multiply(int a, int b) {
+            return a * b;
+        }
+
+        @Tool("除法运算")
+        public double divide(int a, int b) {
+            if (b == 0) {
+                throw new IllegalArgumentException("除数不能为零");
+            }
+            return (double) a / b;
+        }
+    }
+
+    enum Unit {
+        CELSIUS, FAHRENHEIT
+    }
+
+    record Location(String city, String district) {
+    }
+
+    static class WeatherTool {
+        private final List<Object> memoryIds = new ArrayList<>();
+
+        @Tool("查询天气")
+        public Map<String, Object> weather(@ToolMemoryId Object memoryId, Location location, Unit unit, boolean detailed) {
+            memoryIds.add(memoryId);
+            Map<String, Object> result = new HashMap<>();
+            result.put("city", location.city());
+            result.put("unit", unit.name());
+            result.put("detailed", detailed);
+            return result;
+        }
+
+        @Tool("清除缓存")
+        public void clear() {
+            memoryIds.clear();
+        }
+    }
+
+    @Test
+    @DisplayName("工具规格应该与 ToolSpecifications 一致，并按类缓存")
+    void shouldCacheSpecificationsPerClass() {
+        List<ToolSpecification> first = ToolRegistry.toolSpecificationsFrom(MathTools.class);
+        List<ToolSpecification> second = ToolRegistry.builder()
+                .tools(new MathTools())
+                .build()
+                .toolSpecifications();
+
+        assertEquals(4, first.size());
+        for (Method method : MathTools.class.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(Tool.class)) {
+                assertTrue(first.contains(ToolSpecifications.toolSpecificationFrom(method)), method.getName());
+            }
+        }
+        // 第二个实例复用第一次生成的规格
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i), second.get(i));
+        }
+
+        log.info("MathTools 的工具规格: {}", first);
+        log.info("\n✅ 测试通过：工具规格按类缓存\n");
+    }
+
+    @Test
+    @DisplayName("执行结果应该与 DefaultToolExecutor 一致")
+    void shouldMatchDefaultToolExecutor() throws Exception {
+        Calculator calculator = new Calculator();
+        MathTools mathTools = new MathTools();
+        ToolRegistry registry = ToolRegistry.builder().tools(calculator, mathTools).build();
+        List<ToolExecutionRequest> requests = List.of(
+                request("add", "{\"a\": 5, \"b\": 3}"),
+                request("plus", "{\"a\": 5, \"b\": 3}"),
+                request("subtract", "{\"a\": 10, \"b\": 4}"),
+                request("multiply", "{\"b\": 6, \"a\": 7}"),
+                request("divide", "{\"a\": 10, \"b\": 4}"),
+                request("divide", "{\"a\": 10, \"b\": 0}"));
+
+        for (ToolExecutionRequest request : requests) {
+            Object target = request.name().equals("add") ? calculator : mathTools;
+            Method method = method(target.getClass(), request.name());
+            String expected = new DefaultToolExecutor(target, method).execute(request, "user-1");
+            assertEquals(expected, registry.execute(request, "user-1"), request.toString());
+            log.info("{}({}) = {}", request.name(), request.arguments(), expected);
+        }
+
+        log.info("\n✅ 测试通过：执行结果与 DefaultToolExecutor 一致\n");
+    }
+
+    @Test
+    @DisplayName("应该容忍模型输出的字符串数字，并对无效参数返回错误信息")
+    void shouldDecodeArgumentsLeniently() {
+        ToolRegistry registry = ToolRegistry.builder().tools(new MathTools()).build();
+
+        assertEquals("8", registry.execute(request("plus", "{\"a\": \"5\", \"b\": 3.0}"), "user-1"));
+        assertEquals("5", registry.execute(request("plus", "{\"a\": 5, \"b\": 0, \"c\": {\"x\": [1]}}"), "user-1"));
+        assertEquals("缺少参数: b", registry.execute(request("plus", "{\"a\": 5}"), "user-1"));
+        assertTrue(registry.execute(request("plus", "{\"a\": \"五\", \"b\": 3}"), "user-1").contains("不是数字"));
+        assertTrue(registry.execute(request("plus", "{\"a\": 1.5, \"b\": 3}"), "user-1").contains("Rounding"));
+        assertEquals("错误：不存在名为 power 的工具", registry.execute(request("power", "{}"), "user-1"));
+
+        log.info("\n✅ 测试通过：参数解码\n");
+    }
+
+    @Test
+    @DisplayName("应该支持 ToolMemoryId、枚举、对象参数和 void 返回值")
+    void shouldSupportComplexParameters() {
+        WeatherTool weatherTool = new WeatherTool();
+        ToolRegistry registry = ToolRegistry.builder().tools(weatherTool).build();
+
+        String result = registry.execute(request("weather",
+                "{\"location\": {\"city\": \"杭州\", \"district\": \"西湖区\"}, \"unit\": \"CELSIUS\", \"detailed\": true}"),
+                "user-42");
+
+        assertTrue(result.contains("\"city\":\"杭州\""), result);
+        assertTrue(result.contains("\"unit\":\"CELSIUS\""), result);
+        assertTrue(result.contains("\"detailed\":true"), result);
+        assertEquals(List.of("user-42"), weatherTool.memoryIds);
+        // memoryId 不出现在工具规格的参数中
+        ToolSpecification specification = registry.toolSpecifications().stream()
+                .filter(spec -> spec.name().equals("weather"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(List.of("location", "unit", "detailed"),
+                new ArrayList<>(specification.parameters().properties().keySet()));
+
+        assertEquals("Success", registry.execute(request("clear", "{}"), "user-42"));
+        assertTrue(weatherTool.memoryIds.isEmpty());
+
+        log.info("天气工具结果: {}", result);
+        log.info("\n✅ 测试通过：支持复杂参数\n");
+    }
+
+    @Test
+    @DisplayName("热路径上的调度开销应该低于 DefaultToolExecutor")
+    void shouldDispatchFasterThanDefaultToolExecutor() throws Exception {
+        MathTools mathTools = new MathTools();
+        ToolExecutor registryExecutor = ToolRegistry.builder().tools(mathTools).build()
+                .toolExecutors().entrySet().stream()
+                .filter(entry -> entry.getKey().name().equals("plus"))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElseThrow();
+        ToolExecutor defaultExecutor = new DefaultToolExecutor(mathTools, method(MathTools.class, "plus"));
+        ToolExecutionRequest request = request("plus", "{\"a\": 5, \"b\": 3}");
+        int iterations = 20_000;
+
+        // 先各执行一轮，排除类加载和 JIT 编译的影响
+        measure(registryExecutor, request, iterations);
+        measure(defaultExecutor, request, iterations);
+        long registryNanos = measure(registryExecutor, request, iterations);
+        long defaultNanos = measure(defaultExecutor, request, iterations);
+
+        log.info("每次调用：ToolRegistry {} ns，DefaultToolExecutor {} ns", registryNanos / iterations,
+                defaultNanos / iterations);
+        assertTrue(registryNanos < defaultNanos,
+                "ToolRegistry: " + registryNanos + " ns，DefaultToolExecutor: " + defaultNanos + " ns");
+
+        log.info("\n✅ 测试通过：调度开销低于 DefaultToolExecutor\n");
+    }
+
+    private static long measure(ToolExecutor executor, ToolExecutionRequest request, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            assertEquals("8", executor.execute(request, "user-1"));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static Method method(Class<?> type, String name) {
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static ToolExecutionRequest request(String name, String arguments) {
+        return ToolExecutionRequest.builder().id(name).name(name).arguments(arguments).build();
+    }
+}
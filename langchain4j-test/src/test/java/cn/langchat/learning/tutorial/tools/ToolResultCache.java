@@ -0,0 +1,306 @@
+package cn.langchat.learning.tutorial.tools;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 工具结果缓存
+ *
+ * 保存 {@link CacheableTool} 工具的执行结果。一个 {@link ToolRegistry} 服务所有会话，缓存因此跨会话共享；
+ * 多个注册表也可以共用同一个缓存。
+ *
+ * - 结果存放在 ConcurrentHashMap 中，命中时不加锁，只更新条目的最近访问时间
+ * - 未命中时先放入一个加载中的条目，再在任何锁之外执行 loader：同一个键的并发未命中只执行一次 loader，
+ *   其它调用方等待这个条目的结果；慢的工具（通常是阻塞 I/O）不会锁住 map，不同的键互不影响
+ * - 超过 maxEntries 时扫描一次，淘汰最久未使用的结果，并多淘汰约 5% 的余量，避免每次插入都扫描
+ *
+ * 命中率通过 {@link #stats()} / {@link #stats(String)} 读取，同时发布 Micrometer 指标：
+ * - langchat.tool.cache：缓存查询次数，标签 tool、result（hit / miss）
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class ToolResultCache {
+
+    public static final String CACHE_COUNTER = "langchat.tool.cache";
+
+    private final int maxEntries;
+    /**
+     * 每次淘汰时多淘汰的条目数
+     */
+    private final int evictionSlack;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, ToolStats> toolStats = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private ToolResultCache(Builder builder) {
+        this.maxEntries = builder.maxEntries;
+        this.evictionSlack = builder.maxEntries / 20;
+        this.meterRegistry = builder.meterRegistry;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 返回缓存的结果；没有或已过期时调用 loader，并缓存其结果
+     *
+     * loader 抛出异常时不缓存，正在等待同一个键的调用方收到同一个异常。
+     * 同一个键的并发未命中只执行一次 loader，loader 中不能再访问同一个键
+     */
+    public String get(String toolName, String key, long ttlNanos, Supplier<String> loader) {
+        ToolStats stats = toolStats.computeIfAbsent(toolName, this::newStats);
+        String cacheKey = toolName + '\u0000' + key;
+        long now = System.nanoTime();
+        Entry entry = entries.get(cacheKey);
+        if (entry != null && entry.isValid(now)) {
+            entry.lastAccessNanos = now;
+            stats.hit();
+            return entry.await();
+        }
+        Entry loading = new Entry(now);
+        // compute 中只放入占位条目，不执行 loader
+        Entry current = entries.compute(cacheKey,
+                (k, existing) -> existing != null && existing.isValid(System.nanoTime()) ? existing : loading);
+        if (current != loading) {
+            // 其它调用方已经加载或正在加载
+            current.lastAccessNanos = now;
+            stats.hit();
+            return current.await();
+        }
+        stats.miss();
+        String result;
+        try {
+            result = loader.get();
+        } catch (Throwable e) {
+            entries.remove(cacheKey, loading);
+            loading.result.completeExceptionally(e);
+            throw e;
+        }
+        loading.complete(result, System.nanoTime() + ttlNanos);
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+        return result;
+    }
+
+    /**
+     * 删除某个工具的所有缓存结果，工具依赖的数据变化时调用
+     */
+    public void invalidate(String toolName) {
+        String prefix = toolName + '\u0000';
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 当前缓存的结果数（包括已过期但还没被清理的）
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 淘汰过期和最久未使用的结果；同一时间只有一个线程扫描，其它线程直接返回
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int excess = entries.size() - maxEntries;
+            if (excess <= 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            // 先记下访问时间再排序，排序期间的访问不影响比较结果
+            List<Candidate> candidates = new ArrayList<>(entries.size());
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                Entry entry = candidate.getValue();
+                if (!entry.isValid(now)) {
+                    if (entries.remove(candidate.getKey(), entry)) {
+                        excess--;
+                    }
+                } else {
+                    candidates.add(new Candidate(candidate.getKey(), entry, entry.lastAccessNanos));
+                }
+            }
+            if (excess <= 0) {
+                return;
+            }
+            int toEvict = Math.min(candidates.size(), excess + evictionSlack);
+            candidates.sort(Comparator.comparingLong(Candidate::lastAccessNanos));
+            for (int i = 0; i < toEvict; i++) {
+                entries.remove(candidates.get(i).key(), candidates.get(i).entry());
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * 所有工具合计的命中统计
+     */
+    public Stats stats() {
+        long hits = 0;
+        long misses = 0;
+        for (ToolStats stats : toolStats.values()) {
+            hits += stats.hits.sum();
+            misses += stats.misses.sum();
+        }
+        return new Stats(hits, misses);
+    }
+
+    /**
+     * 单个工具的命中统计
+     */
+    public Stats stats(String toolName) {
+        ToolStats stats = toolStats.get(toolName);
+        return stats == null ? new Stats(0, 0) : new Stats(stats.hits.sum(), stats.misses.sum());
+    }
+
+    private ToolStats newStats(String toolName) {
+        return new ToolStats(counter(toolName, "hit"), counter(toolName, "miss"));
+    }
+
+    private Counter counter(String toolName, String result) {
+        return Counter.builder(CACHE_COUNTER)
+                .description("工具结果缓存查询次数")
+                .tag("tool", toolName)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 命中统计
+     */
+    public record Stats(long hitCount, long missCount) {
+
+        public long requestCount() {
+            return hitCount + missCount;
+        }
+
+        /**
+         * 命中率，没有请求时为 0
+         */
+        public double hitRate() {
+            long requests = requestCount();
+            return requests == 0 ? 0 : (double) hitCount / requests;
+        }
+    }
+
+    private record Candidate(String key, Entry entry, long lastAccessNanos) {
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        /**
+         * 在 result 完成之前写入，加载中的条目始终有效
+         */
+        private volatile long expiresAtNanos;
+        private volatile long lastAccessNanos;
+
+        private Entry(long lastAccessNanos) {
+            this.lastAccessNanos = lastAccessNanos;
+        }
+
+        private void complete(String value, long expiresAtNanos) {
+            this.expiresAtNanos = expiresAtNanos;
+            result.complete(value);
+        }
+
+        private boolean isValid(long now) {
+            return !result.isDone() || !result.isCompletedExceptionally() && expiresAtNanos - now > 0;
+        }
+
+        /**
+         * 等待加载完成；loader 的异常原样抛出
+         */
+        private String await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static final class ToolStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final Counter hitCounter;
+        private final Counter missCounter;
+
+        private ToolStats(Counter hitCounter, Counter missCounter) {
+            this.hitCounter = hitCounter;
+            this.missCounter = missCounter;
+        }
+
+        private void hit() {
+            hits.increment();
+            hitCounter.increment();
+        }
+
+        private void miss() {
+            misses.increment();
+            missCounter.increment();
+        }
+    }
+
+    public static final class Builder {
+        private int maxEntries = 10_000;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+        private Builder() {
+        }
+
+        /**
+         * 最多缓存的结果数，默认 10000
+         */
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * 发布命中率指标的 MeterRegistry，默认 Metrics.globalRegistry
+         */
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public ToolResultCache build() {
+            if (maxEntries <= 0) {
+                throw new IllegalArgumentException("maxEntries 必须大于 0");
+            }
+            if (meterRegistry == null) {
+                throw new IllegalArgumentException("meterRegistry 不能为空");
+            }
+            return new ToolResultCache(this);
+        }
+    }
+}
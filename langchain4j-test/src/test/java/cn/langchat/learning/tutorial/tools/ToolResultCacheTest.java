@@ -0,0 +1,337 @@
+package cn.langchat.learning.tutorial.tools;
+
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.service.AiServices;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工具结果缓存测试
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("工具结果缓存测试")
+class ToolResultCacheTest {
+
+    /**
+     * 与 AiServicesTest 中的 MathTools 相同，加法和除法可以缓存，记录实际执行次数
+     */
+    static class MathTools {
+        private final AtomicInteger executions = new AtomicInteger();
+
+        @Tool("加法运算")
+        @CacheableTool
+        public int add(int a, int b) {
+            executions.incrementAndGet();
+            return a + b;
+        }
+
+        @Tool("减法运算")
+        public int subtract(int a, int b) {
+            executions.incrementAndGet();
+            return a - b;
+        }
+
+        @Tool("除法运算")
+        @CacheableTool(ttl = 200, unit = TimeUnit.MILLISECONDS)
+        public double divide(int a, int b) {
+            executions.incrementAndGet();
+            if (b == 0) {
+                throw new IllegalArgumentException("除数不能为零");
+            }
+            return (double) a / b;
+        }
+    }
+
+    static class HistoryTool {
+        private final AtomicInteger executions = new AtomicInteger();
+
+        @Tool("查询当前会话的历史订单")
+        @CacheableTool
+        public String orders(@ToolMemoryId Object memoryId, String status) {
+            executions.incrementAndGet();
+            return memoryId + " 的" + status + "订单: 3 个";
+        }
+    }
+
+    @Test
+    @DisplayName("相同参数应该跳过执行，参数写法不同也能命中")
+    void shouldSkipRepeatedExecution() {
+        MathTools tools = new MathTools();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ToolRegistry registry = ToolRegistry.builder()
+                .tools(tools)
+                .cache(ToolResultCache.builder().meterRegistry(meterRegistry).build())
+                .build();
+
+        assertEquals("8", registry.execute(request("add", "{\"a\": 5, \"b\": 3}"), "user-1"));
+        assertEquals("8", registry.execute(request("add", "{\"b\":3,\"a\":\"5\"}"), "user-1"));
+        // 跨会话也能命中
+        assertEquals("8", registry.execute(request("add", "{\"a\": 5.0, \"b\": 3}"), "user-2"));
+        assertEquals("9", registry.execute(request("add", "{\"a\": 6, \"b\": 3}"), "user-2"));
+
+        assertEquals(2, tools.executions.get());
+        ToolResultCache.Stats stats = registry.cache().stats("add");
+        assertEquals(2, stats.hitCount());
+        assertEquals(2, stats.missCount());
+        assertEquals(0.5, stats.hitRate(), 1e-9);
+        assertEquals(2, meterRegistry.counter(ToolResultCache.CACHE_COUNTER, "tool", "add", "result", "hit").count());
+        assertEquals(2, meterRegistry.counter(ToolResultCache.CACHE_COUNTER, "tool", "add", "result", "miss").count());
+
+        log.info("add 的命中统计: {}，命中率 {}", stats, stats.hitRate());
+        log.info("\n✅ 测试通过：相同参数跳过执行\n");
+    }
+
+    @Test
+    @DisplayName("没有注解的工具和执行失败的结果不应该缓存")
+    void shouldNotCacheUnannotatedToolsOrFailures() {
+        MathTools tools = new MathTools();
+        ToolRegistry registry = ToolRegistry.builder().tools(tools).build();
+
+        registry.execute(request("subtract", "{\"a\": 5, \"b\": 3}"), "user-1");
+        registry.execute(request("subtract", "{\"a\": 5, \"b\": 3}"), "user-1");
+        assertEquals("除数不能为零", registry.execute(request("divide", "{\"a\": 1, \"b\": 0}"), "user-1"));
+        assertEquals("除数不能为零", registry.execute(request("divide", "{\"a\": 1, \"b\": 0}"), "user-1"));
+        // 参数无效时不执行工具，也不查询缓存
+        assertEquals("缺少参数: b", registry.execute(request("divide", "{\"a\": 1}"), "user-1"));
+
+        assertEquals(4, tools.executions.get());
+        assertEquals(0, registry.cache().size());
+        assertEquals(0, registry.cache().stats().hitCount());
+        assertEquals(0, registry.cache().stats("subtract").requestCount());
+
+        log.info("\n✅ 测试通过：不缓存未注解的工具和失败结果\n");
+    }
+
+    @Test
+    @DisplayName("结果过期后应该重新执行")
+    void shouldExpireResults() throws InterruptedException {
+        MathTools tools = new MathTools();
+        ToolRegistry registry = ToolRegistry.builder().tools(tools).build();
+        ToolExecutionRequest request = request("divide", "{\"a\": 10, \"b\": 4}");
+
+        assertEquals("2.5", registry.execute(request, "user-1"));
+        assertEquals("2.5", registry.execute(request, "user-1"));
+        assertEquals(1, tools.executions.get());
+
+        Thread.sleep(300);
+        assertEquals("2.5", registry.execute(request, "user-1"));
+        assertEquals(2, tools.executions.get());
+
+        log.info("\n✅ 测试通过：结果过期后重新执行\n");
+    }
+
+    @Test
+    @DisplayName("带 ToolMemoryId 的工具只在同一个会话内复用结果")
+    void shouldScopeResultsByMemoryId() {
+        HistoryTool tool = new HistoryTool();
+        ToolRegistry registry = ToolRegistry.builder().tools(tool).build();
+        ToolExecutionRequest request = request("orders", "{\"status\": \"待发货\"}");
+
+        assertEquals("user-1 的待发货订单: 3 个", registry.execute(request, "user-1"));
+        assertEquals("user-1 的待发货订单: 3 个", registry.execute(request, "user-1"));
+        assertEquals("user-2 的待发货订单: 3 个", registry.execute(request, "user-2"));
+
+        assertEquals(2, tool.executions.get());
+
+        log.info("\n✅ 测试通过：按会话隔离缓存结果\n");
+    }
+
+    @Test
+    @DisplayName("超过容量时应该淘汰最久未使用的结果，也可以按工具清除")
+    void shouldEvictAndInvalidate() {
+        MathTools tools = new MathTools();
+        ToolRegistry registry = ToolRegistry.builder()
+                .tools(tools)
+                .cache(ToolResultCache.builder().maxEntries(2).build())
+                .build();
+
+        registry.execute(request("add", "{\"a\": 1, \"b\": 1}"), "user-1");
+        registry.execute(request("add", "{\"a\": 2, \"b\": 2}"), "user-1");
+        // 访问 1 + 1，使 2 + 2 成为最久未使用的结果
+        registry.execute(request("add", "{\"a\": 1, \"b\": 1}"), "user-1");
+        registry.execute(request("add", "{\"a\": 3, \"b\": 3}"), "user-1");
+        assertEquals(2, registry.cache().size());
+        registry.execute(request("add", "{\"a\": 1, \"b\": 1}"), "user-1");
+        assertEquals(3, tools.executions.get());
+        registry.execute(request("add", "{\"a\": 2, \"b\": 2}"), "user-1");
+        assertEquals(4, tools.executions.get());
+
+        registry.cache().invalidate("add");
+        assertEquals(0, registry.cache().size());
+
+        log.info("\n✅ 测试通过：按容量淘汰并按工具清除\n");
+    }
+
+    @Test
+    @DisplayName("AI Service 工具循环中重复的调用应该命中缓存")
+    void shouldHitCacheInAiServiceLoop() {
+        MathTools tools = new MathTools();
+        ToolRegistry registry = ToolRegistry.builder().tools(tools).build();
+        // 模型连续三轮都请求 add(5, 3)，第四轮给出回答
+        RepeatingToolModel model = new RepeatingToolModel(request("add", "{\"a\": 5, \"b\": 3}"), 3);
+        Assistant assistant = registry.configure(AiServices.builder(Assistant.class).chatModel(model)).build();
+
+        assertEquals("8", assistant.chat("5 加 3 等于几？"));
+        assertEquals("8", assistant.chat("再算一次 5 加 3"));
+
+        assertEquals(1, tools.executions.get());
+        ToolResultCache.Stats stats = registry.cache().stats();
+        assertEquals(5, stats.hitCount());
+        assertEquals(1, stats.missCount());
+
+        log.info("6 次工具调用实际执行 {} 次，命中率 {}", tools.executions.get(), stats.hitRate());
+        log.info("\n✅ 测试通过：工具循环中命中缓存\n");
+    }
+
+    @Test
+    @DisplayName("同一个键的并发未命中应该只执行一次")
+    void shouldLoadOnceForConcurrentMisses() throws Exception {
+        ToolResultCache cache = ToolResultCache.builder().meterRegistry(new SimpleMeterRegistry()).build();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(callers.submit(() -> {
+                    start.await();
+                    return cache.get("weather", "{\"city\":\"北京\"}", TimeUnit.MINUTES.toNanos(1), () -> {
+                        loads.incrementAndGet();
+                        sleep(100);
+                        return "晴";
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> future : futures) {
+                assertEquals("晴", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(7, cache.stats("weather").hitCount());
+        assertEquals(1, cache.stats("weather").missCount());
+
+        log.info("\n✅ 测试通过：并发未命中只执行一次\n");
+    }
+
+    @Test
+    @DisplayName("慢的工具不应该阻塞其它键，失败的结果不应该缓存")
+    void shouldLoadOutsideMapLock() throws Exception {
+        ToolResultCache cache = ToolResultCache.builder().meterRegistry(new SimpleMeterRegistry()).build();
+        long ttl = TimeUnit.MINUTES.toNanos(1);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> slow = callers.submit(() -> cache.get("search", "慢查询", ttl, () -> {
+                loading.countDown();
+                await(release);
+                throw new IllegalStateException("服务不可用");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            // 等待同一个键的调用方收到同一个异常
+            Future<String> waiter = callers.submit(() -> cache.get("search", "慢查询", ttl, () -> "不应该执行"));
+            while (cache.stats("search").hitCount() == 0) {
+                Thread.onSpinWait();
+            }
+
+            // 慢的工具执行期间，其它键照常加载
+            for (int i = 0; i < 1_000; i++) {
+                String key = "查询 " + i;
+                assertEquals(key, cache.get("search", key, ttl, () -> key));
+            }
+
+            release.countDown();
+            ExecutionException error = assertThrows(ExecutionException.class, () -> slow.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+            error = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals("恢复", cache.get("search", "慢查询", ttl, () -> "恢复"));
+
+        log.info("\n✅ 测试通过：loader 在 map 锁之外执行\n");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    interface Assistant {
+        String chat(String message);
+    }
+
+    /**
+     * 每次用户提问后连续 rounds 轮请求同一个工具，然后把最后一个工具结果作为回答
+     */
+    private static final class RepeatingToolModel implements ChatModel {
+
+        private final ToolExecutionRequest request;
+        private final int rounds;
+
+        private RepeatingToolModel(ToolExecutionRequest request, int rounds) {
+            this.request = request;
+            this.rounds = rounds;
+        }
+
+        @Override
+        public ChatResponse doChat(ChatRequest chatRequest) {
+            List<ChatMessage> messages = chatRequest.messages();
+            int toolResults = 0;
+            for (int i = messages.size() - 1; i >= 0 && messages.get(i) instanceof ToolExecutionResultMessage; i -= 2) {
+                toolResults++;
+            }
+            if (toolResults < rounds) {
+                return ChatResponse.builder().aiMessage(AiMessage.from(request)).build();
+            }
+            String answer = ((ToolExecutionResultMessage) messages.get(messages.size() - 1)).text();
+            return ChatResponse.builder().aiMessage(AiMessage.from(answer)).build();
+        }
+    }
+
+    private static ToolExecutionRequest request(String name, String arguments) {
+        return ToolExecutionRequest.builder().id(name).name(name).arguments(arguments).build();
+    }
+}
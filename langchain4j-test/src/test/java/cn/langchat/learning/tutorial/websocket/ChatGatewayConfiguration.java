@@ -0,0 +1,56 @@
+package cn.langchat.learning.tutorial.websocket;
+
+import cn.langchat.learning.util.TestModelProvider;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * WebSocket 流式对话网关配置
+ *
+ * 网关和它依赖的教程工具类都在 src/test 中，WebFlux 也只是测试依赖，所以只有在测试 classpath 上
+ * 启动 {@link cn.langchat.learning.LearningTestsApplication} 时才会通过组件扫描加载：
+ * 运行测试，或者执行 mvn spring-boot:test-run。打包后的应用不提供这个端点。
+ * 网关地址为 ws://host:port/ws/chat。容器中有 StreamingChatModel 时使用它，
+ * 否则使用 {@link TestModelProvider#getStreamingChatModel()}
+ *
+ * 可调参数：
+ * - langchat.gateway.max-conversations：同一连接上同时进行的对话数上限，默认 16
+ * - langchat.gateway.max-tokens-per-frame：一帧最多合并的片段数，默认 32
+ * - langchat.gateway.frame-interval：一帧最多等待的时间，默认 50ms
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Configuration(proxyBeanMethods = false)
+public class ChatGatewayConfiguration {
+
+    public static final String PATH = "/ws/chat";
+
+    @Bean
+    public ChatGatewayHandler chatGatewayHandler(
+            ObjectProvider<StreamingChatModel> streamingChatModel,
+            @Value("${langchat.gateway.max-conversations:16}") int maxConversations,
+            @Value("${langchat.gateway.max-tokens-per-frame:32}") int maxTokensPerFrame,
+            @Value("${langchat.gateway.frame-interval:50ms}") Duration frameInterval) {
+        return ChatGatewayHandler.builder()
+                .model(streamingChatModel.getIfAvailable(TestModelProvider::getStreamingChatModel))
+                .maxConversations(maxConversations)
+                .maxTokensPerFrame(maxTokensPerFrame)
+                .frameInterval(frameInterval)
+                .build();
+    }
+
+    @Bean
+    public HandlerMapping chatGatewayHandlerMapping(ChatGatewayHandler chatGatewayHandler) {
+        // 优先于注解控制器的映射
+        return new SimpleUrlHandlerMapping(Map.of(PATH, chatGatewayHandler), -1);
+    }
+}
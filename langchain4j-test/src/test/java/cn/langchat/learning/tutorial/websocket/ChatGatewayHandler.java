@@ -0,0 +1,250 @@
+package cn.langchat.learning.tutorial.websocket;
+
+import cn.langchat.learning.tutorial.streaming.StreamingChatPublisher;
+import cn.langchat.learning.tutorial.streaming.StreamingChatPublisher.OverflowStrategy;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebSocket 流式对话网关
+ *
+ * 一个 WebSocket 连接上可以同时进行多个对话，消息都是 JSON 文本帧，用 id 区分对话：
+ * - 客户端：{"type":"chat","id":"c1","message":"你好"} 开始对话，{"type":"cancel","id":"c1"} 取消对话
+ * - 服务端：{"type":"token","id":"c1","text":"..."} 输出片段，
+ *   {"type":"done","id":"c1"}、{"type":"cancelled","id":"c1"}、{"type":"error","id":"c1","message":"..."} 结束对话
+ *
+ * 实现要点：
+ * - 每个对话通过 {@link StreamingChatPublisher} 转成 Flux，缓冲满时合并片段，慢客户端不会拖住模型读取
+ * - 片段按 maxTokensPerFrame 和 frameInterval 合并成一帧，减少小帧的编码和系统调用开销
+ * - 接收消息的流始终保持读取，超过 maxConversations 的对话直接返回 error，不会挡住后面的 cancel
+ * - 连接断开时所有对话被取消，上游 HTTP 流随之关闭
+ *
+ * 网关这一侧全部运行在 Reactor Netty 的事件循环上，没有阻塞调用；
+ * 上游 SSE 的解析仍然由 HttpTransport 的线程池完成（LangChain4j 的解析器基于 InputStream）
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class ChatGatewayHandler implements WebSocketHandler {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final StreamingChatModel model;
+    private final int maxConversations;
+    private final int maxTokensPerFrame;
+    private final Duration frameInterval;
+    private final int bufferSize;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicInteger activeConversations = new AtomicInteger();
+
+    private ChatGatewayHandler(Builder builder) {
+        this.model = builder.model;
+        this.maxConversations = builder.maxConversations;
+        this.maxTokensPerFrame = builder.maxTokensPerFrame;
+        this.frameInterval = builder.frameInterval;
+        this.bufferSize = builder.bufferSize;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 当前打开的 WebSocket 连接数
+     */
+    public int activeSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * 当前进行中的对话数（所有连接合计）
+     */
+    public int activeConversations() {
+        return activeConversations.get();
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        activeSessions.incrementAndGet();
+        Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+        Flux<WebSocketMessage> frames = session.receive()
+                .map(WebSocketMessage::getPayloadAsText)
+                .flatMap(text -> dispatch(text, conversations), Integer.MAX_VALUE)
+                .map(session::textMessage);
+        return session.send(frames)
+                .doFinally(signal -> {
+                    conversations.values().forEach(Conversation::cancel);
+                    activeSessions.decrementAndGet();
+                    log.debug("WebSocket 连接关闭: {} ({})", session.getId(), signal);
+                });
+    }
+
+    private Flux<String> dispatch(String text, Map<String, Conversation> conversations) {
+        JsonNode frame;
+        try {
+            frame = MAPPER.readTree(text);
+        } catch (JsonProcessingException e) {
+            return Flux.just(errorFrame(null, "无法解析的消息"));
+        }
+        String type = frame.path("type").asText();
+        String id = frame.path("id").asText(null);
+        if (id == null) {
+            return Flux.just(errorFrame(null, "缺少对话 id"));
+        }
+        if ("cancel".equals(type)) {
+            Conversation conversation = conversations.get(id);
+            if (conversation != null) {
+                conversation.cancel();
+            }
+            return Flux.empty();
+        }
+        if (!"chat".equals(type)) {
+            return Flux.just(errorFrame(id, "未知的消息类型: " + type));
+        }
+        if (conversations.size() >= maxConversations) {
+            return Flux.just(errorFrame(id, "同一连接上的对话数已达上限（" + maxConversations + "）"));
+        }
+        Conversation conversation = new Conversation();
+        if (conversations.putIfAbsent(id, conversation) != null) {
+            return Flux.just(errorFrame(id, "对话 id 已存在"));
+        }
+        return stream(id, frame.path("message").asText(), conversation)
+                .doOnSubscribe(subscription -> activeConversations.incrementAndGet())
+                .doFinally(signal -> {
+                    conversations.remove(id, conversation);
+                    activeConversations.decrementAndGet();
+                });
+    }
+
+    private Flux<String> stream(String id, String message, Conversation conversation) {
+        StreamingChatPublisher publisher = StreamingChatPublisher.builder()
+                .model(model)
+                .userMessage(message)
+                .bufferSize(bufferSize)
+                .overflowStrategy(OverflowStrategy.COALESCE)
+                .build();
+        Flux<String> tokens = JdkFlowAdapter.flowPublisherToFlux(publisher)
+                .bufferTimeout(maxTokensPerFrame, frameInterval, true)
+                .map(partials -> tokenFrame(id, String.join("", partials)))
+                .concatWith(Mono.fromCallable(() -> frame("done", id)))
+                .onErrorResume(e -> Mono.just(errorFrame(id, e.getMessage())));
+        // 取消时 takeUntilOther 会取消上游订阅，StreamingChatPublisher 随之关闭 HTTP 流
+        return tokens.takeUntilOther(conversation.stop.asMono())
+                .concatWith(Mono.fromSupplier(() -> conversation.cancelled ? frame("cancelled", id) : null));
+    }
+
+    private static String tokenFrame(String id, String text) {
+        ObjectNode node = node("token", id);
+        node.put("text", text);
+        return node.toString();
+    }
+
+    private static String errorFrame(String id, String message) {
+        ObjectNode node = node("error", id);
+        node.put("message", message);
+        return node.toString();
+    }
+
+    private static String frame(String type, String id) {
+        return node(type, id).toString();
+    }
+
+    private static ObjectNode node(String type, String id) {
+        ObjectNode node = MAPPER.createObjectNode().put("type", type);
+        if (id != null) {
+            node.put("id", id);
+        }
+        return node;
+    }
+
+    /**
+     * 一个进行中的对话，cancel 可能来自读取线程，也可能来自连接关闭
+     */
+    private static final class Conversation {
+        private final Sinks.One<Boolean> stop = Sinks.one();
+        private volatile boolean cancelled;
+
+        private void cancel() {
+            cancelled = true;
+            stop.tryEmitValue(Boolean.TRUE);
+        }
+    }
+
+    public static final class Builder {
+        private StreamingChatModel model;
+        private int maxConversations = 16;
+        private int maxTokensPerFrame = 32;
+        private Duration frameInterval = Duration.ofMillis(50);
+        private int bufferSize = 256;
+
+        private Builder() {
+        }
+
+        public Builder model(StreamingChatModel model) {
+            this.model = model;
+            return this;
+        }
+
+        /**
+         * 同一个连接上同时进行的对话数上限
+         */
+        public Builder maxConversations(int maxConversations) {
+            this.maxConversations = maxConversations;
+            return this;
+        }
+
+        /**
+         * 一帧最多合并的片段数，达到后立即发送
+         */
+        public Builder maxTokensPerFrame(int maxTokensPerFrame) {
+            this.maxTokensPerFrame = maxTokensPerFrame;
+            return this;
+        }
+
+        /**
+         * 一帧最多等待的时间，从该帧的第一个片段到达时开始计算
+         */
+        public Builder frameInterval(Duration frameInterval) {
+            this.frameInterval = frameInterval;
+            return this;
+        }
+
+        /**
+         * 每个对话的片段缓冲大小，见 {@link StreamingChatPublisher.Builder#bufferSize(int)}
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public ChatGatewayHandler build() {
+            if (model == null) {
+                throw new IllegalArgumentException("model 不能为空");
+            }
+            if (maxConversations <= 0 || maxTokensPerFrame <= 0 || bufferSize <= 0) {
+                throw new IllegalArgumentException("maxConversations、maxTokensPerFrame 和 bufferSize 必须大于 0");
+            }
+            if (frameInterval == null || frameInterval.isNegative() || frameInterval.isZero()) {
+                throw new IllegalArgumentException("frameInterval 必须大于 0");
+            }
+            return new ChatGatewayHandler(this);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package cn.langchat.learning.tutorial.websocket;
+
+import cn.langchat.learning.LearningTestsApplication;
+import cn.langchat.learning.util.HttpTransport;
+import cn.langchat.learning.util.MockOpenAiServer;
+import cn.langchat.learning.util.ModelConfig;
+import cn.langchat.learning.util.ModelRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WebSocket 流式对话网关测试
+ *
+ * 启动 {@link LearningTestsApplication}（随机端口），上游使用 {@link MockOpenAiServer}，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("WebSocket 流式对话网关测试")
+class ChatGatewayTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int LOAD_SESSIONS = 200;
+
+    private MockOpenAiServer server;
+    private ModelRegistry registry;
+    private ConfigurableApplicationContext context;
+    private ChatGatewayHandler gateway;
+    private URI uri;
+    // WebSocket 连接升级后不会归还连接池，负载测试需要不受连接池上限约束的客户端
+    private final ReactorNettyWebSocketClient webSocketClient =
+            new ReactorNettyWebSocketClient(HttpClient.newConnection());
+    private final List<GatewayClient> clients = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start().responder(message -> "收到：" + message).tokensPerSecond(500);
+        registry = new ModelRegistry(new HttpTransport());
+        StreamingChatModel streamingModel = registry.streamingChatModel(ModelConfig.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .build());
+        context = new SpringApplicationBuilder(LearningTestsApplication.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .registerSingleton("streamingChatModel", streamingModel))
+                .properties("server.port=0", "spring.main.banner-mode=off", "langchat.gateway.max-conversations=4")
+                .run();
+        gateway = context.getBean(ChatGatewayHandler.class);
+        uri = URI.create("ws://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + ChatGatewayConfiguration.PATH);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.forEach(GatewayClient::close);
+        context.close();
+        registry.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("同一连接上应该能同时进行多个对话")
+    void shouldMultiplexConversations() throws Exception {
+        GatewayClient client = connect();
+        for (int i = 1; i <= 3; i++) {
+            client.chat("c" + i, "问题 " + i);
+        }
+
+        for (int i = 1; i <= 3; i++) {
+            String id = "c" + i;
+            assertTrue(client.await("done", id));
+            assertEquals("收到：问题 " + i, client.text(id));
+        }
+        assertEquals(1, gateway.activeSessions());
+        assertEquals(3, server.requestCount());
+
+        log.info("收到 {} 帧: {}", client.frames.size(), client.frames);
+        log.info("\n✅ 测试通过：一个连接上同时进行了 3 个对话\n");
+    }
+
+    @Test
+    @DisplayName("片段应该合并成较少的帧")
+    void shouldCoalesceTokenFrames() throws Exception {
+        String reply = "RAG 是一种结合了信息检索和文本生成的技术，可以让模型基于外部知识回答问题。";
+        server.reply(reply).tokensPerSecond(1000);
+        GatewayClient client = connect();
+        client.chat("c1", "什么是 RAG？");
+
+        assertTrue(client.await("done", "c1"));
+        assertEquals(reply, client.text("c1"));
+        long tokenFrames = client.frames("token", "c1").size();
+        int tokens = MockOpenAiServer.tokenize(reply).size();
+        assertTrue(tokenFrames < tokens, "帧数 " + tokenFrames + " 应该少于片段数 " + tokens);
+
+        log.info("{} 个片段合并为 {} 帧", tokens, tokenFrames);
+        log.info("\n✅ 测试通过：片段合并成帧\n");
+    }
+
+    @Test
+    @DisplayName("取消对话应该中止上游 HTTP 流，其它对话不受影响")
+    void shouldCancelSingleConversation() throws Exception {
+        server.responder(message -> message.repeat(50)).tokensPerSecond(100);
+        GatewayClient client = connect();
+        client.chat("slow", "很长的回答");
+        client.chat("other", "短");
+
+        assertTrue(client.await("token", "slow"));
+        client.cancel("slow");
+
+        assertTrue(client.await("cancelled", "slow"));
+        assertTrue(client.await("done", "other"));
+        assertEquals("短".repeat(50), client.text("other"));
+        assertTrue(awaitCondition(() -> server.abortedStreamCount() == 1));
+        assertTrue(client.frames("done", "slow").isEmpty());
+
+        log.info("\n✅ 测试通过：取消单个对话\n");
+    }
+
+    @Test
+    @DisplayName("连接断开应该取消所有对话")
+    void shouldCancelConversationsOnDisconnect() throws Exception {
+        server.responder(message -> message.repeat(50)).tokensPerSecond(100);
+        GatewayClient client = connect();
+        client.chat("c1", "很长的回答");
+        client.chat("c2", "另一个很长的回答");
+        assertTrue(client.await("token", "c1"));
+        assertTrue(client.await("token", "c2"));
+
+        client.close();
+
+        assertTrue(awaitCondition(() -> server.abortedStreamCount() == 2));
+        assertTrue(awaitCondition(() -> gateway.activeSessions() == 0 && gateway.activeConversations() == 0));
+
+        log.info("\n✅ 测试通过：连接断开后取消了所有对话\n");
+    }
+
+    @Test
+    @DisplayName("超过对话数上限时应该返回错误且不影响取消")
+    void shouldRejectTooManyConversations() throws Exception {
+        server.responder(message -> message.repeat(50)).tokensPerSecond(100);
+        GatewayClient client = connect();
+        for (int i = 1; i <= 5; i++) {
+            client.chat("c" + i, "很长的回答");
+        }
+
+        assertTrue(client.await("error", "c5"));
+        client.cancel("c1");
+        assertTrue(client.await("cancelled", "c1"));
+        client.chat("c6", "短");
+        assertTrue(client.await("done", "c6"));
+
+        log.info("错误: {}", client.frames("error", "c5").get(0).path("message").asText());
+        log.info("\n✅ 测试通过：超过上限的对话被拒绝\n");
+    }
+
+    @Test
+    @DisplayName("负载测试：统计每 GB 堆内存可以承载的并发会话数")
+    void shouldReportSessionsPerGigabyte() throws Exception {
+        server.responder(message -> message.repeat(200)).tokensPerSecond(20);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        // 先建立一个会话，排除类加载和线程池初始化的一次性开销
+        GatewayClient first = connect();
+        first.chat("warm-up", "预热");
+        assertTrue(first.await("token", "warm-up"));
+        long baseline = usedHeap(memory);
+
+        List<GatewayClient> sessions = new ArrayList<>();
+        for (int i = 0; i < LOAD_SESSIONS; i++) {
+            GatewayClient client = connect();
+            client.chat("c", "会话 " + i);
+            sessions.add(client);
+        }
+        for (GatewayClient client : sessions) {
+            assertTrue(client.await("token", "c"));
+        }
+        assertEquals(LOAD_SESSIONS + 1, gateway.activeConversations());
+        long used = usedHeap(memory) - baseline;
+
+        long bytesPerSession = Math.max(1, used / LOAD_SESSIONS);
+        long sessionsPerGigabyte = (1L << 30) / bytesPerSession;
+        log.info("{} 个并发会话（每个会话 1 个流式对话），堆增长 {} KB，每会话约 {} KB，每 GB 堆约 {} 个会话",
+                LOAD_SESSIONS, used / 1024, bytesPerSession / 1024, sessionsPerGigabyte);
+        // 模拟服务和客户端在同一个 JVM 中，每个会话包括网关和客户端两端的 WebSocket 状态、上游 HTTP 连接和模拟服务的请求状态
+        assertTrue(sessionsPerGigabyte > 1000, "每 GB 堆会话数: " + sessionsPerGigabyte);
+
+        log.info("\n✅ 测试通过：负载测试完成\n");
+    }
+
+    private GatewayClient connect() throws InterruptedException {
+        GatewayClient client = new GatewayClient();
+        clients.add(client);
+        client.open();
+        return client;
+    }
+
+    private static long usedHeap(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static boolean awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return condition.getAsBoolean();
+    }
+
+    /**
+     * 测试客户端：发送的消息通过 Sinks 写入，收到的帧按顺序保存
+     */
+    private final class GatewayClient {
+
+        private final Sinks.Many<String> outbound = Sinks.many().unicast().onBackpressureBuffer();
+        private final List<JsonNode> frames = new CopyOnWriteArrayList<>();
+        private volatile boolean connected;
+        private Disposable connection;
+
+        private void open() throws InterruptedException {
+            connection = webSocketClient.execute(uri, session -> {
+                connected = true;
+                return session.send(outbound.asFlux().map(session::textMessage))
+                        .and(session.receive()
+                                .doOnNext(message -> frames.add(parse(message.getPayloadAsText())))
+                                .then());
+            }).subscribe();
+            assertTrue(awaitCondition(() -> connected));
+        }
+
+        private void chat(String id, String message) {
+            send(MAPPER.createObjectNode().put("type", "chat").put("id", id).put("message", message));
+        }
+
+        private void cancel(String id) {
+            send(MAPPER.createObjectNode().put("type", "cancel").put("id", id));
+        }
+
+        private void send(JsonNode frame) {
+            synchronized (outbound) {
+                outbound.tryEmitNext(frame.toString()).orThrow();
+            }
+        }
+
+        private boolean await(String type, String id) throws InterruptedException {
+            return awaitCondition(() -> !frames(type, id).isEmpty());
+        }
+
+        private List<JsonNode> frames(String type, String id) {
+            return frames.stream()
+                    .filter(frame -> type.equals(frame.path("type").asText()) && id.equals(frame.path("id").asText()))
+                    .collect(Collectors.toList());
+        }
+
+        private String text(String id) {
+            return frames("token", id).stream()
+                    .map(frame -> frame.path("text").asText())
+                    .collect(Collectors.joining());
+        }
+
+        private void close() {
+            if (connection != null) {
+                connection.dispose();
+            }
+        }
+
+        private JsonNode parse(String text) {
+            try {
+                return MAPPER.readTree(text);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把并发的单条向量请求合并成一次 embedAll 的 EmbeddingModel 装饰器
+ *
+ * RAG 检索、相似度计算等场景里，每个请求线程各自调用 embed(text)，每条文本都是一次 HTTP 往返。
+ * 这个装饰器把单条请求先放进缓冲区：
+ * - 缓冲区里第一条请求到达后等待 window，或者攒够 maxBatchSize 条，立即发出一次 embedAll
+ * - 批量请求在后台线程执行，执行期间新到达的请求进入下一批
+ * - 每个调用方拿到自己那条文本的向量；批量请求失败时，这一批的所有调用方都收到同一个异常
+ *
+ * 多条文本的 embedAll 本身已经是批量请求，直接交给被装饰的模型。
+ * 每个调用方返回的 Response 不带 TokenUsage，token 用量按批记录在被装饰的模型上（见 {@link MeteredEmbeddingModel}）。
+ *
+ * 代价是每条请求最多多等 window；QPS 很低时几乎每批只有一条，只剩这部分额外延迟。
+ * 可以通过 {@link #fromEnv(EmbeddingModel)} 从 .env 读取：
+ * <pre>
+ * LANGCHAT_EMBEDDING_BATCH_WINDOW_MS=2   # 攒批的最长等待时间，0 表示不攒批
+ * LANGCHAT_EMBEDDING_BATCH_SIZE=16       # 每批最多的文本数，不要超过服务端的限制
+ * </pre>
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class BatchingEmbeddingModel implements EmbeddingModel {
+
+    public static final String WINDOW_MS = "LANGCHAT_EMBEDDING_BATCH_WINDOW_MS";
+    public static final String BATCH_SIZE = "LANGCHAT_EMBEDDING_BATCH_SIZE";
+
+    private static final int DEFAULT_WINDOW_MS = 2;
+    private static final int DEFAULT_BATCH_SIZE = 16;
+
+    private static final ScheduledExecutorService TIMER = DaemonThreads.scheduler("langchat-embedding-batch-timer");
+
+    private static final Executor SHARED_EXECUTOR = DaemonThreads.boundedPool("langchat-embedding-batch", 16, 1024);
+
+    private final EmbeddingModel delegate;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Executor executor;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder segments = new LongAdder();
+
+    /**
+     * 以下字段由 this 保护
+     */
+    private List<Pending> buffer = new ArrayList<>();
+    private ScheduledFuture<?> flushTimer;
+
+    private BatchingEmbeddingModel(Builder builder) {
+        this.delegate = builder.delegate;
+        this.windowNanos = builder.window.toNanos();
+        this.maxBatchSize = builder.maxBatchSize;
+        this.executor = builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 是否在 .env 中开启了攒批
+     */
+    public static boolean isConfigured() {
+        return EnvConfig.snapshot().getInt(WINDOW_MS, 0) > 0;
+    }
+
+    /**
+     * 从 EnvConfig 读取攒批参数
+     */
+    public static BatchingEmbeddingModel fromEnv(EmbeddingModel delegate) {
+        EnvSnapshot env = EnvConfig.snapshot();
+        return builder()
+                .delegate(delegate)
+                .window(Duration.ofMillis(env.getInt(WINDOW_MS, DEFAULT_WINDOW_MS)))
+                .maxBatchSize(env.getInt(BATCH_SIZE, DEFAULT_BATCH_SIZE))
+                .build();
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        if (textSegments.size() != 1 || maxBatchSize <= 1 || windowNanos <= 0) {
+            return delegate.embedAll(textSegments);
+        }
+        CompletableFuture<Embedding> future = enqueue(textSegments.get(0));
+        try {
+            return Response.from(List.of(future.get()));
+        } catch (InterruptedException e) {
+            // 文本已经进入批次，结果直接丢弃
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private CompletableFuture<Embedding> enqueue(TextSegment segment) {
+        Pending pending = new Pending(segment);
+        List<Pending> full = null;
+        synchronized (this) {
+            buffer.add(pending);
+            if (buffer.size() >= maxBatchSize) {
+                full = takeBuffer();
+            } else if (buffer.size() == 1) {
+                List<Pending> batch = buffer;
+                flushTimer = TIMER.schedule(() -> flushOnTimer(batch), windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return pending.future;
+    }
+
+    /**
+     * 窗口到期：只发出计时器对应的那一批，这一批已经因为攒满发出时什么都不做
+     */
+    private void flushOnTimer(List<Pending> batch) {
+        synchronized (this) {
+            if (buffer != batch) {
+                return;
+            }
+            takeBuffer();
+        }
+        dispatch(batch);
+    }
+
+    /**
+     * 取出当前缓冲区并取消它的计时器，调用方必须持有 this
+     */
+    private List<Pending> takeBuffer() {
+        List<Pending> batch = buffer;
+        buffer = new ArrayList<>();
+        if (flushTimer != null) {
+            flushTimer.cancel(false);
+            flushTimer = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(List<Pending> batch) {
+        batches.increment();
+        segments.add(batch.size());
+        try {
+            executor.execute(() -> embedBatch(batch));
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    private void embedBatch(List<Pending> batch) {
+        List<TextSegment> textSegments = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            textSegments.add(pending.segment);
+        }
+        try {
+            List<Embedding> embeddings = delegate.embedAll(textSegments).content();
+            if (embeddings.size() != batch.size()) {
+                throw new IllegalStateException("向量数量 " + embeddings.size() + " 与文本数量 " + batch.size() + " 不一致");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(embeddings.get(i));
+            }
+        } catch (Throwable e) {
+            log.debug("批量向量请求失败（{} 条）: {}", batch.size(), e.toString());
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * 发出的批量请求数
+     */
+    public long batchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * 通过批量请求处理的文本数
+     */
+    public long segmentCount() {
+        return segments.sum();
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public String modelName() {
+        return delegate.modelName();
+    }
+
+    /**
+     * 一条等待攒批的文本
+     */
+    private static final class Pending {
+        private final TextSegment segment;
+        private final CompletableFuture<Embedding> future = new CompletableFuture<>();
+
+        private Pending(TextSegment segment) {
+            this.segment = segment;
+        }
+    }
+
+    public static final class Builder {
+        private EmbeddingModel delegate;
+        private Duration window = Duration.ofMillis(DEFAULT_WINDOW_MS);
+        private int maxBatchSize = DEFAULT_BATCH_SIZE;
+        private Executor executor = SHARED_EXECUTOR;
+
+        private Builder() {
+        }
+
+        public Builder delegate(EmbeddingModel delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * 第一条文本到达后最多等待多久再发出批量请求，默认 2ms
+         */
+        public Builder window(Duration window) {
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * 每批最多的文本数，默认 16；攒满立即发出
+         */
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * 执行批量请求的线程池，默认为共享的有界守护线程池（16 个线程，排队 1024 批）；
+         * 线程池拒绝时这一批的调用方都收到 RejectedExecutionException
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public BatchingEmbeddingModel build() {
+            Objects.requireNonNull(delegate, "delegate");
+            Objects.requireNonNull(window, "window");
+            Objects.requireNonNull(executor, "executor");
+            return new BatchingEmbeddingModel(this);
+        }
+    }
+}
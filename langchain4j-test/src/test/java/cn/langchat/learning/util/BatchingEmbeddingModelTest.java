@@ -0,0 +1,220 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 向量请求攒批测试
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("向量请求攒批测试")
+class BatchingEmbeddingModelTest {
+
+    @TempDir
+    Path configDir;
+
+    private MockOpenAiServer server;
+    private HttpTransport transport;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start()
+                .latency(Duration.ofMillis(50));
+        transport = new HttpTransport();
+        callers = Executors.newFixedThreadPool(32);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        transport.close();
+        server.close();
+        EnvConfig.reload();
+    }
+
+    @Test
+    @DisplayName("并发的单条请求应该合并成批量请求，每个调用方拿到自己的向量")
+    void shouldBatchConcurrentCalls() {
+        BatchingEmbeddingModel embeddingModel = BatchingEmbeddingModel.builder()
+                .delegate(noRetryEmbeddingModel())
+                .window(Duration.ofMillis(20))
+                .maxBatchSize(16)
+                .build();
+
+        List<String> texts = new ArrayList<>();
+        List<CompletableFuture<float[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            String text = "文档片段 " + i;
+            texts.add(text);
+            futures.add(CompletableFuture.supplyAsync(() -> embeddingModel.embed(text).content().vector(), callers));
+        }
+
+        for (int i = 0; i < texts.size(); i++) {
+            float[] vector = futures.get(i).join();
+            assertArrayEquals(MockOpenAiServer.embed(texts.get(i), vector.length), vector, 1e-6f);
+        }
+
+        log.info("64 条请求，批量请求 {} 次", server.requestCount());
+        assertEquals(64, embeddingModel.segmentCount());
+        assertEquals(embeddingModel.batchCount(), server.requestCount());
+        assertTrue(server.requestCount() <= 16, "并发请求应该被合并: " + server.requestCount());
+
+        log.info("\n✅ 测试通过：合并并发的单条请求\n");
+    }
+
+    @Test
+    @DisplayName("不满一批时应该在窗口到期后发出，多条文本的请求直接发出")
+    void shouldFlushAfterWindow() {
+        BatchingEmbeddingModel embeddingModel = BatchingEmbeddingModel.builder()
+                .delegate(noRetryEmbeddingModel())
+                .window(Duration.ofMillis(100))
+                .maxBatchSize(16)
+                .build();
+        embeddingModel.embed("预热");
+
+        long start = System.nanoTime();
+        float[] vector = embeddingModel.embed("你好").content().vector();
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertArrayEquals(MockOpenAiServer.embed("你好", vector.length), vector, 1e-6f);
+        assertTrue(elapsedMillis >= 100 && elapsedMillis < 1000, "应该等待一个窗口: " + elapsedMillis);
+
+        Response<List<Embedding>> response = embeddingModel.embedAll(List.of(
+                TextSegment.from("第一段"), TextSegment.from("第二段")));
+        assertEquals(2, response.content().size());
+        assertNotNull(response.tokenUsage());
+        assertEquals(2, embeddingModel.batchCount());
+        assertEquals(3, server.requestCount());
+
+        log.info("\n✅ 测试通过：窗口到期发出（{}ms）\n", elapsedMillis);
+    }
+
+    @Test
+    @DisplayName("批量请求失败时这一批的所有调用方都应该收到异常")
+    void shouldFailWholeBatch() {
+        BatchingEmbeddingModel embeddingModel = BatchingEmbeddingModel.builder()
+                .delegate(noRetryEmbeddingModel())
+                .window(Duration.ofSeconds(5))
+                .maxBatchSize(4)
+                .build();
+        server.failNext(500, 1);
+
+        List<CompletableFuture<Embedding>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String text = "文本 " + i;
+            futures.add(CompletableFuture.supplyAsync(() -> embeddingModel.embed(text).content(), callers));
+        }
+        for (CompletableFuture<Embedding> future : futures) {
+            CompletionException error = assertThrows(CompletionException.class, future::join);
+            assertInstanceOf(InternalServerException.class, error.getCause());
+        }
+        assertEquals(1, server.requestCount());
+
+        log.info("\n✅ 测试通过：批量失败\n");
+    }
+
+    @Test
+    @DisplayName("上游并发受限时攒批应该成倍提高吞吐")
+    void shouldImproveThroughput() {
+        // 模拟每次请求有固定开销、并发上限为 2 的向量服务
+        Semaphore permits = new Semaphore(2);
+        EmbeddingModel upstream = new EmbeddingModel() {
+            @Override
+            public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+                permits.acquireUninterruptibly();
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    permits.release();
+                }
+                List<Embedding> embeddings = new ArrayList<>();
+                textSegments.forEach(segment -> embeddings.add(Embedding.from(MockOpenAiServer.embed(segment.text(), 8))));
+                return Response.from(embeddings);
+            }
+        };
+        BatchingEmbeddingModel batching = BatchingEmbeddingModel.builder()
+                .delegate(upstream)
+                .window(Duration.ofMillis(2))
+                .maxBatchSize(16)
+                .build();
+
+        long unbatchedMillis = run(upstream, 200);
+        long batchedMillis = run(batching, 200);
+
+        log.info("200 条请求：逐条 {}ms，攒批 {}ms（{} 批）", unbatchedMillis, batchedMillis, batching.batchCount());
+        assertTrue(batchedMillis * 3 < unbatchedMillis, "攒批后吞吐应该成倍提高");
+
+        log.info("\n✅ 测试通过：攒批提高吞吐\n");
+    }
+
+    @Test
+    @DisplayName("配置了攒批窗口时 TestModelProvider 应该返回攒批的模型")
+    void shouldConfigureFromEnv() throws IOException {
+        Files.writeString(configDir.resolve(".env"), String.join("\n",
+                "LANGCHAT_BASE_URL=" + server.baseUrl(),
+                "LANGCHAT_API_KEY=" + MockOpenAiServer.API_KEY,
+                "LANGCHAT_EMBEDDING_BATCH_WINDOW_MS=5",
+                "LANGCHAT_EMBEDDING_BATCH_SIZE=8"));
+        EnvConfig.reload(configDir);
+
+        EmbeddingModel embeddingModel = TestModelProvider.getEmbeddingModel();
+
+        BatchingEmbeddingModel batching = assertInstanceOf(BatchingEmbeddingModel.class, embeddingModel);
+        float[] vector = embeddingModel.embed("你好").content().vector();
+        assertArrayEquals(MockOpenAiServer.embed("你好", vector.length), vector, 1e-6f);
+        assertEquals(1, batching.batchCount());
+
+        log.info("\n✅ 测试通过：从 .env 读取攒批参数\n");
+    }
+
+    private long run(EmbeddingModel embeddingModel, int requests) {
+        long start = System.nanoTime();
+        List<CompletableFuture<Embedding>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            String text = "查询 " + i;
+            futures.add(CompletableFuture.supplyAsync(() -> embeddingModel.embed(text).content(), callers));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).join();
+        return Duration.ofNanos(System.nanoTime() - start).toMillis();
+    }
+
+    private EmbeddingModel noRetryEmbeddingModel() {
+        return OpenAiEmbeddingModel.builder()
+                .httpClientBuilder(transport.clientBuilder())
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-embedding")
+                .maxRetries(0)
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package cn.langchat.learning.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 舱壁：限制一个端点同时执行和排队的请求数
+ *
+ * 最多 maxConcurrent 个请求同时执行，另外最多 maxQueued 个请求按先后顺序等待，每个请求最多等待 maxWait。
+ * 一个端点变慢时，占用的线程数有上限，其它端点的请求不受影响
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class Bulkhead {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public Bulkhead(int maxConcurrent, int maxQueued, long maxWait, TimeUnit unit) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * 获取执行许可，没有空闲许可时排队等待
+     *
+     * @return 排队数已达上限或等待超时时返回 false
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        // 公平模式下带超时的 tryAcquire 不会插队到排队的请求前面
+        if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+        int current;
+        do {
+            current = queued.get();
+            if (current >= maxQueued) {
+                return false;
+            }
+        } while (!queued.compareAndSet(current, current + 1));
+        try {
+            return permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * 正在执行的请求数
+     */
+    public int activeCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * 正在排队的请求数
+     */
+    public int queuedCount() {
+        return queued.get();
+    }
+}
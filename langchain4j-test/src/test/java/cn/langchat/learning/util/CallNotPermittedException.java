@@ -0,0 +1,47 @@
+package cn.langchat.learning.util;
+
+/**
+ * 请求被 {@link EndpointIsolation} 拒绝：舱壁已满或熔断器处于打开状态
+ *
+ * 请求没有发送到模型服务，不应该立即重试，{@link Resilience} 也不会重试这个异常
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 拒绝原因
+     */
+    public enum Reason {
+        /**
+         * 并发数和排队数都已达上限，或排队超时
+         */
+        BULKHEAD_FULL,
+        /**
+         * 熔断器打开，或半开状态下的探测请求数已达上限
+         */
+        CIRCUIT_OPEN
+    }
+
+    private final String endpoint;
+    private final Reason reason;
+
+    public CallNotPermittedException(String endpoint, Reason reason) {
+        super(reason == Reason.BULKHEAD_FULL
+                ? "端点 " + endpoint + " 的并发请求已达上限"
+                : "端点 " + endpoint + " 已熔断", null, false, false);
+        this.endpoint = endpoint;
+        this.reason = reason;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
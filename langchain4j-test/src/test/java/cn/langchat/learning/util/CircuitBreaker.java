@@ -0,0 +1,200 @@
+package cn.langchat.learning.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * 熔断器
+ *
+ * - CLOSED：正常放行，记录最近 windowSize 次请求的结果；请求数达到 windowSize 且失败率达到阈值时打开
+ * - OPEN：直接拒绝所有请求，openDuration 之后的第一个请求使熔断器进入半开状态
+ * - HALF_OPEN：最多放行 halfOpenProbes 个探测请求，全部成功后关闭，任何一个失败都重新打开
+ *
+ * 每次放行返回一个 {@link Permission}，记录放行时的状态代数（每次状态变化加一）。结果只对同一代的状态生效：
+ * 打开之前放行、在半开期间才返回的慢请求不会被当作探测结果，只有半开时放行的探测请求才能关闭熔断器
+ *
+ * 状态变化通过 {@link TransitionListener} 通知，用于记录指标
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @FunctionalInterface
+    public interface TransitionListener {
+        void onTransition(State from, State to);
+    }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final TransitionListener listener;
+
+    /**
+     * 最近请求的结果，true 表示失败
+     */
+    private final boolean[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAtNanos;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int windowSize, Duration openDuration,
+                          int halfOpenProbes, TransitionListener listener) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.outcomes = new boolean[windowSize];
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+        this.listener = listener;
+    }
+
+    /**
+     * 请求前调用，返回的许可必须交给 onSuccess、onFailure 或 releasePermission 之一
+     *
+     * @return 许可；熔断器打开或半开探测名额已满时返回 null
+     */
+    public synchronized Permission tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) {
+                return null;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= halfOpenProbes) {
+                return null;
+            }
+            probesInFlight++;
+            return new Permission(generation, true);
+        }
+        return new Permission(generation, false);
+    }
+
+    /**
+     * 请求没有执行，或者失败原因与端点无关（例如请求参数错误），不记录结果
+     */
+    public synchronized void releasePermission(Permission permission) {
+        if (isCurrent(permission) && permission.probe) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized void onSuccess(Permission permission) {
+        if (!isCurrent(permission)) {
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        } else if (state == State.HALF_OPEN && permission.probe) {
+            probesInFlight--;
+            if (++probeSuccesses >= halfOpenProbes) {
+                transitionTo(State.CLOSED);
+            }
+        }
+    }
+
+    public synchronized void onFailure(Permission permission) {
+        if (!isCurrent(permission)) {
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (recorded == outcomes.length && failureRate() >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        } else if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * 窗口内的失败率，单位 %
+     */
+    public synchronized double failureRate() {
+        return recorded == 0 ? 0 : failures * 100.0 / recorded;
+    }
+
+    /**
+     * 许可是否在当前这一代状态下放行，之前的状态放行的请求结果直接丢弃
+     */
+    private boolean isCurrent(Permission permission) {
+        if (permission.generation != generation) {
+            log.debug("熔断器 {} 忽略上一个状态放行的请求结果", name);
+            return false;
+        }
+        return true;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State to) {
+        State from = state;
+        if (to == State.OPEN) {
+            log.warn("熔断器 {} 打开，失败率 {}%", name, String.format("%.1f", failureRate()));
+        } else {
+            log.info("熔断器 {}: {} -> {}", name, from, to);
+        }
+        state = to;
+        generation++;
+        switch (to) {
+            case OPEN -> openedAtNanos = System.nanoTime();
+            case HALF_OPEN -> {
+                probesInFlight = 0;
+                probeSuccesses = 0;
+            }
+            case CLOSED -> {
+                next = 0;
+                recorded = 0;
+                failures = 0;
+            }
+        }
+        listener.onTransition(from, to);
+    }
+
+    /**
+     * 一次放行：放行时的状态代数，以及是否为半开状态的探测请求
+     */
+    public static final class Permission {
+        private final long generation;
+        private final boolean probe;
+
+        private Permission(long generation, boolean probe) {
+            this.generation = generation;
+            this.probe = probe;
+        }
+
+        public boolean isProbe() {
+            return probe;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package cn.langchat.learning.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 预编译的 {{变量}} 提示词模板
+ *
+ * String.format 每次调用都重新解析格式串，并为每个参数创建 Formatter 对象；提示词模板通常是常量，
+ * 只需要解析一次：
+ * - 编译时把模板拆成静态文本数组和变量槽位，渲染时依次拼接，不再扫描模板
+ * - {@link #render(Object...)} 一次算出结果的长度，只分配结果字符串本身，没有中间缓冲区和扩容
+ * - {@link #renderTo(StringBuilder, Object...)} 追加到调用方的 StringBuilder，适合循环拼接（如 RAG 的文档上下文）
+ * - 静态文本的 token 数只计算一次（见 {@link #staticTokenCount()}），估算提示词 token 数时只需计算变量部分
+ *
+ * 变量写作 {{name}}，两侧空白会被忽略，同一个变量可以出现多次。模板应该放在 static final 字段中复用：
+ * <pre>
+ * private static final CompiledPromptTemplate PROMPT = CompiledPromptTemplate.compile("文本：{{text}}");
+ * String prompt = PROMPT.render(text);
+ * </pre>
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class CompiledPromptTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final String template;
+    /**
+     * 静态文本，比槽位多一个：literals[0] slot[0] literals[1] ... slot[n-1] literals[n]
+     */
+    private final String[] literals;
+    /**
+     * 每个槽位对应的变量下标
+     */
+    private final int[] slots;
+    private final List<String> variables;
+    private final int staticLength;
+    /**
+     * 静态文本的 token 数，-1 表示尚未计算
+     */
+    private volatile int staticTokenCount = -1;
+
+    private CompiledPromptTemplate(String template, String[] literals, int[] slots, List<String> variables) {
+        this.template = template;
+        this.literals = literals;
+        this.slots = slots;
+        this.variables = variables;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.staticLength = length;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @throws IllegalArgumentException {{ 没有闭合或变量名为空
+     */
+    public static CompiledPromptTemplate compile(String template) {
+        Objects.requireNonNull(template, "template");
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = template.indexOf(OPEN, position);
+            if (open < 0) {
+                literals.add(template.substring(position));
+                break;
+            }
+            int close = template.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("模板中的 {{ 没有闭合（位置 " + open + "）: " + template);
+            }
+            String name = template.substring(open + OPEN.length(), close).strip();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("模板中的变量名为空（位置 " + open + "）: " + template);
+            }
+            int index = variables.indexOf(name);
+            if (index < 0) {
+                index = variables.size();
+                variables.add(name);
+            }
+            literals.add(template.substring(position, open));
+            slots.add(index);
+            position = close + CLOSE.length();
+        }
+        return new CompiledPromptTemplate(template,
+                literals.toArray(new String[0]),
+                slots.stream().mapToInt(Integer::intValue).toArray(),
+                List.copyOf(variables));
+    }
+
+    /**
+     * 按变量在模板中第一次出现的顺序传值渲染
+     *
+     * @throws IllegalArgumentException 值的个数与变量个数不一致，或有值为 null
+     */
+    public String render(Object... values) {
+        checkValues(values);
+        String[] parts = new String[literals.length + slots.length];
+        parts[0] = literals[0];
+        for (int i = 0; i < slots.length; i++) {
+            parts[2 * i + 1] = values[slots[i]].toString();
+            parts[2 * i + 2] = literals[i + 1];
+        }
+        // String.join 先算出总长度和编码，只分配一次结果数组，不经过中间缓冲区
+        return String.join("", parts);
+    }
+
+    /**
+     * 按变量名传值渲染
+     *
+     * @throws IllegalArgumentException 缺少某个变量的值
+     */
+    public String render(Map<String, ?> values) {
+        Object[] ordered = new Object[variables.size()];
+        for (int i = 0; i < ordered.length; i++) {
+            String name = variables.get(i);
+            ordered[i] = values.get(name);
+            if (ordered[i] == null) {
+                throw new IllegalArgumentException("缺少变量 '" + name + "' 的值");
+            }
+        }
+        return render(ordered);
+    }
+
+    /**
+     * 追加到 out，按变量在模板中第一次出现的顺序传值；会先把 out 扩容到足够的长度
+     *
+     * @return out
+     */
+    public StringBuilder renderTo(StringBuilder out, Object... values) {
+        checkValues(values);
+        out.ensureCapacity(out.length() + lengthOf(values));
+        out.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            append(out, values[slots[i]]);
+            out.append(literals[i + 1]);
+        }
+        return out;
+    }
+
+    /**
+     * 估算渲染结果的字符数，{@link #renderTo(StringBuilder, Object...)} 按这个值预留容量；
+     * 循环拼接前可以先累加，一次分配出足够大的 StringBuilder
+     *
+     * @throws IllegalArgumentException 值的个数与变量个数不一致，或有值为 null
+     */
+    public int estimateLength(Object... values) {
+        checkValues(values);
+        return lengthOf(values);
+    }
+
+    /**
+     * 静态文本（不含变量）的总字符数，用于预估拼接结果的长度
+     */
+    public int staticLength() {
+        return staticLength;
+    }
+
+    /**
+     * 静态文本的 token 数，第一次调用时计算
+     */
+    public int staticTokenCount() {
+        int count = staticTokenCount;
+        if (count < 0) {
+            count = 0;
+            for (String literal : literals) {
+                if (!literal.isEmpty()) {
+                    count += TokenEstimators.openAi().estimateTokenCountInText(literal);
+                }
+            }
+            staticTokenCount = count;
+        }
+        return count;
+    }
+
+    /**
+     * 估算渲染结果的 token 数：静态部分使用预先计算的值，只计算变量部分；
+     * 静态文本和变量衔接处的 BPE 合并会被忽略，与整体计算的结果可能差几个 token
+     */
+    public int estimateTokenCount(Object... values) {
+        checkValues(values);
+        int count = staticTokenCount();
+        for (int slot : slots) {
+            String text = String.valueOf(values[slot]);
+            if (!text.isEmpty()) {
+                count += TokenEstimators.openAi().estimateTokenCountInText(text);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 变量名，按在模板中第一次出现的顺序
+     */
+    public List<String> variables() {
+        return variables;
+    }
+
+    public String template() {
+        return template;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    private void checkValues(Object[] values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException("模板需要 " + variables.size() + " 个变量 " + variables
+                    + "，实际传入 " + values.length + " 个");
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                throw new IllegalArgumentException("缺少变量 '" + variables.get(i) + "' 的值");
+            }
+        }
+    }
+
+    private int lengthOf(Object[] values) {
+        int length = staticLength;
+        for (int slot : slots) {
+            Object value = values[slot];
+            // 非字符串的值（如序号）一般很短，按 11 个字符（int 的最大长度）预留
+            length += value instanceof CharSequence text ? text.length() : 11;
+        }
+        return length;
+    }
+
+    private static void append(StringBuilder out, Object value) {
+        if (value instanceof CharSequence text) {
+            out.append(text);
+        } else if (value instanceof Integer number) {
+            out.append(number.intValue());
+        } else if (value instanceof Long number) {
+            out.append(number.longValue());
+        } else {
+            out.append(value);
+        }
+    }
+}
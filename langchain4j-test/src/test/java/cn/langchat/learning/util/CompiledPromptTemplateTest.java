@@ -0,0 +1,137 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 预编译提示词模板测试
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("预编译提示词模板测试")
+class CompiledPromptTemplateTest {
+
+    private static final CompiledPromptTemplate RAG_PROMPT = CompiledPromptTemplate.compile(
+            "基于以下文档回答问题。如果文档中没有答案，请说不知道。\n\n{{context}}\n\n问题: {{question}}");
+
+    @Test
+    @DisplayName("渲染结果应该与 String.format 一致")
+    void shouldRenderLikeStringFormat() {
+        CompiledPromptTemplate document = CompiledPromptTemplate.compile("[文档 {{ index }}: {{title}}]\n{{content}}\n\n");
+
+        assertEquals(List.of("index", "title", "content"), document.variables());
+        assertEquals(String.format("[文档 %d: %s]\n%s\n\n", 1, "标题", "内容"), document.render(1, "标题", "内容"));
+        assertEquals(String.format("基于以下文档回答问题。如果文档中没有答案，请说不知道。\n\n%s\n\n问题: %s", "上下文", "问题"),
+                RAG_PROMPT.render("上下文", "问题"));
+
+        StringBuilder context = new StringBuilder();
+        document.renderTo(context, 1, "A", "a");
+        document.renderTo(context, 2, new StringBuilder("B"), "b");
+        assertEquals("[文档 1: A]\na\n\n[文档 2: B]\nb\n\n", context.toString());
+        // 序号按 int 的最大长度 11 个字符估算
+        assertEquals(document.staticLength() + 11 + 1 + 1, document.estimateLength(1, "A", "a"));
+
+        log.info("\n✅ 测试通过：渲染结果与 String.format 一致\n");
+    }
+
+    @Test
+    @DisplayName("应该支持重复变量、按名称渲染和没有变量的模板")
+    void shouldSupportNamedAndRepeatedVariables() {
+        CompiledPromptTemplate template = CompiledPromptTemplate.compile("{{name}}，你好！{{name}} 今年 {{age}} 岁");
+
+        assertEquals(List.of("name", "age"), template.variables());
+        assertEquals("张三，你好！张三 今年 25 岁", template.render(Map.of("name", "张三", "age", 25)));
+        assertEquals("张三，你好！张三 今年 25 岁", template.render("张三", 25));
+
+        CompiledPromptTemplate constant = CompiledPromptTemplate.compile("没有变量");
+        assertEquals("没有变量", constant.render());
+        assertEquals(4, constant.staticLength());
+
+        log.info("\n✅ 测试通过：重复变量和按名称渲染\n");
+    }
+
+    @Test
+    @DisplayName("模板或变量值不合法时应该抛出 IllegalArgumentException")
+    void shouldRejectInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledPromptTemplate.compile("文本：{{text"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledPromptTemplate.compile("文本：{{ }}"));
+
+        CompiledPromptTemplate template = CompiledPromptTemplate.compile("{{a}} 和 {{b}}");
+        assertThrows(IllegalArgumentException.class, () -> template.render("只有一个"));
+        assertThrows(IllegalArgumentException.class, () -> template.render("a", null));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> template.render(Map.of("a", "1")));
+        assertTrue(error.getMessage().contains("'b'"));
+
+        log.info("\n✅ 测试通过：拒绝不合法的输入\n");
+    }
+
+    @Test
+    @DisplayName("静态部分的 token 数应该预先计算，估算值接近整体计算的结果")
+    void shouldPrecomputeStaticTokenCount() {
+        OpenAiTokenCountEstimator estimator = new OpenAiTokenCountEstimator("gpt-4");
+        String staticText = "基于以下文档回答问题。如果文档中没有答案，请说不知道。\n\n" + "\n\n问题: ";
+        int expectedStatic = estimator.estimateTokenCountInText("基于以下文档回答问题。如果文档中没有答案，请说不知道。\n\n")
+                + estimator.estimateTokenCountInText("\n\n问题: ");
+
+        assertEquals(expectedStatic, RAG_PROMPT.staticTokenCount());
+        assertEquals(staticText.length(), RAG_PROMPT.staticLength());
+
+        String context = "LangChain4j 是一个 Java 的大模型应用开发框架。".repeat(20);
+        int estimated = RAG_PROMPT.estimateTokenCount(context, "什么是 LangChain4j？");
+        int actual = estimator.estimateTokenCountInText(RAG_PROMPT.render(context, "什么是 LangChain4j？"));
+        log.info("估算 {} token，整体计算 {} token", estimated, actual);
+        assertTrue(Math.abs(estimated - actual) <= 4, "估算值应该接近整体计算的结果");
+
+        log.info("\n✅ 测试通过：预先计算静态 token 数\n");
+    }
+
+    @Test
+    @DisplayName("渲染大提示词时除结果外应该几乎不分配内存")
+    void shouldRenderWithoutExtraAllocation() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeAllocationTracking(threads);
+
+        String context = "[文档 1: LangChain4j 简介]\nLangChain4j 是一个 Java 的大模型应用开发框架，提供统一的模型接口。\n\n".repeat(500);
+        String question = "LangChain4j 支持哪些模型？";
+        // 预热，排除类加载和 JIT 的干扰
+        for (int i = 0; i < 2_000; i++) {
+            RAG_PROMPT.render(context, question);
+            String.format("基于以下文档回答问题。如果文档中没有答案，请说不知道。\n\n%s\n\n问题: %s", context, question);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        String prompt = RAG_PROMPT.render(context, question);
+        long templateBytes = threads.getThreadAllocatedBytes(threadId) - before;
+
+        before = threads.getThreadAllocatedBytes(threadId);
+        String formatted = String.format("基于以下文档回答问题。如果文档中没有答案，请说不知道。\n\n%s\n\n问题: %s", context, question);
+        long formatBytes = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(formatted, prompt);
+        // 含中文的结果字符串每个字符占 2 字节
+        long outputBytes = 2L * prompt.length();
+        log.info("提示词 {} 字符：模板分配 {} 字节，String.format 分配 {} 字节", prompt.length(), templateBytes, formatBytes);
+        assertTrue(templateBytes < outputBytes + 1024, "除结果外不应该有额外的分配: " + templateBytes);
+        assertTrue(templateBytes < formatBytes, "应该比 String.format 分配得少");
+
+        log.info("\n✅ 测试通过：渲染时几乎没有额外分配\n");
+    }
+
+    private static void assumeAllocationTracking(com.sun.management.ThreadMXBean threads) {
+        assumeTrue(threads.isThreadAllocatedMemorySupported()
+                && threads.isThreadAllocatedMemoryEnabled(), "JVM 不支持统计线程分配的内存");
+    }
+}
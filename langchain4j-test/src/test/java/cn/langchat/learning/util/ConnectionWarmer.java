@@ -0,0 +1,84 @@
+package cn.langchat.learning.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接预热器
+ *
+ * 启动时预热 connections 个到 baseUrl 的连接，之后定期检查：
+ * 传输层空闲超过 idleInterval 时重新预热，防止连接被服务端或代理的空闲超时关闭，
+ * 下一个请求又要重新握手。有真实流量时连接本身就是热的，不会发出额外请求
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class ConnectionWarmer implements AutoCloseable {
+
+    private final HttpTransport transport;
+    private final String baseUrl;
+    private final int connections;
+    private final Duration idleInterval;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger warmUpCount = new AtomicInteger();
+
+    private ConnectionWarmer(HttpTransport transport, String baseUrl, int connections, Duration idleInterval) {
+        if (connections <= 0) {
+            throw new IllegalArgumentException("connections 必须大于 0");
+        }
+        this.transport = transport;
+        this.baseUrl = baseUrl;
+        this.connections = connections;
+        this.idleInterval = idleInterval;
+        this.scheduler = DaemonThreads.scheduler("langchat-connection-warmer");
+    }
+
+    /**
+     * 同步完成第一次预热后返回，之后在后台按空闲情况重新预热
+     */
+    public static ConnectionWarmer start(HttpTransport transport, String baseUrl, int connections,
+                                         Duration idleInterval) {
+        ConnectionWarmer warmer = new ConnectionWarmer(transport, baseUrl, connections, idleInterval);
+        warmer.warmUp();
+        // 检查间隔取空闲阈值的一半，空闲时间最多超过阈值半个周期
+        long checkMillis = Math.max(1, idleInterval.toMillis() / 2);
+        warmer.scheduler.scheduleWithFixedDelay(warmer::warmUpIfIdle, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        return warmer;
+    }
+
+    /**
+     * 已执行的预热次数
+     */
+    public int warmUpCount() {
+        return warmUpCount.get();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void warmUpIfIdle() {
+        if (transport.isClosed()) {
+            scheduler.shutdown();
+            return;
+        }
+        if (transport.idleTime().compareTo(idleInterval) >= 0) {
+            warmUp();
+        }
+    }
+
+    private void warmUp() {
+        try {
+            transport.warmUp(baseUrl, connections);
+            warmUpCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            log.debug("预热连接失败: {}", e.getMessage());
+        }
+    }
+}
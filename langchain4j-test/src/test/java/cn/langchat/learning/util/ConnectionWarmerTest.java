@@ -0,0 +1,206 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 连接预热测试
+ *
+ * 使用 {@link MockOpenAiServer}，通过 connectionLatency 模拟新连接的握手耗时，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("连接预热测试")
+class ConnectionWarmerTest {
+
+    private static final Duration HANDSHAKE = Duration.ofMillis(150);
+
+    private MockOpenAiServer server;
+    private ModelConfig config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start()
+                .reply("你好，我是模拟模型")
+                .tokensPerSecond(200)
+                .connectionLatency(HANDSHAKE);
+        config = ModelConfig.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("预热后首 token 延迟不应该包含握手耗时")
+    void shouldReduceColdTimeToFirstToken() throws Exception {
+        SimpleMeterRegistry coldMeters = new SimpleMeterRegistry();
+        try (ModelRegistry cold = new ModelRegistry(new HttpTransport(), coldMeters)) {
+            stream(cold.streamingChatModel(config));
+        }
+        SimpleMeterRegistry warmMeters = new SimpleMeterRegistry();
+        try (ModelRegistry warm = new ModelRegistry(new HttpTransport(), warmMeters)) {
+            StreamingChatModel model = lowLatencyStreamingChatModel(warm, config);
+            assertEquals(1, server.modelListCount());
+            stream(model);
+        }
+
+        double coldMillis = ttft(coldMeters).totalTime(TimeUnit.MILLISECONDS);
+        double warmMillis = ttft(warmMeters).totalTime(TimeUnit.MILLISECONDS);
+        assertTrue(coldMillis >= HANDSHAKE.toMillis(), "冷连接首 token 延迟: " + coldMillis);
+        assertTrue(warmMillis < HANDSHAKE.toMillis(), "预热后首 token 延迟: " + warmMillis);
+        assertEquals(2, server.requestCount(), "预热请求不应该计入对话请求");
+
+        log.info("冷连接 TTFT: {} ms，预热后 TTFT: {} ms", coldMillis, warmMillis);
+        log.info("\n✅ 测试通过：预热后首 token 延迟降低\n");
+    }
+
+    @Test
+    @DisplayName("应该分别记录首 token 延迟和传输时间")
+    void shouldRecordTransferTimeSeparately() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (ModelRegistry registry = new ModelRegistry(new HttpTransport(), meterRegistry)) {
+            stream(lowLatencyStreamingChatModel(registry, config));
+        }
+
+        Timer transfer = meterRegistry.get(MeteredStreamingChatModel.TRANSFER_TIMER)
+                .tag("model", "mock-model")
+                .timer();
+        assertEquals(1, transfer.count());
+        assertTrue(transfer.totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertEquals(1, ttft(meterRegistry).count());
+
+        log.info("TTFT: {} ms，传输时间: {} ms", ttft(meterRegistry).totalTime(TimeUnit.MILLISECONDS),
+                transfer.totalTime(TimeUnit.MILLISECONDS));
+        log.info("\n✅ 测试通过：首 token 延迟和传输时间分开记录\n");
+    }
+
+    @Test
+    @DisplayName("传输层空闲时应该重新预热")
+    void shouldRewarmWhenIdle() throws Exception {
+        try (HttpTransport transport = new HttpTransport();
+             ConnectionWarmer warmer = ConnectionWarmer.start(transport, server.baseUrl(), 2, Duration.ofMillis(100))) {
+            assertEquals(1, warmer.warmUpCount());
+            assertEquals(2, server.modelListCount());
+
+            long deadline = System.currentTimeMillis() + 2000;
+            while (warmer.warmUpCount() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(warmer.warmUpCount() >= 3, "预热次数: " + warmer.warmUpCount());
+            assertEquals(0, server.requestCount());
+
+            log.info("预热 {} 次，共 {} 个请求", warmer.warmUpCount(), server.modelListCount());
+        }
+
+        log.info("\n✅ 测试通过：空闲时重新预热\n");
+    }
+
+    @Test
+    @DisplayName("并发预热同一个 Base URL 时应该只保留一个预热器")
+    void shouldKeepOneWarmerPerBaseUrl() throws Exception {
+        try (ModelRegistry registry = new ModelRegistry(new HttpTransport(), new SimpleMeterRegistry())) {
+            List<CompletableFuture<ConnectionWarmer>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> registry.warmUp(server.baseUrl())));
+            }
+            ConnectionWarmer first = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (CompletableFuture<ConnectionWarmer> future : futures) {
+                assertSame(first, future.get(5, TimeUnit.SECONDS));
+            }
+            assertSame(first, registry.warmUp(server.baseUrl()));
+        }
+
+        log.info("\n✅ 测试通过：同一个 Base URL 只有一个预热器\n");
+    }
+
+    @Test
+    @DisplayName("低延迟模型的 chat 调用应该立即返回")
+    void shouldNotBlockCaller() throws Exception {
+        server.latency(Duration.ofMillis(300));
+        try (ModelRegistry registry = new ModelRegistry(new HttpTransport(), new SimpleMeterRegistry())) {
+            StreamingChatModel model = lowLatencyStreamingChatModel(registry, config);
+            CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+
+            long start = System.nanoTime();
+            model.chat("你好", handler(future));
+            long callMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(callMillis < 100, "chat 调用耗时: " + callMillis);
+            assertNotNull(future.get(5, TimeUnit.SECONDS));
+        }
+
+        log.info("\n✅ 测试通过：调用方线程没有被阻塞\n");
+    }
+
+    /**
+     * 低首 token 延迟的组合：预热连接，在后台线程准备请求；
+     * 指标装饰器在最外层，首 token 延迟从调用方提交时开始计算，包含后台线程的排队时间
+     */
+    private static StreamingChatModel lowLatencyStreamingChatModel(ModelRegistry registry, ModelConfig config) {
+        registry.warmUp(config.getBaseUrl());
+        StreamingChatModel model = OpenAiStreamingChatModel.builder()
+                .httpClientBuilder(registry.transport().clientBuilder())
+                .baseUrl(config.getBaseUrl())
+                .apiKey(config.getApiKey())
+                .modelName(config.getModelName())
+                .build();
+        return new MeteredStreamingChatModel(new OffloadingStreamingChatModel(model, registry.transport().executor()),
+                registry.meterRegistry(), config.getModelName());
+    }
+
+    private static void stream(StreamingChatModel model) throws Exception {
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+        model.chat("你好", handler(future));
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    private static StreamingChatResponseHandler handler(CompletableFuture<ChatResponse> future) {
+        return new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        };
+    }
+
+    private static Timer ttft(SimpleMeterRegistry meterRegistry) {
+        return meterRegistry.get(MeteredStreamingChatModel.TTFT_TIMER)
+                .tag("model", "mock-model")
+                .timer();
+    }
+}
@@ -0,0 +1,65 @@
+package cn.langchat.learning.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 守护线程池工具
+ *
+ * 教程中的共享线程池都是守护线程，不会阻止 JVM 退出。默认线程池应该有上限：
+ * 无界的 cachedThreadPool 在下游变慢时会为每个排队的任务新建线程，直到耗尽内存。
+ * {@link #boundedPool(String, int, int)} 的线程和队列都有上限，满了以后抛出 RejectedExecutionException，
+ * 使用方负责把拒绝转换成调用失败
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class DaemonThreads {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private DaemonThreads() {
+        // 工具类，不允许实例化
+    }
+
+    /**
+     * 创建守护线程，线程名为 name-1、name-2 ...
+     */
+    public static ThreadFactory factory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 有上限的线程池：最多 maxThreads 个线程，空闲 60 秒后回收；线程都在忙时最多排队 maxQueued 个任务，
+     * 再提交的任务被拒绝
+     */
+    public static ExecutorService boundedPool(String name, int maxThreads, int maxQueued) {
+        if (maxThreads <= 0 || maxQueued <= 0) {
+            throw new IllegalArgumentException("maxThreads 和 maxQueued 必须大于 0");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(maxQueued),
+                factory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 单线程的定时任务线程池，用于计时器、看门狗等很短的任务
+     */
+    public static ScheduledExecutorService scheduler(String name) {
+        return Executors.newSingleThreadScheduledExecutor(factory(name));
+    }
+}
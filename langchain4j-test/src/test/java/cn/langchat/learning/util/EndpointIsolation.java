@@ -0,0 +1,150 @@
+package cn.langchat.learning.util;
+
+import cn.langchat.learning.util.CallNotPermittedException.Reason;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 单个模型端点的隔离：先经过熔断器，再进入舱壁
+ *
+ * 熔断器打开时请求直接失败，不占用舱壁的排队位置。只有超时、连接失败、429 和 5xx 等端点本身的问题
+ * 计入失败率（与 {@link Resilience} 判断是否重试的规则相同），400 等请求错误不计入，
+ * {@link Error} 等非 RuntimeException 的异常按失败计入。
+ * 与 {@link Resilience} 一起使用时，隔离应该在重试里面，这样每次重试都重新检查熔断器；
+ * 被隔离的模型自身不能再重试（maxRetries(0)），否则一次许可里的多次重试只记录一个结果
+ *
+ * 指标：
+ * - langchat.isolation.rejected：被拒绝的请求数，标签 endpoint、reason（bulkhead_full / circuit_open）
+ * - langchat.circuit.transitions：熔断器状态变化次数，标签 endpoint、from、to
+ * - langchat.circuit.state：熔断器当前状态，0 = closed，1 = open，2 = half_open
+ * - langchat.bulkhead.active / langchat.bulkhead.queued：正在执行和排队的请求数
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class EndpointIsolation {
+
+    public static final String REJECTED_COUNTER = "langchat.isolation.rejected";
+    public static final String TRANSITION_COUNTER = "langchat.circuit.transitions";
+    public static final String STATE_GAUGE = "langchat.circuit.state";
+    public static final String ACTIVE_GAUGE = "langchat.bulkhead.active";
+    public static final String QUEUED_GAUGE = "langchat.bulkhead.queued";
+
+    private final String endpoint;
+    private final IsolationConfig config;
+    private final MeterRegistry registry;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter bulkheadRejections;
+    private final Counter circuitRejections;
+
+    public EndpointIsolation(String endpoint, IsolationConfig config, MeterRegistry registry) {
+        this.endpoint = endpoint;
+        this.config = config;
+        this.registry = registry;
+        this.bulkhead = new Bulkhead(config.getMaxConcurrent(), config.getMaxQueued(),
+                config.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        this.circuitBreaker = new CircuitBreaker(endpoint, config.getFailureRateThreshold(), config.getWindowSize(),
+                config.getOpenDuration(), config.getHalfOpenProbes(), this::recordTransition);
+        this.bulkheadRejections = rejectionCounter(Reason.BULKHEAD_FULL);
+        this.circuitRejections = rejectionCounter(Reason.CIRCUIT_OPEN);
+        Gauge.builder(STATE_GAUGE, circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("熔断器状态：0 = closed，1 = open，2 = half_open")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        Gauge.builder(ACTIVE_GAUGE, bulkhead, Bulkhead::activeCount)
+                .description("正在执行的请求数")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        Gauge.builder(QUEUED_GAUGE, bulkhead, Bulkhead::queuedCount)
+                .description("在舱壁中排队的请求数")
+                .tag("endpoint", endpoint)
+                .register(registry);
+    }
+
+    /**
+     * 在隔离下执行一次调用
+     *
+     * @throws CallNotPermittedException 熔断器打开或舱壁已满，调用没有执行
+     */
+    public <T> T execute(Supplier<T> call) {
+        CircuitBreaker.Permission permission = circuitBreaker.tryAcquirePermission();
+        if (permission == null) {
+            circuitRejections.increment();
+            throw new CallNotPermittedException(endpoint, Reason.CIRCUIT_OPEN);
+        }
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            circuitBreaker.releasePermission(permission);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (!acquired) {
+            circuitBreaker.releasePermission(permission);
+            bulkheadRejections.increment();
+            throw new CallNotPermittedException(endpoint, Reason.BULKHEAD_FULL);
+        }
+        boolean recorded = false;
+        try {
+            T result = call.get();
+            recorded = true;
+            circuitBreaker.onSuccess(permission);
+            return result;
+        } catch (RuntimeException e) {
+            recorded = true;
+            if (Resilience.isRetriable(e)) {
+                circuitBreaker.onFailure(permission);
+            } else {
+                circuitBreaker.releasePermission(permission);
+            }
+            throw e;
+        } finally {
+            // Error 等其他异常也要归还许可，否则半开状态的探测名额永远被占用
+            if (!recorded) {
+                circuitBreaker.onFailure(permission);
+            }
+            bulkhead.release();
+        }
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    public IsolationConfig config() {
+        return config;
+    }
+
+    public Bulkhead bulkhead() {
+        return bulkhead;
+    }
+
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private Counter rejectionCounter(Reason reason) {
+        return Counter.builder(REJECTED_COUNTER)
+                .description("被舱壁或熔断器拒绝的请求数")
+                .tag("endpoint", endpoint)
+                .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                .register(registry);
+    }
+
+    private void recordTransition(CircuitBreaker.State from, CircuitBreaker.State to) {
+        Counter.builder(TRANSITION_COUNTER)
+                .description("熔断器状态变化次数")
+                .tag("endpoint", endpoint)
+                .tag("from", from.name().toLowerCase(Locale.ROOT))
+                .tag("to", to.name().toLowerCase(Locale.ROOT))
+                .register(registry)
+                .increment();
+    }
+}
@@ -0,0 +1,304 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 端点舱壁与熔断器测试
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("端点舱壁与熔断器测试")
+class EndpointIsolationTest {
+
+    @TempDir
+    Path configDir;
+
+    private MockOpenAiServer server;
+    private SimpleMeterRegistry meters;
+    private ModelRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start()
+                .responder(message -> "你刚才说的是：" + message);
+        meters = new SimpleMeterRegistry();
+        registry = new ModelRegistry(new HttpTransport(), meters);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        server.close();
+        EnvConfig.reload();
+    }
+
+    @Test
+    @DisplayName("失败率达到阈值时应该熔断，半开探测成功后恢复")
+    void shouldOpenCircuitAndRecoverThroughHalfOpen() throws Exception {
+        EndpointIsolation isolation = new EndpointIsolation("chat:mock", IsolationConfig.builder()
+                .windowSize(4)
+                .failureRateThreshold(50)
+                .openDuration(Duration.ofMillis(200))
+                .halfOpenProbes(2)
+                .build(), meters);
+        ChatModel chatModel = new IsolatedChatModel(noRetryChatModel(), isolation);
+
+        server.fault(500, 1.0);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(InternalServerException.class, () -> chatModel.chat("你好"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, isolation.circuitBreaker().state());
+
+        // 熔断期间请求不会发送到服务端
+        CallNotPermittedException rejected = assertThrows(CallNotPermittedException.class, () -> chatModel.chat("你好"));
+        assertEquals(CallNotPermittedException.Reason.CIRCUIT_OPEN, rejected.getReason());
+        assertEquals(4, server.requestCount());
+
+        server.clearFaults();
+        Thread.sleep(250);
+        assertEquals("你刚才说的是：你好", chatModel.chat("你好"));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, isolation.circuitBreaker().state());
+        assertEquals("你刚才说的是：你好", chatModel.chat("你好"));
+        assertEquals(CircuitBreaker.State.CLOSED, isolation.circuitBreaker().state());
+
+        assertEquals(1, transitions("closed", "open"));
+        assertEquals(1, transitions("open", "half_open"));
+        assertEquals(1, transitions("half_open", "closed"));
+        assertEquals(1, meters.get(EndpointIsolation.REJECTED_COUNTER)
+                .tag("endpoint", "chat:mock").tag("reason", "circuit_open").counter().count());
+
+        log.info("\n✅ 测试通过：熔断与半开恢复\n");
+    }
+
+    @Test
+    @DisplayName("半开探测失败时应该重新熔断")
+    void shouldReopenWhenProbeFails() throws Exception {
+        EndpointIsolation isolation = new EndpointIsolation("chat:mock", IsolationConfig.builder()
+                .windowSize(2)
+                .openDuration(Duration.ofMillis(100))
+                .build(), meters);
+        ChatModel chatModel = new IsolatedChatModel(noRetryChatModel(), isolation);
+
+        server.fault(503, 1.0).retryAfter(Duration.ZERO);
+        assertThrows(InternalServerException.class, () -> chatModel.chat("你好"));
+        assertThrows(InternalServerException.class, () -> chatModel.chat("你好"));
+        assertEquals(CircuitBreaker.State.OPEN, isolation.circuitBreaker().state());
+
+        Thread.sleep(150);
+        assertThrows(InternalServerException.class, () -> chatModel.chat("你好"));
+
+        assertEquals(CircuitBreaker.State.OPEN, isolation.circuitBreaker().state());
+        assertEquals(2, transitions("closed", "open") + transitions("half_open", "open"));
+
+        log.info("\n✅ 测试通过：探测失败重新熔断\n");
+    }
+
+    @Test
+    @DisplayName("熔断前放行的慢请求在半开期间成功，不应该算作探测成功")
+    void shouldCountOnlyProbeSuccessesInHalfOpen() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("chat:mock", 50, 2, Duration.ofMillis(50), 1, (from, to) -> {
+        });
+
+        CircuitBreaker.Permission slow = breaker.tryAcquirePermission();
+        breaker.onFailure(breaker.tryAcquirePermission());
+        breaker.onFailure(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        Thread.sleep(80);
+        CircuitBreaker.Permission probe = breaker.tryAcquirePermission();
+        assertNotNull(probe);
+        assertTrue(probe.isProbe());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+        // 关闭状态放行的请求现在才返回，结果被忽略，探测名额仍然被占用
+        breaker.onSuccess(slow);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertNull(breaker.tryAcquirePermission());
+
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        log.info("\n✅ 测试通过：只有探测请求的成功才能关闭熔断器\n");
+    }
+
+    @Test
+    @DisplayName("半开探测抛出 Error 时应该重新熔断，而不是一直占用探测名额")
+    void shouldReleaseProbeWhenCallThrowsError() throws Exception {
+        EndpointIsolation isolation = new EndpointIsolation("chat:mock", IsolationConfig.builder()
+                .windowSize(2)
+                .openDuration(Duration.ofMillis(50))
+                .halfOpenProbes(1)
+                .build(), meters);
+        ChatModel chatModel = new IsolatedChatModel(noRetryChatModel(), isolation);
+
+        server.failNext(503, 2).retryAfter(Duration.ZERO);
+        assertThrows(InternalServerException.class, () -> chatModel.chat("你好"));
+        assertThrows(InternalServerException.class, () -> chatModel.chat("你好"));
+        assertEquals(CircuitBreaker.State.OPEN, isolation.circuitBreaker().state());
+
+        Thread.sleep(80);
+        assertThrows(AssertionError.class, () -> isolation.execute(() -> {
+            throw new AssertionError("探测失败");
+        }));
+        assertEquals(CircuitBreaker.State.OPEN, isolation.circuitBreaker().state());
+        assertEquals(0, isolation.bulkhead().activeCount());
+
+        // 再次进入半开时探测名额可用，探测成功后恢复
+        Thread.sleep(80);
+        assertEquals("你刚才说的是：你好", chatModel.chat("你好"));
+        assertEquals(CircuitBreaker.State.CLOSED, isolation.circuitBreaker().state());
+
+        log.info("\n✅ 测试通过：探测抛出 Error 后许可被归还\n");
+    }
+
+    @Test
+    @DisplayName("maxRetries(0) 的注册表模型加上隔离后每次调用只发送一个请求")
+    void shouldNotRetryInsideIsolation() {
+        ChatModel chatModel = new IsolatedChatModel(registry.chatModel(ModelConfig.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .maxRetries(0)
+                .build()), new EndpointIsolation("chat:mock", IsolationConfig.fromEnv("CHAT"), meters));
+
+        server.failNext(500, 1);
+        assertThrows(InternalServerException.class, () -> chatModel.chat("你好"));
+        assertEquals(1, server.requestCount());
+
+        log.info("\n✅ 测试通过：隔离模型每次调用只发送一个请求\n");
+    }
+
+    @Test
+    @DisplayName("请求本身的错误不应该计入失败率")
+    void shouldIgnoreClientErrors() {
+        EndpointIsolation isolation = new EndpointIsolation("chat:mock", IsolationConfig.builder()
+                .windowSize(2)
+                .build(), meters);
+        ChatModel chatModel = new IsolatedChatModel(noRetryChatModel(), isolation);
+
+        server.failNext(400, 3);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(InvalidRequestException.class, () -> chatModel.chat("你好"));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, isolation.circuitBreaker().state());
+        assertEquals(0, isolation.circuitBreaker().failureRate());
+
+        log.info("\n✅ 测试通过：400 错误不计入失败率\n");
+    }
+
+    @Test
+    @DisplayName("慢的向量服务不应该影响对话请求")
+    void shouldIsolateSlowEmbeddingFromChat() throws Exception {
+        Files.writeString(configDir.resolve(".env"), String.join("\n",
+                "LANGCHAT_EMBEDDING_BULKHEAD_MAX_CONCURRENT=2",
+                "LANGCHAT_EMBEDDING_BULKHEAD_MAX_QUEUED=1",
+                "LANGCHAT_BULKHEAD_MAX_WAIT_MS=100"));
+        EnvConfig.reload(configDir);
+
+        try (MockOpenAiServer slowServer = MockOpenAiServer.start()) {
+            slowServer.latency(Duration.ofMillis(800));
+            // 对话和向量各用一个隔离，配置分别读取 LANGCHAT_CHAT_* 和 LANGCHAT_EMBEDDING_*
+            EndpointIsolation embeddingIsolation = new EndpointIsolation("embedding:slow",
+                    IsolationConfig.fromEnv("EMBEDDING"), meters);
+            EndpointIsolation chatIsolation = new EndpointIsolation("chat:mock", IsolationConfig.fromEnv("CHAT"), meters);
+            EmbeddingModel embeddingModel = new IsolatedEmbeddingModel(registry.embeddingModel(ModelConfig.builder()
+                    .baseUrl(slowServer.baseUrl())
+                    .apiKey(MockOpenAiServer.API_KEY)
+                    .modelName("mock-embedding")
+                    .maxRetries(0)
+                    .build()), embeddingIsolation);
+            ChatModel chatModel = new IsolatedChatModel(registry.chatModel(ModelConfig.builder()
+                    .baseUrl(server.baseUrl())
+                    .apiKey(MockOpenAiServer.API_KEY)
+                    .modelName("mock-model")
+                    .maxRetries(0)
+                    .build()), chatIsolation);
+            assertEquals(2, embeddingIsolation.config().getMaxConcurrent());
+            assertEquals(16, chatIsolation.config().getMaxConcurrent());
+
+            ExecutorService callers = Executors.newFixedThreadPool(6);
+            try {
+                List<CompletableFuture<Object>> embeddings = new ArrayList<>();
+                for (int i = 0; i < 6; i++) {
+                    String text = "文本 " + i;
+                    embeddings.add(CompletableFuture.supplyAsync(() -> embeddingModel.embed(text), callers));
+                }
+
+                // 向量请求占满舱壁时，对话请求照常返回
+                long start = System.nanoTime();
+                assertEquals("你刚才说的是：你好", chatModel.chat("你好"));
+                long chatMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+                int succeeded = 0;
+                int rejected = 0;
+                for (CompletableFuture<Object> future : embeddings) {
+                    try {
+                        future.get();
+                        succeeded++;
+                    } catch (ExecutionException e) {
+                        assertInstanceOf(CallNotPermittedException.class, e.getCause());
+                        rejected++;
+                    }
+                }
+                log.info("对话耗时 {}ms，向量请求成功 {} 个，被拒绝 {} 个", chatMillis, succeeded, rejected);
+
+                assertTrue(chatMillis < 500, "对话请求不应该等待向量请求: " + chatMillis);
+                assertEquals(2, succeeded);
+                assertEquals(4, rejected);
+                assertEquals(4, meters.get(EndpointIsolation.REJECTED_COUNTER)
+                        .tag("endpoint", embeddingIsolation.endpoint())
+                        .tag("reason", "bulkhead_full")
+                        .counter().count());
+            } finally {
+                callers.shutdownNow();
+            }
+        }
+
+        log.info("\n✅ 测试通过：舱壁隔离慢的向量服务\n");
+    }
+
+    private double transitions(String from, String to) {
+        var counter = meters.find(EndpointIsolation.TRANSITION_COUNTER)
+                .tag("from", from)
+                .tag("to", to)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private ChatModel noRetryChatModel() {
+        return OpenAiChatModel.builder()
+                .httpClientBuilder(registry.transport().clientBuilder())
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .maxRetries(0)
+                .build();
+    }
+}
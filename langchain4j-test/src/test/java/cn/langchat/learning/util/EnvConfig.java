@@ -2,10 +2,19 @@ package cn.langchat.learning.util;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Properties;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * 环境配置加载器
@@ -16,6 +25,9 @@ import java.util.Properties;
  * 3. .env 文件
  * 4. 默认值
  * 
+ * 配置在首次使用时合并为不可变的 {@link EnvSnapshot}，之后的读取都是无锁的字段访问。
+ * 调用 {@link #reload()} 或 {@link #watch()} 可以在 .env 文件变化后原子地替换快照。
+ * 
  * @author LangChat Team
  * @see <a href="https://langchat.cn">https://langchat.cn</a>
  */
@@ -29,185 +41,244 @@ public final class EnvConfig {
     public static final String EMBEDDING_MODEL_NAME = "LANGCHAT_EMBEDDING_MODEL_NAME";
     public static final String TEMPERATURE = "LANGCHAT_TEMPERATURE";
     public static final String MAX_TOKENS = "LANGCHAT_MAX_TOKENS";
-    private static final Properties properties = new Properties();
+    public static final String MOCK_SERVER = "LANGCHAT_MOCK_SERVER";
     // 默认值
     private static final String DEFAULT_BASE_URL = "https://api.openai.com/v1";
     private static final String DEFAULT_MODEL_NAME = "gpt-3.5-turbo";
     private static final String DEFAULT_EMBEDDING_MODEL_NAME = "text-embedding-ada-002";
     private static final Double DEFAULT_TEMPERATURE = 0.7;
     private static final Integer DEFAULT_MAX_TOKENS = 1000;
-    private static boolean initialized = false;
+    // 按加载顺序排列，后加载的文件覆盖先加载的文件
+    private static final List<String> ENV_FILES = List.of(".env", ".env.local");
+    private static final Path DEFAULT_CONFIG_DIR = Path.of("");
+    private static volatile EnvSnapshot snapshot;
 
     private EnvConfig() {
         // 工具类，不允许实例化
     }
 
     /**
-     * 初始化配置（懒加载）
+     * 获取当前配置快照（懒加载）
      */
-    private static synchronized void init() {
-        if (initialized) {
-            return;
+    public static EnvSnapshot snapshot() {
+        EnvSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (EnvConfig.class) {
+                current = snapshot;
+                if (current == null) {
+                    current = load(DEFAULT_CONFIG_DIR);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 从项目根目录重新加载配置，并原子地替换当前快照
+     */
+    public static EnvSnapshot reload() {
+        return reload(DEFAULT_CONFIG_DIR);
+    }
+
+    /**
+     * 从指定目录重新加载配置，并原子地替换当前快照
+     */
+    public static EnvSnapshot reload(Path configDir) {
+        EnvSnapshot reloaded = load(configDir);
+        synchronized (EnvConfig.class) {
+            snapshot = reloaded;
         }
+        log.info("环境配置已重新加载");
+        return reloaded;
+    }
+
+    /**
+     * 从指定目录加载配置，返回新快照（不替换当前快照）
+     */
+    public static EnvSnapshot load(Path configDir) {
+        Map<String, String> values = new HashMap<>();
+
+        // 1. 依次加载 .env 和 .env.local（后者覆盖前者）
+        for (String filename : ENV_FILES) {
+            loadEnvFile(configDir.resolve(filename), values);
+        }
+
+        // 2. 系统环境变量优先级最高
+        System.getenv().forEach((key, value) -> {
+            if (!value.isEmpty()) {
+                values.put(key, value);
+            }
+        });
+
+        EnvSnapshot loaded = new EnvSnapshot(values, DEFAULT_BASE_URL, DEFAULT_MODEL_NAME,
+                DEFAULT_EMBEDDING_MODEL_NAME, DEFAULT_TEMPERATURE, DEFAULT_MAX_TOKENS);
+        if (log.isDebugEnabled()) {
+            log.debug("环境配置加载完成: {} = {}, {} = {}", API_KEY, maskValue(API_KEY, loaded.getApiKey()),
+                    BASE_URL, loaded.getBaseUrl());
+        }
+        return loaded;
+    }
+
+    /**
+     * 监听项目根目录下 .env / .env.local 的变化并自动重新加载
+     *
+     * @return 关闭后停止监听
+     */
+    public static Closeable watch() throws IOException {
+        return watch(DEFAULT_CONFIG_DIR);
+    }
+
+    /**
+     * 监听指定目录下 .env / .env.local 的变化并自动重新加载
+     *
+     * @return 关闭后停止监听
+     */
+    public static Closeable watch(Path configDir) throws IOException {
+        Path dir = configDir.toAbsolutePath();
+        WatchService watchService = dir.getFileSystem().newWatchService();
+        dir.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
 
-        // 1. 尝试从项目根目录加载 .env 文件
-        loadEnvFile(".env");
-        
-        // 2. 尝试从项目根目录加载 .env.local 文件（会覆盖 .env 中的配置）
-        loadEnvFile(".env.local");
+        Thread watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    boolean changed = false;
+                    // 一次 take 可能包含同一次保存产生的多个事件，只重新加载一次
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                                || ENV_FILES.contains(String.valueOf(event.context()))) {
+                            changed = true;
+                        }
+                    }
+                    if (changed) {
+                        reload(configDir);
+                    }
+                    if (!key.reset()) {
+                        log.warn("配置目录 {} 已不可访问，停止监听", dir);
+                        return;
+                    }
+                }
+            } catch (ClosedWatchServiceException e) {
+                log.debug("配置文件监听已停止");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "langchat-env-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
 
-        initialized = true;
-        log.debug("环境配置加载完成");
+        log.info("正在监听配置目录: {}", dir);
+        return watchService;
     }
 
     /**
      * 加载指定的 .env 文件
      */
-    private static void loadEnvFile(String filename) {
-        Path envPath = Path.of(filename);
+    private static void loadEnvFile(Path envPath, Map<String, String> values) {
         if (!Files.exists(envPath)) {
-            log.debug("配置文件 {} 不存在，跳过", filename);
+            log.debug("配置文件 {} 不存在，跳过", envPath);
             return;
         }
 
-        try {
-            log.info("正在加载配置文件: {}", filename);
-            Properties fileProperties = new Properties();
-            
+        try (Stream<String> lines = Files.lines(envPath)) {
+            log.info("正在加载配置文件: {}", envPath);
+            Map<String, String> fileProperties = new HashMap<>();
+
             // 读取 .env 文件（支持注释和空行）
-            Files.lines(envPath)
-                .filter(line -> !line.trim().isEmpty() && !line.trim().startsWith("#"))
+            lines.filter(line -> !line.trim().isEmpty() && !line.trim().startsWith("#"))
                 .filter(line -> line.contains("="))
                 .forEach(line -> {
                     int separatorIndex = line.indexOf("=");
                     String key = line.substring(0, separatorIndex).trim();
                     String value = line.substring(separatorIndex + 1).trim();
-                    fileProperties.setProperty(key, value);
+                    fileProperties.put(key, value);
                 });
 
-            // 将文件中的配置合并到 properties 中
-            properties.putAll(fileProperties);
-            log.info("已从 {} 加载 {} 个配置项", filename, fileProperties.size());
+            // 将文件中的配置合并到 values 中
+            values.putAll(fileProperties);
+            log.info("已从 {} 加载 {} 个配置项", envPath, fileProperties.size());
             
         } catch (IOException e) {
-            log.warn("加载配置文件 {} 失败: {}", filename, e.getMessage());
-        }
-    }
-
-    /**
-     * 获取配置值（优先使用系统环境变量）
-     */
-    private static String get(String key) {
-        init();
-        
-        // 1. 优先使用系统环境变量
-        String systemValue = System.getenv(key);
-        if (systemValue != null && !systemValue.isEmpty()) {
-            log.debug("使用系统环境变量: {} = {}", key, maskValue(key, systemValue));
-            return systemValue;
-        }
-        
-        // 2. 使用 .env 文件中的配置
-        String envValue = properties.getProperty(key);
-        if (envValue != null) {
-            log.debug("使用 .env 配置: {} = {}", key, maskValue(key, envValue));
-            return envValue;
+            log.warn("加载配置文件 {} 失败: {}", envPath, e.getMessage());
         }
-        
-        log.debug("配置 {} 未设置", key);
-        return null;
     }
 
     /**
      * 获取字符串配置
      */
     public static String getString(String key, String defaultValue) {
-        String value = get(key);
-        return value != null ? value : defaultValue;
+        return snapshot().getString(key, defaultValue);
     }
 
     /**
      * 获取整数配置
      */
     public static Integer getInt(String key, Integer defaultValue) {
-        String value = get(key);
-        if (value == null) {
-            return defaultValue;
-        }
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            log.warn("配置 {} 的值 '{}' 不是有效的整数，使用默认值: {}", key, value, defaultValue);
-            return defaultValue;
-        }
+        return snapshot().getInt(key, defaultValue);
     }
 
     /**
      * 获取浮点数配置
      */
     public static Double getDouble(String key, Double defaultValue) {
-        String value = get(key);
-        if (value == null) {
-            return defaultValue;
-        }
-        try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            log.warn("配置 {} 的值 '{}' 不是有效的数字，使用默认值: {}", key, value, defaultValue);
-            return defaultValue;
-        }
+        return snapshot().getDouble(key, defaultValue);
     }
 
     /**
-     * 获取 API Key
+     * 获取 API Key（启用本地模拟服务时返回模拟服务的 Key）
      */
     public static String getApiKey() {
-        String apiKey = getString(API_KEY, null);
-        if (apiKey == null || apiKey.trim().isEmpty()) {
-            log.warn("API Key 未配置！请在 .env 文件中设置 LANGCHAT_API_KEY");
-        }
-        return apiKey;
+        EnvSnapshot current = snapshot();
+        return current.isMockServer() ? MockOpenAiServer.API_KEY : current.getApiKey();
     }
 
     /**
-     * 获取 Base URL
+     * 获取 Base URL（启用本地模拟服务时返回模拟服务的地址）
      */
     public static String getBaseUrl() {
-        return getString(BASE_URL, DEFAULT_BASE_URL);
+        EnvSnapshot current = snapshot();
+        return current.isMockServer() ? MockOpenAiServer.shared().baseUrl() : current.getBaseUrl();
     }
 
     /**
      * 获取 Model Name
      */
     public static String getModelName() {
-        return getString(MODEL_NAME, DEFAULT_MODEL_NAME);
+        return snapshot().getModelName();
     }
 
     /**
      * 获取 Embedding Model Name
      */
     public static String getEmbeddingModelName() {
-        return getString(EMBEDDING_MODEL_NAME, DEFAULT_EMBEDDING_MODEL_NAME);
+        return snapshot().getEmbeddingModelName();
     }
 
     /**
      * 获取 Temperature
      */
     public static Double getTemperature() {
-        return getDouble(TEMPERATURE, DEFAULT_TEMPERATURE);
+        return snapshot().getTemperature();
     }
 
     /**
      * 获取 Max Tokens
      */
     public static Integer getMaxTokens() {
-        return getInt(MAX_TOKENS, DEFAULT_MAX_TOKENS);
+        return snapshot().getMaxTokens();
     }
 
     /**
      * 遮盖敏感信息用于日志输出
      */
     private static String maskValue(String key, String value) {
+        if (value == null) {
+            return "未配置";
+        }
         if (key.contains("KEY") || key.contains("SECRET") || key.contains("TOKEN")) {
             if (value.length() <= 8) {
                 return "***";
@@ -221,16 +292,16 @@ public final class EnvConfig {
      * 打印配置信息（用于调试）
      */
     public static void printConfig() {
-        init();
+        EnvSnapshot config = snapshot();
         log.info("╔═════════════════════════════════════════════════════════════════════════════════════════════════════════╗");
         log.info("║                         LangChain4j 环境配置                                                    ║");
         log.info("╠════════════════════════════════════════════════════════════════════════════════════════════════════════╣");
         log.info("║ API Key:           {}", maskValue(API_KEY, getApiKey()));
         log.info("║ Base URL:          {}", getBaseUrl());
-        log.info("║ Model Name:        {}", getModelName());
-        log.info("║ Embedding Model:   {}", getEmbeddingModelName());
-        log.info("║ Temperature:       {}", getTemperature());
-        log.info("║ Max Tokens:       {}", getMaxTokens());
+        log.info("║ Model Name:        {}", config.getModelName());
+        log.info("║ Embedding Model:   {}", config.getEmbeddingModelName());
+        log.info("║ Temperature:       {}", config.getTemperature());
+        log.info("║ Max Tokens:       {}", config.getMaxTokens());
         log.info("╚═════════════════════════════════════════════════════════════════════════════════════════════════════════╝\n");
     }
 }
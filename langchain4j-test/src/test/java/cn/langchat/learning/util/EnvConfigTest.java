@@ -0,0 +1,113 @@
+package cn.langchat.learning.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Closeable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 环境配置加载器测试
+ *
+ * 使用临时目录中的 .env 文件，不依赖项目根目录的配置
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("环境配置加载器测试")
+class EnvConfigTest {
+
+    @TempDir
+    Path configDir;
+
+    @AfterEach
+    void tearDown() {
+        // 恢复为项目根目录的配置，避免影响其它测试
+        EnvConfig.reload();
+    }
+
+    @Test
+    @DisplayName(".env.local 应该覆盖 .env")
+    void shouldOverrideEnvWithEnvLocal() throws Exception {
+        assumeTrue(System.getenv(EnvConfig.MODEL_NAME) == null, "系统环境变量中已设置模型名称");
+
+        Files.writeString(configDir.resolve(".env"), String.join("\n",
+                "# 注释行",
+                "LANGCHAT_MODEL_NAME=model-from-env",
+                "LANGCHAT_MAX_TOKENS=256",
+                "LANGCHAT_TEST_ONLY=env"));
+        Files.writeString(configDir.resolve(".env.local"), "LANGCHAT_TEST_ONLY=env-local\n");
+
+        EnvSnapshot snapshot = EnvConfig.load(configDir);
+
+        assertEquals("model-from-env", snapshot.getModelName());
+        assertEquals(256, snapshot.getMaxTokens());
+        assertEquals("env-local", snapshot.get("LANGCHAT_TEST_ONLY"));
+
+        log.info("\n✅ 测试通过：.env.local 覆盖 .env\n");
+    }
+
+    @Test
+    @DisplayName("无效的数字配置应该使用默认值")
+    void shouldFallBackToDefaultForInvalidNumbers() throws Exception {
+        assumeTrue(System.getenv(EnvConfig.TEMPERATURE) == null, "系统环境变量中已设置 Temperature");
+
+        Files.writeString(configDir.resolve(".env"), "LANGCHAT_TEMPERATURE=abc\nLANGCHAT_TEST_INT=x\n");
+
+        EnvSnapshot snapshot = EnvConfig.load(configDir);
+
+        assertEquals(0.7, snapshot.getTemperature());
+        assertEquals(42, snapshot.getInt("LANGCHAT_TEST_INT", 42));
+
+        log.info("\n✅ 测试通过：无效配置使用默认值\n");
+    }
+
+    @Test
+    @DisplayName("reload 应该原子地替换快照")
+    void shouldSwapSnapshotOnReload() throws Exception {
+        Files.writeString(configDir.resolve(".env"), "LANGCHAT_TEST_ONLY=v1\n");
+        EnvSnapshot first = EnvConfig.reload(configDir);
+
+        Files.writeString(configDir.resolve(".env"), "LANGCHAT_TEST_ONLY=v2\n");
+        EnvSnapshot second = EnvConfig.reload(configDir);
+
+        assertEquals("v1", first.get("LANGCHAT_TEST_ONLY"), "旧快照不应该被修改");
+        assertEquals("v2", second.get("LANGCHAT_TEST_ONLY"));
+        assertSame(second, EnvConfig.snapshot());
+        assertEquals("v2", EnvConfig.getString("LANGCHAT_TEST_ONLY", null));
+
+        log.info("\n✅ 测试通过：reload 原子地替换快照\n");
+    }
+
+    @Test
+    @DisplayName("修改 .env 文件后应该自动重新加载")
+    void shouldReloadWhenEnvFileChanges() throws Exception {
+        Files.writeString(configDir.resolve(".env"), "LANGCHAT_TEST_ONLY=before\n");
+        EnvConfig.reload(configDir);
+
+        Closeable watcher = EnvConfig.watch(configDir);
+        try {
+            Files.writeString(configDir.resolve(".env.local"), "LANGCHAT_TEST_ONLY=after\n");
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!"after".equals(EnvConfig.getString("LANGCHAT_TEST_ONLY", null))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } finally {
+            watcher.close();
+        }
+
+        assertEquals("after", EnvConfig.getString("LANGCHAT_TEST_ONLY", null));
+
+        log.info("\n✅ 测试通过：配置文件变化后自动重新加载\n");
+    }
+}
@@ -0,0 +1,140 @@
+package cn.langchat.learning.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+
+/**
+ * 环境配置快照
+ *
+ * 不可变对象，在加载配置时一次性完成合并和类型转换：
+ * - 常用配置以强类型字段保存，读取时不需要任何解析
+ * - 其它配置保存在不可变 Map 中
+ * - 快照可以在线程之间自由共享，读取无需加锁
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class EnvSnapshot {
+
+    private final Map<String, String> values;
+    private final String apiKey;
+    private final String baseUrl;
+    private final String modelName;
+    private final String embeddingModelName;
+    private final Double temperature;
+    private final Integer maxTokens;
+    private final boolean mockServer;
+    private final long loadedAtMillis;
+
+    EnvSnapshot(Map<String, String> values,
+                String defaultBaseUrl,
+                String defaultModelName,
+                String defaultEmbeddingModelName,
+                Double defaultTemperature,
+                Integer defaultMaxTokens) {
+        this.values = Map.copyOf(values);
+        this.apiKey = blankToNull(this.values.get(EnvConfig.API_KEY));
+        this.baseUrl = getString(EnvConfig.BASE_URL, defaultBaseUrl);
+        this.modelName = getString(EnvConfig.MODEL_NAME, defaultModelName);
+        this.embeddingModelName = getString(EnvConfig.EMBEDDING_MODEL_NAME, defaultEmbeddingModelName);
+        this.temperature = getDouble(EnvConfig.TEMPERATURE, defaultTemperature);
+        this.maxTokens = getInt(EnvConfig.MAX_TOKENS, defaultMaxTokens);
+        this.mockServer = Boolean.parseBoolean(getString(EnvConfig.MOCK_SERVER, "false").trim());
+        this.loadedAtMillis = System.currentTimeMillis();
+
+        if (apiKey == null && !mockServer) {
+            log.warn("API Key 未配置！请在 .env 文件中设置 LANGCHAT_API_KEY");
+        }
+    }
+
+    /**
+     * 获取原始配置值
+     */
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * 获取字符串配置
+     */
+    public String getString(String key, String defaultValue) {
+        String value = values.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * 获取整数配置
+     */
+    public Integer getInt(String key, Integer defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("配置 {} 的值 '{}' 不是有效的整数，使用默认值: {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 获取浮点数配置
+     */
+    public Double getDouble(String key, Double defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("配置 {} 的值 '{}' 不是有效的数字，使用默认值: {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public String getEmbeddingModelName() {
+        return embeddingModelName;
+    }
+
+    public Double getTemperature() {
+        return temperature;
+    }
+
+    public Integer getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * 是否启用了本地模拟服务（LANGCHAT_MOCK_SERVER=true），在加载快照时解析一次
+     */
+    public boolean isMockServer() {
+        return mockServer;
+    }
+
+    /**
+     * 快照的加载时间
+     */
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+}
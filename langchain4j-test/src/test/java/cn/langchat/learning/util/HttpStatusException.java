@@ -0,0 +1,73 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.exception.HttpException;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * 携带响应头信息的 HttpException
+ *
+ * LangChain4j 把非 2xx 响应映射成 RateLimitException 等异常时，会把原始的 HttpException 作为 cause 保留，
+ * 因此 {@link HttpTransport} 抛出这个子类后，{@link Resilience} 可以从异常链中取到服务端要求的 Retry-After
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public class HttpStatusException extends HttpException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public HttpStatusException(int statusCode, String message, Duration retryAfter) {
+        super(statusCode, message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * 根据响应头创建，依次读取 retry-after-ms（OpenAI）和 Retry-After（秒数或 HTTP 日期）
+     */
+    public static HttpStatusException of(int statusCode, String body, HttpHeaders headers) {
+        return new HttpStatusException(statusCode, body, parseRetryAfter(headers));
+    }
+
+    /**
+     * 服务端要求的等待时间，响应没有携带或无法解析时为空
+     */
+    public Optional<Duration> retryAfter() {
+        return Optional.ofNullable(retryAfter);
+    }
+
+    static Duration parseRetryAfter(HttpHeaders headers) {
+        Optional<String> millis = headers.firstValue("retry-after-ms");
+        if (millis.isPresent()) {
+            try {
+                return Duration.ofMillis(Math.max(0, (long) Double.parseDouble(millis.get().trim())));
+            } catch (NumberFormatException ignored) {
+                // 继续尝试 Retry-After
+            }
+        }
+        String value = headers.firstValue("Retry-After").map(String::trim).orElse(null);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException ignored) {
+            // 不是秒数，按 HTTP 日期解析
+        }
+        try {
+            Instant until = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            Duration delay = Duration.between(Instant.now(), until);
+            return delay.isNegative() ? Duration.ZERO : delay;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
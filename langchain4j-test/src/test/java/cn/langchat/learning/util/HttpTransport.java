@@ -0,0 +1,407 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * 共享 HTTP 传输层
+ *
+ * 所有模型客户端共用一个 JDK HttpClient（以及它内部的连接池），
+ * 通过 {@link #clientBuilder()} 提供给 OpenAiChatModel 等模型的 httpClientBuilder 使用：
+ * - 同一个 Base URL 的请求复用同一组长连接
+ * - 流式请求在共享的守护线程池中读取 SSE 事件
+ * - {@link #close()} 时关闭线程池，释放连接
+ *
+ * 连接行为由 {@link HttpTransportConfig} 控制：
+ * - maxInFlightRequests：同时等待响应的请求数上限。HTTP/1.1 下每个在途请求独占一个连接，因此也限制了同时新建的连接数；
+ *   HTTP/2 下所有请求在同一个连接上多路复用，该值限制并发流数。
+ *   排队等待名额的时间计入请求超时（readTimeout，未设置时为 connectTimeout），超时抛出 {@link TimeoutException}。
+ *   流式请求在收到响应头后就归还名额：读取 SSE 的时长取决于生成的长度，不应该占着名额让其它请求排队，
+ *   同时进行的流数由上层（例如 WebSocket 网关和 SSE 端点的 max-streams）限制
+ * - TLS 会话缓存：复用 TLS 会话，新建连接时可以走简化握手
+ *
+ * 空闲连接的保活时间是 JDK HttpClient 的进程级设置，对 JVM 中所有 HttpClient 生效，
+ * 而且只在第一个 HttpClient 创建之前读取一次，因此不是单个传输层的配置项。需要调整时在启动参数中设置：
+ * <pre>
+ * -Djdk.httpclient.keepalive.timeout=300   # 秒，JDK 默认 1200；应小于服务端和代理的空闲超时
+ * </pre>
+ *
+ * {@link #warmUp(String, int)} 可以提前建立连接，让第一个真实请求不用等待 TCP + TLS 握手，
+ * 配合 {@link ConnectionWarmer} 在空闲时重新预热，避免连接被服务端或代理的空闲超时关闭
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class HttpTransport implements AutoCloseable {
+
+    /**
+     * JDK HttpClient 不允许手动设置的请求头
+     */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of(
+            "connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpTransportConfig config;
+    private final java.net.http.HttpClient httpClient;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private volatile long lastActivityNanos = System.nanoTime();
+    private volatile boolean closed;
+
+    public HttpTransport() {
+        this(HttpTransportConfig.defaults());
+    }
+
+    public HttpTransport(HttpTransportConfig config) {
+        this.config = config;
+        this.executor = Executors.newCachedThreadPool(DaemonThreads.factory("langchat-http"));
+        // 公平模式：排队的请求按到达顺序获得连接，避免个别请求长时间饥饿拉高尾延迟
+        this.permits = new Semaphore(config.getMaxInFlightRequests(), true);
+        this.httpClient = java.net.http.HttpClient.newBuilder()
+                .version(config.isHttp2Enabled()
+                        ? java.net.http.HttpClient.Version.HTTP_2
+                        : java.net.http.HttpClient.Version.HTTP_1_1)
+                .connectTimeout(config.getConnectTimeout())
+                .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
+                .sslContext(createSslContext(config))
+                .executor(executor)
+                .build();
+        log.debug("共享 HTTP 传输层已创建: {}", config);
+    }
+
+    /**
+     * 获取传输层配置
+     */
+    public HttpTransportConfig config() {
+        return config;
+    }
+
+    /**
+     * 当前等待响应的请求数（已经开始读取响应体的流不计入）
+     */
+    public int inFlight() {
+        return config.getMaxInFlightRequests() - permits.availablePermits();
+    }
+
+    /**
+     * 距离上一次发起请求（包括预热）的时间
+     */
+    public Duration idleTime() {
+        return Duration.ofNanos(System.nanoTime() - lastActivityNanos);
+    }
+
+    /**
+     * 预热到 baseUrl 的连接：并发发送 connections 个 GET {baseUrl}/models 请求并等待完成
+     *
+     * 请求同时在途，HTTP/1.1 下会各自建立一个连接，完成后连接留在池中供后续请求复用。
+     * 响应状态码无关紧要（没有携带 API Key 时通常是 401），只要连接建立成功即可。
+     * 预热请求不占用 maxInFlightRequests 的名额
+     *
+     * @return 成功完成的预热请求数
+     */
+    public int warmUp(String baseUrl, int connections) {
+        ensureOpen();
+        lastActivityNanos = System.nanoTime();
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder(URI.create(base + "/models"))
+                .timeout(config.getConnectTimeout())
+                .GET()
+                .build();
+        List<CompletableFuture<HttpResponse<Void>>> futures = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            futures.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        int warmed = 0;
+        for (CompletableFuture<HttpResponse<Void>> future : futures) {
+            try {
+                future.get();
+                warmed++;
+            } catch (ExecutionException e) {
+                log.debug("预热连接失败: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.debug("已预热 {} 个到 {} 的连接", warmed, base);
+        return warmed;
+    }
+
+    /**
+     * 共享线程池，流式请求在这里读取 SSE 事件
+     */
+    Executor executor() {
+        return executor;
+    }
+
+    /**
+     * 获取底层的 JDK HttpClient
+     */
+    public java.net.http.HttpClient httpClient() {
+        return httpClient;
+    }
+
+    /**
+     * 创建绑定到共享连接池的 HttpClientBuilder
+     *
+     * 连接超时由共享连接池统一控制，readTimeout 作为单个请求的超时时间
+     */
+    public HttpClientBuilder clientBuilder() {
+        return new ClientBuilder();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 关闭共享线程池
+     *
+     * JDK 17 的 HttpClient 没有 close 方法，线程池关闭后空闲连接会随 HttpClient 一起被回收
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        log.debug("共享 HTTP 传输层已关闭");
+    }
+
+    private static SSLContext createSslContext(HttpTransportConfig config) {
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+            SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+            sessionContext.setSessionCacheSize(config.getTlsSessionCacheSize());
+            sessionContext.setSessionTimeout((int) config.getTlsSessionTimeout().toSeconds());
+            return sslContext;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("无法创建 SSLContext", e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("HTTP 传输层已关闭");
+        }
+    }
+
+    /**
+     * 获取在途请求的名额，最多等待 timeout（为 null 时使用 connectTimeout）
+     *
+     * @throws TimeoutException 等待超时
+     */
+    private void acquirePermit(Duration timeout) throws InterruptedException {
+        ensureOpen();
+        Duration wait = timeout != null ? timeout : config.getConnectTimeout();
+        if (!permits.tryAcquire(wait.toNanos(), TimeUnit.NANOSECONDS)) {
+            throw new TimeoutException("等待在途请求名额超时（" + wait.toMillis() + "ms，上限 "
+                    + config.getMaxInFlightRequests() + "）");
+        }
+        lastActivityNanos = System.nanoTime();
+    }
+
+    private java.net.http.HttpRequest toJdkRequest(HttpRequest request, Duration readTimeout) {
+        if (!request.formDataFields().isEmpty() || !request.formDataFiles().isEmpty()) {
+            throw new IllegalArgumentException("共享 HTTP 传输层不支持 multipart 请求");
+        }
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(request.url()));
+        for (Map.Entry<String, List<String>> header : request.headers().entrySet()) {
+            if (RESTRICTED_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                builder.header(header.getKey(), value);
+            }
+        }
+        java.net.http.HttpRequest.BodyPublisher body = request.body() == null
+                ? java.net.http.HttpRequest.BodyPublishers.noBody()
+                : java.net.http.HttpRequest.BodyPublishers.ofString(request.body(), StandardCharsets.UTF_8);
+        builder.method(request.method().name(), body);
+        if (readTimeout != null) {
+            builder.timeout(readTimeout);
+        }
+        return builder.build();
+    }
+
+    private static boolean isSuccessful(int statusCode) {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    private static RuntimeException translate(IOException e) {
+        if (e instanceof HttpTimeoutException) {
+            return new TimeoutException(e);
+        }
+        return new UncheckedIOException(e);
+    }
+
+    /**
+     * 绑定到共享连接池的 HttpClientBuilder
+     */
+    private final class ClientBuilder implements HttpClientBuilder {
+
+        private Duration connectTimeout;
+        private Duration readTimeout;
+
+        @Override
+        public Duration connectTimeout() {
+            return connectTimeout;
+        }
+
+        @Override
+        public HttpClientBuilder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        @Override
+        public Duration readTimeout() {
+            return readTimeout;
+        }
+
+        @Override
+        public HttpClientBuilder readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        @Override
+        public HttpClient build() {
+            return new TransportClient(readTimeout);
+        }
+    }
+
+    /**
+     * LangChain4j HttpClient 实现，所有实例共享同一个 JDK HttpClient
+     */
+    private final class TransportClient implements HttpClient {
+
+        private final Duration readTimeout;
+
+        private TransportClient(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        @Override
+        public SuccessfulHttpResponse execute(HttpRequest request) {
+            java.net.http.HttpRequest jdkRequest = toJdkRequest(request, readTimeout);
+            try {
+                acquirePermit(readTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            try {
+                HttpResponse<String> response = httpClient.send(
+                        jdkRequest, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                if (!isSuccessful(response.statusCode())) {
+                    throw HttpStatusException.of(response.statusCode(), response.body(), response.headers());
+                }
+                return SuccessfulHttpResponse.builder()
+                        .statusCode(response.statusCode())
+                        .headers(response.headers().map())
+                        .body(response.body())
+                        .build();
+            } catch (IOException e) {
+                throw translate(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } finally {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+            ensureOpen();
+            // 请求在线程池中构建，调用方线程只负责提交
+            executor.execute(() -> {
+                java.net.http.HttpRequest jdkRequest;
+                boolean released = false;
+                try {
+                    jdkRequest = toJdkRequest(request, readTimeout);
+                    acquirePermit(readTimeout);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    listener.onError(e);
+                    return;
+                } catch (RuntimeException e) {
+                    listener.onError(e);
+                    return;
+                }
+                try {
+                    HttpResponse<InputStream> response = httpClient.send(
+                            jdkRequest, HttpResponse.BodyHandlers.ofInputStream());
+                    // 响应头已经到达，后面只是读取响应体
+                    permits.release();
+                    released = true;
+                    try (InputStream body = response.body()) {
+                        if (!isSuccessful(response.statusCode())) {
+                            String error = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                            listener.onError(HttpStatusException.of(response.statusCode(), error, response.headers()));
+                            return;
+                        }
+                        listener.onOpen(SuccessfulHttpResponse.builder()
+                                .statusCode(response.statusCode())
+                                .headers(response.headers().map())
+                                .build());
+                        parser.parse(body, listener);
+                        listener.onClose();
+                    }
+                } catch (IOException e) {
+                    listener.onError(translate(e));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    listener.onError(e);
+                } catch (RuntimeException e) {
+                    listener.onError(e);
+                } finally {
+                    if (!released) {
+                        permits.release();
+                    }
+                }
+            });
+        }
+    }
+}
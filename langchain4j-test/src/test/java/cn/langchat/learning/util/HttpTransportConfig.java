@@ -0,0 +1,183 @@
+package cn.langchat.learning.util;
+
+import java.time.Duration;
+
+/**
+ * HTTP 传输层配置
+ *
+ * 可以通过 {@link #fromEnv()} 从 .env 读取，也可以使用 builder 手动创建：
+ * <pre>
+ * LANGCHAT_HTTP_MAX_IN_FLIGHT_REQUESTS=64   # 同时等待响应的请求数上限，流式请求收到响应头后不再占用
+ * LANGCHAT_HTTP2_ENABLED=true               # 是否启用 HTTP/2 多路复用
+ * LANGCHAT_HTTP_CONNECT_TIMEOUT_MS=15000    # 连接超时
+ * LANGCHAT_TLS_SESSION_CACHE_SIZE=1024      # TLS 会话缓存大小
+ * LANGCHAT_TLS_SESSION_TIMEOUT_SECONDS=3600 # TLS 会话缓存有效期
+ * LANGCHAT_HTTP_WARM_UP_CONNECTIONS=0       # 启动时预热的连接数，0 表示不预热
+ * LANGCHAT_HTTP_WARM_UP_INTERVAL_SECONDS=30 # 空闲超过该时间后重新预热，应小于服务端和代理的空闲超时
+ * </pre>
+ *
+ * 空闲连接的保活时间不在这里配置，见 {@link HttpTransport} 的说明
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class HttpTransportConfig {
+
+    public static final String MAX_IN_FLIGHT_REQUESTS = "LANGCHAT_HTTP_MAX_IN_FLIGHT_REQUESTS";
+    public static final String HTTP2_ENABLED = "LANGCHAT_HTTP2_ENABLED";
+    public static final String CONNECT_TIMEOUT_MS = "LANGCHAT_HTTP_CONNECT_TIMEOUT_MS";
+    public static final String TLS_SESSION_CACHE_SIZE = "LANGCHAT_TLS_SESSION_CACHE_SIZE";
+    public static final String TLS_SESSION_TIMEOUT_SECONDS = "LANGCHAT_TLS_SESSION_TIMEOUT_SECONDS";
+    public static final String WARM_UP_CONNECTIONS = "LANGCHAT_HTTP_WARM_UP_CONNECTIONS";
+    public static final String WARM_UP_INTERVAL_SECONDS = "LANGCHAT_HTTP_WARM_UP_INTERVAL_SECONDS";
+
+    private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 64;
+    private static final int DEFAULT_CONNECT_TIMEOUT_MS = 15_000;
+    private static final int DEFAULT_TLS_SESSION_CACHE_SIZE = 1024;
+    private static final int DEFAULT_TLS_SESSION_TIMEOUT_SECONDS = 3600;
+    private static final int DEFAULT_WARM_UP_INTERVAL_SECONDS = 30;
+
+    private final int maxInFlightRequests;
+    private final boolean http2Enabled;
+    private final Duration connectTimeout;
+    private final int tlsSessionCacheSize;
+    private final Duration tlsSessionTimeout;
+    private final int warmUpConnections;
+    private final Duration warmUpInterval;
+
+    private HttpTransportConfig(Builder builder) {
+        if (builder.maxInFlightRequests <= 0) {
+            throw new IllegalArgumentException("maxInFlightRequests 必须大于 0");
+        }
+        if (builder.warmUpConnections < 0 || builder.warmUpConnections > builder.maxInFlightRequests) {
+            throw new IllegalArgumentException("warmUpConnections 必须在 0 到 maxInFlightRequests 之间");
+        }
+        this.maxInFlightRequests = builder.maxInFlightRequests;
+        this.http2Enabled = builder.http2Enabled;
+        this.connectTimeout = builder.connectTimeout;
+        this.tlsSessionCacheSize = builder.tlsSessionCacheSize;
+        this.tlsSessionTimeout = builder.tlsSessionTimeout;
+        this.warmUpConnections = builder.warmUpConnections;
+        this.warmUpInterval = builder.warmUpInterval;
+    }
+
+    /**
+     * 默认配置
+     */
+    public static HttpTransportConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * 从 EnvConfig 读取配置，未设置的项使用默认值
+     */
+    public static HttpTransportConfig fromEnv() {
+        EnvSnapshot env = EnvConfig.snapshot();
+        return builder()
+                .maxInFlightRequests(env.getInt(MAX_IN_FLIGHT_REQUESTS, DEFAULT_MAX_IN_FLIGHT_REQUESTS))
+                .http2Enabled(Boolean.parseBoolean(env.getString(HTTP2_ENABLED, "true")))
+                .connectTimeout(Duration.ofMillis(env.getInt(CONNECT_TIMEOUT_MS, DEFAULT_CONNECT_TIMEOUT_MS)))
+                .tlsSessionCacheSize(env.getInt(TLS_SESSION_CACHE_SIZE, DEFAULT_TLS_SESSION_CACHE_SIZE))
+                .tlsSessionTimeout(Duration.ofSeconds(
+                        env.getInt(TLS_SESSION_TIMEOUT_SECONDS, DEFAULT_TLS_SESSION_TIMEOUT_SECONDS)))
+                .warmUpConnections(env.getInt(WARM_UP_CONNECTIONS, 0))
+                .warmUpInterval(Duration.ofSeconds(
+                        env.getInt(WARM_UP_INTERVAL_SECONDS, DEFAULT_WARM_UP_INTERVAL_SECONDS)))
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    public Duration getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    public int getWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    public Duration getWarmUpInterval() {
+        return warmUpInterval;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HttpTransportConfig{maxInFlightRequests=%d, http2=%s, connectTimeout=%sms, "
+                        + "tlsSessionCacheSize=%d, tlsSessionTimeout=%ss, warmUpConnections=%d, warmUpInterval=%ss}",
+                maxInFlightRequests, http2Enabled, connectTimeout.toMillis(),
+                tlsSessionCacheSize, tlsSessionTimeout.toSeconds(), warmUpConnections, warmUpInterval.toSeconds());
+    }
+
+    public static final class Builder {
+        private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+        private boolean http2Enabled = true;
+        private Duration connectTimeout = Duration.ofMillis(DEFAULT_CONNECT_TIMEOUT_MS);
+        private int tlsSessionCacheSize = DEFAULT_TLS_SESSION_CACHE_SIZE;
+        private Duration tlsSessionTimeout = Duration.ofSeconds(DEFAULT_TLS_SESSION_TIMEOUT_SECONDS);
+        private int warmUpConnections;
+        private Duration warmUpInterval = Duration.ofSeconds(DEFAULT_WARM_UP_INTERVAL_SECONDS);
+
+        private Builder() {
+        }
+
+        /**
+         * 同时等待响应的请求数上限，超出的请求排队等待，等待时间计入请求超时；流式请求收到响应头后归还名额
+         */
+        public Builder maxInFlightRequests(int maxInFlightRequests) {
+            this.maxInFlightRequests = maxInFlightRequests;
+            return this;
+        }
+
+        public Builder http2Enabled(boolean http2Enabled) {
+            this.http2Enabled = http2Enabled;
+            return this;
+        }
+
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder tlsSessionCacheSize(int tlsSessionCacheSize) {
+            this.tlsSessionCacheSize = tlsSessionCacheSize;
+            return this;
+        }
+
+        public Builder tlsSessionTimeout(Duration tlsSessionTimeout) {
+            this.tlsSessionTimeout = tlsSessionTimeout;
+            return this;
+        }
+
+        public Builder warmUpConnections(int warmUpConnections) {
+            this.warmUpConnections = warmUpConnections;
+            return this;
+        }
+
+        public Builder warmUpInterval(Duration warmUpInterval) {
+            this.warmUpInterval = warmUpInterval;
+            return this;
+        }
+
+        public HttpTransportConfig build() {
+            return new HttpTransportConfig(this);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTTP 传输层配置测试
+ *
+ * 使用 {@link MockOpenAiServer}，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("HTTP 传输层配置测试")
+class HttpTransportTest {
+
+    @TempDir
+    Path configDir;
+
+    private MockOpenAiServer server;
+    private ModelConfig config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start();
+        config = ModelConfig.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey("test-key")
+                .modelName("mock-model")
+                .temperature(0.7)
+                .maxTokens(100)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        EnvConfig.reload();
+    }
+
+    @Test
+    @DisplayName("在途请求数和连接数不应该超过 maxInFlightRequests")
+    void shouldBoundInFlightRequests() throws Exception {
+        server.latency(Duration.ofMillis(20));
+        HttpTransportConfig transportConfig = HttpTransportConfig.builder()
+                .maxInFlightRequests(8)
+                .build();
+
+        ExecutorService pool = Executors.newFixedThreadPool(100);
+        try (ModelRegistry registry = new ModelRegistry(new HttpTransport(transportConfig))) {
+            ChatModel model = registry.chatModel(config);
+
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(pool.submit(() -> model.chat("你好")));
+            }
+            for (Future<String> future : futures) {
+                assertEquals("你好", future.get());
+            }
+            assertEquals(0, registry.transport().inFlight());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(100, server.requestCount());
+        assertTrue(server.connectionCount() <= 8, "连接数超过了上限: " + server.connectionCount());
+
+        log.info("100 个并发请求使用的连接数: {}", server.connectionCount());
+        log.info("\n✅ 测试通过：在途请求数受 maxInFlightRequests 限制\n");
+    }
+
+    @Test
+    @DisplayName("等待在途请求名额超过请求超时时应该抛出 TimeoutException")
+    void shouldTimeOutWaitingForPermit() throws Exception {
+        server.latency(Duration.ofMillis(1000));
+        HttpTransportConfig transportConfig = HttpTransportConfig.builder()
+                .maxInFlightRequests(1)
+                .build();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (HttpTransport transport = new HttpTransport(transportConfig)) {
+            ChatModel slow = chatModel(transport, Duration.ofSeconds(5));
+            ChatModel impatient = chatModel(transport, Duration.ofMillis(100));
+
+            Future<String> holder = pool.submit(() -> slow.chat("你好"));
+            while (transport.inFlight() == 0) {
+                Thread.onSpinWait();
+            }
+            long start = System.nanoTime();
+            assertThrows(TimeoutException.class, () -> impatient.chat("你好"));
+            long waitedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+            assertEquals("你好", holder.get());
+            assertEquals(1, server.requestCount());
+            assertTrue(waitedMillis < 900, "应该在请求超时后放弃等待: " + waitedMillis);
+            assertEquals(0, transport.inFlight());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        log.info("\n✅ 测试通过：等待名额超时\n");
+    }
+
+    @Test
+    @DisplayName("流式请求收到响应头后应该归还名额，进行中的流不占用 maxInFlightRequests")
+    void shouldReleasePermitOnceStreamStarts() throws Exception {
+        // 每个流约 2 秒，比请求超时长：名额如果一直被占用，排队的流会等待超时
+        server.responder(message -> message.repeat(20)).tokensPerSecond(20);
+        int streams = 3;
+        CountDownLatch started = new CountDownLatch(streams);
+        CountDownLatch finished = new CountDownLatch(streams);
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+        try (HttpTransport transport = new HttpTransport(HttpTransportConfig.builder()
+                .maxInFlightRequests(1)
+                .build())) {
+            StreamingChatModel model = OpenAiStreamingChatModel.builder()
+                    .httpClientBuilder(transport.clientBuilder())
+                    .baseUrl(server.baseUrl())
+                    .apiKey(MockOpenAiServer.API_KEY)
+                    .modelName("mock-model")
+                    .timeout(Duration.ofSeconds(1))
+                    .build();
+            for (int i = 0; i < streams; i++) {
+                AtomicBoolean first = new AtomicBoolean(true);
+                model.chat("你好", new StreamingChatResponseHandler() {
+                    @Override
+                    public void onPartialResponse(String partialResponse) {
+                        if (first.getAndSet(false)) {
+                            started.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void onCompleteResponse(ChatResponse completeResponse) {
+                        finished.countDown();
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        errors.add(error);
+                        finished.countDown();
+                    }
+                });
+            }
+
+            assertTrue(started.await(1, TimeUnit.SECONDS), "所有流都应该在第一个流结束前开始");
+            assertEquals(0, transport.inFlight());
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(List.of(), errors);
+
+        log.info("\n✅ 测试通过：进行中的流不占用在途请求名额\n");
+    }
+
+    @Test
+    @DisplayName("应该按配置设置协议版本和 TLS 会话缓存")
+    void shouldApplyProtocolAndTlsSettings() {
+        HttpTransportConfig transportConfig = HttpTransportConfig.builder()
+                .http2Enabled(false)
+                .tlsSessionCacheSize(256)
+                .tlsSessionTimeout(Duration.ofMinutes(10))
+                .build();
+
+        try (HttpTransport transport = new HttpTransport(transportConfig)) {
+            HttpClient client = transport.httpClient();
+
+            assertEquals(HttpClient.Version.HTTP_1_1, client.version());
+            assertEquals(256, client.sslContext().getClientSessionContext().getSessionCacheSize());
+            assertEquals(600, client.sslContext().getClientSessionContext().getSessionTimeout());
+        }
+
+        try (HttpTransport transport = new HttpTransport()) {
+            assertEquals(HttpClient.Version.HTTP_2, transport.httpClient().version());
+        }
+
+        log.info("\n✅ 测试通过：协议版本和 TLS 会话缓存按配置生效\n");
+    }
+
+    @Test
+    @DisplayName("应该从 .env 读取传输层配置")
+    void shouldLoadConfigFromEnv() throws Exception {
+        Files.writeString(configDir.resolve(".env"), String.join("\n",
+                "LANGCHAT_HTTP_MAX_IN_FLIGHT_REQUESTS=16",
+                "LANGCHAT_HTTP2_ENABLED=false",
+                "LANGCHAT_HTTP_CONNECT_TIMEOUT_MS=3000"));
+        EnvConfig.reload(configDir);
+
+        HttpTransportConfig transportConfig = HttpTransportConfig.fromEnv();
+
+        assertEquals(16, transportConfig.getMaxInFlightRequests());
+        assertFalse(transportConfig.isHttp2Enabled());
+        assertEquals(Duration.ofSeconds(3), transportConfig.getConnectTimeout());
+        assertThrows(IllegalArgumentException.class,
+                () -> HttpTransportConfig.builder().maxInFlightRequests(0).build());
+
+        log.info("传输层配置: {}", transportConfig);
+        log.info("\n✅ 测试通过：从 .env 读取传输层配置\n");
+    }
+
+    private ChatModel chatModel(HttpTransport transport, Duration timeout) {
+        return OpenAiChatModel.builder()
+                .httpClientBuilder(transport.clientBuilder())
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .timeout(timeout)
+                .maxRetries(0)
+                .build();
+    }
+}
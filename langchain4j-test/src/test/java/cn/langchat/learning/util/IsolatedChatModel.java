@@ -0,0 +1,46 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 在 {@link EndpointIsolation} 的舱壁和熔断器保护下调用的 ChatModel 装饰器
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class IsolatedChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final EndpointIsolation isolation;
+
+    public IsolatedChatModel(ChatModel delegate, EndpointIsolation isolation) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.isolation = Objects.requireNonNull(isolation, "isolation");
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        return isolation.execute(() -> delegate.chat(chatRequest));
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    public EndpointIsolation isolation() {
+        return isolation;
+    }
+}
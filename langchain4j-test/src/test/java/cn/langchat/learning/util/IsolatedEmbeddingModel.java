@@ -0,0 +1,45 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 在 {@link EndpointIsolation} 的舱壁和熔断器保护下调用的 EmbeddingModel 装饰器
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class IsolatedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final EndpointIsolation isolation;
+
+    public IsolatedEmbeddingModel(EmbeddingModel delegate, EndpointIsolation isolation) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.isolation = Objects.requireNonNull(isolation, "isolation");
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return isolation.execute(() -> delegate.embedAll(textSegments));
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public String modelName() {
+        return delegate.modelName();
+    }
+
+    public EndpointIsolation isolation() {
+        return isolation;
+    }
+}
@@ -0,0 +1,197 @@
+package cn.langchat.learning.util;
+
+import java.time.Duration;
+
+/**
+ * 模型端点的隔离配置：舱壁（bulkhead）和熔断器（circuit breaker）
+ *
+ * 可以通过 {@link #fromEnv(String)} 从 .env 读取，也可以使用 builder 手动创建。
+ * 每一项都可以按作用域覆盖，例如 LANGCHAT_EMBEDDING_BULKHEAD_MAX_CONCURRENT 只对向量模型生效：
+ * <pre>
+ * LANGCHAT_BULKHEAD_MAX_CONCURRENT=16        # 同时执行的请求数
+ * LANGCHAT_BULKHEAD_MAX_QUEUED=32            # 等待执行的请求数，超过时立即拒绝
+ * LANGCHAT_BULKHEAD_MAX_WAIT_MS=1000         # 最长排队时间，超过时拒绝
+ * LANGCHAT_BREAKER_FAILURE_RATE=50           # 失败率（%）达到该值时熔断
+ * LANGCHAT_BREAKER_WINDOW_SIZE=20            # 按最近多少次请求计算失败率，请求数不足时不熔断
+ * LANGCHAT_BREAKER_OPEN_SECONDS=30           # 熔断后多久进入半开状态
+ * LANGCHAT_BREAKER_HALF_OPEN_PROBES=3        # 半开状态下放行的探测请求数，全部成功后恢复
+ * </pre>
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class IsolationConfig {
+
+    public static final String MAX_CONCURRENT = "BULKHEAD_MAX_CONCURRENT";
+    public static final String MAX_QUEUED = "BULKHEAD_MAX_QUEUED";
+    public static final String MAX_WAIT_MS = "BULKHEAD_MAX_WAIT_MS";
+    public static final String FAILURE_RATE = "BREAKER_FAILURE_RATE";
+    public static final String WINDOW_SIZE = "BREAKER_WINDOW_SIZE";
+    public static final String OPEN_SECONDS = "BREAKER_OPEN_SECONDS";
+    public static final String HALF_OPEN_PROBES = "BREAKER_HALF_OPEN_PROBES";
+
+    private static final String PREFIX = "LANGCHAT_";
+    private static final int DEFAULT_MAX_CONCURRENT = 16;
+    private static final int DEFAULT_MAX_QUEUED = 32;
+    private static final int DEFAULT_MAX_WAIT_MS = 1000;
+    private static final double DEFAULT_FAILURE_RATE = 50;
+    private static final int DEFAULT_WINDOW_SIZE = 20;
+    private static final int DEFAULT_OPEN_SECONDS = 30;
+    private static final int DEFAULT_HALF_OPEN_PROBES = 3;
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration maxWait;
+    private final double failureRateThreshold;
+    private final int windowSize;
+    private final Duration openDuration;
+    private final int halfOpenProbes;
+
+    private IsolationConfig(Builder builder) {
+        if (builder.maxConcurrent <= 0 || builder.maxQueued < 0) {
+            throw new IllegalArgumentException("maxConcurrent 必须大于 0，maxQueued 不能小于 0");
+        }
+        if (builder.failureRateThreshold <= 0 || builder.failureRateThreshold > 100) {
+            throw new IllegalArgumentException("failureRateThreshold 必须在 (0, 100] 之间");
+        }
+        if (builder.windowSize <= 0 || builder.halfOpenProbes <= 0) {
+            throw new IllegalArgumentException("windowSize 和 halfOpenProbes 必须大于 0");
+        }
+        this.maxConcurrent = builder.maxConcurrent;
+        this.maxQueued = builder.maxQueued;
+        this.maxWait = builder.maxWait;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.windowSize = builder.windowSize;
+        this.openDuration = builder.openDuration;
+        this.halfOpenProbes = builder.halfOpenProbes;
+    }
+
+    /**
+     * 默认配置
+     */
+    public static IsolationConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * 从 EnvConfig 读取配置：先读 LANGCHAT_{scope}_{KEY}，再读 LANGCHAT_{KEY}，都没有时使用默认值
+     *
+     * @param scope 作用域，例如 CHAT、EMBEDDING；为 null 时只读取全局配置
+     */
+    public static IsolationConfig fromEnv(String scope) {
+        EnvSnapshot env = EnvConfig.snapshot();
+        return builder()
+                .maxConcurrent(getInt(env, scope, MAX_CONCURRENT, DEFAULT_MAX_CONCURRENT))
+                .maxQueued(getInt(env, scope, MAX_QUEUED, DEFAULT_MAX_QUEUED))
+                .maxWait(Duration.ofMillis(getInt(env, scope, MAX_WAIT_MS, DEFAULT_MAX_WAIT_MS)))
+                .failureRateThreshold(env.getDouble(scopedKey(scope, FAILURE_RATE),
+                        env.getDouble(PREFIX + FAILURE_RATE, DEFAULT_FAILURE_RATE)))
+                .windowSize(getInt(env, scope, WINDOW_SIZE, DEFAULT_WINDOW_SIZE))
+                .openDuration(Duration.ofSeconds(getInt(env, scope, OPEN_SECONDS, DEFAULT_OPEN_SECONDS)))
+                .halfOpenProbes(getInt(env, scope, HALF_OPEN_PROBES, DEFAULT_HALF_OPEN_PROBES))
+                .build();
+    }
+
+    private static int getInt(EnvSnapshot env, String scope, String key, int defaultValue) {
+        return env.getInt(scopedKey(scope, key), env.getInt(PREFIX + key, defaultValue));
+    }
+
+    private static String scopedKey(String scope, String key) {
+        return scope == null ? PREFIX + key : PREFIX + scope + "_" + key;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    @Override
+    public String toString() {
+        return "IsolationConfig{maxConcurrent=" + maxConcurrent + ", maxQueued=" + maxQueued
+                + ", maxWait=" + maxWait.toMillis() + "ms, failureRateThreshold=" + failureRateThreshold
+                + "%, windowSize=" + windowSize + ", openDuration=" + openDuration.toSeconds()
+                + "s, halfOpenProbes=" + halfOpenProbes + "}";
+    }
+
+    public static final class Builder {
+        private int maxConcurrent = DEFAULT_MAX_CONCURRENT;
+        private int maxQueued = DEFAULT_MAX_QUEUED;
+        private Duration maxWait = Duration.ofMillis(DEFAULT_MAX_WAIT_MS);
+        private double failureRateThreshold = DEFAULT_FAILURE_RATE;
+        private int windowSize = DEFAULT_WINDOW_SIZE;
+        private Duration openDuration = Duration.ofSeconds(DEFAULT_OPEN_SECONDS);
+        private int halfOpenProbes = DEFAULT_HALF_OPEN_PROBES;
+
+        private Builder() {
+        }
+
+        public Builder maxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+            return this;
+        }
+
+        public Builder maxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+            return this;
+        }
+
+        public Builder maxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        /**
+         * 熔断的失败率阈值，单位 %
+         */
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        public Builder windowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        public Builder openDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        public Builder halfOpenProbes(int halfOpenProbes) {
+            this.halfOpenProbes = halfOpenProbes;
+            return this;
+        }
+
+        public IsolationConfig build() {
+            return new IsolationConfig(this);
+        }
+    }
+}
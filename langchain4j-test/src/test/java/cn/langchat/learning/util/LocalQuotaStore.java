@@ -0,0 +1,84 @@
+package cn.langchat.learning.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的 {@link QuotaStore}
+ *
+ * 每个 key 有两个令牌桶，容量为每分钟的上限，按上限 / 60 秒的速率连续补充，与服务端按分钟滑动计算额度的方式一致
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class LocalQuotaStore implements QuotaStore {
+
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<String, Buckets> buckets = new ConcurrentHashMap<>();
+
+    @Override
+    public long tryConsume(String key, Quota quota, long requests, long tokens) {
+        Buckets state = buckets(key, quota);
+        synchronized (state) {
+            state.refill(quota, System.nanoTime());
+            double requestDeficit = quota.requestsPerMinute() > 0 ? requests - state.requests : 0;
+            double tokenDeficit = quota.tokensPerMinute() > 0 ? tokens - state.tokens : 0;
+            if (requestDeficit <= 0 && tokenDeficit <= 0) {
+                state.requests -= requests;
+                state.tokens -= tokens;
+                return 0;
+            }
+            double waitNanos = 0;
+            if (requestDeficit > 0) {
+                waitNanos = requestDeficit * NANOS_PER_MINUTE / quota.requestsPerMinute();
+            }
+            if (tokenDeficit > 0) {
+                waitNanos = Math.max(waitNanos, tokenDeficit * NANOS_PER_MINUTE / quota.tokensPerMinute());
+            }
+            return Math.max(1, (long) Math.ceil(waitNanos));
+        }
+    }
+
+    @Override
+    public void adjust(String key, Quota quota, long requests, long tokens) {
+        Buckets state = buckets(key, quota);
+        synchronized (state) {
+            state.refill(quota, System.nanoTime());
+            state.requests = Math.min(quota.requestsPerMinute(), state.requests - requests);
+            state.tokens = Math.min(quota.tokensPerMinute(), state.tokens - tokens);
+        }
+    }
+
+    @Override
+    public double availableTokens(String key, Quota quota) {
+        Buckets state = buckets(key, quota);
+        synchronized (state) {
+            state.refill(quota, System.nanoTime());
+            return state.tokens;
+        }
+    }
+
+    private Buckets buckets(String key, Quota quota) {
+        return buckets.computeIfAbsent(key, k -> new Buckets(quota));
+    }
+
+    private static final class Buckets {
+        private double requests;
+        private double tokens;
+        private long refilledAtNanos = System.nanoTime();
+
+        private Buckets(Quota quota) {
+            this.requests = quota.requestsPerMinute();
+            this.tokens = quota.tokensPerMinute();
+        }
+
+        private void refill(Quota quota, long now) {
+            double elapsedMinutes = (now - refilledAtNanos) / NANOS_PER_MINUTE;
+            refilledAtNanos = now;
+            requests = Math.min(quota.requestsPerMinute(), requests + elapsedMinutes * quota.requestsPerMinute());
+            tokens = Math.min(quota.tokensPerMinute(), tokens + elapsedMinutes * quota.tokensPerMinute());
+        }
+    }
+}
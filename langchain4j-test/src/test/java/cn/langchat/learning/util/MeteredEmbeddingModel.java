@@ -0,0 +1,97 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录 Micrometer 指标的 EmbeddingModel 装饰器
+ *
+ * - langchat.embedding.request：请求耗时，标签 model、outcome
+ * - langchat.embedding.batch.size：每次请求的文本数
+ * - langchat.model.tokens：token 用量（type=input），与对话模型共用
+ * - langchat.model.errors：错误数，标签 model、error
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class MeteredEmbeddingModel implements EmbeddingModel {
+
+    public static final String REQUEST_TIMER = "langchat.embedding.request";
+    public static final String BATCH_SIZE = "langchat.embedding.batch.size";
+
+    private final EmbeddingModel delegate;
+    private final MeterRegistry registry;
+    private final String modelName;
+    private final Timer successTimer;
+    private final Timer errorTimer;
+    private final DistributionSummary batchSize;
+    private final Counter inputTokens;
+    private final Map<Class<?>, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    public MeteredEmbeddingModel(EmbeddingModel delegate, MeterRegistry registry, String modelName) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.modelName = Objects.requireNonNullElse(modelName, "unknown");
+        this.successTimer = requestTimer("success");
+        this.errorTimer = requestTimer("error");
+        this.batchSize = DistributionSummary.builder(BATCH_SIZE)
+                .description("每次向量请求的文本数")
+                .tag("model", this.modelName)
+                .register(registry);
+        this.inputTokens = MetricsChatModelListener.tokenCounter(registry, this.modelName, "input");
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        batchSize.record(textSegments.size());
+        long start = System.nanoTime();
+        try {
+            Response<List<Embedding>> response = delegate.embedAll(textSegments);
+            successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (response.tokenUsage() != null && response.tokenUsage().inputTokenCount() != null) {
+                inputTokens.increment(response.tokenUsage().inputTokenCount());
+            }
+            return response;
+        } catch (RuntimeException e) {
+            errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            errorCounters.computeIfAbsent(e.getClass(), type -> Counter.builder(MetricsChatModelListener.ERROR_COUNTER)
+                            .description("模型调用错误数")
+                            .tag("model", modelName)
+                            .tag("error", type.getSimpleName())
+                            .register(registry))
+                    .increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public String modelName() {
+        return delegate.modelName();
+    }
+
+    private Timer requestTimer(String outcome) {
+        return Timer.builder(REQUEST_TIMER)
+                .description("向量请求耗时")
+                .tag("model", modelName)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
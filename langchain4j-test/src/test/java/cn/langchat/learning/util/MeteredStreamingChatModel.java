@@ -0,0 +1,168 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.CompleteToolCall;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.PartialThinking;
+import dev.langchain4j.model.chat.response.PartialThinkingContext;
+import dev.langchain4j.model.chat.response.PartialToolCall;
+import dev.langchain4j.model.chat.response.PartialToolCallContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录首 token 延迟和传输时间的 StreamingChatModel 装饰器
+ *
+ * ChatModelListener 只能看到完整的请求和响应，首 token 延迟需要在 handler 中测量：
+ * - langchat.model.ttft：从发起请求到收到第一个片段（文本、思考或工具调用）的耗时，标签 model
+ * - langchat.model.transfer：从第一个片段到响应完成的耗时，标签 model。
+ *   首 token 延迟主要受连接建立和排队影响，传输时间主要受生成速度影响，两者分开才能定位问题
+ *
+ * 请求耗时、token 用量等其它指标仍由被装饰模型上的 {@link MetricsChatModelListener} 记录
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class MeteredStreamingChatModel implements StreamingChatModel {
+
+    public static final String TTFT_TIMER = "langchat.model.ttft";
+    public static final String TRANSFER_TIMER = "langchat.model.transfer";
+
+    private final StreamingChatModel delegate;
+    private final Timer timeToFirstToken;
+    private final Timer transferTime;
+
+    public MeteredStreamingChatModel(StreamingChatModel delegate, MeterRegistry registry, String modelName) {
+        this.delegate = delegate;
+        String model = Objects.requireNonNullElse(modelName, "unknown");
+        this.timeToFirstToken = Timer.builder(TTFT_TIMER)
+                .description("流式响应首 token 延迟")
+                .tag("model", model)
+                .publishPercentileHistogram()
+                .register(registry);
+        this.transferTime = Timer.builder(TRANSFER_TIMER)
+                .description("流式响应从首 token 到完成的传输时间")
+                .tag("model", model)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        delegate.chat(chatRequest, new TimingHandler(handler, System.nanoTime()));
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return delegate.listeners();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    /**
+     * 在第一个片段到达时记录首 token 延迟，完成时记录传输时间，其余回调原样转发
+     */
+    private final class TimingHandler implements StreamingChatResponseHandler {
+
+        private final StreamingChatResponseHandler delegate;
+        private final long startNanos;
+        private long firstTokenNanos;
+        private boolean firstTokenSeen;
+
+        private TimingHandler(StreamingChatResponseHandler delegate, long startNanos) {
+            this.delegate = delegate;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            markFirstToken();
+            delegate.onPartialResponse(partialResponse);
+        }
+
+        @Override
+        public void onPartialResponse(PartialResponse partialResponse, PartialResponseContext context) {
+            markFirstToken();
+            delegate.onPartialResponse(partialResponse, context);
+        }
+
+        @Override
+        public void onPartialThinking(PartialThinking partialThinking) {
+            markFirstToken();
+            delegate.onPartialThinking(partialThinking);
+        }
+
+        @Override
+        public void onPartialThinking(PartialThinking partialThinking, PartialThinkingContext context) {
+            markFirstToken();
+            delegate.onPartialThinking(partialThinking, context);
+        }
+
+        @Override
+        public void onPartialToolCall(PartialToolCall partialToolCall) {
+            markFirstToken();
+            delegate.onPartialToolCall(partialToolCall);
+        }
+
+        @Override
+        public void onPartialToolCall(PartialToolCall partialToolCall, PartialToolCallContext context) {
+            markFirstToken();
+            delegate.onPartialToolCall(partialToolCall, context);
+        }
+
+        @Override
+        public void onCompleteToolCall(CompleteToolCall completeToolCall) {
+            delegate.onCompleteToolCall(completeToolCall);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            if (firstTokenSeen) {
+                transferTime.record(System.nanoTime() - firstTokenNanos, TimeUnit.NANOSECONDS);
+            }
+            delegate.onCompleteResponse(completeResponse);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            delegate.onError(error);
+        }
+
+        /**
+         * 流式回调在同一个线程中按顺序执行，不需要同步
+         */
+        private void markFirstToken() {
+            if (!firstTokenSeen) {
+                firstTokenSeen = true;
+                firstTokenNanos = System.nanoTime();
+                timeToFirstToken.record(firstTokenNanos - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 ChatModelListener 的 Micrometer 指标
+ *
+ * 发布的指标（标签只使用取值有限的维度，避免高基数）：
+ * - langchat.model.request：请求耗时，标签 model、outcome（success / error）、finish_reason
+ * - langchat.model.tokens：token 用量，标签 model、type（input / output）
+ * - langchat.model.errors：错误数，标签 model、error（异常类型）
+ *
+ * 所有 Meter 在构造时或第一次出现时创建并缓存，请求路径上只做一次 Map 查找和计数
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class MetricsChatModelListener implements ChatModelListener {
+
+    public static final String REQUEST_TIMER = "langchat.model.request";
+    public static final String TOKEN_COUNTER = "langchat.model.tokens";
+    public static final String ERROR_COUNTER = "langchat.model.errors";
+
+    private static final Object START_NANOS = new Object();
+
+    private final MeterRegistry registry;
+    private final String modelName;
+    private final Map<FinishReason, Timer> successTimers = new EnumMap<>(FinishReason.class);
+    private final Timer unknownFinishTimer;
+    private final Timer errorTimer;
+    private final Counter inputTokens;
+    private final Counter outputTokens;
+    private final Map<Class<?>, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    /**
+     * 使用 EnvConfig 中的模型名称作为标签
+     */
+    public MetricsChatModelListener(MeterRegistry registry) {
+        this(registry, EnvConfig.getModelName());
+    }
+
+    public MetricsChatModelListener(MeterRegistry registry, String modelName) {
+        this.registry = registry;
+        this.modelName = Objects.requireNonNullElse(modelName, "unknown");
+        for (FinishReason reason : FinishReason.values()) {
+            successTimers.put(reason, requestTimer("success", reason.name().toLowerCase(Locale.ROOT)));
+        }
+        this.unknownFinishTimer = requestTimer("success", "none");
+        this.errorTimer = requestTimer("error", "none");
+        this.inputTokens = tokenCounter(registry, this.modelName, "input");
+        this.outputTokens = tokenCounter(registry, this.modelName, "output");
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext requestContext) {
+        requestContext.attributes().put(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        ChatResponse response = responseContext.chatResponse();
+        FinishReason finishReason = response.finishReason();
+        Timer timer = finishReason != null ? successTimers.get(finishReason) : unknownFinishTimer;
+        record(timer, responseContext.attributes());
+
+        TokenUsage usage = response.tokenUsage();
+        if (usage != null) {
+            if (usage.inputTokenCount() != null) {
+                inputTokens.increment(usage.inputTokenCount());
+            }
+            if (usage.outputTokenCount() != null) {
+                outputTokens.increment(usage.outputTokenCount());
+            }
+        }
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        record(errorTimer, errorContext.attributes());
+        errorCounters.computeIfAbsent(errorContext.error().getClass(), type -> Counter.builder(ERROR_COUNTER)
+                        .description("模型调用错误数")
+                        .tag("model", modelName)
+                        .tag("error", type.getSimpleName())
+                        .register(registry))
+                .increment();
+    }
+
+    /**
+     * token 计数器，EmbeddingModel 也使用同一个指标
+     */
+    static Counter tokenCounter(MeterRegistry registry, String modelName, String type) {
+        return Counter.builder(TOKEN_COUNTER)
+                .description("模型 token 用量")
+                .tag("model", modelName)
+                .tag("type", type)
+                .register(registry);
+    }
+
+    private Timer requestTimer(String outcome, String finishReason) {
+        return Timer.builder(REQUEST_TIMER)
+                .description("模型请求耗时")
+                .tag("model", modelName)
+                .tag("outcome", outcome)
+                .tag("finish_reason", finishReason)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static void record(Timer timer, Map<Object, Object> attributes) {
+        Object start = attributes.get(START_NANOS);
+        if (start instanceof Long startNanos) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,625 @@
+package cn.langchat.learning.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地模拟的 OpenAI 兼容服务
+ *
+ * 基于 JDK 自带的 HttpServer，用于在没有 API Key 的情况下运行测试、压测和性能基准：
+ * - /v1/chat/completions：普通响应和 SSE 流式响应（请求中 "stream": true）
+ * - /v1/embeddings：根据文本的字符 n-gram 生成确定性的归一化向量，相似文本的向量也相似
+ * - /v1/models：模型列表，客户端可以用来预热连接
+ * - 输出完全确定：相同的请求总是得到相同的回复和向量
+ *
+ * 可以注入的行为：
+ * - {@link #latency(LatencyModel)}：首个 token 之前的延迟（固定、均匀分布或对数正态分布）
+ * - {@link #tokensPerSecond(double)}：生成速度，流式响应按该速度逐个发送 token
+ * - {@link #fault(int, double)}：按概率返回 429 / 5xx，{@link #failNext(int, int)} 让接下来的 N 个请求失败
+ * - {@link #retryAfter(Duration)}：429 / 503 响应携带的 Retry-After
+ * - {@link #connectionLatency(Duration)}：每个新连接上第一个请求的额外延迟，模拟 TCP + TLS 握手
+ *
+ * 在 .env 中设置 LANGCHAT_MOCK_SERVER=true 后，{@link EnvConfig#getBaseUrl()} 会指向 {@link #shared()}，
+ * 所有通过 {@link TestModelProvider} 创建的模型都会连接到本地模拟服务
+ *
+ * 注意：JDK HttpServer 只支持 HTTP/1.1，启用 HTTP/2 的客户端会自动降级。
+ * JDK HttpServer 默认不设置 TCP_NODELAY，流式响应的小片段会被 Nagle 算法和客户端的延迟 ACK 攒在一起，
+ * 开头几个 token 同时到达，测得的生成速度偏高。JDK 在创建第一个 HttpServer 时读取 sun.net.httpserver.nodelay，
+ * 这是整个 JVM 的设置，所以不在这里修改：pom.xml 的 surefire 配置为测试设置了 -Dsun.net.httpserver.nodelay=true，
+ * 在其它地方启动模拟服务时需要自己加上这个参数
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class MockOpenAiServer implements AutoCloseable {
+
+    public static final String ENABLED = EnvConfig.MOCK_SERVER;
+    public static final String LATENCY_MS = "LANGCHAT_MOCK_LATENCY_MS";
+    public static final String TOKENS_PER_SECOND = "LANGCHAT_MOCK_TOKENS_PER_SECOND";
+    public static final String API_KEY = "mock-key";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 英文按单词切分，中文等非 ASCII 字符按单个字符切分，近似模型的 token
+     */
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("\\s*\\w+|\\s*\\S|\\s+");
+
+    private static volatile MockOpenAiServer shared;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger faultCount = new AtomicInteger();
+    private final AtomicInteger abortedStreamCount = new AtomicInteger();
+    private final AtomicInteger modelListCount = new AtomicInteger();
+    private final AtomicInteger pendingFailures = new AtomicInteger();
+    private final List<Fault> faults = new CopyOnWriteArrayList<>();
+    private final Random random;
+
+    private volatile LatencyModel latency = LatencyModel.fixed(Duration.ZERO);
+    private volatile double tokensPerSecond;
+    private volatile Function<String, String> responder = message -> "你好";
+    private volatile int embeddingDimension = 384;
+    private volatile Duration retryAfter = Duration.ofSeconds(1);
+    private volatile Duration connectionLatency = Duration.ZERO;
+    private volatile int pendingFailureStatus;
+
+    private MockOpenAiServer(HttpServer server, long seed) {
+        this.server = server;
+        this.random = new Random(seed);
+        this.executor = Executors.newCachedThreadPool(DaemonThreads.factory("mock-openai-server"));
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", exchange -> handle(exchange, this::handleChat));
+        server.createContext("/v1/embeddings", exchange -> handle(exchange, this::handleEmbeddings));
+        server.createContext("/v1/models", this::handleModels);
+    }
+
+    /**
+     * 在随机端口上启动服务
+     */
+    public static MockOpenAiServer start() throws IOException {
+        return start(42L);
+    }
+
+    /**
+     * 在随机端口上启动服务，使用指定的随机种子（影响延迟分布和故障注入）
+     */
+    public static MockOpenAiServer start(long seed) throws IOException {
+        // backlog 设置得足够大，避免高并发建连时被拒绝
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        MockOpenAiServer mock = new MockOpenAiServer(server, seed);
+        server.start();
+        log.debug("模拟 OpenAI 服务已启动: {}", mock.baseUrl());
+        return mock;
+    }
+
+    /**
+     * 获取进程内共享的模拟服务（懒加载，JVM 退出时关闭）
+     *
+     * 延迟和生成速度从 LANGCHAT_MOCK_LATENCY_MS、LANGCHAT_MOCK_TOKENS_PER_SECOND 读取
+     */
+    public static MockOpenAiServer shared() {
+        MockOpenAiServer server = shared;
+        if (server == null) {
+            synchronized (MockOpenAiServer.class) {
+                server = shared;
+                if (server == null) {
+                    try {
+                        server = start()
+                                .latency(Duration.ofMillis(EnvConfig.getInt(LATENCY_MS, 0)))
+                                .tokensPerSecond(EnvConfig.getDouble(TOKENS_PER_SECOND, 0.0));
+                    } catch (IOException e) {
+                        throw new IllegalStateException("无法启动模拟 OpenAI 服务", e);
+                    }
+                    Runtime.getRuntime().addShutdownHook(new Thread(server::close, "mock-openai-server-shutdown"));
+                    shared = server;
+                }
+            }
+        }
+        return server;
+    }
+
+    /**
+     * 是否启用了本地模拟服务（LANGCHAT_MOCK_SERVER=true）
+     */
+    public static boolean isEnabled() {
+        return EnvConfig.snapshot().isMockServer();
+    }
+
+    /**
+     * 设置固定的首 token 延迟
+     */
+    public MockOpenAiServer latency(Duration latency) {
+        return latency(LatencyModel.fixed(latency));
+    }
+
+    /**
+     * 设置首 token 延迟的分布
+     */
+    public MockOpenAiServer latency(LatencyModel latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * 设置生成速度（每秒 token 数），0 表示不限速
+     */
+    public MockOpenAiServer tokensPerSecond(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+        return this;
+    }
+
+    /**
+     * 设置固定的回复内容
+     */
+    public MockOpenAiServer reply(String reply) {
+        return responder(message -> reply);
+    }
+
+    /**
+     * 根据最后一条用户消息生成回复，函数需要是确定性的；
+     * 返回 null 时模拟内容过滤：content 为 null，finish_reason 为 content_filter
+     */
+    public MockOpenAiServer responder(Function<String, String> responder) {
+        this.responder = responder;
+        return this;
+    }
+
+    /**
+     * 设置向量维度
+     */
+    public MockOpenAiServer embeddingDimension(int embeddingDimension) {
+        this.embeddingDimension = embeddingDimension;
+        return this;
+    }
+
+    /**
+     * 按概率返回指定的错误状态码（如 429、500、503）
+     */
+    public MockOpenAiServer fault(int statusCode, double probability) {
+        faults.add(new Fault(statusCode, probability));
+        return this;
+    }
+
+    /**
+     * 接下来的 count 个请求返回指定的错误状态码
+     */
+    public MockOpenAiServer failNext(int statusCode, int count) {
+        this.pendingFailureStatus = statusCode;
+        this.pendingFailures.set(count);
+        return this;
+    }
+
+    /**
+     * 设置 429 / 503 响应的 Retry-After
+     */
+    public MockOpenAiServer retryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * 设置新连接上第一个请求的额外延迟，模拟建立 TCP 连接和 TLS 握手的开销
+     */
+    public MockOpenAiServer connectionLatency(Duration connectionLatency) {
+        this.connectionLatency = connectionLatency;
+        return this;
+    }
+
+    /**
+     * 清除所有故障注入
+     */
+    public MockOpenAiServer clearFaults() {
+        faults.clear();
+        pendingFailures.set(0);
+        return this;
+    }
+
+    /**
+     * 客户端使用的 Base URL（包含 /v1）
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    /**
+     * 已收到的请求数（包括注入故障的请求）
+     */
+    public int requestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * 注入故障的请求数
+     */
+    public int faultCount() {
+        return faultCount.get();
+    }
+
+    /**
+     * 客户端在生成完成前断开的流式请求数
+     */
+    public int abortedStreamCount() {
+        return abortedStreamCount.get();
+    }
+
+    /**
+     * /v1/models 收到的请求数（不计入 {@link #requestCount()}）
+     */
+    public int modelListCount() {
+        return modelListCount.get();
+    }
+
+    /**
+     * 客户端建立过的连接数
+     */
+    public int connectionCount() {
+        return clientPorts.size();
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public void resetStats() {
+        requestCount.set(0);
+        faultCount.set(0);
+        abortedStreamCount.set(0);
+        modelListCount.set(0);
+        clientPorts.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.debug("模拟 OpenAI 服务已关闭");
+    }
+
+    /**
+     * 把文本切分成近似的 token，流式响应按该结果逐个发送
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN_PATTERN.matcher(text);
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    /**
+     * 生成确定性的文本向量：字符 unigram 和 bigram 哈希到固定维度后归一化
+     */
+    public static float[] embed(String text, int dimension) {
+        float[] vector = new float[dimension];
+        int[] codePoints = text.codePoints().toArray();
+        for (int i = 0; i < codePoints.length; i++) {
+            addFeature(vector, codePoints[i]);
+            if (i + 1 < codePoints.length) {
+                addFeature(vector, codePoints[i] * 31 + codePoints[i + 1]);
+            }
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            vector[0] = 1;
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static void addFeature(float[] vector, int feature) {
+        int hash = Integer.rotateLeft(feature * 0x9E3779B9, 13) * 0x85EBCA6B;
+        vector[Math.floorMod(hash, vector.length)] += (hash & 1) == 0 ? 1 : -1;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try {
+            acceptConnection(exchange);
+            requestCount.incrementAndGet();
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            Integer faultStatus = nextFault();
+            if (faultStatus != null) {
+                faultCount.incrementAndGet();
+                sendError(exchange, faultStatus);
+                return;
+            }
+            sleep(latency.next(random));
+            handler.handle(exchange, request);
+        } catch (IOException e) {
+            // 客户端提前断开连接（例如取消了流式请求）
+            log.debug("模拟服务写入响应失败: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 模型列表不参与故障注入，也不计入请求数，预热连接不会影响测试中的统计
+     */
+    private void handleModels(HttpExchange exchange) throws IOException {
+        try {
+            acceptConnection(exchange);
+            modelListCount.incrementAndGet();
+            ObjectNode response = MAPPER.createObjectNode().put("object", "list");
+            response.putArray("data").addObject()
+                    .put("id", "mock-model")
+                    .put("object", "model")
+                    .put("owned_by", "langchat");
+            sendJson(exchange, response);
+        } catch (IOException e) {
+            log.debug("模拟服务写入响应失败: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 记录客户端连接，新连接上的第一个请求额外等待 connectionLatency
+     */
+    private void acceptConnection(HttpExchange exchange) {
+        if (clientPorts.add(exchange.getRemoteAddress().getPort())) {
+            sleep(connectionLatency);
+        }
+    }
+
+    private Integer nextFault() {
+        if (pendingFailures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            return pendingFailureStatus;
+        }
+        for (Fault fault : faults) {
+            if (random.nextDouble() < fault.probability()) {
+                return fault.statusCode();
+            }
+        }
+        return null;
+    }
+
+    private void handleChat(HttpExchange exchange, JsonNode request) throws IOException {
+        String model = request.path("model").asText("mock-model");
+        String reply = responder.apply(lastUserMessage(request));
+        List<String> tokens = reply == null ? List.of() : tokenize(reply);
+        String finishReason = reply == null ? "content_filter" : "stop";
+        int promptTokens = promptTokens(request);
+        String id = "chatcmpl-mock-" + requestCount.get();
+
+        if (!request.path("stream").asBoolean(false)) {
+            sleep(generationTime(tokens.size()));
+            ObjectNode response = MAPPER.createObjectNode()
+                    .put("id", id)
+                    .put("object", "chat.completion")
+                    .put("created", System.currentTimeMillis() / 1000)
+                    .put("model", model);
+            ObjectNode choice = response.putArray("choices").addObject().put("index", 0);
+            choice.putObject("message").put("role", "assistant").put("content", reply);
+            choice.put("finish_reason", finishReason);
+            response.set("usage", usage(promptTokens, tokens.size()));
+            sendJson(exchange, response);
+            return;
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        Duration perToken = generationTime(1);
+        try {
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i > 0) {
+                    sleep(perToken);
+                }
+                ObjectNode chunk = chunk(id, model);
+                ObjectNode delta = ((ObjectNode) chunk.get("choices").get(0)).putObject("delta");
+                if (i == 0) {
+                    delta.put("role", "assistant");
+                }
+                delta.put("content", tokens.get(i));
+                writeEvent(out, chunk.toString());
+            }
+        } catch (IOException e) {
+            // 与真实服务一样，客户端断开后停止生成
+            abortedStreamCount.incrementAndGet();
+            throw e;
+        }
+        ObjectNode last = chunk(id, model);
+        ObjectNode lastChoice = (ObjectNode) last.get("choices").get(0);
+        lastChoice.putObject("delta");
+        lastChoice.put("finish_reason", finishReason);
+        last.set("usage", usage(promptTokens, tokens.size()));
+        writeEvent(out, last.toString());
+        writeEvent(out, "[DONE]");
+    }
+
+    private void handleEmbeddings(HttpExchange exchange, JsonNode request) throws IOException {
+        List<String> inputs = new ArrayList<>();
+        JsonNode input = request.path("input");
+        if (input.isArray()) {
+            input.forEach(node -> inputs.add(node.asText()));
+        } else {
+            inputs.add(input.asText());
+        }
+
+        int dimension = request.path("dimensions").asInt(embeddingDimension);
+        ObjectNode response = MAPPER.createObjectNode().put("object", "list");
+        ArrayNode data = response.putArray("data");
+        int tokens = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            ObjectNode item = data.addObject().put("object", "embedding").put("index", i);
+            ArrayNode vector = item.putArray("embedding");
+            for (float value : embed(inputs.get(i), dimension)) {
+                vector.add(value);
+            }
+            tokens += tokenize(inputs.get(i)).size();
+        }
+        response.put("model", request.path("model").asText("mock-embedding"));
+        response.putObject("usage").put("prompt_tokens", tokens).put("total_tokens", tokens);
+        sendJson(exchange, response);
+    }
+
+    private static String lastUserMessage(JsonNode request) {
+        String content = "";
+        for (JsonNode message : request.path("messages")) {
+            if ("user".equals(message.path("role").asText())) {
+                JsonNode node = message.path("content");
+                content = node.isTextual() ? node.asText() : node.toString();
+            }
+        }
+        return content;
+    }
+
+    private static int promptTokens(JsonNode request) {
+        int tokens = 0;
+        for (JsonNode message : request.path("messages")) {
+            tokens += tokenize(message.path("content").asText()).size() + 4;
+        }
+        return tokens;
+    }
+
+    private Duration generationTime(int tokens) {
+        double rate = tokensPerSecond;
+        if (rate <= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((long) (tokens * 1_000_000_000L / rate));
+    }
+
+    private static ObjectNode chunk(String id, String model) {
+        ObjectNode chunk = MAPPER.createObjectNode()
+                .put("id", id)
+                .put("object", "chat.completion.chunk")
+                .put("created", System.currentTimeMillis() / 1000)
+                .put("model", model);
+        chunk.putArray("choices").addObject().put("index", 0);
+        return chunk;
+    }
+
+    private static ObjectNode usage(int promptTokens, int completionTokens) {
+        return MAPPER.createObjectNode()
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendJson(HttpExchange exchange, JsonNode response) throws IOException {
+        byte[] body = MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private void sendError(HttpExchange exchange, int statusCode) throws IOException {
+        String type = statusCode == 429 ? "rate_limit_exceeded" : "server_error";
+        ObjectNode response = MAPPER.createObjectNode();
+        response.putObject("error")
+                .put("message", "模拟服务注入的错误: " + statusCode)
+                .put("type", type)
+                .put("code", type);
+        if (statusCode == 429 || statusCode == 503) {
+            exchange.getResponseHeaders().add("Retry-After",
+                    String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000)));
+            exchange.getResponseHeaders().add("retry-after-ms", String.valueOf(retryAfter.toMillis()));
+        }
+        byte[] body = MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero() || duration.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis(), (int) (duration.toNanos() % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange, JsonNode request) throws IOException;
+    }
+
+    private record Fault(int statusCode, double probability) {
+    }
+
+    /**
+     * 延迟分布
+     */
+    @FunctionalInterface
+    public interface LatencyModel {
+
+        Duration next(Random random);
+
+        /**
+         * 固定延迟
+         */
+        static LatencyModel fixed(Duration latency) {
+            return random -> latency;
+        }
+
+        /**
+         * [min, max] 之间的均匀分布
+         */
+        static LatencyModel uniform(Duration min, Duration max) {
+            long minNanos = min.toNanos();
+            long range = max.toNanos() - minNanos;
+            return random -> Duration.ofNanos(minNanos + (long) (random.nextDouble() * range));
+        }
+
+        /**
+         * 对数正态分布：大多数请求接近中位数，少数请求形成长尾，接近真实模型服务的延迟特征
+         *
+         * @param median 中位数
+         * @param sigma  形状参数，越大尾部越长（0.5 左右时 p99 约为中位数的 3 倍）
+         */
+        static LatencyModel logNormal(Duration median, double sigma) {
+            double mu = Math.log(median.toNanos());
+            return random -> Duration.ofNanos((long) Math.exp(mu + sigma * random.nextGaussian()));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package cn.langchat.learning.util;
+
+import cn.langchat.learning.tutorial.embedding.utils.VectorUtils;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地模拟 OpenAI 服务测试
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("本地模拟 OpenAI 服务测试")
+class MockOpenAiServerTest {
+
+    @TempDir
+    Path configDir;
+
+    private MockOpenAiServer server;
+    private ModelRegistry registry;
+    private ModelConfig config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start()
+                .responder(message -> "你刚才说的是：" + message);
+        registry = new ModelRegistry(new HttpTransport());
+        config = ModelConfig.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        server.close();
+        EnvConfig.reload();
+    }
+
+    @Test
+    @DisplayName("普通响应和流式响应应该返回相同的确定性内容")
+    void shouldReturnDeterministicChatAndStreamingResponses() throws Exception {
+        server.tokensPerSecond(200);
+        ChatModel chatModel = registry.chatModel(config);
+        StreamingChatModel streamingModel = registry.streamingChatModel(config);
+
+        String response = chatModel.chat("Hello LangChain4j");
+
+        List<String> partials = new ArrayList<>();
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+        streamingModel.chat("Hello LangChain4j", new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                partials.add(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+        ChatResponse streamed = future.get(10, TimeUnit.SECONDS);
+
+        assertEquals("你刚才说的是：Hello LangChain4j", response);
+        assertEquals(response, streamed.aiMessage().text());
+        assertEquals(response, String.join("", partials));
+        assertEquals(MockOpenAiServer.tokenize(response).size(), partials.size());
+        assertEquals(partials.size(), streamed.tokenUsage().outputTokenCount());
+
+        log.info("流式片段: {}", partials);
+        log.info("\n✅ 测试通过：普通响应和流式响应内容一致\n");
+    }
+
+    @Test
+    @DisplayName("向量应该是确定的，且相似文本的向量更接近")
+    void shouldReturnDeterministicEmbeddings() {
+        server.embeddingDimension(128);
+        EmbeddingModel embeddingModel = registry.embeddingModel(config);
+
+        float[] java1 = embeddingModel.embed("Java 编程入门").content().vector();
+        float[] java2 = embeddingModel.embed("Java 编程入门").content().vector();
+        float[] similar = embeddingModel.embed("Java 编程教程").content().vector();
+        float[] unrelated = embeddingModel.embed("今天天气很好").content().vector();
+
+        assertEquals(128, java1.length);
+        assertArrayEquals(java1, java2);
+        assertArrayEquals(MockOpenAiServer.embed("Java 编程入门", 128), java1);
+        assertTrue(VectorUtils.cosineSimilarity(java1, similar) > VectorUtils.cosineSimilarity(java1, unrelated));
+
+        log.info("相似文本: {}, 无关文本: {}",
+                VectorUtils.cosineSimilarity(java1, similar), VectorUtils.cosineSimilarity(java1, unrelated));
+        log.info("\n✅ 测试通过：向量确定且保留相似度\n");
+    }
+
+    @Test
+    @DisplayName("应该能注入 429 和 5xx 错误")
+    void shouldInjectFaults() throws Exception {
+        ChatModel noRetry = OpenAiChatModel.builder()
+                .httpClientBuilder(registry.transport().clientBuilder())
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .maxRetries(0)
+                .build();
+
+        server.failNext(429, 1).retryAfter(Duration.ofMillis(1500));
+        assertThrows(RateLimitException.class, () -> noRetry.chat("你好"));
+
+        server.failNext(429, 1);
+        HttpResponse<String> raw = registry.transport().httpClient().send(
+                HttpRequest.newBuilder(URI.create(server.baseUrl() + "/chat/completions"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"messages\":[]}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(429, raw.statusCode());
+        assertEquals("2", raw.headers().firstValue("Retry-After").orElse(null));
+        assertEquals("1500", raw.headers().firstValue("retry-after-ms").orElse(null));
+
+        // 默认的模型会重试，503 之后的请求成功
+        server.resetStats();
+        server.failNext(503, 1);
+        assertEquals("你刚才说的是：你好", registry.chatModel(config).chat("你好"));
+        assertEquals(2, server.requestCount());
+        assertEquals(1, server.faultCount());
+
+        log.info("\n✅ 测试通过：429 和 5xx 错误注入\n");
+    }
+
+    @Test
+    @DisplayName("对数正态延迟应该有长尾且可复现")
+    void shouldProduceReproducibleLatencyDistribution() {
+        MockOpenAiServer.LatencyModel latency = MockOpenAiServer.LatencyModel.logNormal(Duration.ofMillis(100), 0.5);
+
+        long[] first = sample(latency, new Random(7));
+        long[] second = sample(latency, new Random(7));
+
+        assertArrayEquals(first, second);
+        long p50 = first[first.length / 2];
+        long p99 = first[first.length * 99 / 100];
+        assertTrue(p50 > 90 && p50 < 110, "中位数应该接近 100ms: " + p50);
+        assertTrue(p99 > 2 * p50, "p99 应该明显高于中位数: " + p99);
+
+        log.info("p50={}ms, p99={}ms", p50, p99);
+        log.info("\n✅ 测试通过：延迟分布可复现\n");
+    }
+
+    @Test
+    @DisplayName("启用模拟服务后 TestModelProvider 应该连接到本地服务")
+    void shouldServeTestModelProviderWhenEnabled() throws Exception {
+        Files.writeString(configDir.resolve(".env"), "LANGCHAT_MOCK_SERVER=true\n");
+        EnvSnapshot snapshot = EnvConfig.reload(configDir);
+
+        assertTrue(snapshot.isMockServer());
+        assertTrue(MockOpenAiServer.isEnabled());
+        assertEquals(MockOpenAiServer.shared().baseUrl(), EnvConfig.getBaseUrl());
+        assertEquals(MockOpenAiServer.API_KEY, EnvConfig.getApiKey());
+        assertEquals("你好", TestModelProvider.getChatModel().chat("你好"));
+
+        log.info("\n✅ 测试通过：TestModelProvider 使用本地模拟服务\n");
+    }
+
+    private static long[] sample(MockOpenAiServer.LatencyModel latency, Random random) {
+        long[] samples = new long[10_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = latency.next(random).toMillis();
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+}
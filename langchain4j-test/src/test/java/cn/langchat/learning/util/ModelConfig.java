@@ -0,0 +1,164 @@
+package cn.langchat.learning.util;
+
+import java.util.Objects;
+
+/**
+ * 模型客户端配置
+ *
+ * 不可变对象，同时作为 {@link ModelRegistry} 的缓存键：
+ * 配置完全相同的模型只会创建一次
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class ModelConfig {
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final String modelName;
+    private final Double temperature;
+    private final Integer maxTokens;
+    private final Integer maxRetries;
+
+    private ModelConfig(Builder builder) {
+        this.baseUrl = builder.baseUrl;
+        this.apiKey = builder.apiKey;
+        this.modelName = builder.modelName;
+        this.temperature = builder.temperature;
+        this.maxTokens = builder.maxTokens;
+        this.maxRetries = builder.maxRetries;
+    }
+
+    /**
+     * 使用 EnvConfig 中的配置创建对话模型配置
+     */
+    public static ModelConfig chatFromEnv() {
+        return builder()
+                .baseUrl(EnvConfig.getBaseUrl())
+                .apiKey(EnvConfig.getApiKey())
+                .modelName(EnvConfig.getModelName())
+                .temperature(EnvConfig.getTemperature())
+                .maxTokens(EnvConfig.getMaxTokens())
+                .build();
+    }
+
+    /**
+     * 使用 EnvConfig 中的配置创建向量模型配置
+     */
+    public static ModelConfig embeddingFromEnv() {
+        return builder()
+                .baseUrl(EnvConfig.getBaseUrl())
+                .apiKey(EnvConfig.getApiKey())
+                .modelName(EnvConfig.getEmbeddingModelName())
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public Double getTemperature() {
+        return temperature;
+    }
+
+    public Integer getMaxTokens() {
+        return maxTokens;
+    }
+
+    public Integer getMaxRetries() {
+        return maxRetries;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ModelConfig)) {
+            return false;
+        }
+        ModelConfig that = (ModelConfig) o;
+        return Objects.equals(baseUrl, that.baseUrl)
+                && Objects.equals(apiKey, that.apiKey)
+                && Objects.equals(modelName, that.modelName)
+                && Objects.equals(temperature, that.temperature)
+                && Objects.equals(maxTokens, that.maxTokens)
+                && Objects.equals(maxRetries, that.maxRetries);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(baseUrl, apiKey, modelName, temperature, maxTokens, maxRetries);
+    }
+
+    /**
+     * 不输出 API Key
+     */
+    @Override
+    public String toString() {
+        return String.format("ModelConfig{baseUrl=%s, modelName=%s, temperature=%s, maxTokens=%s, maxRetries=%s}",
+                baseUrl, modelName, temperature, maxTokens, maxRetries);
+    }
+
+    public static final class Builder {
+        private String baseUrl;
+        private String apiKey;
+        private String modelName;
+        private Double temperature;
+        private Integer maxTokens;
+        private Integer maxRetries;
+
+        private Builder() {
+        }
+
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        public Builder apiKey(String apiKey) {
+            this.apiKey = apiKey;
+            return this;
+        }
+
+        public Builder modelName(String modelName) {
+            this.modelName = modelName;
+            return this;
+        }
+
+        public Builder temperature(Double temperature) {
+            this.temperature = temperature;
+            return this;
+        }
+
+        public Builder maxTokens(Integer maxTokens) {
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * LangChain4j 内置的重试次数，null 表示使用默认值。
+         * 外层有舱壁、熔断器或 {@link Resilience} 时设为 0，每次调用只发一个请求
+         */
+        public Builder maxRetries(Integer maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public ModelConfig build() {
+            return new ModelConfig(this);
+        }
+    }
+}
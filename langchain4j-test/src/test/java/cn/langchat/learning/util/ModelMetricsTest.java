@@ -0,0 +1,150 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.exception.AuthenticationException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型指标测试
+ *
+ * 使用 {@link MockOpenAiServer} 和 SimpleMeterRegistry，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("模型指标测试")
+class ModelMetricsTest {
+
+    private MockOpenAiServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private ModelRegistry registry;
+    private ModelConfig config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start().reply("你好，我是模拟模型");
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new ModelRegistry(new HttpTransport(), meterRegistry);
+        config = ModelConfig.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("应该记录请求耗时、结束原因和 token 用量")
+    void shouldRecordChatMetrics() {
+        ChatModel chatModel = registry.chatModel(config);
+
+        chatModel.chat("你好");
+        chatModel.chat("再见");
+
+        Timer timer = meterRegistry.get(MetricsChatModelListener.REQUEST_TIMER)
+                .tags("model", "mock-model", "outcome", "success", "finish_reason", "stop")
+                .timer();
+        assertEquals(2, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertTrue(meterRegistry.get(MetricsChatModelListener.TOKEN_COUNTER)
+                .tags("model", "mock-model", "type", "input").counter().count() > 0);
+        assertEquals(2.0 * MockOpenAiServer.tokenize("你好，我是模拟模型").size(),
+                meterRegistry.get(MetricsChatModelListener.TOKEN_COUNTER)
+                        .tags("model", "mock-model", "type", "output").counter().count());
+
+        log.info("\n{}", meterRegistry.getMetersAsString());
+        log.info("\n✅ 测试通过：记录请求耗时和 token 用量\n");
+    }
+
+    @Test
+    @DisplayName("流式请求应该记录首 token 延迟")
+    void shouldRecordTimeToFirstToken() throws Exception {
+        server.latency(Duration.ofMillis(50)).tokensPerSecond(100);
+        StreamingChatModel streamingModel = registry.streamingChatModel(config);
+
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+        streamingModel.chat("你好", new StreamingChatResponseHandler() {
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+        future.get(10, TimeUnit.SECONDS);
+
+        Timer ttft = meterRegistry.get(MeteredStreamingChatModel.TTFT_TIMER).tag("model", "mock-model").timer();
+        Timer request = meterRegistry.get(MetricsChatModelListener.REQUEST_TIMER)
+                .tags("outcome", "success", "finish_reason", "stop").timer();
+        assertEquals(1, ttft.count());
+        assertTrue(ttft.totalTime(TimeUnit.MILLISECONDS) >= 50);
+        assertTrue(ttft.totalTime(TimeUnit.NANOSECONDS) < request.totalTime(TimeUnit.NANOSECONDS),
+                "首 token 延迟应该小于完整请求耗时");
+
+        log.info("首 token: {} ms, 完整请求: {} ms",
+                ttft.totalTime(TimeUnit.MILLISECONDS), request.totalTime(TimeUnit.MILLISECONDS));
+        log.info("\n✅ 测试通过：记录首 token 延迟\n");
+    }
+
+    @Test
+    @DisplayName("应该按异常类型记录错误")
+    void shouldRecordErrorsByType() {
+        server.failNext(401, 1);
+        ChatModel chatModel = registry.chatModel(config);
+
+        assertThrows(AuthenticationException.class, () -> chatModel.chat("你好"));
+
+        assertEquals(1, meterRegistry.get(MetricsChatModelListener.ERROR_COUNTER)
+                .tags("model", "mock-model", "error", "AuthenticationException").counter().count());
+        assertEquals(1, meterRegistry.get(MetricsChatModelListener.REQUEST_TIMER)
+                .tags("outcome", "error").timer().count());
+
+        log.info("\n✅ 测试通过：按异常类型记录错误\n");
+    }
+
+    @Test
+    @DisplayName("应该记录向量请求的批大小")
+    void shouldRecordEmbeddingBatchSize() {
+        registry.embeddingModel(config).embedAll(List.of(
+                TextSegment.from("Java"), TextSegment.from("Python"), TextSegment.from("Go")));
+        registry.embeddingModel(config).embed("LangChain4j");
+
+        DistributionSummary batchSize = meterRegistry.get(MeteredEmbeddingModel.BATCH_SIZE)
+                .tag("model", "mock-model").summary();
+        assertEquals(2, batchSize.count());
+        assertEquals(4, batchSize.totalAmount());
+        assertEquals(3, batchSize.max());
+        assertEquals(2, meterRegistry.get(MeteredEmbeddingModel.REQUEST_TIMER)
+                .tags("outcome", "success").timer().count());
+
+        log.info("\n✅ 测试通过：记录向量请求的批大小\n");
+    }
+}
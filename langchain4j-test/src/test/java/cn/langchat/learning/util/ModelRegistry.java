@@ -0,0 +1,241 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模型注册表
+ *
+ * 按 {@link ModelConfig} 缓存模型客户端实例：
+ * - 配置相同的 ChatModel、StreamingChatModel、EmbeddingModel 只创建一次
+ * - 所有模型共用同一个 {@link HttpTransport}，不会为每个模型创建新的连接池
+ * - 所有模型都会向 {@link MeterRegistry} 发布指标（见 {@link MetricsChatModelListener}），
+ *   默认使用 Micrometer 的全局注册表：没有添加任何实际的注册表时，记录操作几乎没有开销
+ * - {@link #warmUp(String)} 预热到 Base URL 的连接，空闲时重新预热（见 {@link ConnectionWarmer}）
+ * - 默认实例在 JVM 退出时自动关闭；LANGCHAT_HTTP_WARM_UP_CONNECTIONS 大于 0 时启动即预热 EnvConfig 的 Base URL
+ *
+ * 注册表只缓存 OpenAI 客户端本身。舱壁和熔断器（{@link IsolatedChatModel}）、限流（{@link RateLimitedChatModel}）、
+ * 攒批（{@link BatchingEmbeddingModel}）、后台准备请求（{@link OffloadingStreamingChatModel}）等装饰器由使用方组合，
+ * 需要共享的状态（如同一端点的 {@link EndpointIsolation}）也由使用方持有。
+ * 装饰器在外层处理失败时，用 {@link ModelConfig.Builder#maxRetries(Integer)} 关闭内置重试
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class ModelRegistry implements AutoCloseable {
+
+    private static volatile ModelRegistry defaultRegistry;
+    /**
+     * 由 ModelRegistry.class 保护；关闭后重新创建的默认实例共用同一个关闭钩子
+     */
+    private static boolean shutdownHookRegistered;
+
+    private final HttpTransport transport;
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, Object> models = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionWarmer> warmers = new ConcurrentHashMap<>();
+
+    public ModelRegistry(HttpTransport transport) {
+        this(transport, Metrics.globalRegistry);
+    }
+
+    public ModelRegistry(HttpTransport transport, MeterRegistry meterRegistry) {
+        this.transport = Objects.requireNonNull(transport, "transport");
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry");
+    }
+
+    /**
+     * 获取默认注册表（懒加载，JVM 退出时关闭）
+     */
+    public static ModelRegistry getDefault() {
+        ModelRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (ModelRegistry.class) {
+                registry = defaultRegistry;
+                if (registry == null) {
+                    registry = new ModelRegistry(new HttpTransport(HttpTransportConfig.fromEnv()));
+                    if (!shutdownHookRegistered) {
+                        Runtime.getRuntime().addShutdownHook(
+                                new Thread(ModelRegistry::closeDefault, "langchat-model-registry-shutdown"));
+                        shutdownHookRegistered = true;
+                    }
+                    if (registry.transport.config().getWarmUpConnections() > 0) {
+                        registry.warmUp(EnvConfig.getBaseUrl());
+                    }
+                    defaultRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    private static void closeDefault() {
+        ModelRegistry registry = defaultRegistry;
+        if (registry != null) {
+            registry.close();
+        }
+    }
+
+    /**
+     * 获取 ChatModel（相同配置复用同一实例）
+     */
+    public ChatModel chatModel(ModelConfig config) {
+        return (ChatModel) models.computeIfAbsent(new Key(ModelType.CHAT, config), key -> {
+            log.debug("创建 ChatModel: {}", config);
+            return OpenAiChatModel.builder()
+                    .httpClientBuilder(transport.clientBuilder())
+                    .apiKey(config.getApiKey())
+                    .baseUrl(config.getBaseUrl())
+                    .modelName(config.getModelName())
+                    .temperature(config.getTemperature())
+                    .maxTokens(config.getMaxTokens())
+                    .maxRetries(config.getMaxRetries())
+                    .listeners(List.of(new MetricsChatModelListener(meterRegistry, config.getModelName())))
+                    .build();
+        });
+    }
+
+    /**
+     * 获取 StreamingChatModel（相同配置复用同一实例）
+     */
+    public StreamingChatModel streamingChatModel(ModelConfig config) {
+        return (StreamingChatModel) models.computeIfAbsent(new Key(ModelType.STREAMING_CHAT, config), key -> {
+            log.debug("创建 StreamingChatModel: {}", config);
+            StreamingChatModel model = OpenAiStreamingChatModel.builder()
+                    .httpClientBuilder(transport.clientBuilder())
+                    .apiKey(config.getApiKey())
+                    .baseUrl(config.getBaseUrl())
+                    .modelName(config.getModelName())
+                    .temperature(config.getTemperature())
+                    .maxTokens(config.getMaxTokens())
+                    .listeners(List.of(new MetricsChatModelListener(meterRegistry, config.getModelName())))
+                    .build();
+            return new MeteredStreamingChatModel(model, meterRegistry, config.getModelName());
+        });
+    }
+
+    /**
+     * 预热到 baseUrl 的连接，同一个 Base URL 只启动一个预热器
+     *
+     * 连接数取 LANGCHAT_HTTP_WARM_UP_CONNECTIONS（至少 1 个），空闲阈值取 LANGCHAT_HTTP_WARM_UP_INTERVAL_SECONDS。
+     * 第一次预热是同步的网络请求，放在 map 的锁外面执行，不阻塞其它 Base URL 的预热；
+     * 同一个 Base URL 并发启动时只保留先放进去的预热器，其余的关闭
+     */
+    public ConnectionWarmer warmUp(String baseUrl) {
+        ConnectionWarmer existing = warmers.get(baseUrl);
+        if (existing != null) {
+            return existing;
+        }
+        HttpTransportConfig transportConfig = transport.config();
+        ConnectionWarmer warmer = ConnectionWarmer.start(transport, baseUrl,
+                Math.max(1, transportConfig.getWarmUpConnections()), transportConfig.getWarmUpInterval());
+        existing = warmers.putIfAbsent(baseUrl, warmer);
+        if (existing != null) {
+            warmer.close();
+            return existing;
+        }
+        return warmer;
+    }
+
+    /**
+     * 获取 EmbeddingModel（相同配置复用同一实例）
+     */
+    public EmbeddingModel embeddingModel(ModelConfig config) {
+        return (EmbeddingModel) models.computeIfAbsent(new Key(ModelType.EMBEDDING, config), key -> {
+            log.debug("创建 EmbeddingModel: {}", config);
+            EmbeddingModel model = OpenAiEmbeddingModel.builder()
+                    .httpClientBuilder(transport.clientBuilder())
+                    .apiKey(config.getApiKey())
+                    .baseUrl(config.getBaseUrl())
+                    .modelName(config.getModelName())
+                    .maxRetries(config.getMaxRetries())
+                    .build();
+            return new MeteredEmbeddingModel(model, meterRegistry, config.getModelName());
+        });
+    }
+
+    /**
+     * 获取共享的 HTTP 传输层
+     */
+    public HttpTransport transport() {
+        return transport;
+    }
+
+    /**
+     * 获取发布指标的 MeterRegistry
+     */
+    public MeterRegistry meterRegistry() {
+        return meterRegistry;
+    }
+
+    /**
+     * 已缓存的模型数量
+     */
+    public int size() {
+        return models.size();
+    }
+
+    /**
+     * 清空缓存并关闭共享的 HTTP 传输层
+     */
+    @Override
+    public void close() {
+        synchronized (ModelRegistry.class) {
+            if (defaultRegistry == this) {
+                defaultRegistry = null;
+            }
+        }
+        warmers.values().forEach(ConnectionWarmer::close);
+        warmers.clear();
+        models.clear();
+        transport.close();
+        log.debug("模型注册表已关闭");
+    }
+
+    private enum ModelType {
+        CHAT, STREAMING_CHAT, EMBEDDING
+    }
+
+    /**
+     * 缓存键：模型类型 + 配置
+     */
+    private static final class Key {
+        private final ModelType type;
+        private final ModelConfig config;
+
+        private Key(ModelType type, ModelConfig config) {
+            this.type = type;
+            this.config = Objects.requireNonNull(config, "config");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return type == that.type && config.equals(that.config);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + config.hashCode();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package cn.langchat.learning.util;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型注册表测试
+ *
+ * 使用本地 HttpServer 模拟 OpenAI 兼容接口，不需要 API Key
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("模型注册表测试")
+class ModelRegistryTest {
+
+    private static final String CHAT_RESPONSE = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\","
+            + "\"model\":\"mock-model\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"你好\"},\"finish_reason\":\"stop\"}],"
+            + "\"usage\":{\"prompt_tokens\":3,\"completion_tokens\":1,\"total_tokens\":4}}";
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private HttpServer server;
+    private ModelRegistry registry;
+    private ModelConfig config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = CHAT_RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        registry = new ModelRegistry(new HttpTransport());
+        config = ModelConfig.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1")
+                .apiKey("test-key")
+                .modelName("mock-model")
+                .temperature(0.7)
+                .maxTokens(100)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("相同配置应该复用同一个模型实例")
+    void shouldReuseModelForSameConfig() {
+        ModelConfig sameConfig = ModelConfig.builder()
+                .baseUrl(config.getBaseUrl())
+                .apiKey("test-key")
+                .modelName("mock-model")
+                .temperature(0.7)
+                .maxTokens(100)
+                .build();
+
+        ChatModel first = registry.chatModel(config);
+        ChatModel second = registry.chatModel(sameConfig);
+        StreamingChatModel streaming = registry.streamingChatModel(config);
+        EmbeddingModel embedding = registry.embeddingModel(config);
+
+        assertSame(first, second);
+        assertNotNull(streaming);
+        assertNotNull(embedding);
+        assertEquals(3, registry.size());
+
+        log.info("缓存的模型数: {}", registry.size());
+        log.info("\n✅ 测试通过：相同配置复用同一个模型实例\n");
+    }
+
+    @Test
+    @DisplayName("不同配置应该创建不同的模型实例")
+    void shouldCreateModelForDifferentConfig() {
+        ModelConfig otherConfig = ModelConfig.builder()
+                .baseUrl(config.getBaseUrl())
+                .apiKey("test-key")
+                .modelName("mock-model")
+                .temperature(0.2)
+                .maxTokens(100)
+                .build();
+
+        ModelConfig noRetryConfig = ModelConfig.builder()
+                .baseUrl(config.getBaseUrl())
+                .apiKey("test-key")
+                .modelName("mock-model")
+                .temperature(0.7)
+                .maxTokens(100)
+                .maxRetries(0)
+                .build();
+
+        assertNotSame(registry.chatModel(config), registry.chatModel(otherConfig));
+        assertNotSame(registry.chatModel(config), registry.chatModel(noRetryConfig));
+        assertFalse(otherConfig.toString().contains("test-key"), "toString 不应该输出 API Key");
+
+        log.info("\n✅ 测试通过：不同配置创建不同的模型实例\n");
+    }
+
+    @Test
+    @DisplayName("多次调用应该复用共享连接池中的连接")
+    void shouldReuseConnectionsAcrossCalls() {
+        ChatModel model = registry.chatModel(config);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("你好", model.chat("你好"));
+        }
+
+        // 串行请求应该始终复用同一个长连接
+        assertEquals(1, clientPorts.size());
+
+        log.info("20 次请求使用的连接数: {}", clientPorts.size());
+        log.info("\n✅ 测试通过：连接被复用\n");
+    }
+
+    @Test
+    @DisplayName("默认注册表关闭后应该重新创建")
+    void shouldRecreateDefaultAfterClose() {
+        ModelRegistry first = ModelRegistry.getDefault();
+        assertSame(first, ModelRegistry.getDefault());
+        first.close();
+
+        ModelRegistry second = ModelRegistry.getDefault();
+        assertNotSame(first, second);
+        assertFalse(second.transport().isClosed());
+
+        log.info("\n✅ 测试通过：默认注册表关闭后重新创建\n");
+    }
+
+    @Test
+    @DisplayName("关闭后应该拒绝新请求")
+    void shouldRejectRequestsAfterClose() {
+        ChatModel model = registry.chatModel(config);
+        registry.close();
+
+        assertTrue(registry.transport().isClosed());
+        assertEquals(0, registry.size());
+        assertThrows(IllegalStateException.class, () -> model.chat("你好"));
+
+        log.info("\n✅ 测试通过：关闭后拒绝新请求\n");
+    }
+}
@@ -0,0 +1,72 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 在后台线程中准备请求的 StreamingChatModel 装饰器
+ *
+ * OpenAiStreamingChatModel.chat 会在调用方线程上合并参数、通知 listener、序列化 JSON 请求体，
+ * 这里把整个调用交给 executor，调用方（例如 Web 请求线程）提交后立即返回。
+ * 准备阶段抛出的异常通过 handler.onError 通知，与网络错误的处理方式一致。
+ * 对首 token 延迟敏感时，再用 {@link ModelRegistry#warmUp(String)} 预热连接；
+ * {@link MeteredStreamingChatModel} 放在它外层时，首 token 延迟包含后台线程的排队时间
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class OffloadingStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+    private final Executor executor;
+
+    public OffloadingStreamingChatModel(StreamingChatModel delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        try {
+            executor.execute(() -> {
+                try {
+                    delegate.chat(chatRequest, handler);
+                } catch (RuntimeException e) {
+                    handler.onError(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            handler.onError(e);
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return delegate.listeners();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+}
@@ -0,0 +1,36 @@
+package cn.langchat.learning.util;
+
+/**
+ * 配额存储：按 key 记录每分钟请求数（RPM）和 token 数（TPM）的剩余额度
+ *
+ * {@link TokenRateLimiter} 只负责排队和预留，额度记在这里。多个进程共用同一个 API Key 时，
+ * 可以用 Redis 等共享存储实现这个接口（每个方法对应一段原子执行的脚本），本地使用 {@link LocalQuotaStore}
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public interface QuotaStore {
+
+    /**
+     * 尝试扣减额度，额度不足时不扣减
+     *
+     * @return 0 表示扣减成功；否则为额度足够前需要等待的纳秒数
+     */
+    long tryConsume(String key, Quota quota, long requests, long tokens);
+
+    /**
+     * 修正已扣减的额度，正数表示追加扣减，负数表示返还。修正后的额度可以为负（欠额），之后的请求会等待更久
+     */
+    void adjust(String key, Quota quota, long requests, long tokens);
+
+    /**
+     * 当前剩余的 token 额度
+     */
+    double availableTokens(String key, Quota quota);
+
+    /**
+     * 每分钟的请求数和 token 数上限，小于等于 0 表示不限制
+     */
+    record Quota(long requestsPerMinute, long tokensPerMinute) {
+    }
+}
@@ -0,0 +1,85 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 按 {@link TokenRateLimiter} 限流的 ChatModel 装饰器
+ *
+ * 预留的 token 数 = 用 {@link TokenEstimators#openAi()} 估算的输入 token 数 + 输出上限（maxOutputTokens，
+ * 未设置时使用 defaultOutputTokens）。响应返回后按 TokenUsage 中的实际用量修正
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class RateLimitedChatModel implements ChatModel {
+
+    private static final int DEFAULT_OUTPUT_TOKENS = 256;
+
+    private final ChatModel delegate;
+    private final TokenRateLimiter limiter;
+    private final TokenCountEstimator estimator;
+    private final int defaultOutputTokens;
+
+    public RateLimitedChatModel(ChatModel delegate, TokenRateLimiter limiter) {
+        this(delegate, limiter, TokenEstimators.openAi(), DEFAULT_OUTPUT_TOKENS);
+    }
+
+    public RateLimitedChatModel(ChatModel delegate, TokenRateLimiter limiter, TokenCountEstimator estimator,
+                                int defaultOutputTokens) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.limiter = Objects.requireNonNull(limiter, "limiter");
+        this.estimator = Objects.requireNonNull(estimator, "estimator");
+        this.defaultOutputTokens = defaultOutputTokens;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        TokenRateLimiter.Reservation reservation = limiter.acquire(estimate(chatRequest));
+        ChatResponse response;
+        try {
+            response = delegate.chat(chatRequest);
+        } catch (RuntimeException e) {
+            reservation.cancel();
+            throw e;
+        }
+        TokenUsage usage = response.tokenUsage();
+        if (usage != null && usage.totalTokenCount() != null) {
+            reservation.commit(usage.totalTokenCount());
+        } else {
+            reservation.commit(reservation.getReservedTokens());
+        }
+        return response;
+    }
+
+    /**
+     * 估算一个请求最多使用的 token 数
+     */
+    long estimate(ChatRequest chatRequest) {
+        Integer maxOutputTokens = chatRequest.maxOutputTokens();
+        return estimator.estimateTokenCountInMessages(chatRequest.messages())
+                + (maxOutputTokens != null ? maxOutputTokens : defaultOutputTokens);
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    public TokenRateLimiter limiter() {
+        return limiter;
+    }
+}
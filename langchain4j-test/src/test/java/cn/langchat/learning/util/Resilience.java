@@ -0,0 +1,465 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.NonRetriableException;
+import dev.langchain4j.exception.RetriableException;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 模型调用的重试与对冲策略
+ *
+ * - 重试：指数退避加完全抖动（full jitter），第 n 次重试前等待 [0, min(maxDelay, baseDelay × 2^n)] 之间的随机时间，
+ *   避免大量客户端在同一时刻重试
+ * - 429 / 503 携带 Retry-After 时至少等待服务端要求的时间；要求的时间超过 maxRetryAfter 时直接放弃
+ * - 只重试可重试的错误：超时、连接失败、408、429 和 5xx。400、401 等请求本身的问题立即抛出
+ * - 每次重试都要从 {@link RetryBudget} 取令牌，服务整体故障时不会形成重试风暴
+ * - 对冲（hedging，默认关闭）：请求在最近成功请求的 p95 耗时内没有返回时，再发一个相同的请求，
+ *   先返回的结果生效，另一个被取消。对冲请求同样消耗重试预算。请求在 executor 的线程上执行
+ *
+ * 使用 Resilience 时，被包装的模型应该设置 maxRetries(0)，否则 LangChain4j 自带的重试会和这里的重试叠加
+ *
+ * <pre>
+ * Resilience resilience = Resilience.builder()
+ *         .maxRetries(3)
+ *         .retryBudget(new RetryBudget(0.1, 10))
+ *         .hedging(true)
+ *         .build();
+ * ChatModel chatModel = new ResilientChatModel(openAiChatModelWithoutRetries, resilience);
+ * </pre>
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class Resilience {
+
+    private static final long REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int MIN_HEDGE_SAMPLES = 50;
+    private static final ExecutorService HEDGE_EXECUTOR = DaemonThreads.boundedPool("langchat-hedge", 64, 1024);
+
+    private final int maxRetries;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final Duration maxRetryAfter;
+    private final RetryBudget retryBudget;
+    private final boolean hedging;
+    private final double hedgePercentile;
+    private final ExecutorService executor;
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    /**
+     * 成功请求的耗时（微秒），定期合并到 window 中计算对冲延迟
+     */
+    private final Recorder latencies = new Recorder(2);
+    private final Histogram window = new Histogram(2);
+    private Histogram interval;
+    private volatile long hedgeDelayNanos;
+    private volatile long nextRefreshNanos;
+
+    private Resilience(Builder builder) {
+        this.maxRetries = builder.maxRetries;
+        this.baseDelayNanos = builder.baseDelay.toNanos();
+        this.maxDelayNanos = builder.maxDelay.toNanos();
+        this.maxRetryAfter = builder.maxRetryAfter;
+        this.retryBudget = builder.retryBudget;
+        this.hedging = builder.hedging;
+        this.hedgePercentile = builder.hedgePercentile;
+        this.executor = builder.executor;
+        this.hedgeDelayNanos = builder.hedgeDelay.toNanos();
+        this.nextRefreshNanos = System.nanoTime() + REFRESH_INTERVAL_NANOS;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 按策略执行一次调用，所有重试都失败时抛出最后一次的异常
+     */
+    public <T> T execute(Supplier<T> call) {
+        retryBudget.deposit();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return hedging ? executeHedged(call) : timed(call);
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries || !isRetriable(e)) {
+                    throw e;
+                }
+                Duration retryAfter = retryAfter(e);
+                if (retryAfter != null && retryAfter.compareTo(maxRetryAfter) > 0) {
+                    log.warn("服务端要求 {}ms 后重试，超过上限 {}ms，放弃重试", retryAfter.toMillis(), maxRetryAfter.toMillis());
+                    throw e;
+                }
+                if (!retryBudget.tryAcquire()) {
+                    budgetExhausted.increment();
+                    log.warn("重试预算已用完，放弃重试: {}", e.toString());
+                    throw e;
+                }
+                retries.increment();
+                long delayNanos = backoffNanos(attempt, retryAfter);
+                log.debug("第 {} 次重试，{}ms 后执行: {}", attempt + 1, TimeUnit.NANOSECONDS.toMillis(delayNanos), e.toString());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(delayNanos);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 当前的对冲延迟：样本足够时为最近成功请求耗时的 p95（或配置的百分位），否则为配置的初始值
+     */
+    public Duration hedgeDelay() {
+        return Duration.ofNanos(currentHedgeDelayNanos());
+    }
+
+    public RetryBudget retryBudget() {
+        return retryBudget;
+    }
+
+    public long retryCount() {
+        return retries.sum();
+    }
+
+    public long hedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * 对冲请求先于原请求返回的次数
+     */
+    public long hedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * 因为重试预算不足而放弃重试或对冲的次数
+     */
+    public long budgetExhaustedCount() {
+        return budgetExhausted.sum();
+    }
+
+    /**
+     * 判断异常是否值得重试：沿异常链查找，LangChain4j 的 RetriableException / NonRetriableException 优先，
+     * 其次看 HTTP 状态码，连接失败等 IO 异常可以重试
+     */
+    static boolean isRetriable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
+            if (cause instanceof NonRetriableException) {
+                return false;
+            }
+            if (cause instanceof HttpException http) {
+                int status = http.statusCode();
+                return status == 408 || status == 429 || status >= 500;
+            }
+            if (cause instanceof IOException || cause instanceof UncheckedIOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 从异常链中取服务端要求的 Retry-After
+     */
+    static Duration retryAfter(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusException http) {
+                return http.retryAfter().orElse(null);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 完全抖动的指数退避。有 Retry-After 时在它的基础上再加 [0, baseDelay] 的抖动，
+     * 避免收到同一个 Retry-After 的客户端同时返回
+     */
+    private long backoffNanos(int attempt, Duration retryAfter) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (retryAfter != null) {
+            return retryAfter.toNanos() + random.nextLong(baseDelayNanos + 1);
+        }
+        long cap = (long) Math.min(maxDelayNanos, baseDelayNanos * Math.pow(2, attempt));
+        return random.nextLong(cap + 1);
+    }
+
+    private <T> T timed(Supplier<T> call) {
+        long start = System.nanoTime();
+        T result = call.get();
+        latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+        return result;
+    }
+
+    private <T> T executeHedged(Supplier<T> call) {
+        Race<T> race = new Race<>(call);
+        try {
+            race.launch();
+            if (!race.await(currentHedgeDelayNanos())) {
+                if (retryBudget.tryAcquire()) {
+                    if (race.launch()) {
+                        hedges.increment();
+                    }
+                } else {
+                    budgetExhausted.increment();
+                }
+            }
+            return race.join();
+        } finally {
+            race.cancel();
+        }
+    }
+
+    private long currentHedgeDelayNanos() {
+        long now = System.nanoTime();
+        if (now - nextRefreshNanos >= 0) {
+            refreshHedgeDelay(now);
+        }
+        return hedgeDelayNanos;
+    }
+
+    /**
+     * 把最近的耗时合并到窗口中；窗口样本足够时更新对冲延迟并开始新窗口
+     */
+    private synchronized void refreshHedgeDelay(long now) {
+        if (now - nextRefreshNanos < 0) {
+            return;
+        }
+        interval = latencies.getIntervalHistogram(interval);
+        window.add(interval);
+        if (window.getTotalCount() >= MIN_HEDGE_SAMPLES) {
+            hedgeDelayNanos = TimeUnit.MICROSECONDS.toNanos(window.getValueAtPercentile(hedgePercentile));
+            log.debug("对冲延迟更新为 {}ms（{} 个样本）", TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos), window.getTotalCount());
+            window.reset();
+        }
+        nextRefreshNanos = now + REFRESH_INTERVAL_NANOS;
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new RuntimeException(cause);
+    }
+
+    /**
+     * 原请求和对冲请求的竞争：第一个成功的结果生效，全部失败时返回最后一个失败
+     */
+    private final class Race<T> {
+
+        private final Supplier<T> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<Future<?>> attempts = new ArrayList<>(2);
+        private final AtomicInteger running = new AtomicInteger();
+
+        private Race(Supplier<T> call) {
+            this.call = call;
+        }
+
+        /**
+         * @return 请求已提交到 executor 时返回 true
+         */
+        private boolean launch() {
+            if (result.isDone()) {
+                return false;
+            }
+            boolean hedge = !attempts.isEmpty();
+            running.incrementAndGet();
+            try {
+                attempts.add(executor.submit(() -> {
+                    try {
+                        T value = timed(call);
+                        if (result.complete(value) && hedge) {
+                            hedgeWins.increment();
+                        }
+                    } catch (Throwable e) {
+                        if (running.decrementAndGet() == 0) {
+                            result.completeExceptionally(e);
+                        }
+                    }
+                }));
+                return true;
+            } catch (RejectedExecutionException e) {
+                // 线程池已满：对冲请求放弃，继续等原请求；没有请求在执行时以拒绝结束
+                if (running.decrementAndGet() == 0) {
+                    result.completeExceptionally(e);
+                }
+                return false;
+            }
+        }
+
+        /**
+         * @return 在指定时间内有了结果（成功或全部失败）时返回 true
+         */
+        private boolean await(long timeoutNanos) {
+            try {
+                result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException e) {
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        private T join() {
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * 中断还在执行的请求，释放连接
+         */
+        private void cancel() {
+            for (Future<?> attempt : attempts) {
+                attempt.cancel(true);
+            }
+        }
+    }
+
+    public static final class Builder {
+        private int maxRetries = 3;
+        private Duration baseDelay = Duration.ofMillis(200);
+        private Duration maxDelay = Duration.ofSeconds(10);
+        private Duration maxRetryAfter = Duration.ofSeconds(30);
+        private RetryBudget retryBudget = new RetryBudget(0.1, 10);
+        private boolean hedging;
+        private Duration hedgeDelay = Duration.ofSeconds(1);
+        private double hedgePercentile = 95;
+        private ExecutorService executor = HEDGE_EXECUTOR;
+
+        private Builder() {
+        }
+
+        /**
+         * 最多重试的次数（不包括第一次请求），默认 3
+         */
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * 退避的基础时间，默认 200ms
+         */
+        public Builder baseDelay(Duration baseDelay) {
+            this.baseDelay = baseDelay;
+            return this;
+        }
+
+        /**
+         * 单次退避的上限，默认 10 秒
+         */
+        public Builder maxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * 愿意等待的最长 Retry-After，默认 30 秒。服务端要求更久时直接抛出异常
+         */
+        public Builder maxRetryAfter(Duration maxRetryAfter) {
+            this.maxRetryAfter = maxRetryAfter;
+            return this;
+        }
+
+        /**
+         * 重试预算，默认每个请求存入 0.1 个令牌、容量 10。访问同一服务的多个模型应该共用一个预算
+         */
+        public Builder retryBudget(RetryBudget retryBudget) {
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        /**
+         * 是否启用对冲请求，默认关闭。只应该对幂等、可以重复执行的调用启用，对冲会增加请求量和费用
+         */
+        public Builder hedging(boolean hedging) {
+            this.hedging = hedging;
+            return this;
+        }
+
+        /**
+         * 样本不足时使用的对冲延迟，默认 1 秒
+         */
+        public Builder hedgeDelay(Duration hedgeDelay) {
+            this.hedgeDelay = hedgeDelay;
+            return this;
+        }
+
+        /**
+         * 对冲延迟取成功请求耗时的哪个百分位，默认 95
+         */
+        public Builder hedgePercentile(double hedgePercentile) {
+            this.hedgePercentile = hedgePercentile;
+            return this;
+        }
+
+        /**
+         * 启用对冲时执行请求的线程池，默认使用共享的有界守护线程池（64 个线程，排队 1024 个任务）。
+         * 线程池拒绝对冲请求时只等原请求，拒绝原请求时调用以 RejectedExecutionException 失败
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Resilience build() {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries 不能小于 0");
+            }
+            if (hedgePercentile <= 0 || hedgePercentile > 100) {
+                throw new IllegalArgumentException("hedgePercentile 必须在 (0, 100] 之间");
+            }
+            Objects.requireNonNull(baseDelay, "baseDelay");
+            Objects.requireNonNull(maxDelay, "maxDelay");
+            Objects.requireNonNull(maxRetryAfter, "maxRetryAfter");
+            Objects.requireNonNull(retryBudget, "retryBudget");
+            Objects.requireNonNull(hedgeDelay, "hedgeDelay");
+            Objects.requireNonNull(executor, "executor");
+            return new Resilience(this);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 重试、重试预算与对冲请求测试
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("重试、重试预算与对冲请求测试")
+class ResilienceTest {
+
+    private MockOpenAiServer server;
+    private HttpTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start()
+                .responder(message -> "你刚才说的是：" + message);
+        transport = new HttpTransport();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("5xx 错误应该按退避重试直到成功")
+    void shouldRetryServerErrors() {
+        Resilience resilience = Resilience.builder()
+                .baseDelay(Duration.ofMillis(20))
+                .build();
+        ChatModel chatModel = new ResilientChatModel(noRetryChatModel(), resilience);
+
+        server.failNext(503, 2).retryAfter(Duration.ZERO);
+        assertEquals("你刚才说的是：你好", chatModel.chat("你好"));
+
+        assertEquals(3, server.requestCount());
+        assertEquals(2, resilience.retryCount());
+
+        log.info("\n✅ 测试通过：5xx 错误重试\n");
+    }
+
+    @Test
+    @DisplayName("429 应该至少等待 Retry-After 后再重试")
+    void shouldHonourRetryAfter() {
+        Resilience resilience = Resilience.builder()
+                .baseDelay(Duration.ofMillis(10))
+                .build();
+        ChatModel chatModel = new ResilientChatModel(noRetryChatModel(), resilience);
+
+        server.failNext(429, 1).retryAfter(Duration.ofMillis(1500));
+        long start = System.nanoTime();
+        assertEquals("你刚才说的是：你好", chatModel.chat("你好"));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertTrue(elapsedMillis >= 1500, "应该至少等待 1500ms: " + elapsedMillis);
+        assertEquals(1, resilience.retryCount());
+
+        // 要求的等待时间超过上限时直接放弃
+        Resilience impatient = Resilience.builder()
+                .maxRetryAfter(Duration.ofSeconds(1))
+                .build();
+        ChatModel impatientModel = new ResilientChatModel(noRetryChatModel(), impatient);
+        server.failNext(429, 1).retryAfter(Duration.ofSeconds(5));
+        RateLimitException error = assertThrows(RateLimitException.class, () -> impatientModel.chat("你好"));
+
+        assertEquals(Duration.ofSeconds(5), Resilience.retryAfter(error));
+        assertEquals(0, impatient.retryCount());
+
+        log.info("\n✅ 测试通过：Retry-After 等待 {}ms\n", elapsedMillis);
+    }
+
+    @Test
+    @DisplayName("请求本身的错误不应该重试")
+    void shouldNotRetryClientErrors() {
+        Resilience resilience = Resilience.builder().build();
+        ChatModel chatModel = new ResilientChatModel(noRetryChatModel(), resilience);
+
+        server.failNext(400, 1);
+        assertThrows(InvalidRequestException.class, () -> chatModel.chat("你好"));
+
+        assertEquals(1, server.requestCount());
+        assertEquals(0, resilience.retryCount());
+        assertFalse(Resilience.isRetriable(new IllegalArgumentException("参数错误")));
+
+        log.info("\n✅ 测试通过：400 错误不重试\n");
+    }
+
+    @Test
+    @DisplayName("服务整体故障时重试预算应该阻止重试风暴")
+    void shouldLimitRetriesWithBudget() {
+        Resilience resilience = Resilience.builder()
+                .maxRetries(3)
+                .baseDelay(Duration.ofMillis(1))
+                .retryBudget(new RetryBudget(0.1, 5))
+                .build();
+        ChatModel chatModel = new ResilientChatModel(noRetryChatModel(), resilience);
+
+        server.fault(500, 1.0);
+        int calls = 50;
+        for (int i = 0; i < calls; i++) {
+            assertThrows(InternalServerException.class, () -> chatModel.chat("你好"));
+        }
+
+        // 不限预算时会有 50 × 3 次重试；有预算时只有初始的 5 个令牌加上每个请求存入的 0.1 个
+        long retries = resilience.retryCount();
+        log.info("请求数: {}, 重试数: {}, 预算不足次数: {}", calls, retries, resilience.budgetExhaustedCount());
+        assertTrue(retries <= 5 + calls * 0.1 + 1, "重试数应该受预算限制: " + retries);
+        assertEquals(calls + retries, server.requestCount());
+        assertTrue(resilience.budgetExhaustedCount() > 0);
+
+        log.info("\n✅ 测试通过：重试预算限制重试数\n");
+    }
+
+    @Test
+    @DisplayName("对冲请求应该削减长尾延迟")
+    void shouldCutTailLatencyWithHedging() {
+        // 5% 的请求需要 1 秒，其余请求的延迟在 15 ~ 25ms 之间
+        server.latency(random -> random.nextDouble() < 0.05
+                ? Duration.ofSeconds(1)
+                : Duration.ofMillis(15 + random.nextInt(10)));
+        Resilience resilience = Resilience.builder()
+                .hedging(true)
+                .hedgeDelay(Duration.ofMillis(200))
+                .retryBudget(new RetryBudget(0.2, 10))
+                .build();
+        ChatModel chatModel = new ResilientChatModel(noRetryChatModel(), resilience);
+        ChatModel plain = noRetryChatModel();
+
+        long[] plainLatencies = measure(plain, 100);
+        long[] hedgedLatencies = measure(chatModel, 100);
+
+        long plainMax = plainLatencies[plainLatencies.length - 1];
+        long hedgedP99 = hedgedLatencies[hedgedLatencies.length * 99 / 100];
+        log.info("不对冲 p50={}ms max={}ms, 对冲 p50={}ms p99={}ms, 对冲延迟 {}ms, 对冲 {} 次, 胜出 {} 次",
+                plainLatencies[50], plainMax, hedgedLatencies[50], hedgedP99,
+                resilience.hedgeDelay().toMillis(), resilience.hedgeCount(), resilience.hedgeWinCount());
+
+        assertTrue(plainMax >= 1000, "不对冲时应该有长尾请求: " + plainMax);
+        assertTrue(hedgedP99 < 500, "对冲后 p99 应该远低于 1 秒: " + hedgedP99);
+        assertTrue(resilience.hedgeWinCount() > 0);
+        assertTrue(resilience.hedgeDelay().toMillis() < 200, "对冲延迟应该根据 p95 下调: " + resilience.hedgeDelay());
+
+        log.info("\n✅ 测试通过：对冲请求削减长尾延迟\n");
+    }
+
+    @Test
+    @DisplayName("线程池拒绝对冲请求时应该继续等待原请求")
+    void shouldWaitForOriginalWhenHedgeRejected() {
+        // 一个线程、不排队：原请求执行期间提交的对冲请求一定被拒绝
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+        try {
+            Resilience resilience = Resilience.builder()
+                    .maxRetries(0)
+                    .hedging(true)
+                    .hedgeDelay(Duration.ofMillis(20))
+                    .retryBudget(new RetryBudget(1.0, 10))
+                    .executor(executor)
+                    .build();
+
+            assertEquals("结果", resilience.execute(() -> {
+                sleep(Duration.ofMillis(100));
+                return "结果";
+            }));
+            assertThrows(InternalServerException.class, () -> resilience.execute(() -> {
+                sleep(Duration.ofMillis(100));
+                throw new InternalServerException("上游返回 500");
+            }));
+            assertEquals(0, resilience.hedgeCount());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("\n✅ 测试通过：对冲请求被拒绝时不影响原请求\n");
+    }
+
+    @Test
+    @DisplayName("EmbeddingModel 也应该重试")
+    void shouldRetryEmbeddings() {
+        Resilience resilience = Resilience.builder()
+                .baseDelay(Duration.ofMillis(20))
+                .build();
+        EmbeddingModel embeddingModel = new ResilientEmbeddingModel(OpenAiEmbeddingModel.builder()
+                .httpClientBuilder(transport.clientBuilder())
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-embedding")
+                .maxRetries(0)
+                .build(), resilience);
+
+        server.failNext(502, 1);
+        float[] vector = embeddingModel.embed("你好").content().vector();
+
+        assertArrayEquals(MockOpenAiServer.embed("你好", vector.length), vector, 1e-6f);
+        assertEquals(1, resilience.retryCount());
+
+        log.info("\n✅ 测试通过：EmbeddingModel 重试\n");
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ChatModel noRetryChatModel() {
+        return OpenAiChatModel.builder()
+                .httpClientBuilder(transport.clientBuilder())
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .maxRetries(0)
+                .build();
+    }
+
+    private static long[] measure(ChatModel chatModel, int count) {
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            chatModel.chat("请求 " + i);
+            latencies[i] = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+}
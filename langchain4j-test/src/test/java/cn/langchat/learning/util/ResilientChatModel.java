@@ -0,0 +1,48 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 按 {@link Resilience} 重试和对冲的 ChatModel 装饰器
+ *
+ * 被包装的模型应该设置 maxRetries(0)。流式模型不适用：已经输出的部分内容无法撤回
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class ResilientChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final Resilience resilience;
+
+    public ResilientChatModel(ChatModel delegate, Resilience resilience) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.resilience = Objects.requireNonNull(resilience, "resilience");
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        return resilience.execute(() -> delegate.chat(chatRequest));
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    public Resilience resilience() {
+        return resilience;
+    }
+}
@@ -0,0 +1,45 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 按 {@link Resilience} 重试和对冲的 EmbeddingModel 装饰器，被包装的模型应该设置 maxRetries(0)
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class ResilientEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final Resilience resilience;
+
+    public ResilientEmbeddingModel(EmbeddingModel delegate, Resilience resilience) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.resilience = Objects.requireNonNull(resilience, "resilience");
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return resilience.execute(() -> delegate.embedAll(textSegments));
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public String modelName() {
+        return delegate.modelName();
+    }
+
+    public Resilience resilience() {
+        return resilience;
+    }
+}
@@ -0,0 +1,77 @@
+package cn.langchat.learning.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重试预算（令牌桶）
+ *
+ * 每个请求向桶里存入 ratio 个令牌，每次重试或对冲请求取出 1 个令牌，取不到时放弃重试。
+ * 服务正常时偶发的失败可以重试；服务整体故障时，重试数被限制在请求数的 ratio 倍以内，
+ * 不会因为每一层、每个请求都重试而把流量放大几倍，形成重试风暴。
+ * 桶的容量限制了一段空闲之后可以连续重试的次数
+ *
+ * 多个 {@link Resilience} 可以共用一个预算，例如访问同一个服务的所有模型
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long depositPerRequest;
+    private final long capacity;
+    /**
+     * 当前令牌数 × SCALE
+     */
+    private final AtomicLong balance;
+
+    /**
+     * @param ratio    每个请求存入的令牌数，即重试数与请求数之比的上限，例如 0.1
+     * @param capacity 桶的容量，也是初始令牌数
+     */
+    public RetryBudget(double ratio, int capacity) {
+        if (ratio < 0 || capacity < 0) {
+            throw new IllegalArgumentException("ratio 和 capacity 不能小于 0");
+        }
+        this.depositPerRequest = Math.round(ratio * SCALE);
+        this.capacity = capacity * SCALE;
+        this.balance = new AtomicLong(this.capacity);
+    }
+
+    /**
+     * 记录一个请求（不包括重试）
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(capacity, current + depositPerRequest)));
+    }
+
+    /**
+     * 尝试为一次重试取出 1 个令牌
+     *
+     * @return 预算不足时返回 false
+     */
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    /**
+     * 当前可用的令牌数
+     */
+    public double available() {
+        return balance.get() / (double) SCALE;
+    }
+}
@@ -0,0 +1,355 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在多个模型端点之间负载均衡和故障转移的 ChatModel
+ *
+ * - 选择：power of two choices。从健康的后端中随机取两个，选择 EWMA 延迟 ×（进行中请求数 + 1）较小的一个，
+ *   既偏向更快的后端，又不会让所有请求同时涌向同一个后端。还没有延迟数据的后端会被优先尝试
+ * - EWMA：按时间衰减，最近 decay 时间内的请求权重最大；比当前值更慢的请求立即生效（peak EWMA），
+ *   后端变慢时能很快被发现
+ * - 摘除：连续 ejectAfterFailures 次端点故障（超时、连接失败、408、429、5xx）后摘除 ejectionDuration，
+ *   到期后重新加入，再失败一次就再次摘除。所有后端都被摘除时忽略摘除状态，避免完全不可用
+ * - 故障转移：非流式请求遇到端点故障或被 {@link EndpointIsolation} 拒绝时，换一个没有尝试过的后端重新发送，
+ *   最多尝试 maxAttempts 个后端。400 等请求本身的错误直接抛出
+ *
+ * 各后端应该设置 maxRetries(0)，由路由在后端之间重试。不同后端的模型名可以不同，
+ * 每个后端使用自己的默认参数，路由本身没有默认参数
+ *
+ * 指标：
+ * - langchat.router.requests：发到各后端的请求数，标签 backend、outcome（success / error）
+ * - langchat.router.failovers：故障转移次数，标签 backend（失败的后端）
+ * - langchat.router.ejections：摘除次数，标签 backend
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class RoutingChatModel implements ChatModel {
+
+    public static final String REQUEST_COUNTER = "langchat.router.requests";
+    public static final String FAILOVER_COUNTER = "langchat.router.failovers";
+    public static final String EJECTION_COUNTER = "langchat.router.ejections";
+
+    private final List<Backend> backends;
+    private final int maxAttempts;
+    private final int ejectAfterFailures;
+    private final long ejectionNanos;
+    private final double decayNanos;
+
+    private RoutingChatModel(Builder builder) {
+        this.maxAttempts = Math.min(builder.maxAttempts, builder.backends.size());
+        this.ejectAfterFailures = builder.ejectAfterFailures;
+        this.ejectionNanos = builder.ejectionDuration.toNanos();
+        this.decayNanos = builder.decay.toNanos();
+        List<Backend> list = new ArrayList<>();
+        for (BackendSpec spec : builder.backends) {
+            list.add(new Backend(spec.name, spec.model, builder.meterRegistry));
+        }
+        this.backends = List.copyOf(list);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        List<Backend> tried = new ArrayList<>(maxAttempts);
+        RuntimeException lastError = null;
+        while (tried.size() < maxAttempts) {
+            Backend backend = choose(tried);
+            tried.add(backend);
+            try {
+                return backend.chat(chatRequest);
+            } catch (CallNotPermittedException e) {
+                lastError = e;
+            } catch (RuntimeException e) {
+                if (!Resilience.isRetriable(e)) {
+                    throw e;
+                }
+                lastError = e;
+            }
+            if (tried.size() < maxAttempts) {
+                backend.failovers.increment();
+                log.warn("后端 {} 请求失败，转移到其它后端: {}", backend.name, lastError.toString());
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * 各后端的当前状态，按配置顺序排列
+     */
+    public List<Backend> backends() {
+        return backends;
+    }
+
+    /**
+     * 从没有尝试过的后端中选择：优先健康的后端，都不健康时从全部未尝试的后端中选择
+     */
+    private Backend choose(List<Backend> tried) {
+        long now = System.nanoTime();
+        List<Backend> candidates = new ArrayList<>(backends.size());
+        for (Backend backend : backends) {
+            if (!tried.contains(backend) && !backend.isEjected(now)) {
+                candidates.add(backend);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (Backend backend : backends) {
+                if (!tried.contains(backend)) {
+                    candidates.add(backend);
+                }
+            }
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Backend a = candidates.get(first);
+        Backend b = candidates.get(second);
+        return a.cost(now) <= b.cost(now) ? a : b;
+    }
+
+    /**
+     * 一个后端及其延迟、健康状态
+     */
+    public final class Backend {
+
+        private final String name;
+        private final ChatModel model;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Counter successes;
+        private final Counter errors;
+        private final Counter failovers;
+        private final Counter ejections;
+        /**
+         * 以下字段由 this 保护
+         */
+        private double ewmaNanos;
+        private long lastUpdateNanos;
+        private boolean sampled;
+        private int consecutiveFailures;
+        private long ejectedUntilNanos;
+        private boolean ejected;
+
+        private Backend(String name, ChatModel model, MeterRegistry registry) {
+            this.name = name;
+            this.model = model;
+            this.successes = requestCounter(registry, "success");
+            this.errors = requestCounter(registry, "error");
+            this.failovers = Counter.builder(FAILOVER_COUNTER)
+                    .description("故障转移次数")
+                    .tag("backend", name)
+                    .register(registry);
+            this.ejections = Counter.builder(EJECTION_COUNTER)
+                    .description("后端被摘除的次数")
+                    .tag("backend", name)
+                    .register(registry);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 按时间衰减的平均延迟，还没有请求时为 0
+         */
+        public synchronized Duration getEwmaLatency() {
+            return Duration.ofNanos((long) decayed(System.nanoTime()));
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public synchronized boolean isEjected() {
+            return isEjected(System.nanoTime());
+        }
+
+        private ChatResponse chat(ChatRequest chatRequest) {
+            inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                ChatResponse response = model.chat(chatRequest);
+                onSuccess(System.nanoTime() - start);
+                successes.increment();
+                return response;
+            } catch (RuntimeException e) {
+                errors.increment();
+                if (Resilience.isRetriable(e)) {
+                    onFailure(System.nanoTime() - start);
+                }
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private synchronized double cost(long now) {
+            return sampled ? decayed(now) * (inFlight.get() + 1) : 0;
+        }
+
+        private synchronized boolean isEjected(long now) {
+            if (ejected && now - ejectedUntilNanos >= 0) {
+                // 重新加入，再失败一次就再次摘除
+                ejected = false;
+                consecutiveFailures = ejectAfterFailures - 1;
+                log.info("后端 {} 重新加入", name);
+            }
+            return ejected;
+        }
+
+        private synchronized void onSuccess(long latencyNanos) {
+            consecutiveFailures = 0;
+            update(latencyNanos);
+        }
+
+        private synchronized void onFailure(long latencyNanos) {
+            // 失败的请求按耗时计入延迟，超时的后端不会因为“没有延迟数据”而被优先选择
+            update(latencyNanos);
+            if (!ejected && ++consecutiveFailures >= ejectAfterFailures) {
+                ejected = true;
+                ejectedUntilNanos = System.nanoTime() + ejectionNanos;
+                ejections.increment();
+                log.warn("后端 {} 连续失败 {} 次，摘除 {}ms", name, consecutiveFailures,
+                        TimeUnit.NANOSECONDS.toMillis(ejectionNanos));
+            }
+        }
+
+        private void update(long latencyNanos) {
+            long now = System.nanoTime();
+            double current = decayed(now);
+            if (!sampled || latencyNanos > current) {
+                ewmaNanos = latencyNanos;
+                sampled = true;
+            } else {
+                double weight = Math.exp(-(now - lastUpdateNanos) / decayNanos);
+                ewmaNanos = current * weight + latencyNanos * (1 - weight);
+            }
+            lastUpdateNanos = now;
+        }
+
+        /**
+         * 距离上次更新越久，对上次的值越不确定：值随时间向 0 衰减。
+         * 偶然变慢（例如建立连接）而不再被选中的后端，过一段时间会重新得到尝试机会
+         */
+        private double decayed(long now) {
+            if (!sampled) {
+                return 0;
+            }
+            return ewmaNanos * Math.exp(-Math.max(0, now - lastUpdateNanos) / decayNanos);
+        }
+
+        private Counter requestCounter(MeterRegistry registry, String outcome) {
+            return Counter.builder(REQUEST_COUNTER)
+                    .description("路由到各后端的请求数")
+                    .tag("backend", name)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+
+        @Override
+        public String toString() {
+            return "Backend{name=" + name + ", ewmaLatency=" + getEwmaLatency().toMillis() + "ms, inFlight="
+                    + getInFlight() + ", ejected=" + isEjected() + "}";
+        }
+    }
+
+    private record BackendSpec(String name, ChatModel model) {
+    }
+
+    public static final class Builder {
+        private final List<BackendSpec> backends = new ArrayList<>();
+        private int maxAttempts = Integer.MAX_VALUE;
+        private int ejectAfterFailures = 3;
+        private Duration ejectionDuration = Duration.ofSeconds(30);
+        private Duration decay = Duration.ofSeconds(10);
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+        private Builder() {
+        }
+
+        /**
+         * 添加一个后端，name 用于日志和指标标签
+         */
+        public Builder backend(String name, ChatModel model) {
+            backends.add(new BackendSpec(Objects.requireNonNull(name, "name"), Objects.requireNonNull(model, "model")));
+            return this;
+        }
+
+        /**
+         * 一次请求最多尝试的后端数，默认为全部后端
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * 连续失败多少次后摘除，默认 3
+         */
+        public Builder ejectAfterFailures(int ejectAfterFailures) {
+            this.ejectAfterFailures = ejectAfterFailures;
+            return this;
+        }
+
+        /**
+         * 摘除的时长，默认 30 秒
+         */
+        public Builder ejectionDuration(Duration ejectionDuration) {
+            this.ejectionDuration = ejectionDuration;
+            return this;
+        }
+
+        /**
+         * EWMA 的衰减时间，默认 10 秒
+         */
+        public Builder decay(Duration decay) {
+            this.decay = decay;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public RoutingChatModel build() {
+            if (backends.isEmpty()) {
+                throw new IllegalArgumentException("至少需要一个后端");
+            }
+            if (backends.stream().map(BackendSpec::name).distinct().count() != backends.size()) {
+                throw new IllegalArgumentException("后端名称不能重复");
+            }
+            if (maxAttempts <= 0 || ejectAfterFailures <= 0) {
+                throw new IllegalArgumentException("maxAttempts 和 ejectAfterFailures 必须大于 0");
+            }
+            Objects.requireNonNull(ejectionDuration, "ejectionDuration");
+            Objects.requireNonNull(decay, "decay");
+            Objects.requireNonNull(meterRegistry, "meterRegistry");
+            return new RoutingChatModel(this);
+        }
+    }
+}
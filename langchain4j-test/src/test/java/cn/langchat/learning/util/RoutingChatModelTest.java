@@ -0,0 +1,151 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多端点负载均衡与故障转移测试
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("多端点负载均衡与故障转移测试")
+class RoutingChatModelTest {
+
+    private MockOpenAiServer fast;
+    private MockOpenAiServer slow;
+    private HttpTransport transport;
+    private SimpleMeterRegistry meters;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fast = MockOpenAiServer.start().responder(message -> "fast");
+        slow = MockOpenAiServer.start().responder(message -> "slow");
+        transport = new HttpTransport();
+        meters = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        fast.close();
+        slow.close();
+    }
+
+    @Test
+    @DisplayName("应该把大部分请求路由到更快的后端")
+    void shouldPreferFasterBackend() {
+        fast.latency(Duration.ofMillis(10));
+        slow.latency(Duration.ofMillis(200));
+        // 第一个请求要建立连接，衰减时间短一些，让偶然变慢的快后端尽快重新得到尝试
+        RoutingChatModel router = router(RoutingChatModel.builder().decay(Duration.ofMillis(500)));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 40; i++) {
+            counts.merge(router.chat("你好"), 1, Integer::sum);
+        }
+        log.info("请求分布: {}, 后端状态: {}", counts, router.backends());
+
+        assertTrue(counts.getOrDefault("fast", 0) >= 30, "大部分请求应该路由到快的后端: " + counts);
+
+        log.info("\n✅ 测试通过：按延迟路由\n");
+    }
+
+    @Test
+    @DisplayName("后端故障时应该在同一次请求中转移到其它后端，并摘除故障后端")
+    void shouldFailOverAndEjectUnhealthyBackend() throws Exception {
+        // 立即返回 500 的后端延迟更低，只按延迟选择时会一直被选中，需要摘除才能避开
+        fast.latency(Duration.ofMillis(20));
+        slow.fault(500, 1.0);
+        RoutingChatModel router = router(RoutingChatModel.builder()
+                .ejectAfterFailures(2)
+                .ejectionDuration(Duration.ofSeconds(2)));
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("fast", router.chat("你好"));
+        }
+
+        RoutingChatModel.Backend unhealthy = router.backends().get(1);
+        assertTrue(unhealthy.isEjected());
+        assertEquals(2, slow.requestCount(), "摘除后不应该再有请求发到故障后端");
+        assertEquals(2, meters.get(RoutingChatModel.FAILOVER_COUNTER).tag("backend", "slow").counter().count());
+        assertEquals(1, meters.get(RoutingChatModel.EJECTION_COUNTER).tag("backend", "slow").counter().count());
+
+        // 摘除到期且后端恢复后重新接收请求
+        slow.clearFaults();
+        Thread.sleep(2100);
+        assertFalse(unhealthy.isEjected());
+        for (int i = 0; i < 20 && slow.requestCount() == 2; i++) {
+            router.chat("你好");
+        }
+        assertTrue(slow.requestCount() > 2, "恢复的后端应该重新接收请求");
+
+        log.info("\n✅ 测试通过：故障转移与摘除\n");
+    }
+
+    @Test
+    @DisplayName("请求本身的错误不应该转移到其它后端")
+    void shouldNotFailOverClientErrors() {
+        fast.failNext(400, 1);
+        slow.failNext(400, 1);
+        RoutingChatModel router = router(RoutingChatModel.builder());
+
+        assertThrows(InvalidRequestException.class, () -> router.chat("你好"));
+
+        assertEquals(1, fast.requestCount() + slow.requestCount());
+
+        log.info("\n✅ 测试通过：400 错误不转移\n");
+    }
+
+    @Test
+    @DisplayName("所有后端都故障时应该抛出最后一个错误")
+    void shouldThrowWhenAllBackendsFail() {
+        fast.fault(500, 1.0);
+        slow.fault(500, 1.0);
+        RoutingChatModel router = router(RoutingChatModel.builder().ejectAfterFailures(1));
+
+        assertThrows(InternalServerException.class, () -> router.chat("你好"));
+        assertEquals(1, fast.requestCount());
+        assertEquals(1, slow.requestCount());
+
+        // 全部被摘除时仍然尝试所有后端，而不是直接拒绝
+        fast.clearFaults();
+        assertEquals("fast", router.chat("你好"));
+
+        log.info("\n✅ 测试通过：全部后端故障\n");
+    }
+
+    private RoutingChatModel router(RoutingChatModel.Builder builder) {
+        return builder
+                .backend("fast", chatModel(fast))
+                .backend("slow", chatModel(slow))
+                .meterRegistry(meters)
+                .build();
+    }
+
+    private ChatModel chatModel(MockOpenAiServer server) {
+        return OpenAiChatModel.builder()
+                .httpClientBuilder(transport.clientBuilder())
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .maxRetries(0)
+                .build();
+    }
+}
@@ -0,0 +1,219 @@
+package cn.langchat.learning.util;
+
+import io.opentelemetry.context.Context;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 合并相同的进行中请求（single flight）
+ *
+ * 同一个 key 同时只有一个上游调用，调用期间到达的相同请求等待并共享这次调用的结果（包括异常）。
+ * 调用结束后 key 立即移除，不缓存结果：之后的请求会重新调用上游。
+ *
+ * 上游调用在 executor 的线程上执行，所有调用方（包括第一个）都只是等待者：
+ * - 某个等待者被中断或取消时只有它自己离开，其它等待者照常拿到结果
+ * - 所有等待者都离开后，上游调用被中断，不再占用连接；之后的相同请求会重新发起调用
+ * 发起调用的线程上的 OpenTelemetry Context 会传给上游调用，链路不会断开。
+ * executor 拒绝任务时，这次调用立即以 RejectedExecutionException 结束并移除
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class SingleFlight<K, V> {
+
+    private static final ExecutorService SHARED_EXECUTOR = DaemonThreads.boundedPool("langchat-single-flight", 64, 1024);
+
+    private final Map<K, Call> calls = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder sharedCalls = new LongAdder();
+
+    /**
+     * 使用共享的有界守护线程池（64 个线程，排队 1024 个调用）
+     */
+    public SingleFlight() {
+        this(SHARED_EXECUTOR);
+    }
+
+    public SingleFlight(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 执行或加入 key 对应的调用，并等待结果
+     *
+     * 调用方线程被中断时离开这次调用，抛出 RuntimeException 并保留中断标记
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> waiter = submit(key, loader);
+        try {
+            return waiter.get();
+        } catch (InterruptedException e) {
+            waiter.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * 执行或加入 key 对应的调用
+     *
+     * @return 这个等待者自己的 future；取消它只会让这个等待者离开，不影响其它等待者
+     */
+    public CompletableFuture<V> submit(K key, Supplier<V> loader) {
+        while (true) {
+            Call existing = calls.get(key);
+            if (existing != null) {
+                CompletableFuture<V> waiter = existing.join();
+                if (waiter != null) {
+                    sharedCalls.increment();
+                    return waiter;
+                }
+                // 调用刚被取消，等它移除后重新发起
+                calls.remove(key, existing);
+                continue;
+            }
+            Call call = new Call(key);
+            if (calls.putIfAbsent(key, call) != null) {
+                continue;
+            }
+            CompletableFuture<V> waiter = call.join();
+            upstreamCalls.increment();
+            Supplier<V> contextual = Context.current().wrapSupplier(loader);
+            Future<?> task;
+            try {
+                task = executor.submit(() -> call.run(contextual));
+            } catch (RuntimeException e) {
+                // executor 拒绝或已关闭：移除这次调用，已加入的等待者都拿到这个异常
+                call.fail(e);
+                return waiter;
+            }
+            call.start(task);
+            return waiter;
+        }
+    }
+
+    /**
+     * 正在进行的上游调用数
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+
+    /**
+     * 发起的上游调用数
+     */
+    public long upstreamCount() {
+        return upstreamCalls.sum();
+    }
+
+    /**
+     * 加入已有调用、没有发起上游调用的请求数
+     */
+    public long sharedCount() {
+        return sharedCalls.sum();
+    }
+
+    /**
+     * 一次上游调用及其等待者
+     */
+    private final class Call {
+
+        private final K key;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        /**
+         * 以下字段由 this 保护
+         */
+        private int waiters;
+        private boolean abandoned;
+        private Future<?> task;
+
+        private Call(K key) {
+            this.key = key;
+        }
+
+        /**
+         * 加入这次调用；调用已被所有等待者放弃时返回 null
+         */
+        private synchronized CompletableFuture<V> join() {
+            if (abandoned) {
+                return null;
+            }
+            waiters++;
+            CompletableFuture<V> waiter = new CompletableFuture<>();
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    waiter.completeExceptionally(error);
+                } else {
+                    waiter.complete(value);
+                }
+            });
+            waiter.whenComplete((value, error) -> {
+                if (error instanceof CancellationException) {
+                    leave();
+                }
+            });
+            return waiter;
+        }
+
+        private synchronized void start(Future<?> task) {
+            this.task = task;
+            if (abandoned) {
+                task.cancel(true);
+            }
+        }
+
+        private void leave() {
+            Future<?> toCancel;
+            synchronized (this) {
+                if (--waiters > 0 || result.isDone()) {
+                    return;
+                }
+                abandoned = true;
+                toCancel = task;
+            }
+            calls.remove(key, this);
+            result.cancel(false);
+            if (toCancel != null) {
+                toCancel.cancel(true);
+            }
+        }
+
+        /**
+         * 先移除再完成：结果完成后到达的请求不会再加入这次调用，而是重新调用上游
+         */
+        private void run(Supplier<V> loader) {
+            V value;
+            try {
+                value = loader.get();
+            } catch (Throwable e) {
+                fail(e);
+                return;
+            }
+            calls.remove(key, this);
+            result.complete(value);
+        }
+
+        private void fail(Throwable error) {
+            calls.remove(key, this);
+            result.completeExceptionally(error);
+        }
+    }
+}
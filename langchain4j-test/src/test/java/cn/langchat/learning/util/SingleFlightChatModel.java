@@ -0,0 +1,53 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 合并相同进行中请求的 ChatModel 装饰器
+ *
+ * 消息和参数完全相同（ChatRequest 相等）的并发请求只调用一次上游，共享同一个 ChatResponse。
+ * 只适合结果可以共享的场景：temperature 较高时，合并后所有调用方会拿到同一个采样结果
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class SingleFlightChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final SingleFlight<ChatRequest, ChatResponse> flight;
+
+    public SingleFlightChatModel(ChatModel delegate) {
+        this(delegate, new SingleFlight<>());
+    }
+
+    public SingleFlightChatModel(ChatModel delegate, SingleFlight<ChatRequest, ChatResponse> flight) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.flight = Objects.requireNonNull(flight, "flight");
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        return flight.execute(chatRequest, () -> delegate.chat(chatRequest));
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    public SingleFlight<ChatRequest, ChatResponse> flight() {
+        return flight;
+    }
+}
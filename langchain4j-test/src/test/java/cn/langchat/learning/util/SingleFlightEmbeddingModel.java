@@ -0,0 +1,53 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 合并相同进行中请求的 EmbeddingModel 装饰器
+ *
+ * 文本和元数据完全相同的并发请求只调用一次上游。调用方共享同一组 Embedding，不应该修改其中的向量
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class SingleFlightEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final SingleFlight<List<TextSegment>, Response<List<Embedding>>> flight;
+
+    public SingleFlightEmbeddingModel(EmbeddingModel delegate) {
+        this(delegate, new SingleFlight<>());
+    }
+
+    public SingleFlightEmbeddingModel(EmbeddingModel delegate,
+                                      SingleFlight<List<TextSegment>, Response<List<Embedding>>> flight) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.flight = Objects.requireNonNull(flight, "flight");
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        List<TextSegment> key = List.copyOf(textSegments);
+        return flight.execute(key, () -> delegate.embedAll(key));
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public String modelName() {
+        return delegate.modelName();
+    }
+
+    public SingleFlight<List<TextSegment>, Response<List<Embedding>>> flight() {
+        return flight;
+    }
+}
@@ -0,0 +1,272 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 相同请求合并测试
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("相同请求合并测试")
+class SingleFlightTest {
+
+    private MockOpenAiServer server;
+    private HttpTransport transport;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start()
+                .responder(message -> "你刚才说的是：" + message)
+                .latency(Duration.ofMillis(300));
+        transport = new HttpTransport();
+        callers = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        transport.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("并发的相同对话请求应该只调用一次上游")
+    void shouldCoalesceIdenticalChatRequests() {
+        SingleFlightChatModel chatModel = new SingleFlightChatModel(noRetryChatModel());
+        // 预热连接和类加载，避免第一个调用方在其它调用方到达前就已经返回
+        chatModel.chat("预热");
+        server.resetStats();
+        server.latency(Duration.ofSeconds(1));
+        long warmup = chatModel.flight().upstreamCount();
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> chatModel.chat("常见问题：如何重置密码？"), callers));
+        }
+        futures.add(CompletableFuture.supplyAsync(() -> chatModel.chat("另一个问题"), callers));
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals("你刚才说的是：常见问题：如何重置密码？", futures.get(i).join());
+        }
+        assertEquals("你刚才说的是：另一个问题", futures.get(8).join());
+
+        log.info("请求 9 个，上游调用 {} 次，合并 {} 次", server.requestCount(), chatModel.flight().sharedCount());
+        assertTrue(server.requestCount() <= 3, "相同请求应该合并: " + server.requestCount());
+        assertEquals(server.requestCount(), chatModel.flight().upstreamCount() - warmup);
+        assertEquals(0, chatModel.flight().inFlight());
+
+        // 调用结束后不缓存结果
+        chatModel.chat("常见问题：如何重置密码？");
+        assertEquals(chatModel.flight().upstreamCount() - warmup, server.requestCount());
+
+        log.info("\n✅ 测试通过：合并相同的对话请求\n");
+    }
+
+    @Test
+    @DisplayName("上游失败时所有等待者都应该收到异常，之后的请求重新调用")
+    void shouldShareFailures() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(flight.submit("key", () -> {
+                calls.incrementAndGet();
+                awaitUninterruptibly(release);
+                throw new InternalServerException("上游返回 500");
+            }));
+        }
+        release.countDown();
+
+        for (CompletableFuture<String> future : futures) {
+            ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(InternalServerException.class, error.getCause());
+        }
+        assertEquals(1, calls.get());
+        assertThrows(InternalServerException.class, () -> flight.execute("key", () -> {
+            throw new InternalServerException("上游返回 500");
+        }));
+
+        // 失败不会被缓存
+        assertEquals("结果", flight.execute("key", () -> "结果"));
+        assertEquals(3, flight.upstreamCount());
+
+        log.info("\n✅ 测试通过：共享失败结果\n");
+    }
+
+    @Test
+    @DisplayName("executor 拒绝任务时调用应该立即失败并移除")
+    void shouldFailWhenExecutorRejects() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        SingleFlight<String, String> flight = new SingleFlight<>(executor);
+
+        CompletableFuture<String> future = flight.submit("key", () -> "结果");
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertEquals(0, flight.inFlight());
+        assertThrows(RejectedExecutionException.class, () -> flight.execute("key", () -> "结果"));
+        assertEquals(0, flight.inFlight());
+
+        log.info("\n✅ 测试通过：任务被拒绝时不会留下悬挂的调用\n");
+    }
+
+    @Test
+    @DisplayName("部分等待者离开时其它等待者应该照常拿到结果，全部离开时应该中断上游调用")
+    void shouldHandleCancellation() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> first = flight.submit("key", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            awaitUninterruptibly(release);
+            return "结果";
+        });
+        CompletableFuture<String> second = flight.submit("key", () -> "不应该执行");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        first.cancel(true);
+        release.countDown();
+
+        assertEquals("结果", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+
+        // 所有等待者都离开时，上游调用被中断
+        CountDownLatch blocked = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+        CompletableFuture<String> only = flight.submit("slow", () -> {
+            blocked.countDown();
+            try {
+                Thread.sleep(10_000);
+                return "不应该返回";
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                throw new RuntimeException(e);
+            } finally {
+                finished.countDown();
+            }
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        only.cancel(true);
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.get());
+        assertEquals(0, flight.inFlight());
+
+        // 放弃的调用不会被之后的请求复用
+        assertEquals("新结果", flight.execute("slow", () -> "新结果"));
+
+        log.info("\n✅ 测试通过：等待者取消\n");
+    }
+
+    @Test
+    @DisplayName("调用方线程被中断时应该只让自己离开")
+    void shouldLeaveOnInterrupt() throws Exception {
+        SingleFlightChatModel chatModel = new SingleFlightChatModel(noRetryChatModel());
+
+        CompletableFuture<String> survivor = CompletableFuture.supplyAsync(() -> chatModel.chat("你好"), callers);
+        AtomicBoolean left = new AtomicBoolean();
+        Thread impatient = new Thread(() -> {
+            try {
+                chatModel.chat("你好");
+            } catch (RuntimeException e) {
+                left.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        impatient.start();
+        Thread.sleep(100);
+        impatient.interrupt();
+        impatient.join(5000);
+        assertTrue(left.get(), "被中断的调用方应该离开并保留中断标记");
+
+        assertEquals("你刚才说的是：你好", survivor.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.requestCount());
+
+        log.info("\n✅ 测试通过：中断只影响自己\n");
+    }
+
+    @Test
+    @DisplayName("并发的相同向量请求应该只调用一次上游")
+    void shouldCoalesceIdenticalEmbeddings() {
+        EmbeddingModel embeddingModel = new SingleFlightEmbeddingModel(OpenAiEmbeddingModel.builder()
+                .httpClientBuilder(transport.clientBuilder())
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-embedding")
+                .maxRetries(0)
+                .build());
+
+        List<CompletableFuture<Embedding>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> embeddingModel.embed("什么是 RAG？").content(), callers));
+        }
+
+        float[] expected = futures.get(0).join().vector();
+        for (CompletableFuture<Embedding> future : futures) {
+            assertArrayEquals(expected, future.join().vector());
+        }
+        assertTrue(server.requestCount() <= 2, "相同向量请求应该合并: " + server.requestCount());
+
+        log.info("\n✅ 测试通过：合并相同的向量请求\n");
+    }
+
+    private ChatModel noRetryChatModel() {
+        return OpenAiChatModel.builder()
+                .httpClientBuilder(transport.clientBuilder())
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .maxRetries(0)
+                .build();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
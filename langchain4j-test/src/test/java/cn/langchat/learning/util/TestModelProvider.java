@@ -3,17 +3,20 @@ package cn.langchat.learning.util;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.openai.OpenAiChatModel;
-import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * 测试模型提供者
  * 
  * 提供静态方法获取配置好的 ChatModel 和 StreamingChatModel
  * 用于所有测试类和示例类
  * 
+ * 模型实例由 {@link ModelRegistry} 按配置缓存，所有模型共用一个 HTTP 连接池；
+ * .env 中开启了限流或攒批时，在这里给模型加上对应的装饰器
+ * 
  * 配置从以下来源加载（按优先级）：
  * 1. 系统环境变量
  * 2. .env.local 文件
@@ -26,6 +29,11 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public final class TestModelProvider {
 
+    /**
+     * 同一个 Base URL 的限流模型共用额度
+     */
+    private static final Map<String, TokenRateLimiter> RATE_LIMITERS = new ConcurrentHashMap<>();
+
     private TestModelProvider() {
         // 工具类，不允许实例化
     }
@@ -36,13 +44,14 @@ public final class TestModelProvider {
      * @return 配置好的 ChatModel
      */
     public static ChatModel getChatModel() {
-        return OpenAiChatModel.builder()
-                .apiKey(EnvConfig.getApiKey())
-                .baseUrl(EnvConfig.getBaseUrl())
-                .modelName(EnvConfig.getModelName())
-                .temperature(EnvConfig.getTemperature())
-                .maxTokens(EnvConfig.getMaxTokens())
-                .build();
+        ModelConfig config = ModelConfig.chatFromEnv();
+        ChatModel chatModel = ModelRegistry.getDefault().chatModel(config);
+        if (!TokenRateLimiter.isConfigured()) {
+            return chatModel;
+        }
+        // 配置了 RPM / TPM 时在客户端限流，批量测试不会触发大量 429
+        TokenRateLimiter limiter = RATE_LIMITERS.computeIfAbsent(config.getBaseUrl(), TokenRateLimiter::fromEnv);
+        return new RateLimitedChatModel(chatModel, limiter);
     }
 
     /**
@@ -51,13 +60,7 @@ public final class TestModelProvider {
      * @return 配置好的 StreamingChatModel
      */
     public static StreamingChatModel getStreamingChatModel() {
-        return OpenAiStreamingChatModel.builder()
-                .apiKey(EnvConfig.getApiKey())
-                .baseUrl(EnvConfig.getBaseUrl())
-                .modelName(EnvConfig.getModelName())
-                .temperature(EnvConfig.getTemperature())
-                .maxTokens(EnvConfig.getMaxTokens())
-                .build();
+        return ModelRegistry.getDefault().streamingChatModel(ModelConfig.chatFromEnv());
     }
 
     /**
@@ -84,14 +87,14 @@ public final class TestModelProvider {
     /**
      * 获取 EmbeddingModel
      *
+     * 开启攒批时每次返回新的攒批装饰器，只有通过同一个实例的并发请求才会合并
+     *
      * @return 配置好的 EmbeddingModel
      */
     public static EmbeddingModel getEmbeddingModel() {
-        return OpenAiEmbeddingModel.builder()
-                .apiKey(EnvConfig.getApiKey())
-                .baseUrl(EnvConfig.getBaseUrl())
-                .modelName(EnvConfig.getEmbeddingModelName())
-                .build();
+        EmbeddingModel embeddingModel = ModelRegistry.getDefault().embeddingModel(ModelConfig.embeddingFromEnv());
+        // 配置了攒批窗口时，并发的单条请求合并成一次批量请求
+        return BatchingEmbeddingModel.isConfigured() ? BatchingEmbeddingModel.fromEnv(embeddingModel) : embeddingModel;
     }
 
     /**
@@ -0,0 +1,31 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
+
+/**
+ * 共享的 token 估算器
+ *
+ * {@link OpenAiTokenCountEstimator} 加载 BPE 词表需要几十毫秒，线程安全，整个进程共用一个实例，
+ * 第一次估算时才创建
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class TokenEstimators {
+
+    private TokenEstimators() {
+        // 工具类，不允许实例化
+    }
+
+    /**
+     * 按 gpt-4 的分词规则估算 token 数
+     */
+    public static TokenCountEstimator openAi() {
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        private static final TokenCountEstimator INSTANCE = new OpenAiTokenCountEstimator("gpt-4");
+    }
+}
@@ -0,0 +1,234 @@
+package cn.langchat.learning.util;
+
+import cn.langchat.learning.util.QuotaStore.Quota;
+import dev.langchain4j.exception.RateLimitException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 同时限制 RPM 和 TPM 的客户端限流器
+ *
+ * - 发送前按估算的 token 数预留额度，额度不足时等待，而不是发出去再收到 429
+ * - 响应返回后用实际的 token 用量修正预留（见 {@link Reservation#commit(long)}），请求失败时返还 token
+ * - 等待的调用方按到达顺序排队：只有队首的调用方在等额度，大请求不会被源源不断的小请求饿死
+ * - 额度记在 {@link QuotaStore} 中，多个进程共用一个 API Key 时可以换成共享存储
+ *
+ * 可以通过 {@link #fromEnv(String)} 从 .env 读取：
+ * <pre>
+ * LANGCHAT_RATE_LIMIT_RPM=500         # 每分钟请求数，0 表示不限制
+ * LANGCHAT_RATE_LIMIT_TPM=200000      # 每分钟 token 数，0 表示不限制
+ * LANGCHAT_RATE_LIMIT_MAX_WAIT_MS=60000 # 最长等待时间，超过时抛出 RateLimitException
+ * </pre>
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+public final class TokenRateLimiter {
+
+    public static final String REQUESTS_PER_MINUTE = "LANGCHAT_RATE_LIMIT_RPM";
+    public static final String TOKENS_PER_MINUTE = "LANGCHAT_RATE_LIMIT_TPM";
+    public static final String MAX_WAIT_MS = "LANGCHAT_RATE_LIMIT_MAX_WAIT_MS";
+
+    private static final int DEFAULT_MAX_WAIT_MS = 60_000;
+
+    private final String key;
+    private final Quota quota;
+    private final QuotaStore store;
+    private final long maxWaitNanos;
+    /**
+     * 公平锁即等待队列：持有锁的调用方是队首，其它调用方按到达顺序在锁上排队
+     */
+    private final ReentrantLock queue = new ReentrantLock(true);
+
+    private TokenRateLimiter(Builder builder) {
+        this.key = builder.key;
+        this.quota = new Quota(builder.requestsPerMinute, builder.tokensPerMinute);
+        this.store = builder.store;
+        this.maxWaitNanos = builder.maxWait.toNanos();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 是否在 .env 中配置了 RPM 或 TPM
+     */
+    public static boolean isConfigured() {
+        EnvSnapshot env = EnvConfig.snapshot();
+        return env.getInt(REQUESTS_PER_MINUTE, 0) > 0 || env.getInt(TOKENS_PER_MINUTE, 0) > 0;
+    }
+
+    /**
+     * 从 EnvConfig 读取限额，使用进程内的 {@link LocalQuotaStore}
+     *
+     * @param key 额度的归属，通常是 Base URL 或 API Key 的标识
+     */
+    public static TokenRateLimiter fromEnv(String key) {
+        EnvSnapshot env = EnvConfig.snapshot();
+        return builder()
+                .key(key)
+                .requestsPerMinute(env.getInt(REQUESTS_PER_MINUTE, 0))
+                .tokensPerMinute(env.getInt(TOKENS_PER_MINUTE, 0))
+                .maxWait(Duration.ofMillis(env.getInt(MAX_WAIT_MS, DEFAULT_MAX_WAIT_MS)))
+                .build();
+    }
+
+    /**
+     * 为一个请求预留额度，按到达顺序等待
+     *
+     * @param estimatedTokens 估算的 token 数（输入 + 预计输出），超过 TPM 时按 TPM 预留
+     * @throws RateLimitException 等待超过 maxWait
+     */
+    public Reservation acquire(long estimatedTokens) {
+        long tokens = quota.tokensPerMinute() > 0 ? Math.min(estimatedTokens, quota.tokensPerMinute()) : estimatedTokens;
+        long deadline = System.nanoTime() + maxWaitNanos;
+        try {
+            if (!queue.tryLock(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw timeout();
+            }
+            try {
+                while (true) {
+                    long waitNanos = store.tryConsume(key, quota, 1, tokens);
+                    if (waitNanos == 0) {
+                        return new Reservation(tokens);
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (waitNanos > remaining) {
+                        throw timeout();
+                    }
+                    log.debug("额度不足，等待 {}ms（预留 {} token）", TimeUnit.NANOSECONDS.toMillis(waitNanos), tokens);
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            } finally {
+                queue.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 当前剩余的 token 额度
+     */
+    public double availableTokens() {
+        return store.availableTokens(key, quota);
+    }
+
+    /**
+     * 正在排队等待额度的调用方数（不包括队首）
+     */
+    public int queueLength() {
+        return queue.getQueueLength();
+    }
+
+    public Quota quota() {
+        return quota;
+    }
+
+    private RateLimitException timeout() {
+        return new RateLimitException("等待 " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "ms 后额度仍不足: " + key);
+    }
+
+    /**
+     * 一次预留，必须以 commit 或 cancel 结束，重复调用无效
+     */
+    public final class Reservation {
+
+        private final long reservedTokens;
+        private boolean settled;
+
+        private Reservation(long reservedTokens) {
+            this.reservedTokens = reservedTokens;
+        }
+
+        public long getReservedTokens() {
+            return reservedTokens;
+        }
+
+        /**
+         * 按实际用量修正：用得少返还差额，用得多追加扣减
+         */
+        public synchronized void commit(long actualTokens) {
+            if (settled) {
+                return;
+            }
+            settled = true;
+            if (actualTokens != reservedTokens) {
+                store.adjust(key, quota, 0, actualTokens - reservedTokens);
+            }
+        }
+
+        /**
+         * 请求没有被服务端处理，返还预留的 token；请求数不返还，失败的请求同样计入服务端的 RPM
+         */
+        public synchronized void cancel() {
+            if (settled) {
+                return;
+            }
+            settled = true;
+            store.adjust(key, quota, 0, -reservedTokens);
+        }
+    }
+
+    public static final class Builder {
+        private String key = "default";
+        private long requestsPerMinute;
+        private long tokensPerMinute;
+        private Duration maxWait = Duration.ofMillis(DEFAULT_MAX_WAIT_MS);
+        private QuotaStore store = new LocalQuotaStore();
+
+        private Builder() {
+        }
+
+        public Builder key(String key) {
+            this.key = key;
+            return this;
+        }
+
+        /**
+         * 每分钟请求数，默认不限制
+         */
+        public Builder requestsPerMinute(long requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+            return this;
+        }
+
+        /**
+         * 每分钟 token 数，默认不限制
+         */
+        public Builder tokensPerMinute(long tokensPerMinute) {
+            this.tokensPerMinute = tokensPerMinute;
+            return this;
+        }
+
+        /**
+         * 最长等待时间（包括排队），默认 60 秒
+         */
+        public Builder maxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        /**
+         * 额度存储，默认为进程内存储；多个限流器共用一个存储和 key 时共享额度
+         */
+        public Builder store(QuotaStore store) {
+            this.store = store;
+            return this;
+        }
+
+        public TokenRateLimiter build() {
+            Objects.requireNonNull(key, "key");
+            Objects.requireNonNull(maxWait, "maxWait");
+            Objects.requireNonNull(store, "store");
+            return new TokenRateLimiter(this);
+        }
+    }
+}
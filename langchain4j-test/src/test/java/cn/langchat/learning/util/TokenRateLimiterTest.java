@@ -0,0 +1,188 @@
+package cn.langchat.learning.util;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RPM / TPM 客户端限流测试
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+@Slf4j
+@DisplayName("RPM / TPM 客户端限流测试")
+class TokenRateLimiterTest {
+
+    @TempDir
+    Path configDir;
+
+    private MockOpenAiServer server;
+    private HttpTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = MockOpenAiServer.start()
+                .responder(message -> "你刚才说的是：" + message);
+        transport = new HttpTransport();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.close();
+        EnvConfig.reload();
+    }
+
+    @Test
+    @DisplayName("token 额度用完时应该等待补充")
+    void shouldWaitForTokenQuota() {
+        // 每秒补充 1000 个 token
+        TokenRateLimiter limiter = TokenRateLimiter.builder()
+                .tokensPerMinute(60_000)
+                .build();
+        limiter.acquire(60_000).commit(60_000);
+
+        long start = System.nanoTime();
+        limiter.acquire(300).commit(300);
+        long waitedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertTrue(waitedMillis >= 250 && waitedMillis < 1000, "300 个 token 应该等待约 300ms: " + waitedMillis);
+
+        log.info("\n✅ 测试通过：等待 token 额度 {}ms\n", waitedMillis);
+    }
+
+    @Test
+    @DisplayName("请求数额度用完时应该等待，超过最长等待时间时抛出 RateLimitException")
+    void shouldLimitRequestsPerMinute() {
+        TokenRateLimiter limiter = TokenRateLimiter.builder()
+                .requestsPerMinute(2)
+                .maxWait(Duration.ofMillis(200))
+                .build();
+        limiter.acquire(0).commit(0);
+        limiter.acquire(0).commit(0);
+
+        // 下一个请求要等 30 秒，超过 maxWait，立即失败而不是空等
+        long start = System.nanoTime();
+        assertThrows(RateLimitException.class, () -> limiter.acquire(0));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 200);
+
+        log.info("\n✅ 测试通过：RPM 限流\n");
+    }
+
+    @Test
+    @DisplayName("应该用实际用量修正预留的 token，失败的请求返还 token")
+    void shouldCorrectReservationWithActualUsage() {
+        TokenRateLimiter limiter = TokenRateLimiter.builder()
+                .tokensPerMinute(6_000_000)
+                .build();
+        ChatModel chatModel = new RateLimitedChatModel(noRetryChatModel(), limiter);
+        double before = limiter.availableTokens();
+
+        ChatResponse response = chatModel.chat(ChatRequest.builder()
+                .messages(UserMessage.from("请用一句话介绍 LangChain4j"))
+                .maxOutputTokens(500)
+                .build());
+
+        // 预留了约 500 + 输入的 token，修正后只扣实际用量；补充速度是每毫秒 100 个，允许少量误差
+        int used = response.tokenUsage().totalTokenCount();
+        double consumed = before - limiter.availableTokens();
+        log.info("实际用量 {}，修正后扣减 {}", used, consumed);
+        assertTrue(used < 100);
+        assertTrue(Math.abs(consumed - used) < 100, "修正后应该只扣实际用量: " + consumed);
+
+        server.failNext(500, 1);
+        double beforeFailure = limiter.availableTokens();
+        assertThrows(RuntimeException.class, () -> chatModel.chat("你好"));
+        assertTrue(limiter.availableTokens() >= beforeFailure, "失败的请求应该返还 token");
+
+        log.info("\n✅ 测试通过：按实际用量修正\n");
+    }
+
+    @Test
+    @DisplayName("等待的调用方应该按到达顺序获得额度")
+    void shouldQueueCallersFairly() throws Exception {
+        TokenRateLimiter limiter = TokenRateLimiter.builder()
+                .tokensPerMinute(60_000)
+                .build();
+        limiter.acquire(60_000).commit(60_000);
+
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        // 先到的大请求不应该被后到的小请求插队
+        long[] sizes = {500, 10, 10, 10};
+        ExecutorService callers = Executors.newFixedThreadPool(sizes.length);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < sizes.length; i++) {
+                int index = i;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    limiter.acquire(sizes[index]).commit(sizes[index]);
+                    order.add(index);
+                }, callers));
+                // 保证到达顺序
+                while (limiter.queueLength() < i) {
+                    Thread.onSpinWait();
+                }
+                Thread.sleep(20);
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).join();
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(List.of(0, 1, 2, 3), order);
+
+        log.info("\n✅ 测试通过：按到达顺序排队\n");
+    }
+
+    @Test
+    @DisplayName("配置了 RPM / TPM 时 TestModelProvider 应该返回限流的模型")
+    void shouldConfigureFromEnv() throws IOException {
+        Files.writeString(configDir.resolve(".env"), String.join("\n",
+                "LANGCHAT_BASE_URL=" + server.baseUrl(),
+                "LANGCHAT_API_KEY=" + MockOpenAiServer.API_KEY,
+                "LANGCHAT_RATE_LIMIT_RPM=100",
+                "LANGCHAT_RATE_LIMIT_TPM=20000"));
+        EnvConfig.reload(configDir);
+
+        ChatModel chatModel = TestModelProvider.getChatModel();
+
+        RateLimitedChatModel rateLimited = assertInstanceOf(RateLimitedChatModel.class, chatModel);
+        assertEquals(new QuotaStore.Quota(100, 20_000), rateLimited.limiter().quota());
+        assertEquals("你刚才说的是：你好", chatModel.chat("你好"));
+
+        log.info("\n✅ 测试通过：从 .env 读取限额\n");
+    }
+
+    private ChatModel noRetryChatModel() {
+        return OpenAiChatModel.builder()
+                .httpClientBuilder(transport.clientBuilder())
+                .baseUrl(server.baseUrl())
+                .apiKey(MockOpenAiServer.API_KEY)
+                .modelName("mock-model")
+                .maxRetries(0)
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+package cn.langchat.learning.util;
+
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+
+/**
+ * OpenTelemetry 链路追踪工具
+ *
+ * 采样率可以通过 .env 配置：
+ * <pre>
+ * LANGCHAT_TRACE_SAMPLE_RATIO=0.1   # 0.0 ~ 1.0，默认 0.1
+ * </pre>
+ *
+ * 采样在创建根 span 时按 traceId 决定，子 span 跟随父 span 的决定，
+ * 所以一条链路要么完整保留，要么完全丢弃。未采样的 span 不记录属性也不导出，
+ * 高 QPS 下追踪开销与采样率成正比。
+ *
+ * @author LangChat Team
+ * @see <a href="https://langchat.cn">https://langchat.cn</a>
+ */
+public final class Tracing {
+
+    public static final String SAMPLE_RATIO = "LANGCHAT_TRACE_SAMPLE_RATIO";
+
+    private static final double DEFAULT_SAMPLE_RATIO = 0.1;
+
+    private Tracing() {
+        // 工具类，不允许实例化
+    }
+
+    /**
+     * 按比例采样根 span，子 span 跟随父 span
+     */
+    public static Sampler sampler(double ratio) {
+        if (ratio < 0.0 || ratio > 1.0) {
+            throw new IllegalArgumentException("采样率必须在 0.0 ~ 1.0 之间: " + ratio);
+        }
+        return Sampler.parentBased(Sampler.traceIdRatioBased(ratio));
+    }
+
+    /**
+     * 从 EnvConfig 读取采样率
+     */
+    public static Sampler samplerFromEnv() {
+        return sampler(EnvConfig.snapshot().getDouble(SAMPLE_RATIO, DEFAULT_SAMPLE_RATIO));
+    }
+
+    /**
+     * 使用批量导出创建 OpenTelemetry，导出在后台线程进行，不阻塞请求
+     */
+    public static OpenTelemetrySdk create(SpanExporter exporter) {
+        return create(BatchSpanProcessor.builder(exporter).build(), samplerFromEnv());
+    }
+
+    /**
+     * 使用指定的 SpanProcessor 和采样器创建 OpenTelemetry
+     *
+     * 测试中可以传入 SimpleSpanProcessor + InMemorySpanExporter 同步拿到 span
+     */
+    public static OpenTelemetrySdk create(SpanProcessor spanProcessor, Sampler sampler) {
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(spanProcessor)
+                .setSampler(sampler)
+                .build();
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .build();
+    }
+}